@@ -0,0 +1,31 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Turns the statistics of a cache into the metrics the metrics endpoints report. */
+final class CacheMetrics {
+
+  private CacheMetrics() {}
+
+  /**
+   * Reports how well a cache is doing.
+   *
+   * @param cache the cache, or null if caching is disabled
+   * @return the hit, miss, load and eviction counts, the hit rate and the current size
+   */
+  static Map<String, Object> of(Cache<?, ?> cache) {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("enabled", cache != null);
+    CacheStats cacheStats = cache == null ? CacheStats.empty() : cache.stats();
+    stats.put("hitCount", cacheStats.hitCount());
+    stats.put("missCount", cacheStats.missCount());
+    stats.put("hitRate", cacheStats.hitRate());
+    stats.put("loadCount", cacheStats.loadCount());
+    stats.put("evictionCount", cacheStats.evictionCount());
+    stats.put("size", cache == null ? 0 : cache.estimatedSize());
+    return stats;
+  }
+}
@@ -0,0 +1,89 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import service.models.Item;
+
+/**
+ * In-process read-through cache of items keyed by item id. Entries are evicted by Caffeine's
+ * W-TinyLFU policy once the cache is full, and expire a fixed time after they were loaded. Every
+ * write to an item must invalidate its entry after the write is committed. Invalidating a key that
+ * is being loaded waits for the load to finish, so a load that read the row before the write cannot
+ * leave a stale entry behind.
+ *
+ * <p>Invalidation only reaches the cache of the instance that made the write, so the time to live
+ * bounds how stale an entry can be after another instance writes the item.
+ */
+public class ItemCache {
+
+  private final Cache<String, Item> cache;
+
+  /**
+   * Creates a bounded item cache.
+   *
+   * @param maximumSize maximum number of cached items
+   * @param timeToLive how long an item stays cached after it was loaded
+   */
+  public ItemCache(long maximumSize, Duration timeToLive) {
+    this(Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive));
+  }
+
+  private ItemCache(Caffeine<Object, Object> builder) {
+    this.cache = builder == null ? null : builder.recordStats().build();
+  }
+
+  /**
+   * Creates a cache that stores nothing, so every read goes to the loader.
+   *
+   * @return a pass-through cache
+   */
+  public static ItemCache disabled() {
+    return new ItemCache(null);
+  }
+
+  /**
+   * Returns the cached item, loading and caching it on a miss. Items that are not found are not
+   * cached. Callers get their own copy of a cached item, so changing it does not change the cache.
+   *
+   * @param itemId the item id
+   * @param loader reads the item from the DB, returning null if it does not exist
+   * @return a copy of the item, or null if it does not exist
+   */
+  public Item get(String itemId, Function<String, Item> loader) {
+    if (cache == null) {
+      return loader.apply(itemId);
+    }
+    Item item = cache.get(itemId, loader);
+    return item == null ? null : item.toBuilder().build();
+  }
+
+  /**
+   * Drops the cached copy of an item. Call after every committed write to the item.
+   *
+   * @param itemId the item id
+   */
+  public void invalidate(String itemId) {
+    if (cache != null) {
+      cache.invalidate(itemId);
+    }
+  }
+
+  /** Drops every cached item. Call after writes that change items without naming them. */
+  public void invalidateAll() {
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Reports how well the cache is doing.
+   *
+   * @return the hit, miss, load and eviction counts, the hit rate and the current size
+   */
+  public Map<String, Object> getStats() {
+    return CacheMetrics.of(cache);
+  }
+}
@@ -0,0 +1,94 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import service.models.UserPrincipal;
+
+/**
+ * In-process cache of authenticated principals keyed by username, so that authenticating a request
+ * does not read the user from the DB every time. Entries expire a short time after they were loaded
+ * and must be invalidated whenever the user's username, password or role changes or the user is
+ * deleted. Usernames that are not found are not cached.
+ */
+public class PrincipalCache {
+
+  private final Cache<String, UserPrincipal> cache;
+
+  private final LongAdder dbLookups = new LongAdder();
+
+  /**
+   * Creates a bounded principal cache.
+   *
+   * @param maximumSize maximum number of cached principals
+   * @param timeToLive how long a principal stays cached after it was loaded
+   */
+  public PrincipalCache(long maximumSize, Duration timeToLive) {
+    this(Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive));
+  }
+
+  private PrincipalCache(Caffeine<Object, Object> builder) {
+    this.cache = builder == null ? null : builder.recordStats().build();
+  }
+
+  /**
+   * Creates a cache that stores nothing, so every authentication reads the DB.
+   *
+   * @return a pass-through cache
+   */
+  public static PrincipalCache disabled() {
+    return new PrincipalCache(null);
+  }
+
+  /**
+   * Returns the cached principal, loading and caching it on a miss.
+   *
+   * @param username the username
+   * @param loader reads the user from the DB, throwing if the user does not exist
+   * @return the principal
+   */
+  public UserPrincipal get(String username, Function<String, UserPrincipal> loader) {
+    Function<String, UserPrincipal> countingLoader =
+        key -> {
+          dbLookups.increment();
+          return loader.apply(key);
+        };
+    return cache == null ? countingLoader.apply(username) : cache.get(username, countingLoader);
+  }
+
+  /**
+   * Drops the cached principal of a username.
+   *
+   * @param username the username
+   */
+  public void invalidate(String username) {
+    if (cache != null) {
+      cache.invalidate(username);
+    }
+  }
+
+  /**
+   * Drops the cached principal of a user when only the user id is known.
+   *
+   * @param userId the user id
+   */
+  public void invalidateUser(String userId) {
+    if (cache != null) {
+      cache.asMap().values().removeIf(principal -> principal.getUserId().toString().equals(userId));
+    }
+  }
+
+  /**
+   * Reports how well the cache is doing.
+   *
+   * @return the cache metrics and the number of authentication lookups that reached the DB
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = CacheMetrics.of(cache);
+    stats.put("dbLookups", dbLookups.sum());
+    return stats;
+  }
+}
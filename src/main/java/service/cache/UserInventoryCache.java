@@ -0,0 +1,77 @@
+package service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-process cache of the inventory ids each user can access, keyed by user id, so that completing
+ * names as a user types does not read the User_Inventories table on every keystroke. Entries are
+ * invalidated when access is granted or revoked through this instance, and expire a short time
+ * after they were loaded, which bounds how long a change made elsewhere, or an inventory deleted
+ * with its junction rows, takes to show up.
+ */
+public class UserInventoryCache {
+
+  private final Cache<String, List<String>> cache;
+
+  /**
+   * Creates a bounded cache of user inventory ids.
+   *
+   * @param maximumSize maximum number of users cached
+   * @param timeToLive how long a user's inventory ids stay cached after they were loaded
+   */
+  public UserInventoryCache(long maximumSize, Duration timeToLive) {
+    this(Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive));
+  }
+
+  private UserInventoryCache(Caffeine<Object, Object> builder) {
+    this.cache = builder == null ? null : builder.recordStats().build();
+  }
+
+  /**
+   * Creates a cache that stores nothing, so every lookup reads the DB.
+   *
+   * @return a pass-through cache
+   */
+  public static UserInventoryCache disabled() {
+    return new UserInventoryCache(null);
+  }
+
+  /**
+   * Returns the cached inventory ids of a user, loading and caching them on a miss.
+   *
+   * @param userId the user id
+   * @param loader reads the user's inventory ids from the DB
+   * @return the inventory ids, which cannot be changed
+   */
+  public List<String> get(String userId, Function<String, List<String>> loader) {
+    if (cache == null) {
+      return loader.apply(userId);
+    }
+    return cache.get(userId, key -> List.copyOf(loader.apply(key)));
+  }
+
+  /**
+   * Drops the cached inventory ids of a user after their access changed.
+   *
+   * @param userId the user id
+   */
+  public void invalidate(String userId) {
+    if (cache != null) {
+      cache.invalidate(userId);
+    }
+  }
+
+  /**
+   * Reports how well the cache is doing.
+   *
+   * @return the hit, miss, load and eviction counts, hit rate and size of the cache
+   */
+  public Map<String, Object> getStats() {
+    return CacheMetrics.of(cache);
+  }
+}
@@ -0,0 +1,153 @@
+package service.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/**
+ * Issues and verifies the signed access tokens clients can send instead of their password. A token
+ * is "payload.signature", both base64url encoded. The payload holds the user id, role, expiry and
+ * username, and the signature is an HMAC-SHA256 of the payload under the locally configured key, so
+ * a token is verified without reading the DB. A role change or delete takes effect on the user's
+ * tokens only once they expire, which is why tokens are short-lived.
+ */
+@Component
+public class AccessTokenService {
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private static final int MINIMUM_KEY_BYTES = 32;
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final ThreadLocal<Mac> mac;
+
+  private final Duration timeToLive;
+
+  private final Clock clock;
+
+  /**
+   * Creates a token service signing with the configured key. Without a key, a random one is made on
+   * startup, so tokens stop working on restart and are only accepted by the instance that issued
+   * them.
+   *
+   * @param secret the signing key, at least 32 bytes, or empty for a random key
+   * @param timeToLive how long an issued token is accepted
+   */
+  @Autowired
+  public AccessTokenService(
+      @Value("${service.auth.token-secret:}") String secret,
+      @Value("${service.auth.token-time-to-live:15m}") Duration timeToLive) {
+    this(keyBytes(secret), timeToLive, Clock.systemUTC());
+  }
+
+  AccessTokenService(byte[] key, Duration timeToLive, Clock clock) {
+    if (key.length < MINIMUM_KEY_BYTES) {
+      throw new IllegalArgumentException(
+          "service.auth.token-secret must be at least " + MINIMUM_KEY_BYTES + " bytes");
+    }
+    SecretKeySpec keySpec = new SecretKeySpec(key, ALGORITHM);
+    this.mac =
+        ThreadLocal.withInitial(
+            () -> {
+              try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(keySpec);
+                return instance;
+              } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    this.timeToLive = timeToLive;
+    this.clock = clock;
+  }
+
+  private static byte[] keyBytes(String secret) {
+    if (secret == null || secret.isEmpty()) {
+      byte[] key = new byte[MINIMUM_KEY_BYTES];
+      new SecureRandom().nextBytes(key);
+      return key;
+    }
+    return secret.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets how long an issued token is accepted.
+   *
+   * @return the token time to live
+   */
+  public Duration getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Issues a token for an authenticated user.
+   *
+   * @param principal the user the token is for
+   * @return the signed token
+   */
+  public String issue(UserPrincipal principal) {
+    long expiresAt = clock.instant().plus(timeToLive).getEpochSecond();
+    String payload =
+        principal.getUserId()
+            + ":"
+            + principal.getRole()
+            + ":"
+            + expiresAt
+            + ":"
+            + principal.getUsername();
+    byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+    return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+  }
+
+  /**
+   * Verifies a token and rebuilds the user it was issued for.
+   *
+   * @param token the token
+   * @return the user, without a password, or null if the token is malformed, forged or expired
+   */
+  public UserPrincipal verify(String token) {
+    int dot = token.indexOf('.');
+    if (dot < 0) {
+      return null;
+    }
+    try {
+      byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+        return null;
+      }
+      String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 4);
+      if (fields.length != 4 || clock.instant().getEpochSecond() >= Long.parseLong(fields[2])) {
+        return null;
+      }
+      return new UserPrincipal(
+          User.builder()
+              .userId(UUID.fromString(fields[0]))
+              .role(UserRoles.valueOf(fields[1]))
+              .username(fields[3])
+              .build());
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private byte[] sign(byte[] payload) {
+    return mac.get().doFinal(payload);
+  }
+}
@@ -0,0 +1,64 @@
+package service.config;
+
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import service.cache.ItemCache;
+import service.cache.PrincipalCache;
+import service.cache.UserInventoryCache;
+
+/** Configures the in-process caches in front of the DB. */
+@Configuration
+public class CacheConfig {
+
+  /**
+   * Creates the item cache the items helper reads through.
+   *
+   * @param enabled whether items are cached at all
+   * @param maximumSize maximum number of cached items
+   * @param timeToLive how long an item stays cached after it was loaded
+   * @return the item cache
+   */
+  @Bean
+  public ItemCache itemCache(
+      @Value("${service.cache.items.enabled:true}") boolean enabled,
+      @Value("${service.cache.items.maximum-size:10000}") long maximumSize,
+      @Value("${service.cache.items.time-to-live:10s}") Duration timeToLive) {
+    return enabled ? new ItemCache(maximumSize, timeToLive) : ItemCache.disabled();
+  }
+
+  /**
+   * Creates the cache of authenticated principals the user details service reads through.
+   *
+   * @param enabled whether principals are cached at all
+   * @param maximumSize maximum number of cached principals
+   * @param timeToLive how long a principal stays cached after it was loaded
+   * @return the principal cache
+   */
+  @Bean
+  public PrincipalCache principalCache(
+      @Value("${service.cache.principals.enabled:true}") boolean enabled,
+      @Value("${service.cache.principals.maximum-size:10000}") long maximumSize,
+      @Value("${service.cache.principals.time-to-live:1m}") Duration timeToLive) {
+    return enabled ? new PrincipalCache(maximumSize, timeToLive) : PrincipalCache.disabled();
+  }
+
+  /**
+   * Creates the cache of the inventory ids each user can access, read by name completion.
+   *
+   * @param enabled whether user inventory ids are cached at all
+   * @param maximumSize maximum number of users cached
+   * @param timeToLive how long a user's inventory ids stay cached after they were loaded
+   * @return the user inventory cache
+   */
+  @Bean
+  public UserInventoryCache userInventoryCache(
+      @Value("${service.cache.user-inventories.enabled:true}") boolean enabled,
+      @Value("${service.cache.user-inventories.maximum-size:10000}") long maximumSize,
+      @Value("${service.cache.user-inventories.time-to-live:30s}") Duration timeToLive) {
+    return enabled
+        ? new UserInventoryCache(maximumSize, timeToLive)
+        : UserInventoryCache.disabled();
+  }
+}
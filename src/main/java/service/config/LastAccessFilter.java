@@ -0,0 +1,47 @@
+package service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import service.handler.LastAccessRecorder;
+import service.models.UserPrincipal;
+
+/**
+ * Records the access of every authenticated request, whether it carried an access token or basic
+ * credentials. Accesses go to the {@link LastAccessRecorder}, which writes them in batches, so
+ * requests do not wait on an update of the Users table.
+ */
+public class LastAccessFilter extends OncePerRequestFilter {
+
+  private final LastAccessRecorder lastAccessRecorder;
+
+  /**
+   * Creates a filter that records accesses with the given recorder.
+   *
+   * @param lastAccessRecorder records the accesses
+   */
+  public LastAccessFilter(LastAccessRecorder lastAccessRecorder) {
+    this.lastAccessRecorder = lastAccessRecorder;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication != null
+        && authentication.getPrincipal() instanceof UserPrincipal principal
+        && principal.getUserId() != null) {
+      lastAccessRecorder.record(
+          principal.getUserId().toString(), LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+    filterChain.doFilter(request, response);
+  }
+}
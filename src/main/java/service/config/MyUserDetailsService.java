@@ -5,6 +5,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import service.cache.PrincipalCache;
 import service.handler.UsersTableSqlHelper;
 import service.models.User;
 import service.models.UserPrincipal;
@@ -15,10 +16,18 @@ public class MyUserDetailsService implements UserDetailsService {
 
   @Autowired private UsersTableSqlHelper usersTableSqlHelper;
 
-  /** Describe how the user login will interact with DB. */
+  @Autowired private PrincipalCache principalCache = PrincipalCache.disabled();
+
+  /**
+   * Describe how the user login will interact with DB. Principals are cached, so only the first
+   * request of a user within the cache's time to live reads the DB.
+   */
   @Override
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    return principalCache.get(username, this::loadPrincipal);
+  }
 
+  private UserPrincipal loadPrincipal(String username) {
     User user = usersTableSqlHelper.getUserWithUsername(username);
 
     if (user == null) {
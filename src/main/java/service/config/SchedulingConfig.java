@@ -0,0 +1,14 @@
+package service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/** Runs the periodic background jobs, such as the reservation expiry sweep. */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(
+    name = "service.scheduling.enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class SchedulingConfig {}
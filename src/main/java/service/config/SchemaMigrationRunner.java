@@ -0,0 +1,311 @@
+package service.config;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies the versioned schema migrations on startup. Migrations are SQL scripts named
+ * V&lt;version&gt;__&lt;description&gt;.sql under the migration location. Each one is applied once,
+ * in version order, and recorded in the schema_migrations table. Scripts are split on ";" at the
+ * end of a line. Statements with a body, such as triggers, change the delimiter first with a
+ * mysql-client style "DELIMITER $$" line.
+ *
+ * <p>Instances started together take turns: a run holds the schema_migrations named lock of MySQL
+ * on one connection from reading the applied versions to recording the last migration. CREATE INDEX
+ * and DROP INDEX statements are skipped when the index already exists or is already gone, so a
+ * migration that failed halfway through them can be run again.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "service.migrations.enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class SchemaMigrationRunner {
+
+  private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+  private static final String DELIMITER_COMMAND = "DELIMITER ";
+
+  /** Name of the MySQL lock a run holds, shared by every instance migrating the same DB. */
+  static final String LOCK_NAME = "schema_migrations";
+
+  private static final Pattern INDEX_STATEMENT =
+      Pattern.compile(
+          "(CREATE|DROP)\\s+(?:UNIQUE\\s+)?INDEX\\s+`?(\\w+)`?\\s+ON\\s+`?(\\w+)`?.*",
+          Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final String location;
+
+  private final Duration lockTimeout;
+
+  /**
+   * Creates a runner for the migrations found at the given location.
+   *
+   * @param jdbcTemplate the jdbc template for the DB to migrate
+   * @param location resource pattern of the directory holding the migration scripts
+   * @param lockTimeout how long to wait for another instance to finish migrating
+   */
+  @Autowired
+  public SchemaMigrationRunner(
+      JdbcTemplate jdbcTemplate,
+      @Value("${service.migrations.location:classpath:db/migration}") String location,
+      @Value("${service.migrations.lock-timeout:5m}") Duration lockTimeout) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.location = location;
+    this.lockTimeout = lockTimeout;
+  }
+
+  /** Applies the pending migrations before the application starts serving requests. */
+  @PostConstruct
+  public void applyOnStartup() throws IOException {
+    List<Integer> applied = migrate();
+    System.out.println(applied.size() + " schema migration/s applied: " + applied);
+  }
+
+  /**
+   * Applies every migration that has not been applied yet. A migration that fails stops the run and
+   * is not recorded, so it is retried on the next start. MySQL commits each DDL statement on its
+   * own, so a failed migration must be written to be safe to run again. Index statements are made
+   * safe by the runner, other statements have to be written that way.
+   *
+   * @return versions applied by this run, in order
+   * @throws IOException if a migration script cannot be read
+   * @throws IllegalStateException if another instance holds the migration lock past the timeout
+   */
+  public List<Integer> migrate() throws IOException {
+    List<Migration> migrations = findMigrations();
+    return jdbcTemplate.execute(
+        (ConnectionCallback<List<Integer>>)
+            connection -> {
+              lock(connection);
+              try {
+                // Applied versions are only read once the lock is held, so an instance that
+                // waited for another one sees what that one applied
+                return migrate(connection, migrations);
+              } finally {
+                unlock(connection);
+              }
+            });
+  }
+
+  private List<Integer> migrate(Connection connection, List<Migration> migrations)
+      throws SQLException {
+    JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+    session.execute(
+        "create table if not exists schema_migrations ("
+            + "version INT PRIMARY KEY, "
+            + "description VARCHAR(255) NOT NULL, "
+            + "checksum BIGINT NOT NULL, "
+            + "applied_at DATETIME NOT NULL)");
+    Map<Integer, Long> appliedChecksums = new HashMap<>();
+    session.query(
+        "select version, checksum from schema_migrations",
+        (RowCallbackHandler) rs -> appliedChecksums.put(rs.getInt(1), rs.getLong(2)));
+
+    List<Integer> applied = new ArrayList<>();
+    for (Migration migration : migrations) {
+      Long appliedChecksum = appliedChecksums.get(migration.version);
+      if (appliedChecksum == null) {
+        for (String statement : splitStatements(migration.script)) {
+          if (isDone(connection, statement)) {
+            System.out.println("Skipping index statement already in effect: " + statement);
+          } else {
+            session.execute(statement);
+          }
+        }
+        session.update(
+            "insert into schema_migrations (version, description, checksum, applied_at)"
+                + " values (?,?,?,?)",
+            migration.version,
+            migration.description,
+            migration.checksum,
+            LocalDateTime.now());
+        applied.add(migration.version);
+      } else if (appliedChecksum != migration.checksum) {
+        System.out.println(
+            "Schema migration V" + migration.version + " changed after it was applied");
+      }
+    }
+    return applied;
+  }
+
+  private void lock(Connection connection) throws SQLException {
+    Integer locked = null;
+    try (PreparedStatement statement = connection.prepareStatement("select GET_LOCK(?, ?)")) {
+      statement.setString(1, LOCK_NAME);
+      statement.setLong(2, lockTimeout.toSeconds());
+      try (ResultSet rs = statement.executeQuery()) {
+        if (rs.next()) {
+          locked = rs.getObject(1, Integer.class);
+        }
+      }
+    }
+    if (locked == null || locked != 1) {
+      throw new IllegalStateException(
+          "Schema migration lock not acquired within " + lockTimeout.toSeconds() + "s");
+    }
+  }
+
+  private void unlock(Connection connection) {
+    try (PreparedStatement statement = connection.prepareStatement("select RELEASE_LOCK(?)")) {
+      statement.setString(1, LOCK_NAME);
+      statement.executeQuery().close();
+    } catch (SQLException e) {
+      // The lock goes with the connection in any case
+      System.err.println("Schema migration lock could not be released: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Tells whether a statement is a CREATE INDEX of an index that exists, or a DROP INDEX of one
+   * that does not.
+   */
+  private static boolean isDone(Connection connection, String statement) throws SQLException {
+    Matcher matcher = INDEX_STATEMENT.matcher(statement);
+    if (!matcher.matches()) {
+      return false;
+    }
+    boolean create = "CREATE".equalsIgnoreCase(matcher.group(1));
+    return indexExists(connection, matcher.group(3), matcher.group(2)) == create;
+  }
+
+  private static boolean indexExists(Connection connection, String table, String index)
+      throws SQLException {
+    DatabaseMetaData metaData = connection.getMetaData();
+    String tableName = table;
+    if (metaData.storesUpperCaseIdentifiers()) {
+      tableName = table.toUpperCase(Locale.ROOT);
+    } else if (metaData.storesLowerCaseIdentifiers()) {
+      tableName = table.toLowerCase(Locale.ROOT);
+    }
+    try (ResultSet rs =
+        metaData.getIndexInfo(
+            connection.getCatalog(), connection.getSchema(), tableName, false, false)) {
+      while (rs.next()) {
+        if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<Migration> findMigrations() throws IOException {
+    List<Migration> migrations = new ArrayList<>();
+    Resource[] resources =
+        new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql");
+    for (Resource resource : resources) {
+      Matcher matcher = MIGRATION_NAME.matcher(resource.getFilename());
+      if (matcher.matches()) {
+        String script = resource.getContentAsString(StandardCharsets.UTF_8);
+        migrations.add(
+            new Migration(
+                Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script));
+      }
+    }
+    migrations.sort(Comparator.comparingInt(migration -> migration.version));
+    return migrations;
+  }
+
+  /**
+   * Splits a script into statements. Line comments are dropped, a statement ends at a line ending
+   * with the current delimiter, and "DELIMITER" lines change the delimiter.
+   *
+   * @param script the SQL script
+   * @return the statements without their delimiters
+   */
+  public static List<String> splitStatements(String script) {
+    List<String> statements = new ArrayList<>();
+    String delimiter = ";";
+    StringBuilder statement = new StringBuilder();
+    for (String rawLine : script.split("\\R")) {
+      String line = stripLineComment(rawLine).strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      if (line.toUpperCase(Locale.ROOT).startsWith(DELIMITER_COMMAND)) {
+        delimiter = line.substring(DELIMITER_COMMAND.length()).strip();
+        continue;
+      }
+      if (line.endsWith(delimiter)) {
+        statement.append(line, 0, line.length() - delimiter.length());
+        addStatement(statements, statement);
+      } else {
+        statement.append(line).append('\n');
+      }
+    }
+    addStatement(statements, statement);
+    return statements;
+  }
+
+  private static void addStatement(List<String> statements, StringBuilder statement) {
+    String sql = statement.toString().strip();
+    if (!sql.isEmpty()) {
+      statements.add(sql);
+    }
+    statement.setLength(0);
+  }
+
+  /** Removes a trailing "--" comment from a line, ignoring "--" inside quoted text. */
+  private static String stripLineComment(String line) {
+    char quote = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '-' && line.startsWith("--", i)) {
+        return line.substring(0, i);
+      }
+    }
+    return line;
+  }
+
+  private static final class Migration {
+    private final int version;
+    private final String description;
+    private final String script;
+    private final long checksum;
+
+    private Migration(int version, String description, String script) {
+      this.version = version;
+      this.description = description;
+      this.script = script;
+      CRC32 crc = new CRC32();
+      crc.update(script.getBytes(StandardCharsets.UTF_8));
+      this.checksum = crc.getValue();
+    }
+  }
+}
@@ -13,8 +13,10 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import service.handler.LastAccessRecorder;
 
 /** Defining our own configurations for security. */
 @Configuration
@@ -23,6 +25,10 @@ public class SecurityConfig {
 
   @Autowired private UserDetailsService userDetailsService;
 
+  @Autowired private AccessTokenService accessTokenService;
+
+  @Autowired private LastAccessRecorder lastAccessRecorder;
+
   /** Defining our own custom security filter chain. */
   @Bean
   public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -37,6 +43,13 @@ public class SecurityConfig {
         // to allow authentication from postman and return access to REST API
         .httpBasic(Customizer.withDefaults())
 
+        // accept signed access tokens issued by /api/auth/token without reading the DB
+        .addFilterBefore(
+            new TokenAuthenticationFilter(accessTokenService), BasicAuthenticationFilter.class)
+
+        // record the last access of authenticated users, written to the DB in batches
+        .addFilterAfter(new LastAccessFilter(lastAccessRecorder), BasicAuthenticationFilter.class)
+
         // making HTTP stateless and allows for new session ID in each access
         // so pass in valid username & password in the Authorization header in Postman
         .sessionManagement(
@@ -50,6 +63,10 @@ public class SecurityConfig {
                     .requestMatchers(HttpMethod.POST, "/api/users/createUser")
                     .permitAll()
 
+                    // Restrict runtime metrics to ADMIN only
+                    .requestMatchers("/api/metrics/**")
+                    .hasRole("ADMIN")
+
                     // Restrict DELETE routes to ADMIN only
                     .requestMatchers(HttpMethod.DELETE, "/**")
                     .hasRole("ADMIN")
@@ -85,7 +102,9 @@ public class SecurityConfig {
       public void addCorsMappings(CorsRegistry registry) {
         registry
             .addMapping("/**") // Apply CORS to all endpoints
-            .allowedOrigins("http://localhost:3000", "https://team-project-client.ue.r.appspot.com/") // Replace with your frontend URL
+            .allowedOrigins(
+                "http://localhost:3000",
+                "https://team-project-client.ue.r.appspot.com/") // Replace with your frontend URL
             .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH") // Allowed HTTP methods
             .allowedHeaders("*") // Allow all headers
             .allowCredentials(true) // Allow credentials (cookies or authorization headers)
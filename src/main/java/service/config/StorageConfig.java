@@ -0,0 +1,23 @@
+package service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import service.util.UuidCodec;
+
+/** Configures how rows are stored in the DB. */
+@Configuration
+public class StorageConfig {
+
+  /**
+   * Picks the codec for UUID keys. Set service.storage.binary-uuid=true once the DB keys have been
+   * converted to BINARY(16) with the scripts in db/binary-uuid.
+   *
+   * @param binaryUuid whether the key columns are BINARY(16)
+   * @return the codec the SQL helpers use for key columns
+   */
+  @Bean
+  public UuidCodec uuidCodec(@Value("${service.storage.binary-uuid:false}") boolean binaryUuid) {
+    return binaryUuid ? UuidCodec.BINARY : UuidCodec.CHAR;
+  }
+}
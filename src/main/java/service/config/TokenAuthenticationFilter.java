@@ -0,0 +1,53 @@
+package service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+import service.models.UserPrincipal;
+
+/**
+ * Authenticates requests that carry an "Authorization: Bearer" access token. The token is checked
+ * in memory, so these requests never read the DB. Requests with a missing or invalid token are
+ * passed on unauthenticated, and fall back to HTTP Basic.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private final AccessTokenService accessTokenService;
+
+  /**
+   * Creates a filter that accepts the tokens of the given service.
+   *
+   * @param accessTokenService verifies the tokens
+   */
+  public TokenAuthenticationFilter(AccessTokenService accessTokenService) {
+    this.accessTokenService = accessTokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.startsWith(BEARER_PREFIX)) {
+      UserPrincipal principal = accessTokenService.verify(header.substring(BEARER_PREFIX.length()));
+      if (principal != null) {
+        AbstractAuthenticationToken authentication =
+            new PreAuthenticatedAuthenticationToken(principal, null, principal.getAuthorities());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+      }
+    }
+    filterChain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,52 @@
+package service.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import service.config.AccessTokenService;
+import service.models.UserPrincipal;
+
+/** This class contains the API endpoints for exchanging credentials for access tokens. */
+@RestController
+@RequestMapping("/api/auth")
+public class AuthRouteController {
+
+  /** The access token service. */
+  @Autowired public AccessTokenService accessTokenService;
+
+  /**
+   * Issues an access token to a user who authenticated with their username and password. Tokens
+   * cannot be used to get new tokens, so a user has to present their password at least once per
+   * token lifetime.
+   *
+   * @param authentication the authentication of the current request
+   * @return the access token, its type and the number of seconds it is valid for
+   */
+  @PostMapping(value = "/token", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> issueToken(Authentication authentication) {
+    if (!(authentication instanceof UsernamePasswordAuthenticationToken)
+        || !(authentication.getPrincipal() instanceof UserPrincipal)) {
+      return new ResponseEntity<>(
+          "Username and password needed to issue a token.", HttpStatus.UNAUTHORIZED);
+    }
+    try {
+      UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+      Map<String, Object> token = new LinkedHashMap<>();
+      token.put("accessToken", accessTokenService.issue(principal));
+      token.put("tokenType", "Bearer");
+      token.put("expiresIn", accessTokenService.getTimeToLive().toSeconds());
+      return new ResponseEntity<>(token, HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+}
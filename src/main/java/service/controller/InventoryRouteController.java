@@ -16,20 +16,35 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import service.handler.InventoryItemsJunctionTableHelper;
+import service.handler.InventoryStatsTableSqlHelper;
 import service.handler.InventoryTableSqlHelper;
+import service.handler.ItemSearchIndex;
+import service.handler.NameCompletionIndex;
 import service.models.Inventory;
+import service.models.InventoryPage;
+import service.models.InventoryStats;
 import service.requests.CreateInventoryRequest;
+import service.util.UuidCodec;
 
 /** This class contains all the API endpoints for inventory-related requests. */
 @RestController
 @RequestMapping("/api/inventories")
 public class InventoryRouteController {
 
+  /** Largest page size accepted by the inventory details listing. */
+  private static final int MAX_PAGE_SIZE = 500;
+
   /** The Inventory table sql helper. */
   @Autowired public InventoryTableSqlHelper inventoryTableSqlHelper;
 
   @Autowired private InventoryItemsJunctionTableHelper inventoryItemsJunctionTableHelper;
 
+  @Autowired private InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper;
+
+  @Autowired private ItemSearchIndex itemSearchIndex;
+
+  @Autowired private NameCompletionIndex nameCompletionIndex;
+
   /**
    * Allow for inventories to be created under a specific user's id. @param createInventoryRequest
    * the create inventory request
@@ -46,13 +61,15 @@ public class InventoryRouteController {
     try {
       Inventory newInventory =
           Inventory.builder()
-              .inventoryId(UUID.randomUUID())
+              .inventoryId(UuidCodec.timeOrderedUuid())
               .inventoryName(createInventoryRequest.getInventoryName())
               .build();
       boolean isSuccessful = inventoryTableSqlHelper.insertInventory(newInventory);
       if (!isSuccessful) {
         return new ResponseEntity<>("Failed to create inventory", HttpStatus.INTERNAL_SERVER_ERROR);
       }
+      nameCompletionIndex.putInventory(
+          newInventory.getInventoryId(), newInventory.getInventoryName());
       return new ResponseEntity<>(
           "Successfully created inventory: "
               + newInventory.getInventoryId()
@@ -171,6 +188,81 @@ public class InventoryRouteController {
     }
   }
 
+  /**
+   * Returns an inventory with one page of its items, read in a single query. Pass the nextCursor of
+   * a page as the after parameter to fetch the page that follows it.
+   *
+   * @param inventoryId Unique identifier for the inventory the client would like to access.
+   * @param after item id the page starts after; omit for the first page
+   * @param limit maximum number of items in the page
+   * @param name only items whose name starts with this; omit for any name
+   * @param location only items at this location; omit for any location
+   * @return the inventory with the page of items and the cursor for the next page
+   */
+  @GetMapping(value = "/getInventoryDetails", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getInventoryDetails(
+      @RequestParam(value = "inventoryId") String inventoryId,
+      @RequestParam(value = "after", required = false) String after,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "name", required = false) String name,
+      @RequestParam(value = "location", required = false) String location) {
+    if (inventoryId == null || inventoryId.isEmpty()) {
+      return new ResponseEntity<>("inventoryId needed to get inventories.", HttpStatus.BAD_REQUEST);
+    }
+    if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+      return new ResponseEntity<>(
+          "limit must be between 1 and " + MAX_PAGE_SIZE + ".", HttpStatus.BAD_REQUEST);
+    }
+    if (after != null && !after.isEmpty()) {
+      try {
+        UUID.fromString(after);
+      } catch (IllegalArgumentException e) {
+        return new ResponseEntity<>(
+            "after " + after + " is not a valid item id.", HttpStatus.BAD_REQUEST);
+      }
+    }
+    try {
+      InventoryPage page =
+          inventoryTableSqlHelper.getInventoryPage(inventoryId, after, limit, name, location);
+      if (page == null) {
+        return new ResponseEntity<>(
+            "Inventory with inventoryId: " + inventoryId + " has not been found.",
+            HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Returns the totals of an inventory's items: distinct items, units held, units reserved and the
+   * value of the units held. The totals are kept up to date as items change, so this reads one row.
+   *
+   * @param inventoryId Unique identifier for the inventory the client would like to access.
+   * @return the totals of the inventory
+   */
+  @GetMapping(value = "/getInventoryStats", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getInventoryStats(
+      @RequestParam(value = "inventoryId") String inventoryId) {
+    if (inventoryId == null || inventoryId.isEmpty()) {
+      return new ResponseEntity<>("inventoryId needed to get inventories.", HttpStatus.BAD_REQUEST);
+    }
+    try {
+      InventoryStats stats = inventoryStatsTableSqlHelper.getInventoryStats(inventoryId);
+      if (stats == null) {
+        return new ResponseEntity<>(
+            "Inventory with inventoryId: " + inventoryId + " has not been found.",
+            HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(stats, HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Returns confirmation regarding the change of the inventory's name.
    *
@@ -193,6 +285,7 @@ public class InventoryRouteController {
     try {
       boolean updateSuccess = inventoryTableSqlHelper.update(inventoryId, newInventoryName);
       if (updateSuccess) {
+        nameCompletionIndex.putInventory(UUID.fromString(inventoryId), newInventoryName);
         return new ResponseEntity<>("Successfully changed the inventory's name.", HttpStatus.OK);
       } else {
         return new ResponseEntity<>(
@@ -225,6 +318,9 @@ public class InventoryRouteController {
         return new ResponseEntity<>(
             "Unsuccessful inventory delete.", HttpStatus.INTERNAL_SERVER_ERROR);
       } else {
+        // The items go by cascade, so the indexes drop them by inventory
+        itemSearchIndex.removeInventory(UUID.fromString(inventoryId));
+        nameCompletionIndex.removeInventory(UUID.fromString(inventoryId));
         return new ResponseEntity<>(
             "Successfully deleted inventory with inventoryId: " + inventoryId, HttpStatus.OK);
       }
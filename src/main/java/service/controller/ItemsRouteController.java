@@ -2,9 +2,17 @@ package service.controller;
 
 import static service.util.DateTimeUtils.FORMATTER;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -13,14 +21,22 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import service.handler.IdempotencyService;
+import service.handler.ItemSearchIndex;
 import service.handler.ItemsTableSqlHelper;
+import service.handler.NameCompletionIndex;
+import service.models.BatchInsertResult;
 import service.models.Item;
+import service.models.ItemSearchHit;
 import service.requests.CreateItemRequest;
+import service.util.UuidCodec;
 
 /** This class contains all the API endpoints for user-related requests. */
 @RestController
@@ -31,38 +47,48 @@ public class ItemsRouteController {
   /** The Items table sql helper. */
   @Autowired public ItemsTableSqlHelper itemsTableSqlHelper;
 
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private IdempotencyService idempotencyService = IdempotencyService.disabled();
+
+  @Autowired private ItemSearchIndex itemSearchIndex;
+
+  @Autowired private NameCompletionIndex nameCompletionIndex;
+
+  /** Largest page size accepted by the paginated item listing. */
+  private static final int MAX_PAGE_SIZE = 500;
+
   /**
-   * Create item response entity.
+   * Create item response entity. A request retried with the same Idempotency-Key gets the first
+   * response back instead of creating another item.
    *
    * @param createItemRequest the create item request
+   * @param idempotencyKey the Idempotency-Key header, or null
    * @return the response entity
    */
   @PostMapping(value = "/createItem", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<String> createItem(@RequestBody CreateItemRequest createItemRequest) {
+  public ResponseEntity<String> createItem(
+      @RequestBody CreateItemRequest createItemRequest,
+      @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false)
+          String idempotencyKey) {
+    return idempotencyService.execute(
+        idempotencyKey, "items/createItem", createItemRequest, () -> createItem(createItemRequest));
+  }
+
+  private ResponseEntity<String> createItem(CreateItemRequest createItemRequest) {
     if (createItemRequest == null) {
       return new ResponseEntity<>("Empty request", HttpStatus.BAD_REQUEST);
     }
     try {
-      Item newItem =
-          Item.builder()
-              .itemId(UUID.randomUUID())
-              .itemName(createItemRequest.getItemName())
-              .timeOfAddition(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
-              .location(createItemRequest.getLocation())
-              .inventoryId(createItemRequest.getInventoryId())
-              .quantity(createItemRequest.getQuantity())
-              .price(createItemRequest.getPrice())
-              .nextRestockDateTime(createItemRequest.getNextRestockDateTime())
-              .reservationStatus(createItemRequest.isReservationStatus())
-              .reservationTime(createItemRequest.getReservationTime())
-              .reservationDurationInMillis(createItemRequest.getReservationDurationInMillis())
-              .build();
+      Item newItem = buildNewItem(createItemRequest);
 
       boolean isSuccessful = itemsTableSqlHelper.insertItem(newItem);
 
       if (!isSuccessful) {
         return new ResponseEntity<>("Failed to create item", HttpStatus.INTERNAL_SERVER_ERROR);
       }
+      itemSearchIndex.index(newItem);
+      nameCompletionIndex.putItem(newItem);
 
       return new ResponseEntity<>(
           "Successfully created item: " + newItem.getItemId() + "\n" + newItem.getItemName(),
@@ -74,6 +100,228 @@ public class ItemsRouteController {
     }
   }
 
+  /**
+   * Create many items in one request. Rows are written with batched inserts, and rows that fail
+   * validation or are rejected by the DB are reported individually without failing the rest.
+   *
+   * @param createItemRequests the items to create
+   * @return the number of items created and the position and cause of every rejected item
+   */
+  @PostMapping(value = "/createItems", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> createItems(@RequestBody List<CreateItemRequest> createItemRequests) {
+    if (createItemRequests == null || createItemRequests.isEmpty()) {
+      return new ResponseEntity<>("Empty request", HttpStatus.BAD_REQUEST);
+    }
+    try {
+      BatchInsertResult result = new BatchInsertResult(createItemRequests.size());
+      List<Item> newItems = new ArrayList<>(createItemRequests.size());
+      List<Integer> requestIndexes = new ArrayList<>(createItemRequests.size());
+      for (int i = 0; i < createItemRequests.size(); i++) {
+        String invalidReason = validateCreateItemRequest(createItemRequests.get(i));
+        if (invalidReason != null) {
+          result.addFailure(i, invalidReason);
+          continue;
+        }
+        newItems.add(buildNewItem(createItemRequests.get(i)));
+        requestIndexes.add(i);
+      }
+
+      if (!newItems.isEmpty()) {
+        BatchInsertResult insertResult = itemsTableSqlHelper.insertItems(newItems);
+        result.addInserted(insertResult.getInserted());
+        Set<Integer> failedIndexes = new HashSet<>();
+        for (BatchInsertResult.RowFailure failure : insertResult.getFailures()) {
+          result.addFailure(requestIndexes.get(failure.getIndex()), failure.getReason());
+          failedIndexes.add(failure.getIndex());
+        }
+        for (int i = 0; i < newItems.size(); i++) {
+          if (!failedIndexes.contains(i)) {
+            itemSearchIndex.index(newItems.get(i));
+            nameCompletionIndex.putItem(newItems.get(i));
+          }
+        }
+      }
+
+      HttpStatus status = result.isComplete() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+      return new ResponseEntity<>(result, status);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  private static String validateCreateItemRequest(CreateItemRequest createItemRequest) {
+    if (createItemRequest == null) {
+      return "Empty request";
+    }
+    if (createItemRequest.getItemName() == null || createItemRequest.getItemName().isEmpty()) {
+      return "Item name cannot be empty.";
+    }
+    if (createItemRequest.getLocation() == null || createItemRequest.getInventoryId() == null) {
+      return "Location and inventoryId are required.";
+    }
+    if (createItemRequest.getQuantity() < 0) {
+      return "Item quantity cannot be a negative number.";
+    }
+    if (createItemRequest.getPrice() < 0) {
+      return "Item price cannot be negative.";
+    }
+    return null;
+  }
+
+  private static Item buildNewItem(CreateItemRequest createItemRequest) {
+    return Item.builder()
+        .itemId(UuidCodec.timeOrderedUuid())
+        .itemName(createItemRequest.getItemName())
+        .timeOfAddition(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+        .location(createItemRequest.getLocation())
+        .inventoryId(createItemRequest.getInventoryId())
+        .quantity(createItemRequest.getQuantity())
+        .price(createItemRequest.getPrice())
+        .nextRestockDateTime(createItemRequest.getNextRestockDateTime())
+        .reservationStatus(createItemRequest.isReservationStatus())
+        .reservationTime(createItemRequest.getReservationTime())
+        .reservationDurationInMillis(createItemRequest.getReservationDurationInMillis())
+        .build();
+  }
+
+  /**
+   * Gets one page of items. Pass the nextCursor of a page as the after parameter to fetch the page
+   * that follows it.
+   *
+   * @param after item id the page starts after; omit for the first page
+   * @param limit maximum number of items in the page
+   * @return the page of items and the cursor for the next page
+   */
+  @GetMapping(value = "/page", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getItemsPage(
+      @RequestParam(value = "after", required = false) String after,
+      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+      return new ResponseEntity<>(
+          "limit must be between 1 and " + MAX_PAGE_SIZE + ".", HttpStatus.BAD_REQUEST);
+    }
+    try {
+      return new ResponseEntity<>(itemsTableSqlHelper.getItemsPage(after, limit), HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Searches the items of an inventory by name and location. Every word of the query has to match a
+   * whole word of the item's name or location, ignoring case. Items are listed most relevant first,
+   * with words found in the name counting for more.
+   *
+   * @param inventoryId the inventory searched
+   * @param query the words to find
+   * @param limit maximum number of items returned
+   * @return the matching items with their scores, best first
+   */
+  @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> searchItems(
+      @RequestParam(value = "inventoryId") String inventoryId,
+      @RequestParam(value = "q") String query,
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+      return new ResponseEntity<>(
+          "limit must be between 1 and " + MAX_PAGE_SIZE + ".", HttpStatus.BAD_REQUEST);
+    }
+    if (query == null || query.isBlank()) {
+      return new ResponseEntity<>("Search query cannot be empty.", HttpStatus.BAD_REQUEST);
+    }
+    UUID parsedInventoryId;
+    try {
+      parsedInventoryId = UUID.fromString(inventoryId);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(
+          "inventoryId " + inventoryId + " is not a valid id.", HttpStatus.BAD_REQUEST);
+    }
+    List<ItemSearchHit> hits = itemSearchIndex.search(parsedInventoryId, query, limit);
+    if (hits == null) {
+      return new ResponseEntity<>(
+          "Item search is not available yet, try again shortly.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    return new ResponseEntity<>(hits, HttpStatus.OK);
+  }
+
+  /**
+   * Exports every item as newline delimited JSON. Items are written to the response as they are
+   * read from the DB, so memory use does not grow with the size of the table. The export is written
+   * on the request thread instead of as an async response, so the async request timeout does not
+   * cut it off however long the table takes to stream.
+   *
+   * @param response the response the items are written to, one JSON item per line
+   * @throws IOException if the response cannot be written
+   */
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void exportItems(HttpServletResponse response) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    try (SequenceWriter writer =
+        objectMapper
+            .writer()
+            .withRootValueSeparator("\n")
+            .writeValues(response.getOutputStream())) {
+      itemsTableSqlHelper.streamAllItems(
+          item -> {
+            try {
+              writer.write(item);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+      response.getOutputStream().write('\n');
+    }
+  }
+
+  /**
+   * Gets a whole item as JSON in a single call. When fields are given, only those columns are read
+   * from the DB and returned.
+   *
+   * @param itemId the item id
+   * @param fields optional comma separated list of item fields to return
+   * @return the item, or the requested subset of its fields
+   */
+  @GetMapping(value = "/{itemId}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getItem(
+      @PathVariable(value = "itemId") String itemId,
+      @RequestParam(value = "fields", required = false) List<String> fields) {
+    if (itemId == null || itemId.isEmpty()) {
+      return new ResponseEntity<>("itemId needed to get item.", HttpStatus.BAD_REQUEST);
+    }
+    if (fields != null) {
+      for (String field : fields) {
+        if (!ItemsTableSqlHelper.ITEM_FIELD_COLUMNS.containsKey(field)) {
+          return new ResponseEntity<>(
+              "Unknown item field: "
+                  + field
+                  + ". Valid fields are: "
+                  + ItemsTableSqlHelper.ITEM_FIELD_COLUMNS.keySet(),
+              HttpStatus.BAD_REQUEST);
+        }
+      }
+    }
+    try {
+      Object item;
+      if (fields == null || fields.isEmpty()) {
+        List<Item> itemList = itemsTableSqlHelper.getItem(itemId);
+        item = itemList == null || itemList.isEmpty() ? null : itemList.get(0);
+      } else {
+        item = itemsTableSqlHelper.getItemFields(itemId, fields);
+      }
+      if (item == null) {
+        return new ResponseEntity<>(
+            "Item with itemId: " + itemId + " was not found.", HttpStatus.NOT_FOUND);
+      }
+      return new ResponseEntity<>(item, HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Gets item name.
    *
@@ -388,6 +636,9 @@ public class ItemsRouteController {
     }
 
     if (isSuccessful) {
+      Item renamed = item.toBuilder().itemName(newItemName).build();
+      itemSearchIndex.index(renamed);
+      nameCompletionIndex.putItem(renamed);
       return new ResponseEntity<>(
           "Item: "
               + item.getItemId()
@@ -444,6 +695,8 @@ public class ItemsRouteController {
     }
 
     if (isSuccessful) {
+      itemSearchIndex.remove(item.getItemId());
+      nameCompletionIndex.removeItem(item.getItemId());
       return new ResponseEntity<>(
           "Item: " + item.getItemId() + "\n\"" + item.getItemName() + "\"was successfully deleted.",
           HttpStatus.OK);
@@ -496,6 +749,7 @@ public class ItemsRouteController {
             "Could not update quantity for item: \"" + item.getItemName() + "\"",
             HttpStatus.INTERNAL_SERVER_ERROR);
       }
+      nameCompletionIndex.putItem(item.toBuilder().quantity(newQuantity).build());
 
       return new ResponseEntity<>(
           "Item: "
@@ -557,6 +811,7 @@ public class ItemsRouteController {
             "Could not update location for item: \"" + item.getItemName() + "\"",
             HttpStatus.INTERNAL_SERVER_ERROR);
       }
+      itemSearchIndex.index(item.toBuilder().location(newLocation).build());
 
       return new ResponseEntity<>(
           "Item: "
@@ -0,0 +1,112 @@
+package service.controller;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import service.cache.ItemCache;
+import service.cache.PrincipalCache;
+import service.cache.UserInventoryCache;
+import service.handler.InventoryStatsReconciler;
+import service.handler.ItemSearchIndex;
+import service.handler.NameCompletionIndex;
+import service.handler.ReservationExpirySweeper;
+
+/** This class contains the API endpoints that report runtime metrics. Restricted to admins. */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsRouteController {
+
+  @Autowired private ItemCache itemCache;
+
+  @Autowired private PrincipalCache principalCache;
+
+  @Autowired private UserInventoryCache userInventoryCache;
+
+  @Autowired private ReservationExpirySweeper reservationExpirySweeper;
+
+  @Autowired private InventoryStatsReconciler inventoryStatsReconciler;
+
+  @Autowired private ItemSearchIndex itemSearchIndex;
+
+  @Autowired private NameCompletionIndex nameCompletionIndex;
+
+  /**
+   * Gets the item cache metrics.
+   *
+   * @return the hit, miss, load and eviction counts, hit rate and size of the item cache
+   */
+  @GetMapping(value = "/itemCache", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getItemCacheMetrics() {
+    return new ResponseEntity<>(itemCache.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the authentication principal cache metrics.
+   *
+   * @return the principal cache metrics and the number of authentication lookups that reached the
+   *     DB
+   */
+  @GetMapping(value = "/principalCache", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getPrincipalCacheMetrics() {
+    return new ResponseEntity<>(principalCache.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the metrics of the cache of the inventory ids users can access.
+   *
+   * @return the hit, miss, load and eviction counts, hit rate and size of the user inventory cache
+   */
+  @GetMapping(value = "/userInventoryCache", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getUserInventoryCacheMetrics() {
+    return new ResponseEntity<>(userInventoryCache.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the reservation expiry sweeper metrics.
+   *
+   * @return the number of sweeps run and the number of reservations expired by the last sweep and
+   *     in total
+   */
+  @GetMapping(value = "/reservationSweeper", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getReservationSweeperMetrics() {
+    return new ResponseEntity<>(reservationExpirySweeper.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the inventory stats reconciler metrics.
+   *
+   * @return the number of reconciliation runs, the inventories checked by the last run and the
+   *     drifted inventory stats repaired in total
+   */
+  @GetMapping(value = "/inventoryStatsReconciler", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getInventoryStatsReconcilerMetrics() {
+    return new ResponseEntity<>(inventoryStatsReconciler.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the item search index metrics.
+   *
+   * @return whether the index is built, its items, terms and posting bytes, and its searches and
+   *     rebuilds
+   */
+  @GetMapping(value = "/itemSearchIndex", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getItemSearchIndexMetrics() {
+    return new ResponseEntity<>(itemSearchIndex.getStats(), HttpStatus.OK);
+  }
+
+  /**
+   * Gets the name completion index metrics.
+   *
+   * @return whether the index is built, the inventories and items it holds, and its completions and
+   *     rebuilds
+   */
+  @GetMapping(value = "/nameCompletionIndex", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Map<String, Object>> getNameCompletionIndexMetrics() {
+    return new ResponseEntity<>(nameCompletionIndex.getStats(), HttpStatus.OK);
+  }
+}
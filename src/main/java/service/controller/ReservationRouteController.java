@@ -1,41 +1,81 @@
 package service.controller;
 
+import static service.util.DateTimeUtils.FORMATTER;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import service.exceptions.ReservationException;
+import service.handler.BookingService;
+import service.handler.IdempotencyService;
 import service.handler.ItemReservationService;
+import service.models.Booking;
+import service.models.CartReservationResult;
 import service.models.Item;
+import service.models.Reservation;
+import service.models.TimeWindow;
+import service.models.UserPrincipal;
+import service.requests.ReserveCartRequest;
 
 /** This class contains all the API endpoints for reservation-related requests. */
 @RestController
 @RequestMapping("/api/reservations")
 public class ReservationRouteController {
 
+  /** Most items reserved by one cart request. */
+  public static final int MAX_CART_ITEMS = 100;
+
   @Autowired private ItemReservationService reservationService;
 
+  @Autowired private IdempotencyService idempotencyService = IdempotencyService.disabled();
+
+  @Autowired private BookingService bookingService;
+
   /**
-   * Create a new reservation for specified quantity of an item.
+   * Create a new reservation for specified quantity of an item. Each reservation is a separate hold
+   * with its own ID, so many users can hold the same item at once. A request retried with the same
+   * Idempotency-Key gets the first response back instead of placing another hold.
    *
    * @param itemId The ID of the item to reserve
    * @param quantity The quantity to reserve
    * @param durationInMillis Duration of the reservation in milliseconds
+   * @param principal The authenticated user placing the hold
+   * @param idempotencyKey The Idempotency-Key header, or null
    * @return ResponseEntity containing the reservation result
    */
   @PostMapping(value = "/create", produces = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<String> createReservation(
       @RequestParam(value = "itemId") String itemId,
       @RequestParam(value = "quantity") int quantity,
-      @RequestParam(value = "durationInMillis") long durationInMillis) {
+      @RequestParam(value = "durationInMillis") long durationInMillis,
+      @AuthenticationPrincipal UserPrincipal principal,
+      @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false)
+          String idempotencyKey) {
+    return idempotencyService.execute(
+        idempotencyKey,
+        "reservations/create",
+        Arrays.asList(itemId, quantity, durationInMillis),
+        () -> createReservation(itemId, quantity, durationInMillis, principal));
+  }
+
+  private ResponseEntity<String> createReservation(
+      String itemId, int quantity, long durationInMillis, UserPrincipal principal) {
 
     if (itemId == null || itemId.isEmpty()) {
       return new ResponseEntity<>("itemId is required", HttpStatus.BAD_REQUEST);
@@ -50,12 +90,17 @@ public class ReservationRouteController {
     }
 
     try {
-      Item item = reservationService.reserveItem(itemId, quantity, durationInMillis);
+      UUID userId = principal == null ? null : principal.getUserId();
+      Reservation reservation =
+          reservationService.reserveItem(itemId, userId, quantity, durationInMillis);
 
       return new ResponseEntity<>(
           String.format(
-              "Successfully reserved %d units of %s. Remaining quantity: %d",
-              quantity, item.getItemName(), item.getQuantity()),
+              "Successfully reserved %d units of %s. Reservation ID: %s. Expires at: %s",
+              quantity,
+              itemId,
+              reservation.getReservationId(),
+              reservation.getExpiresAt().format(FORMATTER)),
           HttpStatus.OK);
 
     } catch (ReservationException e) {
@@ -66,20 +111,63 @@ public class ReservationRouteController {
     }
   }
 
+  /**
+   * Reserve every item of a cart in one transaction. Either all items are held, or none is and the
+   * response lists every item that could not be held, so a failed checkout leaves no holds behind.
+   *
+   * @param reserveCartRequest The items to reserve, their quantities and the hold duration
+   * @param principal The authenticated user placing the holds
+   * @return ResponseEntity containing the holds placed, or the items that could not be held
+   */
+  @PostMapping(value = "/cart", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> reserveCart(
+      @RequestBody ReserveCartRequest reserveCartRequest,
+      @AuthenticationPrincipal UserPrincipal principal) {
+
+    if (reserveCartRequest == null
+        || reserveCartRequest.getItems() == null
+        || reserveCartRequest.getItems().isEmpty()) {
+      return new ResponseEntity<>("Empty request", HttpStatus.BAD_REQUEST);
+    }
+
+    if (reserveCartRequest.getItems().size() > MAX_CART_ITEMS) {
+      return new ResponseEntity<>(
+          "A cart can hold at most " + MAX_CART_ITEMS + " items", HttpStatus.BAD_REQUEST);
+    }
+
+    if (reserveCartRequest.getDurationInMillis() <= 0) {
+      return new ResponseEntity<>("Duration must be greater than 0", HttpStatus.BAD_REQUEST);
+    }
+
+    try {
+      UUID userId = principal == null ? null : principal.getUserId();
+      CartReservationResult result =
+          reservationService.reserveCart(
+              reserveCartRequest.getItems(), userId, reserveCartRequest.getDurationInMillis());
+
+      HttpStatus status = result.isReserved() ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+      return new ResponseEntity<>(result, status);
+
+    } catch (Exception e) {
+      return new ResponseEntity<>(
+          "Failed to reserve cart: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Extend an existing reservation.
    *
-   * @param itemId The ID of the reserved item
+   * @param reservationId The ID of the reservation
    * @param additionalDurationInMillis Additional duration in milliseconds
    * @return ResponseEntity containing the extension result
    */
   @PatchMapping(value = "/extend", produces = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<String> extendReservation(
-      @RequestParam(value = "itemId") String itemId,
+      @RequestParam(value = "reservationId") String reservationId,
       @RequestParam(value = "additionalDurationInMillis") long additionalDurationInMillis) {
 
-    if (itemId == null || itemId.isEmpty()) {
-      return new ResponseEntity<>("itemId is required", HttpStatus.BAD_REQUEST);
+    if (reservationId == null || reservationId.isEmpty()) {
+      return new ResponseEntity<>("reservationId is required", HttpStatus.BAD_REQUEST);
     }
 
     if (additionalDurationInMillis <= 0) {
@@ -88,12 +176,13 @@ public class ReservationRouteController {
     }
 
     try {
-      Item item = reservationService.extendReservation(itemId, additionalDurationInMillis);
+      Reservation reservation =
+          reservationService.extendReservation(reservationId, additionalDurationInMillis);
 
       return new ResponseEntity<>(
           String.format(
-              "Successfully extended reservation for %s. New duration: %d ms",
-              item.getItemName(), item.getReservationDurationInMillis()),
+              "Successfully extended reservation %s. Expires at: %s",
+              reservationId, reservation.getExpiresAt().format(FORMATTER)),
           HttpStatus.OK);
 
     } catch (ReservationException e) {
@@ -105,32 +194,27 @@ public class ReservationRouteController {
   }
 
   /**
-   * Cancel a reservation and return items to available inventory.
+   * Cancel a reservation and return its quantity to available inventory. Other holds on the same
+   * item are not affected.
    *
-   * @param itemId The ID of the reserved item
-   * @param quantity The quantity to return to inventory
+   * @param reservationId The ID of the reservation
    * @return ResponseEntity containing the cancellation result
    */
   @DeleteMapping(value = "/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<String> cancelReservation(
-      @RequestParam(value = "itemId") String itemId,
-      @RequestParam(value = "quantity") int quantity) {
+      @RequestParam(value = "reservationId") String reservationId) {
 
-    if (itemId == null || itemId.isEmpty()) {
-      return new ResponseEntity<>("itemId is required", HttpStatus.BAD_REQUEST);
-    }
-
-    if (quantity <= 0) {
-      return new ResponseEntity<>("Quantity must be greater than 0", HttpStatus.BAD_REQUEST);
+    if (reservationId == null || reservationId.isEmpty()) {
+      return new ResponseEntity<>("reservationId is required", HttpStatus.BAD_REQUEST);
     }
 
     try {
-      Item item = reservationService.cancelReservation(itemId, quantity);
+      Reservation reservation = reservationService.cancelReservation(reservationId);
 
       return new ResponseEntity<>(
           String.format(
-              "Successfully cancelled reservation for %d units of %s. Available quantity: %d",
-              quantity, item.getItemName(), item.getQuantity()),
+              "Successfully cancelled reservation %s for %d units of %s",
+              reservationId, reservation.getQuantity(), reservation.getItemId()),
           HttpStatus.OK);
 
     } catch (ReservationException e) {
@@ -142,7 +226,7 @@ public class ReservationRouteController {
   }
 
   /**
-   * Get detailed reservation status of an item.
+   * Get detailed reservation status of an item, with every hold on it.
    *
    * @param itemId The ID of the item to check
    * @return ResponseEntity containing the reservation status
@@ -156,30 +240,151 @@ public class ReservationRouteController {
     }
 
     try {
-      List<Item> items = reservationService.getItemsTableSqlHelper().getItem(itemId);
+      // Holds made on other instances do not invalidate this instance's item cache
+      List<Item> items = reservationService.getItemsTableSqlHelper().getItemFromDb(itemId);
       if (items.isEmpty()) {
         return new ResponseEntity<>("Item not found", HttpStatus.NOT_FOUND);
       }
 
       Item item = items.get(0);
-      String status =
-          String.format(
-              "Item: %s\n"
-                  + "Total Quantity: %d\n"
-                  + "Reserved: %s\n"
-                  + "Reservation Time: %s\n"
-                  + "Reservation Duration: %d ms",
-              item.getItemName(),
-              item.getQuantity(),
-              item.isReservationStatus(),
-              item.getReservationTime() != null ? item.getReservationTime().toString() : "N/A",
-              item.getReservationDurationInMillis());
-
-      return new ResponseEntity<>(status, HttpStatus.OK);
+      StringBuilder status =
+          new StringBuilder(
+              String.format(
+                  "Item: %s\nAvailable Quantity: %d\nReserved Quantity: %d\n",
+                  item.getItemName(), item.getQuantity(), item.getReservedQuantity()));
+      for (Reservation reservation :
+          reservationService.getReservationsTableSqlHelper().getReservationsByItemId(itemId)) {
+        status.append(
+            String.format(
+                "Reservation %s: %d units until %s\n",
+                reservation.getReservationId(),
+                reservation.getQuantity(),
+                reservation.getExpiresAt().format(FORMATTER)));
+      }
+
+      return new ResponseEntity<>(status.toString(), HttpStatus.OK);
 
     } catch (Exception e) {
       return new ResponseEntity<>(
           "Failed to get reservation status: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
   }
+
+  /**
+   * Book an item for a time window. The item cannot be booked twice for any moment, so a window
+   * overlapping another booking of the item is rejected.
+   *
+   * @param itemId The ID of the item to book
+   * @param startsAt Start of the window, inclusive, as yyyy-MM-dd HH:mm:ss
+   * @param endsAt End of the window, exclusive, as yyyy-MM-dd HH:mm:ss
+   * @param principal The authenticated user the item is booked for
+   * @return ResponseEntity containing the booking result
+   */
+  @PostMapping(value = "/book", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<String> bookItem(
+      @RequestParam(value = "itemId") String itemId,
+      @RequestParam(value = "startsAt") String startsAt,
+      @RequestParam(value = "endsAt") String endsAt,
+      @AuthenticationPrincipal UserPrincipal principal) {
+
+    if (itemId == null || itemId.isEmpty()) {
+      return new ResponseEntity<>("itemId is required", HttpStatus.BAD_REQUEST);
+    }
+
+    try {
+      UUID userId = principal == null ? null : principal.getUserId();
+      Booking booking =
+          bookingService.bookItem(
+              itemId,
+              userId,
+              LocalDateTime.parse(startsAt, FORMATTER),
+              LocalDateTime.parse(endsAt, FORMATTER));
+
+      return new ResponseEntity<>(
+          String.format(
+              "Successfully booked %s from %s to %s. Booking ID: %s",
+              itemId,
+              booking.getStartsAt().format(FORMATTER),
+              booking.getEndsAt().format(FORMATTER),
+              booking.getBookingId()),
+          HttpStatus.OK);
+
+    } catch (DateTimeParseException e) {
+      return new ResponseEntity<>(
+          "Times must be formatted as yyyy-MM-dd HH:mm:ss", HttpStatus.BAD_REQUEST);
+    } catch (ReservationException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (Exception e) {
+      return new ResponseEntity<>(
+          "Failed to book item: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Cancel a booking, freeing its window for other bookings.
+   *
+   * @param bookingId The ID of the booking
+   * @return ResponseEntity containing the cancellation result
+   */
+  @DeleteMapping(value = "/cancelBooking", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<String> cancelBooking(@RequestParam(value = "bookingId") String bookingId) {
+
+    if (bookingId == null || bookingId.isEmpty()) {
+      return new ResponseEntity<>("bookingId is required", HttpStatus.BAD_REQUEST);
+    }
+
+    try {
+      Booking booking = bookingService.cancelBooking(bookingId);
+
+      return new ResponseEntity<>(
+          String.format(
+              "Successfully cancelled booking %s of %s from %s to %s",
+              bookingId,
+              booking.getItemId(),
+              booking.getStartsAt().format(FORMATTER),
+              booking.getEndsAt().format(FORMATTER)),
+          HttpStatus.OK);
+
+    } catch (ReservationException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (Exception e) {
+      return new ResponseEntity<>(
+          "Failed to cancel booking: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
+  /**
+   * Get the windows of a range in which an item is not booked.
+   *
+   * @param itemId The ID of the item
+   * @param from Start of the range, inclusive, as yyyy-MM-dd HH:mm:ss
+   * @param to End of the range, exclusive, as yyyy-MM-dd HH:mm:ss
+   * @return ResponseEntity containing the free windows, in time order
+   */
+  @GetMapping(value = "/freeSlots", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> getFreeSlots(
+      @RequestParam(value = "itemId") String itemId,
+      @RequestParam(value = "from") String from,
+      @RequestParam(value = "to") String to) {
+
+    if (itemId == null || itemId.isEmpty()) {
+      return new ResponseEntity<>("itemId is required", HttpStatus.BAD_REQUEST);
+    }
+
+    try {
+      List<TimeWindow> freeSlots =
+          bookingService.getFreeSlots(
+              itemId, LocalDateTime.parse(from, FORMATTER), LocalDateTime.parse(to, FORMATTER));
+      return new ResponseEntity<>(freeSlots, HttpStatus.OK);
+
+    } catch (DateTimeParseException e) {
+      return new ResponseEntity<>(
+          "Times must be formatted as yyyy-MM-dd HH:mm:ss", HttpStatus.BAD_REQUEST);
+    } catch (ReservationException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (Exception e) {
+      return new ResponseEntity<>(
+          "Failed to get free slots: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
 }
@@ -4,11 +4,15 @@ import static service.util.DateTimeUtils.FORMATTER;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -16,9 +20,18 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import service.cache.PrincipalCache;
+import service.handler.ItemSearchIndex;
+import service.handler.LastAccessRecorder;
+import service.handler.NameCompletionIndex;
+import service.handler.UserInventoryJunctionTableHelper;
 import service.handler.UsersTableSqlHelper;
+import service.models.Completion;
 import service.models.User;
+import service.models.UserPrincipal;
+import service.util.CompletionRank;
 import service.util.UserRoles;
+import service.util.UuidCodec;
 
 /** This class contains all the API endpoints for user-related requests. */
 @RestController
@@ -28,6 +41,21 @@ public class UserRouteController {
   /** The Users table sql helper. */
   @Autowired public UsersTableSqlHelper usersTableSqlHelper;
 
+  /** The cache of authenticated users, invalidated whenever a user's credentials change. */
+  @Autowired public PrincipalCache principalCache;
+
+  /** Holds accesses not yet written to the Users table. */
+  @Autowired public LastAccessRecorder lastAccessRecorder;
+
+  /** The User_Inventories junction table helper, listing the inventories a user can access. */
+  @Autowired public UserInventoryJunctionTableHelper userInventoryJunctionTableHelper;
+
+  /** Searches item names and locations, dropping the items of deleted default inventories. */
+  @Autowired public ItemSearchIndex itemSearchIndex;
+
+  /** Completes item and inventory names as users type. */
+  @Autowired public NameCompletionIndex nameCompletionIndex;
+
   /**
    * Gets username.
    *
@@ -105,6 +133,10 @@ public class UserRouteController {
             "User with userId: " + userId + " was not found", HttpStatus.NOT_FOUND);
       }
       LocalDateTime lastAccess = user.getLastAccess();
+      LocalDateTime pendingAccess = lastAccessRecorder.getPendingAccess(userId);
+      if (pendingAccess != null && (lastAccess == null || pendingAccess.isAfter(lastAccess))) {
+        lastAccess = pendingAccess;
+      }
       String username = user.getUsername();
       if (lastAccess == null) {
         return new ResponseEntity<>(
@@ -117,6 +149,71 @@ public class UserRouteController {
     }
   }
 
+  /**
+   * Completes what a user typed with the names of the items and inventories they can access. The
+   * last word is matched as the start of a word of the name, and any earlier words as whole words.
+   * Users complete over their own inventories. Only admins may complete for another user.
+   *
+   * @param userId the user to complete for, the authenticated user if not given
+   * @param query what the user typed so far
+   * @param limit maximum number of completions
+   * @param rankBy quantity to list the names holding the most units first, or recency to list the
+   *     most recently added first
+   * @param principal the authenticated user
+   * @return the best completions, best first
+   */
+  @GetMapping(value = "/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<?> autocomplete(
+      @RequestParam(value = "userId", required = false) String userId,
+      @RequestParam(value = "q") String query,
+      @RequestParam(value = "limit", defaultValue = "10") int limit,
+      @RequestParam(value = "rankBy", defaultValue = "quantity") String rankBy,
+      @AuthenticationPrincipal UserPrincipal principal) {
+    if (principal == null) {
+      return new ResponseEntity<>("Authentication required.", HttpStatus.UNAUTHORIZED);
+    }
+    String ownUserId = principal.getUserId().toString();
+    if (userId != null
+        && !userId.isEmpty()
+        && !userId.equals(ownUserId)
+        && principal.getRole() != UserRoles.ADMIN) {
+      return new ResponseEntity<>(
+          "Users can only complete names from their own inventories.", HttpStatus.FORBIDDEN);
+    }
+    String scopeUserId = userId == null || userId.isEmpty() ? ownUserId : userId;
+    if (query == null || query.isBlank()) {
+      return new ResponseEntity<>("Query cannot be empty.", HttpStatus.BAD_REQUEST);
+    }
+    if (limit <= 0 || limit > NameCompletionIndex.MAX_COMPLETIONS) {
+      return new ResponseEntity<>(
+          "limit must be between 1 and " + NameCompletionIndex.MAX_COMPLETIONS + ".",
+          HttpStatus.BAD_REQUEST);
+    }
+    CompletionRank rank;
+    try {
+      rank = CompletionRank.valueOf(rankBy.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>("rankBy must be quantity or recency.", HttpStatus.BAD_REQUEST);
+    }
+    try {
+      List<UUID> inventoryIds = new ArrayList<>();
+      for (String inventoryId :
+          userInventoryJunctionTableHelper.getInventoryIdsByUserId(scopeUserId)) {
+        inventoryIds.add(UUID.fromString(inventoryId));
+      }
+      List<Completion> completions = nameCompletionIndex.complete(inventoryIds, query, limit, rank);
+      if (completions == null) {
+        return new ResponseEntity<>(
+            "Name completion is not available yet, try again shortly.",
+            HttpStatus.SERVICE_UNAVAILABLE);
+      }
+      return new ResponseEntity<>(completions, HttpStatus.OK);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+  }
+
   /**
    * Create user response entity.
    *
@@ -142,7 +239,7 @@ public class UserRouteController {
       }
       User newUser =
           User.builder()
-              .userId(UUID.randomUUID())
+              .userId(UuidCodec.timeOrderedUuid())
               .username(username)
               .password(password)
               .role(UserRoles.USER)
@@ -169,11 +266,20 @@ public class UserRouteController {
       return new ResponseEntity<>("userId needed to delete a user.", HttpStatus.BAD_REQUEST);
     }
     try {
+      // Read before the delete, which takes the user's junction rows with it
+      List<String> defaultInventoryIds =
+          userInventoryJunctionTableHelper.getDefaultInventoryIdsByUserId(userId);
       boolean deleteSuccess = usersTableSqlHelper.delete(userId);
+      principalCache.invalidateUser(userId);
       if (!deleteSuccess) {
         return new ResponseEntity<>(
             "Unable to delete user with userId: " + userId, HttpStatus.FORBIDDEN);
       } else {
+        // The delete_default_inventory trigger deleted these inventories and their items
+        for (String inventoryId : defaultInventoryIds) {
+          itemSearchIndex.removeInventory(UUID.fromString(inventoryId));
+          nameCompletionIndex.removeInventory(UUID.fromString(inventoryId));
+        }
         return new ResponseEntity<>(
             "Successfully deleted user with userId: " + userId, HttpStatus.OK);
       }
@@ -233,6 +339,7 @@ public class UserRouteController {
       }
 
       boolean updateSuccess = usersTableSqlHelper.updateUsername(userId, newUsername);
+      principalCache.invalidate(currentUsername);
 
       if (!updateSuccess) {
         return new ResponseEntity<>(
@@ -294,6 +401,7 @@ public class UserRouteController {
       }
 
       boolean updateSuccess = usersTableSqlHelper.updateRole(userId, newRole);
+      principalCache.invalidate(username);
 
       if (!updateSuccess) {
         return new ResponseEntity<>(
@@ -0,0 +1,197 @@
+package service.handler;
+
+import static service.util.DateTimeUtils.FORMATTER;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import service.exceptions.ReservationException;
+import service.models.Booking;
+import service.models.TimeWindow;
+import service.util.IntervalIndex;
+import service.util.UuidCodec;
+
+/**
+ * Books items for time windows. An item can only be booked once for any moment, so a booking that
+ * overlaps another booking of the item is rejected. The overlap check that decides a booking runs
+ * in the DB under the item's row lock, so it holds across instances.
+ *
+ * <p>Free windows are answered from a per-item {@link IntervalIndex} of the item's bookings still
+ * to come, loaded on first use and kept in a bounded cache. Bookings made and cancelled on this
+ * instance update the index in place. Bookings made on other instances show up once the index
+ * expires and is loaded again.
+ */
+@Service
+@Getter
+public class BookingService {
+
+  private final ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private final BookingsTableSqlHelper bookingsTableSqlHelper;
+
+  private final Cache<UUID, IntervalIndex<LocalDateTime>> indexes;
+
+  /**
+   * Creates the booking service.
+   *
+   * @param itemsTableSqlHelper the items table sql helper
+   * @param bookingsTableSqlHelper the bookings table sql helper
+   * @param maximumSize maximum number of items whose bookings are indexed in process
+   * @param timeToLive how long an item's index is used before it is loaded again
+   */
+  @Autowired
+  public BookingService(
+      ItemsTableSqlHelper itemsTableSqlHelper,
+      BookingsTableSqlHelper bookingsTableSqlHelper,
+      @Value("${service.bookings.index.maximum-size:10000}") long maximumSize,
+      @Value("${service.bookings.index.time-to-live:30s}") Duration timeToLive) {
+    this.itemsTableSqlHelper = itemsTableSqlHelper;
+    this.bookingsTableSqlHelper = bookingsTableSqlHelper;
+    this.indexes =
+        Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).build();
+  }
+
+  /**
+   * Book an item for a time window.
+   *
+   * @param itemId The ID of the item to book
+   * @param userId The ID of the user the item is booked for, or null if unknown
+   * @param startsAt Start of the window, inclusive
+   * @param endsAt End of the window, exclusive
+   * @return The new booking
+   * @throws ReservationException if the window is invalid, or the item does not exist or is already
+   *     booked for part of the window
+   */
+  public Booking bookItem(String itemId, UUID userId, LocalDateTime startsAt, LocalDateTime endsAt)
+      throws ReservationException {
+    UUID parsedItemId = parseItemId(itemId);
+    // DATETIME columns hold whole seconds
+    Booking booking =
+        Booking.builder()
+            .bookingId(UuidCodec.timeOrderedUuid())
+            .itemId(parsedItemId)
+            .userId(userId)
+            .startsAt(startsAt.truncatedTo(ChronoUnit.SECONDS))
+            .endsAt(endsAt.truncatedTo(ChronoUnit.SECONDS))
+            .build();
+    if (!booking.getStartsAt().isBefore(booking.getEndsAt())) {
+      throw new ReservationException("The window must end after it starts");
+    }
+    if (booking.getStartsAt().isBefore(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))) {
+      throw new ReservationException("The window must not start in the past");
+    }
+
+    if (!bookingsTableSqlHelper.insertBooking(booking)) {
+      throw new ReservationException(rejectionReason(booking));
+    }
+    indexes
+        .asMap()
+        .computeIfPresent(
+            parsedItemId,
+            (key, index) -> {
+              synchronized (index) {
+                index.add(
+                    booking.getStartsAt(), booking.getEndsAt(), booking.getBookingId().toString());
+              }
+              return index;
+            });
+    return booking;
+  }
+
+  /**
+   * Cancel a booking, freeing its window.
+   *
+   * @param bookingId The ID of the booking
+   * @return The cancelled booking
+   * @throws ReservationException if the booking does not exist
+   */
+  public Booking cancelBooking(String bookingId) throws ReservationException {
+    Booking cancelled = bookingsTableSqlHelper.deleteBooking(bookingId);
+    if (cancelled == null) {
+      throw new ReservationException("Booking not found: " + bookingId);
+    }
+    indexes
+        .asMap()
+        .computeIfPresent(
+            cancelled.getItemId(),
+            (key, index) -> {
+              synchronized (index) {
+                index.remove(cancelled.getStartsAt(), cancelled.getBookingId().toString());
+              }
+              return index;
+            });
+    return cancelled;
+  }
+
+  /**
+   * Lists the windows of a range in which an item is not booked. Windows before now are left out.
+   *
+   * @param itemId The ID of the item
+   * @param from Start of the range, inclusive
+   * @param to End of the range, exclusive
+   * @return The free windows, in time order
+   * @throws ReservationException if the range is invalid or the item does not exist
+   */
+  public List<TimeWindow> getFreeSlots(String itemId, LocalDateTime from, LocalDateTime to)
+      throws ReservationException {
+    final UUID parsedItemId = parseItemId(itemId);
+    if (!from.isBefore(to)) {
+      throw new ReservationException("The range must end after it starts");
+    }
+    if (itemsTableSqlHelper.getItem(itemId).isEmpty()) {
+      throw new ReservationException("Item not found: " + itemId);
+    }
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    LocalDateTime start = from.isBefore(now) ? now : from;
+    List<TimeWindow> freeSlots = new ArrayList<>();
+    if (!start.isBefore(to)) {
+      return freeSlots;
+    }
+    IntervalIndex<LocalDateTime> index = indexes.get(parsedItemId, this::loadIndex);
+    synchronized (index) {
+      for (IntervalIndex.Interval<LocalDateTime> gap : index.findGaps(start, to)) {
+        freeSlots.add(new TimeWindow(gap.getStart(), gap.getEnd()));
+      }
+    }
+    return freeSlots;
+  }
+
+  private IntervalIndex<LocalDateTime> loadIndex(UUID itemId) {
+    IntervalIndex<LocalDateTime> index = new IntervalIndex<>();
+    for (Booking booking : bookingsTableSqlHelper.getBookings(itemId, LocalDateTime.now())) {
+      index.add(booking.getStartsAt(), booking.getEndsAt(), booking.getBookingId().toString());
+    }
+    return index;
+  }
+
+  private static UUID parseItemId(String itemId) throws ReservationException {
+    try {
+      return UUID.fromString(itemId);
+    } catch (IllegalArgumentException e) {
+      throw new ReservationException("Item not found: " + itemId);
+    }
+  }
+
+  /** Explains why a booking was rejected by the DB. */
+  private String rejectionReason(Booking booking) {
+    Booking overlap =
+        bookingsTableSqlHelper.findOverlap(
+            booking.getItemId(), booking.getStartsAt(), booking.getEndsAt());
+    if (overlap == null) {
+      return "Item not found: " + booking.getItemId();
+    }
+    return "Item is already booked from "
+        + overlap.getStartsAt().format(FORMATTER)
+        + " to "
+        + overlap.getEndsAt().format(FORMATTER);
+  }
+}
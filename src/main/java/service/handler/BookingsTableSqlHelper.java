@@ -0,0 +1,192 @@
+package service.handler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.models.Booking;
+import service.util.UuidCodec;
+
+/**
+ * This class handles the translation from item bookings to SQL queries on the Bookings table.
+ * Bookings of an item never overlap, so the (item_id, ends_at) index also orders them by start, and
+ * the one booking that can overlap a window is the first one ending after the window starts.
+ */
+@Getter
+@Repository
+public class BookingsTableSqlHelper {
+
+  /** Select list read by {@link #getBookingFromTable(ResultSet, UuidCodec)}. */
+  public static final String BOOKING_COLUMNS = "booking_id, item_id, user_id, starts_at, ends_at";
+
+  /** The first booking of an item ending after a point in time. */
+  private static final String NEXT_BOOKING_SQL =
+      "select "
+          + BOOKING_COLUMNS
+          + " from Bookings where item_id = ? and ends_at > ? "
+          + "order by ends_at limit 1";
+
+  private static final int BOOKING_ID_INDEX = 1;
+  private static final int ITEM_ID_INDEX = 2;
+  private static final int USER_ID_INDEX = 3;
+  private static final int STARTS_AT_INDEX = 4;
+  private static final int ENDS_AT_INDEX = 5;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private TransactionTemplate transactionTemplate;
+
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  /**
+   * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
+   *
+   * @param jdbcTemplate the jdbc template
+   */
+  @Autowired
+  public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Sets the transaction template that groups the overlap check of a booking with its insert.
+   *
+   * @param transactionTemplate the transaction template
+   */
+  @Autowired
+  public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
+  /**
+   * Stores a booking unless it overlaps another booking of the item. The item's row is locked
+   * first, so two overlapping bookings made at once, on any instance, cannot both be stored.
+   *
+   * @param booking the booking to store
+   * @return true if the booking was stored, false if the item does not exist or is already booked
+   *     for part of the window
+   */
+  public boolean insertBooking(Booking booking) {
+    Object itemId = uuidCodec.bind(booking.getItemId());
+    Boolean inserted =
+        transactionTemplate.execute(
+            status -> {
+              List<Object> locked =
+                  jdbcTemplate.queryForList(
+                      "select item_id from Items where item_id = ? for update",
+                      Object.class,
+                      itemId);
+              if (locked.isEmpty()
+                  || findOverlap(booking.getItemId(), booking.getStartsAt(), booking.getEndsAt())
+                      != null) {
+                return false;
+              }
+              jdbcTemplate.update(
+                  "insert into Bookings (" + BOOKING_COLUMNS + ") values (?,?,?,?,?)",
+                  uuidCodec.bind(booking.getBookingId()),
+                  itemId,
+                  booking.getUserId() == null ? null : uuidCodec.bind(booking.getUserId()),
+                  booking.getStartsAt(),
+                  booking.getEndsAt());
+              return true;
+            });
+    System.out.println((Boolean.TRUE.equals(inserted) ? 1 : 0) + " booking row/s inserted.");
+    return Boolean.TRUE.equals(inserted);
+  }
+
+  /**
+   * Finds the booking of an item overlapping a window.
+   *
+   * @param itemId Unique identifier for the item within the DB.
+   * @param startsAt Start of the window, inclusive.
+   * @param endsAt End of the window, exclusive.
+   * @return the overlapping booking, or null if the item is free for the whole window
+   */
+  public Booking findOverlap(UUID itemId, LocalDateTime startsAt, LocalDateTime endsAt) {
+    List<Booking> next =
+        jdbcTemplate.query(NEXT_BOOKING_SQL, getRowMapper(), uuidCodec.bind(itemId), startsAt);
+    if (next.isEmpty() || !next.get(0).getStartsAt().isBefore(endsAt)) {
+      return null;
+    }
+    return next.get(0);
+  }
+
+  /**
+   * Gets the bookings of an item ending after a point in time, in time order.
+   *
+   * @param itemId Unique identifier for the item within the DB.
+   * @param endingAfter Bookings ending at or before this time are left out.
+   * @return the bookings of the item
+   */
+  public List<Booking> getBookings(UUID itemId, LocalDateTime endingAfter) {
+    String sql =
+        "select "
+            + BOOKING_COLUMNS
+            + " from Bookings where item_id = ? and ends_at > ? "
+            + "order by ends_at";
+    return jdbcTemplate.query(sql, getRowMapper(), uuidCodec.bind(itemId), endingAfter);
+  }
+
+  /**
+   * Deletes a booking.
+   *
+   * @param bookingId Unique identifier for the booking within the DB.
+   * @return the deleted booking, or null if it does not exist
+   */
+  public Booking deleteBooking(String bookingId) {
+    return transactionTemplate.execute(
+        status -> {
+          List<Booking> bookings =
+              jdbcTemplate.query(
+                  "select " + BOOKING_COLUMNS + " from Bookings where booking_id = ? for update",
+                  getRowMapper(),
+                  uuidCodec.bind(bookingId));
+          if (bookings.isEmpty()) {
+            return null;
+          }
+          jdbcTemplate.update(
+              "delete from Bookings where booking_id = ?", uuidCodec.bind(bookingId));
+          System.out.println("1 booking row/s deleted.");
+          return bookings.get(0);
+        });
+  }
+
+  /**
+   * Reads a booking from a row selected with {@link #BOOKING_COLUMNS}.
+   *
+   * @param rs the result set, positioned on the row
+   * @param uuidCodec the codec matching how the DB stores keys
+   * @return the booking
+   * @throws SQLException if a column cannot be read
+   */
+  public static Booking getBookingFromTable(ResultSet rs, UuidCodec uuidCodec) throws SQLException {
+    return Booking.builder()
+        .bookingId(uuidCodec.read(rs, BOOKING_ID_INDEX))
+        .itemId(uuidCodec.read(rs, ITEM_ID_INDEX))
+        .userId(uuidCodec.read(rs, USER_ID_INDEX))
+        .startsAt(rs.getObject(STARTS_AT_INDEX, LocalDateTime.class))
+        .endsAt(rs.getObject(ENDS_AT_INDEX, LocalDateTime.class))
+        .build();
+  }
+
+  private RowMapper<Booking> getRowMapper() {
+    return (rs, rowNum) -> getBookingFromTable(rs, uuidCodec);
+  }
+}
@@ -0,0 +1,166 @@
+package service.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Hands out the expiry partitions of the Reservations table between the running instances through
+ * lease rows in the Expiry_Leases table, so each partition is expired by exactly one instance. An
+ * instance keeps its partitions while it renews their leases, and a partition whose lease lapsed is
+ * taken over by the next instance that renews. Each instance registers itself in
+ * Expiry_Lease_Owners and holds no more than its fair share of the partitions, so the partitions
+ * spread out as instances start. Lease times come from the DB clock, so the clocks of the instances
+ * do not have to agree.
+ */
+@Service
+public class ExpiryLeaseService {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final Duration leaseTimeToLive;
+
+  @Getter private final String owner = UUID.randomUUID().toString();
+
+  private volatile Set<Integer> ownedPartitions = Set.of();
+
+  /**
+   * Creates the lease service for this instance. It owns no partitions until it renews.
+   *
+   * @param jdbcTemplate the jdbc template
+   * @param leaseTimeToLive how long a lease lasts unless renewed
+   */
+  @Autowired
+  public ExpiryLeaseService(
+      JdbcTemplate jdbcTemplate,
+      @Value("${service.reservations.lease.time-to-live:30s}") Duration leaseTimeToLive) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.leaseTimeToLive = leaseTimeToLive;
+  }
+
+  /**
+   * Renews the leases this instance holds and evens them out to its fair share, the partition count
+   * divided by the number of live instances rounded up. Leases above the share are handed back for
+   * the instances that started since, and lapsed leases are taken up to the share. Must be called
+   * well within the lease time to live.
+   *
+   * @return the partitions this instance did not own before
+   */
+  public synchronized Set<Integer> renewLeases() {
+    long timeToLive = leaseTimeToLive.toSeconds();
+    int fairShare = fairShare(timeToLive);
+    jdbcTemplate.update(
+        "update Expiry_Leases set lease_until = timestampadd(SECOND, ?, now()) where owner = ?",
+        timeToLive,
+        owner);
+    List<Integer> owned = queryOwnedPartitions();
+    if (owned.size() > fairShare) {
+      List<Integer> surplus = owned.subList(fairShare, owned.size());
+      jdbcTemplate.update(
+          "update Expiry_Leases set owner = null, lease_until = null where owner = ? "
+              + "and partition_id in ("
+              + String.join(", ", Collections.nCopies(surplus.size(), "?"))
+              + ")",
+          Stream.concat(Stream.of(owner), surplus.stream()).toArray());
+      owned = queryOwnedPartitions();
+    } else if (owned.size() < fairShare) {
+      List<Integer> lapsed =
+          jdbcTemplate.queryForList(
+              "select partition_id from Expiry_Leases "
+                  + "where lease_until is null or lease_until < now() "
+                  + "order by partition_id limit ?",
+              Integer.class,
+              fairShare - owned.size());
+      if (!lapsed.isEmpty()) {
+        // Another instance may take some of them first, the lease_until check leaves those alone
+        jdbcTemplate.update(
+            "update Expiry_Leases set owner = ?, lease_until = timestampadd(SECOND, ?, now()) "
+                + "where (lease_until is null or lease_until < now()) and partition_id in ("
+                + String.join(", ", Collections.nCopies(lapsed.size(), "?"))
+                + ")",
+            Stream.concat(Stream.of(owner, timeToLive), lapsed.stream()).toArray());
+        owned = queryOwnedPartitions();
+      }
+    }
+    Set<Integer> acquired = new HashSet<>(owned);
+    acquired.removeAll(ownedPartitions);
+    ownedPartitions = Set.copyOf(owned);
+    if (!acquired.isEmpty()) {
+      System.out.println(acquired.size() + " expiry partition lease/s acquired.");
+    }
+    return acquired;
+  }
+
+  /**
+   * Marks this instance as live, drops the instances that stopped renewing and divides the
+   * partitions between the live ones.
+   */
+  private int fairShare(long timeToLive) {
+    if (jdbcTemplate.update(
+            "update Expiry_Lease_Owners set alive_until = timestampadd(SECOND, ?, now()) "
+                + "where owner = ?",
+            timeToLive,
+            owner)
+        == 0) {
+      jdbcTemplate.update(
+          "insert into Expiry_Lease_Owners (owner, alive_until) "
+              + "values (?, timestampadd(SECOND, ?, now()))",
+          owner,
+          timeToLive);
+    }
+    jdbcTemplate.update("delete from Expiry_Lease_Owners where alive_until < now()");
+    Integer owners =
+        jdbcTemplate.queryForObject("select count(*) from Expiry_Lease_Owners", Integer.class);
+    int liveOwners = owners == null ? 1 : Math.max(1, owners);
+    return (ReservationsTableSqlHelper.EXPIRY_PARTITIONS + liveOwners - 1) / liveOwners;
+  }
+
+  private List<Integer> queryOwnedPartitions() {
+    return jdbcTemplate.queryForList(
+        "select partition_id from Expiry_Leases where owner = ? order by partition_id",
+        Integer.class,
+        owner);
+  }
+
+  /**
+   * Checks if this instance expires the holds of a partition.
+   *
+   * @param partition the expiry partition
+   * @return true if this instance holds the partition's lease
+   */
+  public boolean ownsPartition(int partition) {
+    return ownedPartitions.contains(partition);
+  }
+
+  /**
+   * Gets the partitions this instance expires.
+   *
+   * @return the partitions whose lease this instance holds
+   */
+  public Set<Integer> getOwnedPartitions() {
+    return ownedPartitions;
+  }
+
+  /** Gives up this instance's leases, so another instance can take them over right away. */
+  @PreDestroy
+  public synchronized void releaseLeases() {
+    ownedPartitions = Set.of();
+    try {
+      jdbcTemplate.update(
+          "update Expiry_Leases set owner = null, lease_until = null where owner = ?", owner);
+      jdbcTemplate.update("delete from Expiry_Lease_Owners where owner = ?", owner);
+    } catch (RuntimeException e) {
+      System.err.println("Failed to release expiry leases: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package service.handler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * This class handles the translation from stored idempotent responses to SQL queries on the
+ * Idempotency_Keys table. Every lookup is by the primary key.
+ */
+@Getter
+@Repository
+public class IdempotencyKeysTableSqlHelper {
+
+  private JdbcTemplate jdbcTemplate;
+
+  /**
+   * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
+   *
+   * @param jdbcTemplate the jdbc template
+   */
+  @Autowired
+  public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Claims a key for the request about to be processed. A key whose row has expired but was not
+   * purged yet is claimed again, so a claim left behind by a crashed instance lapses.
+   *
+   * @param keyHash Hash of the endpoint, the user and the Idempotency-Key header.
+   * @param payloadHash Hash of the request payload.
+   * @param now The current time.
+   * @param expiresAt The time the claim lapses unless a response is stored.
+   * @return true if the key was claimed, false if another request already holds it
+   */
+  public boolean claimKey(
+      byte[] keyHash, byte[] payloadHash, LocalDateTime now, LocalDateTime expiresAt) {
+    String insertSql =
+        "insert into Idempotency_Keys (key_hash, payload_hash, expires_at) values (?,?,?)";
+    try {
+      jdbcTemplate.update(insertSql, keyHash, payloadHash, expiresAt);
+      return true;
+    } catch (DuplicateKeyException e) {
+      int deleted =
+          jdbcTemplate.update(
+              "delete from Idempotency_Keys where key_hash = ? and expires_at <= ?", keyHash, now);
+      if (deleted == 0) {
+        return false;
+      }
+    }
+    try {
+      jdbcTemplate.update(insertSql, keyHash, payloadHash, expiresAt);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the response stored for a key.
+   *
+   * @param keyHash Hash of the endpoint, the user and the Idempotency-Key header.
+   * @return the stored response, or null if the key is not claimed
+   */
+  public StoredResponse getResponse(byte[] keyHash) {
+    String sql =
+        "select payload_hash, status_code, response_body from Idempotency_Keys "
+            + "where key_hash = ?";
+    List<StoredResponse> responses =
+        jdbcTemplate.query(
+            sql,
+            (rs, rowNum) ->
+                new StoredResponse(
+                    rs.getBytes("payload_hash"),
+                    rs.getObject("status_code", Integer.class),
+                    rs.getString("response_body")),
+            keyHash);
+    return responses.isEmpty() ? null : responses.get(0);
+  }
+
+  /**
+   * Stores the response of the request that claimed a key.
+   *
+   * @param keyHash Hash of the endpoint, the user and the Idempotency-Key header.
+   * @param statusCode The HTTP status code of the response.
+   * @param responseBody The body of the response.
+   * @param expiresAt The time the key can be purged.
+   * @return true if the key was still claimed
+   */
+  public boolean storeResponse(
+      byte[] keyHash, int statusCode, String responseBody, LocalDateTime expiresAt) {
+    String sql =
+        "update Idempotency_Keys set status_code = ?, response_body = ?, expires_at = ? "
+            + "where key_hash = ?";
+    return jdbcTemplate.update(sql, statusCode, responseBody, expiresAt, keyHash) == 1;
+  }
+
+  /**
+   * Gives up a claimed key, so a retry of the request is processed again.
+   *
+   * @param keyHash Hash of the endpoint, the user and the Idempotency-Key header.
+   * @return true if the key was claimed
+   */
+  public boolean releaseKey(byte[] keyHash) {
+    return jdbcTemplate.update("delete from Idempotency_Keys where key_hash = ?", keyHash) == 1;
+  }
+
+  /**
+   * Deletes up to a batch of expired keys.
+   *
+   * @param now The current time.
+   * @param batchSize Most keys to delete.
+   * @return the number of keys deleted
+   */
+  public int deleteExpiredKeys(LocalDateTime now, int batchSize) {
+    return jdbcTemplate.update(
+        "delete from Idempotency_Keys where expires_at <= ? limit ?", now, batchSize);
+  }
+
+  /**
+   * The response stored for a key. The status code is null until the response is stored, and the
+   * payload hash is null for keys claimed before payloads were hashed.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class StoredResponse {
+    private final byte[] payloadHash;
+    private final Integer statusCode;
+    private final String responseBody;
+  }
+}
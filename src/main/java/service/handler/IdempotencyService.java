@@ -0,0 +1,251 @@
+package service.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Makes writes safe to retry. A request sent with an Idempotency-Key header is processed once, and
+ * every later request with the same key, from the same user to the same endpoint, gets the stored
+ * response back without redoing the work. The first request claims its key with a row in the
+ * Idempotency_Keys table before it runs, so a retry racing it on any instance is turned away
+ * instead of processed twice. A hash of the request payload is stored with the claim, and a later
+ * request that reuses the key with a different payload is rejected instead of getting the response
+ * of another request. Stored responses are also kept in a bounded in-process cache, so most replays
+ * do not reach the DB. Server errors are not stored, so the request can be retried.
+ */
+@Service
+public class IdempotencyService implements SchedulingConfigurer {
+
+  /** Name of the request header holding the key. */
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+  /** Response header set on a stored response played back for a retry. */
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  /** Longest key accepted. */
+  public static final int MAX_KEY_LENGTH = 255;
+
+  /** How long a claimed key waits for its response before another request may claim it. */
+  private static final Duration CLAIM_TIME_TO_LIVE = Duration.ofMinutes(1);
+
+  private final IdempotencyKeysTableSqlHelper idempotencyKeysTableSqlHelper;
+
+  private final ObjectMapper objectMapper;
+
+  private final Cache<String, CachedResponse> responses;
+
+  private final Duration timeToLive;
+
+  private final Duration purgeInterval;
+
+  private final int purgeBatchSize;
+
+  /**
+   * Creates the idempotency service.
+   *
+   * @param idempotencyKeysTableSqlHelper the idempotency keys table sql helper
+   * @param objectMapper serializes request payloads before they are hashed
+   * @param maximumSize maximum number of responses cached in process
+   * @param timeToLive how long a stored response is played back for retries
+   * @param purgeInterval time between purges of expired keys
+   * @param purgeBatchSize most expired keys deleted by one statement
+   */
+  @Autowired
+  public IdempotencyService(
+      IdempotencyKeysTableSqlHelper idempotencyKeysTableSqlHelper,
+      ObjectMapper objectMapper,
+      @Value("${service.idempotency.maximum-size:10000}") long maximumSize,
+      @Value("${service.idempotency.time-to-live:24h}") Duration timeToLive,
+      @Value("${service.idempotency.purge-interval:1m}") Duration purgeInterval,
+      @Value("${service.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+    this.idempotencyKeysTableSqlHelper = idempotencyKeysTableSqlHelper;
+    this.objectMapper = objectMapper;
+    this.responses =
+        Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).build();
+    this.timeToLive = timeToLive;
+    this.purgeInterval = purgeInterval;
+    this.purgeBatchSize = purgeBatchSize;
+  }
+
+  /**
+   * Creates a service that ignores keys, so every request is processed.
+   *
+   * @return a pass-through idempotency service
+   */
+  public static IdempotencyService disabled() {
+    return new IdempotencyService(null, null, 0, Duration.ZERO, Duration.ZERO, 0);
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    if (idempotencyKeysTableSqlHelper != null) {
+      taskRegistrar.addFixedDelayTask(this::purgeExpiredKeys, purgeInterval);
+    }
+  }
+
+  /**
+   * Processes a request once per key. Requests without a key are always processed.
+   *
+   * @param idempotencyKey the Idempotency-Key header of the request, or null
+   * @param endpoint name of the endpoint, so the same key can be used on different endpoints
+   * @param payload the request's parameters or body, which a retry must repeat exactly
+   * @param request processes the request
+   * @return the response of the request, or the stored response of the first request with the key
+   */
+  public ResponseEntity<String> execute(
+      String idempotencyKey,
+      String endpoint,
+      Object payload,
+      Supplier<ResponseEntity<String>> request) {
+    if (idempotencyKey == null || idempotencyKeysTableSqlHelper == null) {
+      return request.get();
+    }
+    if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+      return new ResponseEntity<>(
+          IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters",
+          HttpStatus.BAD_REQUEST);
+    }
+
+    final byte[] keyHash = hash(endpoint, idempotencyKey);
+    final byte[] payloadHash = hashPayload(payload);
+    final String cacheKey = HexFormat.of().formatHex(keyHash);
+    CachedResponse cached = responses.getIfPresent(cacheKey);
+    if (cached != null) {
+      return matches(cached.getPayloadHash(), payloadHash)
+          ? replay(cached.getResponse())
+          : payloadMismatch();
+    }
+
+    LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    if (!idempotencyKeysTableSqlHelper.claimKey(
+        keyHash, payloadHash, now, now.plus(CLAIM_TIME_TO_LIVE))) {
+      IdempotencyKeysTableSqlHelper.StoredResponse stored =
+          idempotencyKeysTableSqlHelper.getResponse(keyHash);
+      if (stored != null && !matches(stored.getPayloadHash(), payloadHash)) {
+        return payloadMismatch();
+      }
+      if (stored == null || stored.getStatusCode() == null) {
+        return new ResponseEntity<>(
+            "A request with this " + IDEMPOTENCY_KEY_HEADER + " is still being processed",
+            HttpStatus.CONFLICT);
+      }
+      ResponseEntity<String> response =
+          new ResponseEntity<>(
+              stored.getResponseBody(), HttpStatus.valueOf(stored.getStatusCode()));
+      responses.put(cacheKey, new CachedResponse(stored.getPayloadHash(), response));
+      return replay(response);
+    }
+
+    ResponseEntity<String> response;
+    try {
+      response = request.get();
+    } catch (RuntimeException e) {
+      idempotencyKeysTableSqlHelper.releaseKey(keyHash);
+      throw e;
+    }
+    if (response.getStatusCode().is5xxServerError()) {
+      idempotencyKeysTableSqlHelper.releaseKey(keyHash);
+    } else {
+      response = new ResponseEntity<>(response.getBody(), response.getStatusCode());
+      idempotencyKeysTableSqlHelper.storeResponse(
+          keyHash, response.getStatusCode().value(), response.getBody(), now.plus(timeToLive));
+      responses.put(cacheKey, new CachedResponse(payloadHash, response));
+    }
+    return response;
+  }
+
+  /**
+   * Deletes the keys that have expired, one batch per statement.
+   *
+   * @return the number of keys deleted
+   */
+  public int purgeExpiredKeys() {
+    final LocalDateTime now = LocalDateTime.now();
+    int purged = 0;
+    try {
+      int deleted = purgeBatchSize;
+      while (deleted == purgeBatchSize) {
+        deleted = idempotencyKeysTableSqlHelper.deleteExpiredKeys(now, purgeBatchSize);
+        purged += deleted;
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Idempotency key purge failed: " + e.getMessage());
+    }
+    if (purged > 0) {
+      System.out.println(purged + " expired idempotency key row/s deleted.");
+    }
+    return purged;
+  }
+
+  private static ResponseEntity<String> replay(ResponseEntity<String> stored) {
+    return ResponseEntity.status(stored.getStatusCode())
+        .header(REPLAYED_HEADER, "true")
+        .body(stored.getBody());
+  }
+
+  private static ResponseEntity<String> payloadMismatch() {
+    return new ResponseEntity<>(
+        "This " + IDEMPOTENCY_KEY_HEADER + " was already used with a different request",
+        HttpStatus.UNPROCESSABLE_ENTITY);
+  }
+
+  /** Keys stored before payloads were hashed have no hash, and match any payload. */
+  private static boolean matches(byte[] storedPayloadHash, byte[] payloadHash) {
+    return storedPayloadHash == null || Arrays.equals(storedPayloadHash, payloadHash);
+  }
+
+  /** Hashes the key together with the endpoint and the user, so keys cannot collide across them. */
+  private static byte[] hash(String endpoint, String idempotencyKey) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String user = authentication == null ? "" : authentication.getName();
+    return sha256(
+        (endpoint + '\n' + user + '\n' + idempotencyKey).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Hashes the JSON form of the payload, so equal requests hash alike whatever their instance. */
+  private byte[] hashPayload(Object payload) {
+    try {
+      return sha256(objectMapper.writeValueAsBytes(payload));
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Request payload cannot be serialized", e);
+    }
+  }
+
+  private static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** A response kept in process, with the hash of the payload that produced it. */
+  @Getter
+  @AllArgsConstructor
+  private static class CachedResponse {
+    private final byte[] payloadHash;
+    private final ResponseEntity<String> response;
+  }
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import service.util.UuidCodec;
 
 /**
  * This class handles the translation from java objects to SQL queries into the local MySQL database
@@ -17,6 +18,18 @@ public class InventoryItemsJunctionTableHelper {
 
   @Autowired private JdbcTemplate jdbcTemplate;
 
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
   /**
    * Gets item ids by inventory id.
    *
@@ -24,8 +37,9 @@ public class InventoryItemsJunctionTableHelper {
    * @return the item ids by inventory id
    */
   public List<String> getItemIdsByInventoryId(String inventoryId) {
-    String sql = "select * from Inventory_Items where inventory_id = " + "'" + inventoryId + "'";
-    return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("item_id"));
+    String sql = "select item_id from Inventory_Items where inventory_id = ?";
+    return jdbcTemplate.query(
+        sql, (rs, rowNum) -> uuidCodec.readText(rs, "item_id"), uuidCodec.bind(inventoryId));
   }
 
   /**
@@ -35,7 +49,8 @@ public class InventoryItemsJunctionTableHelper {
    * @return the item names by inventory id
    */
   public List<String> getItemNamesByInventoryId(String inventoryId) {
-    String sql = "select * from Inventory_Items where inventory_id = " + "'" + inventoryId + "'";
-    return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("item_name"));
+    String sql = "select item_name from Inventory_Items where inventory_id = ?";
+    return jdbcTemplate.query(
+        sql, (rs, rowNum) -> rs.getString("item_name"), uuidCodec.bind(inventoryId));
   }
 }
@@ -0,0 +1,138 @@
+package service.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically checks the Inventory_Stats row of every inventory against the items it holds, and
+ * repairs rows that have drifted. The triggers keep the rows exact, so drift means a write reached
+ * Items without them, such as a manual fix or a restore. Inventories are walked in key order, one
+ * page of ids at a time, and each one is checked in its own short transaction.
+ *
+ * <p>Only the instance holding the reconciler's lease in Job_Leases runs it. The lease is renewed
+ * at the start of every run and before every page, and is kept between runs, so the job stays on
+ * one instance until that instance stops or its lease lapses.
+ */
+@Component
+public class InventoryStatsReconciler implements SchedulingConfigurer {
+
+  private final InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper;
+
+  private final Duration interval;
+
+  private final int batchSize;
+
+  private final Duration leaseTimeToLive;
+
+  private final String owner = UUID.randomUUID().toString();
+
+  private final AtomicLong runs = new AtomicLong();
+
+  private final AtomicLong lastChecked = new AtomicLong();
+
+  private final AtomicLong totalRepaired = new AtomicLong();
+
+  private final AtomicLong skipped = new AtomicLong();
+
+  /**
+   * Creates the reconciler.
+   *
+   * @param inventoryStatsTableSqlHelper the inventory stats table sql helper
+   * @param interval time between the end of one run and the start of the next
+   * @param batchSize inventory ids read per page
+   * @param leaseTimeToLive how long the lease lasts unless renewed, longer than the interval so the
+   *     lease is kept between runs
+   */
+  @Autowired
+  public InventoryStatsReconciler(
+      InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper,
+      @Value("${service.inventories.stats.reconcile-interval:10m}") Duration interval,
+      @Value("${service.inventories.stats.batch-size:500}") int batchSize,
+      @Value("${service.inventories.stats.lease-time-to-live:15m}") Duration leaseTimeToLive) {
+    this.inventoryStatsTableSqlHelper = inventoryStatsTableSqlHelper;
+    this.interval = interval;
+    this.batchSize = batchSize;
+    this.leaseTimeToLive = leaseTimeToLive;
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    taskRegistrar.addFixedDelayTask(this::reconcile, interval);
+  }
+
+  /**
+   * Checks the stats of every inventory and repairs those that have drifted, if this instance holds
+   * the reconciler's lease. A run stops early if the lease is lost.
+   *
+   * @return the number of inventories whose stats were repaired
+   */
+  public int reconcile() {
+    int checked = 0;
+    int repaired = 0;
+    try {
+      if (!inventoryStatsTableSqlHelper.claimReconcileLease(owner, leaseTimeToLive)) {
+        skipped.incrementAndGet();
+        return 0;
+      }
+      String after = null;
+      List<String> inventoryIds = inventoryStatsTableSqlHelper.getInventoryIds(after, batchSize);
+      while (!inventoryIds.isEmpty()) {
+        for (String inventoryId : inventoryIds) {
+          checked++;
+          if (inventoryStatsTableSqlHelper.reconcile(inventoryId)) {
+            repaired++;
+            System.out.println("Repaired drifted stats of inventory " + inventoryId);
+          }
+        }
+        after = inventoryIds.get(inventoryIds.size() - 1);
+        inventoryIds =
+            inventoryIds.size() < batchSize
+                    || !inventoryStatsTableSqlHelper.claimReconcileLease(owner, leaseTimeToLive)
+                ? List.of()
+                : inventoryStatsTableSqlHelper.getInventoryIds(after, batchSize);
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Inventory stats reconciliation failed: " + e.getMessage());
+    }
+    runs.incrementAndGet();
+    lastChecked.set(checked);
+    totalRepaired.addAndGet(repaired);
+    return repaired;
+  }
+
+  /**
+   * Reports what the reconciler has done.
+   *
+   * @return the number of runs, inventories checked by the last run, stats repaired in total and
+   *     runs skipped because another instance held the lease
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("runs", runs.get());
+    stats.put("lastChecked", lastChecked.get());
+    stats.put("totalRepaired", totalRepaired.get());
+    stats.put("skipped", skipped.get());
+    stats.put("batchSize", batchSize);
+    return stats;
+  }
+
+  /** Gives up the lease, so another instance can take the job over right away. */
+  @PreDestroy
+  public void close() {
+    try {
+      inventoryStatsTableSqlHelper.releaseReconcileLease(owner);
+    } catch (RuntimeException e) {
+      System.err.println("Failed to release the inventory stats lease: " + e.getMessage());
+    }
+  }
+}
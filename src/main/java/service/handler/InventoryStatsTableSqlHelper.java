@@ -0,0 +1,211 @@
+package service.handler;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.models.InventoryStats;
+import service.util.UuidCodec;
+
+/**
+ * This class handles the translation from inventory totals to SQL queries on the Inventory_Stats
+ * table. The rows are written by the Items triggers in the same transaction as every item write, so
+ * this class only reads them, and repairs them if they ever disagree with the items.
+ */
+@Getter
+@Repository
+public class InventoryStatsTableSqlHelper {
+
+  private static final String STATS_COLUMNS =
+      "item_count, total_units, reserved_units, stock_value";
+
+  /** The totals of an inventory computed from its items, in the order of {@link #STATS_COLUMNS}. */
+  private static final String ACTUAL_STATS_SQL =
+      "select count(*), coalesce(sum(quantity + reserved_quantity), 0), "
+          + "coalesce(sum(reserved_quantity), 0), "
+          + "coalesce(sum(price * (quantity + reserved_quantity)), 0) "
+          + "from Items where inventory_id = ?";
+
+  /** The reconciler's row in Job_Leases. */
+  private static final String RECONCILE_JOB = "inventory-stats-reconcile";
+
+  private JdbcTemplate jdbcTemplate;
+
+  private TransactionTemplate transactionTemplate;
+
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  /**
+   * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
+   *
+   * @param jdbcTemplate the jdbc template
+   */
+  @Autowired
+  public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Sets the transaction template that holds an inventory's stats row locked while it is checked.
+   *
+   * @param transactionTemplate the transaction template
+   */
+  @Autowired
+  public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
+  /**
+   * Reads the totals of an inventory in one primary key lookup. An inventory that never held an
+   * item has no stats row, and reads as all zeros.
+   *
+   * @param inventoryId Unique identifier for the inventory within the DB.
+   * @return the totals of the inventory, or null if the inventory does not exist
+   */
+  public InventoryStats getInventoryStats(String inventoryId) {
+    String sql =
+        "select i.inventory_id, coalesce(s.item_count, 0), coalesce(s.total_units, 0), "
+            + "coalesce(s.reserved_units, 0), coalesce(s.stock_value, 0) "
+            + "from Inventories i left join Inventory_Stats s on s.inventory_id = i.inventory_id "
+            + "where i.inventory_id = ?";
+    RowMapper<InventoryStats> rowMapper =
+        (rs, rowNum) ->
+            InventoryStats.builder()
+                .inventoryId(uuidCodec.read(rs, 1))
+                .itemCount(rs.getLong(2))
+                .totalUnits(rs.getLong(3))
+                .reservedUnits(rs.getLong(4))
+                .stockValue(rs.getBigDecimal(5))
+                .build();
+    List<InventoryStats> stats = jdbcTemplate.query(sql, rowMapper, uuidCodec.bind(inventoryId));
+    return stats.isEmpty() ? null : stats.get(0);
+  }
+
+  /**
+   * Gets a page of inventory ids in key order, for walking every inventory.
+   *
+   * @param afterInventoryId inventory id the page starts after, or null for the first page
+   * @param limit maximum number of ids in the page
+   * @return the inventory ids
+   */
+  public List<String> getInventoryIds(String afterInventoryId, int limit) {
+    RowMapper<String> rowMapper = (rs, rowNum) -> uuidCodec.readText(rs, "inventory_id");
+    if (afterInventoryId == null) {
+      return jdbcTemplate.query(
+          "select inventory_id from Inventories order by inventory_id limit ?", rowMapper, limit);
+    }
+    return jdbcTemplate.query(
+        "select inventory_id from Inventories where inventory_id > ? order by inventory_id limit ?",
+        rowMapper,
+        uuidCodec.bind(afterInventoryId),
+        limit);
+  }
+
+  /**
+   * Checks the stats row of an inventory against its items, and overwrites it if they disagree. The
+   * row is locked first, which holds off the triggers of concurrent item writes, so the items are
+   * summed at a point the row should match exactly.
+   *
+   * @param inventoryId Unique identifier for the inventory within the DB.
+   * @return true if the row had drifted and was repaired
+   */
+  public boolean reconcile(String inventoryId) {
+    Object boundId = uuidCodec.bind(inventoryId);
+    try {
+      Boolean repaired =
+          transactionTemplate.execute(
+              status -> {
+                // Creates the row if the inventory has none, and locks it either way
+                jdbcTemplate.update(
+                    "insert into Inventory_Stats (inventory_id) values (?) "
+                        + "on duplicate key update inventory_id = inventory_id",
+                    boundId);
+                RowMapper<long[]> totals = (rs, rowNum) -> readTotals(rs);
+                List<long[]> stored =
+                    jdbcTemplate.query(
+                        "select " + STATS_COLUMNS + " from Inventory_Stats where inventory_id = ?",
+                        totals,
+                        boundId);
+                List<long[]> actual = jdbcTemplate.query(ACTUAL_STATS_SQL, totals, boundId);
+                if (Arrays.equals(stored.get(0), actual.get(0))) {
+                  return false;
+                }
+                jdbcTemplate.update(
+                    "update Inventory_Stats set item_count = ?, total_units = ?, "
+                        + "reserved_units = ?, stock_value = ? where inventory_id = ?",
+                    actual.get(0)[0],
+                    actual.get(0)[1],
+                    actual.get(0)[2],
+                    BigDecimal.valueOf(actual.get(0)[3], 2),
+                    boundId);
+                return true;
+              });
+      return Boolean.TRUE.equals(repaired);
+    } catch (DataIntegrityViolationException e) {
+      // The inventory was deleted since it was listed
+      return false;
+    }
+  }
+
+  /**
+   * Takes or renews the reconciler's lease, so only one instance reconciles at a time. The lease is
+   * only taken from another instance once it lapsed. Lease times come from the DB clock.
+   *
+   * @param owner the instance asking for the lease
+   * @param leaseTimeToLive how long the lease lasts unless renewed
+   * @return true if the instance holds the lease
+   */
+  public boolean claimReconcileLease(String owner, Duration leaseTimeToLive) {
+    return jdbcTemplate.update(
+            "update Job_Leases set owner = ?, lease_until = timestampadd(SECOND, ?, now()) "
+                + "where job = ? and (owner = ? or lease_until is null or lease_until < now())",
+            owner,
+            leaseTimeToLive.toSeconds(),
+            RECONCILE_JOB,
+            owner)
+        == 1;
+  }
+
+  /**
+   * Gives up the reconciler's lease if the instance holds it, so another instance can take it over
+   * right away.
+   *
+   * @param owner the instance giving up the lease
+   */
+  public void releaseReconcileLease(String owner) {
+    jdbcTemplate.update(
+        "update Job_Leases set owner = null, lease_until = null where job = ? and owner = ?",
+        RECONCILE_JOB,
+        owner);
+  }
+
+  /** Reads the four totals, with the stock value in cents so the totals compare exactly. */
+  private static long[] readTotals(ResultSet rs) throws SQLException {
+    return new long[] {
+      rs.getLong(1),
+      rs.getLong(2),
+      rs.getLong(3),
+      rs.getBigDecimal(4).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact()
+    };
+  }
+}
@@ -1,13 +1,21 @@
 package service.handler;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import service.cache.ItemCache;
 import service.models.Inventory;
+import service.models.InventoryPage;
+import service.models.Item;
+import service.util.UuidCodec;
 
 /**
  * This class handles the translation from java objects to SQL queries into the local MySQL database
@@ -17,8 +25,35 @@ import service.models.Inventory;
 @Repository
 public class InventoryTableSqlHelper {
 
+  /**
+   * Item columns of the inventory detail join, qualified so they do not clash with the inventory's
+   * own columns. They come first, so {@link ItemsTableSqlHelper#getItemFromTable} reads them at the
+   * positions it expects.
+   */
+  private static final String JOINED_ITEM_COLUMNS =
+      ItemsTableSqlHelper.ITEM_FIELD_COLUMNS.values().stream()
+          .map(column -> "it." + column)
+          .collect(Collectors.joining(", "));
+
+  private static final int JOINED_INVENTORY_NAME_INDEX =
+      ItemsTableSqlHelper.ITEM_FIELD_COLUMNS.size() + 1;
+
   @Autowired private JdbcTemplate jdbcTemplate;
 
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  @Autowired private ItemCache itemCache = ItemCache.disabled();
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
   /**
    * This is a test insert class for providing an insight into what it looks like to insert
    * inventories into the DB.
@@ -30,7 +65,7 @@ public class InventoryTableSqlHelper {
     String sql = "insert into Inventories (inventory_id, inventory_name) values (?,?)";
     int rows =
         jdbcTemplate.update(
-            sql, inventory.getInventoryId().toString(), inventory.getInventoryName());
+            sql, uuidCodec.bind(inventory.getInventoryId()), inventory.getInventoryName());
     System.out.println(rows + "Inventory row/s inserted.");
     return rows == 1;
   }
@@ -54,8 +89,8 @@ public class InventoryTableSqlHelper {
    * @return the list
    */
   public Inventory getInventoryWithInventoryId(String inventoryId) {
-    String sql = "select * from Inventories where inventory_id = " + "'" + inventoryId + "'";
-    List<Inventory> results = jdbcTemplate.query(sql, getRowMapper());
+    String sql = "select * from Inventories where inventory_id = ?";
+    List<Inventory> results = jdbcTemplate.query(sql, getRowMapper(), uuidCodec.bind(inventoryId));
     if (results.isEmpty()) {
       return null;
     } else if (results.size() > 1) {
@@ -66,6 +101,103 @@ public class InventoryTableSqlHelper {
     }
   }
 
+  /**
+   * Reads an inventory together with one page of its items in a single query. The items are joined
+   * on the inventory_id index and paged by item id, keyset style, so a page is one range read
+   * however many items the inventory holds. Each page also confirms the inventory exists, so
+   * callers need no separate lookup.
+   *
+   * @param inventoryId Unique identifier for the inventory within the DB.
+   * @param afterItemId item id the page starts after, or null for the first page
+   * @param limit maximum number of items in the page
+   * @param namePrefix only items whose name starts with this, or null for any name
+   * @param location only items at this location, or null for any location
+   * @return the inventory with the page of items and the cursor for the next page, or null if the
+   *     inventory does not exist
+   * @throws IllegalArgumentException if afterItemId is not a valid item id
+   */
+  public InventoryPage getInventoryPage(
+      String inventoryId, String afterItemId, int limit, String namePrefix, String location) {
+    UUID parsedInventoryId;
+    try {
+      parsedInventoryId = UUID.fromString(inventoryId);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+    StringBuilder sql =
+        new StringBuilder("select ")
+            .append(JOINED_ITEM_COLUMNS)
+            .append(", i.inventory_name from Inventories i ")
+            .append("left join Items it on it.inventory_id = i.inventory_id");
+    List<Object> args = new ArrayList<>();
+    if (afterItemId != null && !afterItemId.isEmpty()) {
+      sql.append(" and it.item_id > ?");
+      args.add(uuidCodec.bind(UUID.fromString(afterItemId)));
+    }
+    if (namePrefix != null && !namePrefix.isEmpty()) {
+      sql.append(" and it.item_name like ?");
+      args.add(namePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+    }
+    if (location != null && !location.isEmpty()) {
+      sql.append(" and it.location = ?");
+      args.add(location);
+    }
+    sql.append(" where i.inventory_id = ? order by it.item_id limit ?");
+    args.add(uuidCodec.bind(parsedInventoryId));
+    args.add(limit);
+
+    List<Item> pageItems = new ArrayList<>();
+    List<String> inventoryNames =
+        jdbcTemplate.query(
+            sql.toString(),
+            (rs, rowNum) -> {
+              // An inventory without matching items is joined to a single row of nulls
+              if (rs.getObject(1) != null) {
+                pageItems.add(ItemsTableSqlHelper.getItemFromTable(rs, uuidCodec));
+              }
+              return rs.getString(JOINED_INVENTORY_NAME_INDEX);
+            },
+            args.toArray());
+    if (inventoryNames.isEmpty()) {
+      return null;
+    }
+    Map<UUID, Item> items = new LinkedHashMap<>();
+    for (Item item : pageItems) {
+      items.put(item.getItemId(), item);
+    }
+    Inventory inventory =
+        Inventory.builder()
+            .inventoryId(parsedInventoryId)
+            .inventoryName(inventoryNames.get(0))
+            .items(items)
+            .build();
+    String nextCursor =
+        pageItems.size() < limit ? null : pageItems.get(limit - 1).getItemId().toString();
+    return new InventoryPage(inventory, nextCursor);
+  }
+
+  /**
+   * Reads every item of an inventory. Used to load {@link Inventory#getItems()} on first use.
+   *
+   * @param inventoryId Unique identifier for the inventory within the DB.
+   * @return the items of the inventory by item id, in item id order
+   */
+  public Map<UUID, Item> getInventoryItems(String inventoryId) {
+    String sql =
+        "select "
+            + ItemsTableSqlHelper.ITEM_COLUMNS
+            + " from Items where inventory_id = ? order by item_id";
+    Map<UUID, Item> items = new LinkedHashMap<>();
+    for (Item item :
+        jdbcTemplate.query(
+            sql,
+            (rs, rowNum) -> ItemsTableSqlHelper.getItemFromTable(rs, uuidCodec),
+            uuidCodec.bind(inventoryId))) {
+      items.put(item.getItemId(), item);
+    }
+    return items;
+  }
+
   /**
    * This method will change the location column for an inventory and returns a boolean representing
    * the success of the query.
@@ -76,7 +208,7 @@ public class InventoryTableSqlHelper {
    */
   public boolean update(String inventoryId, String inventoryName) {
     String sql = "update Inventories set inventory_name = ? where inventory_id = ?";
-    int rows = jdbcTemplate.update(sql, inventoryName, inventoryId);
+    int rows = jdbcTemplate.update(sql, inventoryName, uuidCodec.bind(inventoryId));
     System.out.println(rows + " inventory row/s updated");
     return rows > 0;
   }
@@ -89,16 +221,21 @@ public class InventoryTableSqlHelper {
    */
   public boolean delete(String inventoryId) {
     String sql = "delete from Inventories where inventory_id = ?";
-    int rows = jdbcTemplate.update(sql, inventoryId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(inventoryId));
+    // Deleting an inventory cascades to its items
+    itemCache.invalidateAll();
     System.out.println(rows + " row/s deleted");
     return rows > 0;
   }
 
   private RowMapper<Inventory> getRowMapper() {
-    return (rs, rowNum) ->
-        Inventory.builder()
-            .inventoryId(UUID.fromString(rs.getString("inventory_id")))
-            .inventoryName(rs.getString("inventory_name"))
-            .build();
+    return (rs, rowNum) -> {
+      UUID inventoryId = uuidCodec.read(rs, "inventory_id");
+      return Inventory.builder()
+          .inventoryId(inventoryId)
+          .inventoryName(rs.getString("inventory_name"))
+          .itemsLoader(() -> getInventoryItems(inventoryId.toString()))
+          .build();
+    };
   }
 }
@@ -1,153 +1,356 @@
 package service.handler;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import service.exceptions.ReservationException;
-import service.models.Item;
+import service.models.CartReservationResult;
+import service.models.Reservation;
+import service.requests.ReserveCartRequest;
+import service.util.TimingWheel;
+import service.util.UuidCodec;
 
 /** The type Item reservation service. */
 @Service
 @Getter
 public class ItemReservationService {
 
+  /** Length of one tick of the expiry wheel. Reservations expire up to one tick late. */
+  public static final long EXPIRY_TICK_MILLIS = 100;
+
+  /** Most expired reservations handed to one expiry worker at once. */
+  public static final int EXPIRY_BATCH_SIZE = 500;
+
+  private static final int EXPIRY_WORKERS = 4;
+
   private final ItemsTableSqlHelper itemsTableSqlHelper;
-  private final ScheduledExecutorService scheduler;
+  private final ReservationsTableSqlHelper reservationsTableSqlHelper;
+  private final ExpiryLeaseService expiryLeaseService;
+  private final TimingWheel<String> expiryWheel;
+  private ReservationPipeline reservationPipeline;
+  private ReservationCounters reservationCounters;
 
+  /**
+   * Creates the reservation service and starts its expiry wheel. The wheel only expires holds of
+   * the expiry partitions this instance holds the lease of.
+   *
+   * @param itemsTableSqlHelper the items table sql helper
+   * @param reservationsTableSqlHelper the reservations table sql helper
+   * @param expiryLeaseService the service holding this instance's expiry partition leases
+   */
   @Autowired
-  public ItemReservationService(ItemsTableSqlHelper itemsTableSqlHelper) {
+  public ItemReservationService(
+      ItemsTableSqlHelper itemsTableSqlHelper,
+      ReservationsTableSqlHelper reservationsTableSqlHelper,
+      ExpiryLeaseService expiryLeaseService) {
     this.itemsTableSqlHelper = itemsTableSqlHelper;
-    this.scheduler = Executors.newScheduledThreadPool(1);
+    this.reservationsTableSqlHelper = reservationsTableSqlHelper;
+    this.expiryLeaseService = expiryLeaseService;
+    this.expiryWheel =
+        new TimingWheel<>(
+            EXPIRY_TICK_MILLIS,
+            EXPIRY_BATCH_SIZE,
+            Executors.newFixedThreadPool(EXPIRY_WORKERS),
+            this::expireReservations,
+            System.currentTimeMillis());
+    this.expiryWheel.start();
+  }
+
+  /**
+   * Sets the pipeline single holds are placed through. Without one, each hold is its own
+   * transaction.
+   *
+   * @param reservationPipeline the group commit pipeline, or null
+   */
+  @Autowired(required = false)
+  public void setReservationPipeline(ReservationPipeline reservationPipeline) {
+    this.reservationPipeline = reservationPipeline;
+  }
+
+  /**
+   * Sets the in-memory counters holds on flash-sale items are placed against.
+   *
+   * @param reservationCounters the reservation counters, or null
+   */
+  @Autowired(required = false)
+  public void setReservationCounters(ReservationCounters reservationCounters) {
+    this.reservationCounters = reservationCounters;
+  }
+
+  /**
+   * Turns counted reservations on or off for an item. Holds on a counted item decrement an
+   * in-memory counter filled from the item's quantity in chunks, instead of each updating the
+   * item's row.
+   *
+   * @param itemId The ID of the item
+   * @param counted Whether holds on the item are counted in memory
+   * @throws ReservationException if counted reservations are not available or the ID is invalid
+   */
+  public void setCountedReservations(String itemId, boolean counted) throws ReservationException {
+    if (reservationCounters == null) {
+      throw new ReservationException("Counted reservations are not available");
+    }
+    UUID parsedItemId;
+    try {
+      parsedItemId = UUID.fromString(itemId);
+    } catch (IllegalArgumentException e) {
+      throw new ReservationException("Item not found: " + itemId);
+    }
+    if (counted) {
+      reservationCounters.enable(parsedItemId);
+    } else {
+      reservationCounters.disable(parsedItemId);
+    }
+  }
+
+  /** Stops the expiry wheel and its workers. */
+  @PreDestroy
+  public void close() {
+    expiryWheel.close();
   }
 
   /**
-   * Reserve an item or a specific quantity of items.
+   * Place a hold on a quantity of an item. The stock check and the decrement are one conditional
+   * update, so concurrent holds cannot oversell the item.
    *
    * @param itemId The ID of the item to reserve
-   * @param quantity The quantity to reserve (defaults to 1)
+   * @param userId The ID of the user placing the hold, or null if unknown
+   * @param quantity The quantity to reserve
    * @param durationInMillis How long the reservation should last
-   * @return The updated Item object
+   * @return The new reservation
    * @throws ReservationException if the reservation cannot be made
    */
-  public Item reserveItem(String itemId, int quantity, long durationInMillis)
+  public Reservation reserveItem(String itemId, UUID userId, int quantity, long durationInMillis)
       throws ReservationException {
-    var items = itemsTableSqlHelper.getItem(itemId);
-    if (items.isEmpty()) {
+    UUID parsedItemId;
+    try {
+      parsedItemId = UUID.fromString(itemId);
+    } catch (IllegalArgumentException e) {
       throw new ReservationException("Item not found: " + itemId);
     }
+    Reservation reservation =
+        newReservation(parsedItemId, userId, quantity, LocalDateTime.now(), durationInMillis);
+
+    if (!insertReservation(reservation)) {
+      throw new ReservationException(rejectionReason(itemId));
+    }
+
+    scheduleReservationExpiration(
+        reservation.getReservationId().toString(), reservation.getExpiresAt());
 
-    Item item = items.get(0);
+    return reservation;
+  }
 
-    if (item.isReservationStatus() && item.getQuantity() < quantity) {
-      throw new ReservationException("Item is not available in requested quantity");
+  /**
+   * Place holds on several items at once, all in one transaction. Either every item is held, or
+   * none is and the result lists every item that could not be held.
+   *
+   * @param cartItems The items to reserve and their quantities
+   * @param userId The ID of the user placing the holds, or null if unknown
+   * @param durationInMillis How long the reservations should last
+   * @return The holds placed, or the items that could not be held
+   */
+  public CartReservationResult reserveCart(
+      List<ReserveCartRequest.CartItem> cartItems, UUID userId, long durationInMillis) {
+    CartReservationResult result = new CartReservationResult(cartItems.size());
+    final LocalDateTime now = LocalDateTime.now();
+    List<Reservation> reservations = new ArrayList<>(cartItems.size());
+    for (int i = 0; i < cartItems.size(); i++) {
+      ReserveCartRequest.CartItem cartItem = cartItems.get(i);
+      if (cartItem == null || cartItem.getItemId() == null) {
+        result.addFailure(i, "itemId is required");
+      } else if (cartItem.getQuantity() <= 0) {
+        result.addFailure(i, "Quantity must be greater than 0");
+      } else {
+        try {
+          reservations.add(
+              newReservation(
+                  UUID.fromString(cartItem.getItemId()),
+                  userId,
+                  cartItem.getQuantity(),
+                  now,
+                  durationInMillis));
+        } catch (IllegalArgumentException e) {
+          result.addFailure(i, "Item not found: " + cartItem.getItemId());
+        }
+      }
+    }
+    if (!result.getFailures().isEmpty()) {
+      return result;
     }
 
-    LocalDateTime reservationTime = LocalDateTime.now();
-    item.setReservationStatus(true);
-    item.setReservationTime(reservationTime);
-    item.setReservationDurationInMillis(durationInMillis);
-    item.setQuantity(item.getQuantity() - quantity);
+    List<Integer> rejected = reservationsTableSqlHelper.insertReservations(reservations);
+    for (int index : rejected) {
+      result.addFailure(index, rejectionReason(cartItems.get(index).getItemId()));
+    }
+    if (rejected.isEmpty()) {
+      result.addReservations(reservations);
+      for (Reservation reservation : reservations) {
+        scheduleReservationExpiration(
+            reservation.getReservationId().toString(), reservation.getExpiresAt());
+      }
+    }
+    return result;
+  }
 
-    boolean updated = itemsTableSqlHelper.updateItemReservation(itemId, durationInMillis);
-    if (!updated) {
-      throw new ReservationException("Failed to update reservation status");
+  private boolean insertReservation(Reservation reservation) throws ReservationException {
+    if (reservationCounters != null) {
+      Boolean stored = reservationCounters.reserve(reservation);
+      if (stored != null) {
+        return stored;
+      }
     }
+    if (reservationPipeline == null) {
+      return reservationsTableSqlHelper.insertReservation(reservation);
+    }
+    try {
+      return reservationPipeline.reserve(reservation);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ReservationException("Interrupted while placing the reservation");
+    }
+  }
 
-    scheduleReservationExpiration(itemId, quantity, durationInMillis);
+  private static Reservation newReservation(
+      UUID itemId, UUID userId, int quantity, LocalDateTime now, long durationInMillis) {
+    // DATETIME columns hold whole seconds
+    return Reservation.builder()
+        .reservationId(UuidCodec.timeOrderedUuid())
+        .itemId(itemId)
+        .userId(userId)
+        .quantity(quantity)
+        .reservedAt(now.truncatedTo(ChronoUnit.SECONDS))
+        .expiresAt(roundUpToSecond(now.plus(Duration.ofMillis(durationInMillis))))
+        .build();
+  }
 
-    return item;
+  /**
+   * Rounds an expiry up to the whole second a DATETIME column can hold, so a hold never lasts less
+   * than it was asked to, and a hold shorter than a second does not expire as soon as it is made.
+   */
+  private static LocalDateTime roundUpToSecond(LocalDateTime expiresAt) {
+    LocalDateTime truncated = expiresAt.truncatedTo(ChronoUnit.SECONDS);
+    return truncated.equals(expiresAt) ? truncated : truncated.plusSeconds(1);
+  }
+
+  /** Explains why a hold on an item was rejected by the DB. */
+  private String rejectionReason(String itemId) {
+    if (itemsTableSqlHelper.getItemFromDb(itemId).isEmpty()) {
+      return "Item not found: " + itemId;
+    }
+    return "Item is not available in requested quantity";
   }
 
   /**
    * Extend an existing reservation.
    *
-   * @param itemId The ID of the reserved item
+   * @param reservationId The ID of the reservation
    * @param additionalDurationInMillis How much longer the reservation should last
-   * @return The updated Item object
+   * @return The updated reservation
    * @throws ReservationException if the extension cannot be made
    */
-  public Item extendReservation(String itemId, long additionalDurationInMillis)
+  public Reservation extendReservation(String reservationId, long additionalDurationInMillis)
       throws ReservationException {
-    var items = itemsTableSqlHelper.getItem(itemId);
-    if (items.isEmpty()) {
-      throw new ReservationException("Item not found: " + itemId);
+    Reservation reservation = reservationsTableSqlHelper.getReservation(reservationId);
+    if (reservation == null) {
+      throw new ReservationException("Reservation not found: " + reservationId);
     }
 
-    Item item = items.get(0);
-
-    if (!item.isReservationStatus()) {
-      throw new ReservationException("Item is not currently reserved");
+    if (!reservation.getExpiresAt().isAfter(LocalDateTime.now())) {
+      throw new ReservationException("Reservation has already expired");
     }
 
-    long newDuration = item.getReservationDurationInMillis() + additionalDurationInMillis;
-
-    boolean updated = itemsTableSqlHelper.updateItemReservation(itemId, newDuration);
+    LocalDateTime newExpiresAt =
+        roundUpToSecond(
+            reservation.getExpiresAt().plus(Duration.ofMillis(additionalDurationInMillis)));
+    boolean updated =
+        reservationsTableSqlHelper.updateExpiresAt(
+            reservationId, reservation.getExpiresAt(), newExpiresAt);
     if (!updated) {
       throw new ReservationException("Failed to extend reservation");
     }
 
-    scheduleReservationExpiration(itemId, 1, newDuration);
+    scheduleReservationExpiration(reservationId, newExpiresAt);
 
-    item.setReservationDurationInMillis(newDuration);
-    return item;
+    reservation.setExpiresAt(newExpiresAt);
+    return reservation;
   }
 
   /**
-   * Cancel a reservation before it expires.
+   * Cancel a reservation before it expires. The held quantity is returned to the item's stock in
+   * the same transaction that deletes the reservation.
    *
-   * @param itemId The ID of the reserved item
-   * @param quantity The quantity to return to available stock
-   * @return The updated Item object
+   * @param reservationId The ID of the reservation
+   * @return The cancelled reservation
    * @throws ReservationException if the cancellation cannot be completed
    */
-  public Item cancelReservation(String itemId, int quantity) throws ReservationException {
-    var items = itemsTableSqlHelper.getItem(itemId);
-    if (items.isEmpty()) {
-      throw new ReservationException("Item not found: " + itemId);
-    }
-
-    Item item = items.get(0);
-
-    if (!item.isReservationStatus()) {
-      throw new ReservationException("Item is not currently reserved");
-    }
-
-    item.setQuantity(item.getQuantity());
-
-    boolean quantityUpdated = itemsTableSqlHelper.updateItemQuantity(itemId, item.getQuantity());
-    if (!quantityUpdated) {
-      throw new ReservationException("Failed to update item quantity");
+  public Reservation cancelReservation(String reservationId) throws ReservationException {
+    Reservation cancelled = reservationsTableSqlHelper.deleteReservation(reservationId);
+    expiryWheel.cancel(reservationId);
+    if (cancelled == null) {
+      throw new ReservationException("Reservation not found: " + reservationId);
     }
+    return cancelled;
+  }
 
-    boolean cancelled = itemsTableSqlHelper.cancelItemReservation(itemId);
-    if (!cancelled) {
-      throw new ReservationException("Failed to cancel reservation");
+  /**
+   * Loads the pending holds of newly leased expiry partitions into the expiry wheel. Holds that are
+   * already due are left to the sweeper.
+   *
+   * @param partitions the expiry partitions this instance just took over
+   */
+  public void loadExpiryTimers(Set<Integer> partitions) {
+    List<Reservation> pending =
+        reservationsTableSqlHelper.getPendingReservations(partitions, LocalDateTime.now());
+    for (Reservation reservation : pending) {
+      scheduleReservationExpiration(
+          reservation.getReservationId().toString(), reservation.getExpiresAt());
     }
+  }
 
-    item.setReservationStatus(false);
-    item.setReservationTime(null);
-    item.setReservationDurationInMillis(0);
-
-    return item;
+  private void scheduleReservationExpiration(String reservationId, LocalDateTime expiresAt) {
+    expiryWheel.schedule(
+        reservationId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
   }
 
-  private void scheduleReservationExpiration(String itemId, int quantity, long durationInMillis) {
-    scheduler.schedule(
-        () -> {
-          try {
-            var items = itemsTableSqlHelper.getItem(itemId);
-            if (!items.isEmpty() && items.get(0).isReservationStatus()) {
-              cancelReservation(itemId, quantity);
-            }
-          } catch (ReservationException e) {
-            System.err.println("Failed to expire reservation: " + e.getMessage());
-          }
-        },
-        durationInMillis,
-        TimeUnit.MILLISECONDS);
+  /**
+   * Deletes the given reservations if they have expired and this instance expires the partition
+   * they are stored in, in one transaction per batch, and sets new timers for those extended since.
+   * Called by the expiry wheel's workers.
+   *
+   * @param reservationIds IDs of reservations whose timer fired
+   */
+  void expireReservations(List<String> reservationIds) {
+    // Holds stored in partitions another instance now expires are left to it
+    Set<Integer> partitions = expiryLeaseService.getOwnedPartitions();
+    Set<String> pending = new HashSet<>(reservationIds);
+    try {
+      List<Reservation> expired =
+          reservationsTableSqlHelper.deleteReservationsIfExpired(
+              pending, partitions, LocalDateTime.now());
+      for (Reservation reservation : expired) {
+        pending.remove(reservation.getReservationId().toString());
+      }
+      // Extended since their timers were set, so wait for the new expiries
+      for (Reservation reservation :
+          reservationsTableSqlHelper.getReservations(pending, partitions)) {
+        scheduleReservationExpiration(
+            reservation.getReservationId().toString(), reservation.getExpiresAt());
+      }
+    } catch (RuntimeException e) {
+      System.err.println(
+          "Failed to expire " + pending.size() + " reservation/s: " + e.getMessage());
+    }
   }
 }
@@ -0,0 +1,462 @@
+package service.handler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import service.models.Item;
+import service.models.ItemSearchHit;
+import service.util.InvertedIndex;
+
+/**
+ * In-memory full-text index over the names and locations of all items. The index is built from a
+ * streaming scan of the Items table once the application is ready, and the item endpoints keep it
+ * current as items are created, renamed, relocated and deleted. Writes made by other instances, or
+ * straight to the DB, show up at the next rebuild, every rebuild interval.
+ *
+ * <p>Every word of a query has to appear in the item's name or location, and only items of the
+ * given inventory match: each item is also listed under a term for its inventory, so the scope is
+ * one more list to intersect. Matches are ranked with BM25, counting a word found in the name
+ * {@value #NAME_WEIGHT} times as much as one found only in the location. Items with equal scores
+ * are listed in the order they were indexed.
+ */
+@Component
+public class ItemSearchIndex implements SchedulingConfigurer {
+
+  private static final double NAME_WEIGHT = 2.0;
+
+  private static final double LOCATION_WEIGHT = 1.0;
+
+  /** BM25 parameters: how fast repeated matches saturate, and how much name length counts. */
+  private static final double K1 = 1.2;
+
+  private static final double B = 0.75;
+
+  /** Words never contain a colon, so the prefixed terms cannot clash with them. */
+  private static final String INVENTORY_TERM_PREFIX = "inventory:";
+
+  /** Removed items are only dropped from the posting lists once there are at least this many. */
+  private static final int MIN_REMOVED_BEFORE_COMPACT = 1024;
+
+  /** Lists words of the location that are not in the name, to tell which field a word matched. */
+  private static final String LOCATION_TERM_PREFIX = "location:";
+
+  /** Lower scores first, and among equal scores the later document, so ties go to older items. */
+  private static final Comparator<Match> WORST_FIRST =
+      Comparator.<Match>comparingDouble(match -> match.score)
+          .thenComparing(Comparator.<Match>comparingInt(match -> match.document).reversed());
+
+  private final ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private final Duration rebuildInterval;
+
+  private final boolean buildOnStartup;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  /** The index being searched. Guarded by lock. */
+  private Segment segment = new Segment();
+
+  /**
+   * Changes made while a rebuild scans the table, replayed on the new index before it is swapped
+   * in. A null value is a removed item. Null when no rebuild runs. Guarded by lock.
+   */
+  private Map<UUID, Item> changesDuringRebuild;
+
+  /**
+   * Inventories deleted while a rebuild scans the table, dropped from the new index after the item
+   * changes are replayed. Null when no rebuild runs. Guarded by lock.
+   */
+  private Set<UUID> inventoriesRemovedDuringRebuild;
+
+  private volatile boolean ready;
+
+  private final AtomicLong searches = new AtomicLong();
+
+  private final AtomicLong rebuilds = new AtomicLong();
+
+  private volatile long lastRebuildMillis;
+
+  /**
+   * Creates the index.
+   *
+   * @param itemsTableSqlHelper the items table sql helper
+   * @param rebuildInterval time between rebuilds from the Items table
+   * @param buildOnStartup whether to build the index once the application is ready
+   */
+  @Autowired
+  public ItemSearchIndex(
+      ItemsTableSqlHelper itemsTableSqlHelper,
+      @Value("${service.items.search.rebuild-interval:1h}") Duration rebuildInterval,
+      @Value("${service.items.search.build-on-startup:true}") boolean buildOnStartup) {
+    this.itemsTableSqlHelper = itemsTableSqlHelper;
+    this.rebuildInterval = rebuildInterval;
+    this.buildOnStartup = buildOnStartup;
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    if (!rebuildInterval.isZero() && !rebuildInterval.isNegative()) {
+      // The first build runs on startup, so the first rebuild waits a full interval
+      taskRegistrar.addFixedDelayTask(
+          new FixedDelayTask(this::rebuild, rebuildInterval, rebuildInterval));
+    }
+  }
+
+  /** Builds the index once the application is ready. Searches are refused until it is built. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    if (!buildOnStartup) {
+      return;
+    }
+    try {
+      rebuild();
+    } catch (RuntimeException e) {
+      System.err.println("Item search index could not be built: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Builds a new index from a streaming scan of the Items table and swaps it in. Searches keep
+   * using the old index until then, and changes made during the scan are applied to the new index
+   * before the swap.
+   *
+   * @return the number of items in the new index
+   */
+  public int rebuild() {
+    rebuildLock.lock();
+    try {
+      final long start = System.currentTimeMillis();
+      lock.writeLock().lock();
+      try {
+        changesDuringRebuild = new HashMap<>();
+        inventoriesRemovedDuringRebuild = new HashSet<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+      Segment rebuilt = new Segment();
+      try {
+        itemsTableSqlHelper.streamAllItems(rebuilt::put);
+      } catch (RuntimeException e) {
+        lock.writeLock().lock();
+        try {
+          changesDuringRebuild = null;
+          inventoriesRemovedDuringRebuild = null;
+        } finally {
+          lock.writeLock().unlock();
+        }
+        throw e;
+      }
+      lock.writeLock().lock();
+      try {
+        for (Map.Entry<UUID, Item> change : changesDuringRebuild.entrySet()) {
+          if (change.getValue() == null) {
+            rebuilt.remove(change.getKey());
+          } else {
+            rebuilt.put(change.getValue());
+          }
+        }
+        inventoriesRemovedDuringRebuild.forEach(rebuilt::removeInventory);
+        changesDuringRebuild = null;
+        inventoriesRemovedDuringRebuild = null;
+        segment = rebuilt;
+        ready = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      rebuilds.incrementAndGet();
+      lastRebuildMillis = System.currentTimeMillis() - start;
+      System.out.println(
+          "Item search index built with "
+              + rebuilt.size()
+              + " items in "
+              + lastRebuildMillis
+              + "ms");
+      return rebuilt.size();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Adds an item to the index, or replaces it after its name, location or inventory changed.
+   *
+   * @param item the item as stored in the DB
+   */
+  public void index(Item item) {
+    lock.writeLock().lock();
+    try {
+      segment.put(item);
+      if (changesDuringRebuild != null) {
+        changesDuringRebuild.put(item.getItemId(), item);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes a deleted item from the index.
+   *
+   * @param itemId the item
+   */
+  public void remove(UUID itemId) {
+    lock.writeLock().lock();
+    try {
+      segment.remove(itemId);
+      if (changesDuringRebuild != null) {
+        changesDuringRebuild.put(itemId, null);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes every item of a deleted inventory from the index. The DB deletes them by cascade, so
+   * the items endpoints never see them go.
+   *
+   * @param inventoryId the inventory
+   */
+  public void removeInventory(UUID inventoryId) {
+    lock.writeLock().lock();
+    try {
+      segment.removeInventory(inventoryId);
+      if (inventoriesRemovedDuringRebuild != null) {
+        inventoriesRemovedDuringRebuild.add(inventoryId);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Tells whether the index has been built and can answer searches.
+   *
+   * @return true once the first build finished
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Finds the items of an inventory whose name or location contains every word of the query.
+   *
+   * @param inventoryId the inventory searched
+   * @param query the words to find, matched case insensitively
+   * @param limit maximum number of items returned
+   * @return the best matches, best first, or null if the index has not been built yet
+   */
+  public List<ItemSearchHit> search(UUID inventoryId, String query, int limit) {
+    if (!ready) {
+      return null;
+    }
+    searches.incrementAndGet();
+    List<String> terms = InvertedIndex.tokenize(query);
+    if (terms.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      return segment.search(inventoryId, terms, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Reports the size of the index and how often it is used.
+   *
+   * @return the items and terms indexed, the bytes of postings, and the searches and rebuilds run
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("ready", ready);
+    lock.readLock().lock();
+    try {
+      stats.put("items", segment.size());
+      stats.put("terms", segment.index.termCount());
+      stats.put("postingBytes", segment.index.postingBytes());
+    } finally {
+      lock.readLock().unlock();
+    }
+    stats.put("searches", searches.get());
+    stats.put("rebuilds", rebuilds.get());
+    stats.put("lastRebuildMillis", lastRebuildMillis);
+    return stats;
+  }
+
+  private static String inventoryTerm(UUID inventoryId) {
+    return INVENTORY_TERM_PREFIX + inventoryId;
+  }
+
+  /** The index over one set of items. Documents are numbered in the order they are added. */
+  private static final class Segment {
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    /** Indexed items by document id. Removed documents are null. */
+    private final List<Document> documents = new ArrayList<>();
+
+    /** Name length, in words, of each document, or -1 once it is removed. */
+    private int[] nameLengths = new int[16];
+
+    private final Map<UUID, Integer> documentIds = new HashMap<>();
+
+    private int removed;
+
+    /** Sum of the name lengths of the items indexed. */
+    private long nameTerms;
+
+    private void put(Item item) {
+      remove(item.getItemId());
+      List<String> name = InvertedIndex.tokenize(item.getItemName());
+      List<String> terms = new ArrayList<>(name);
+      for (String term : InvertedIndex.tokenize(item.getLocation())) {
+        if (!name.contains(term)) {
+          terms.add(term);
+          terms.add(LOCATION_TERM_PREFIX + term);
+        }
+      }
+      terms.add(inventoryTerm(item.getInventoryId()));
+      int documentId = documents.size();
+      index.add(documentId, terms);
+      documents.add(new Document(item.getItemId(), item.getItemName(), item.getLocation()));
+      if (documentId == nameLengths.length) {
+        nameLengths = Arrays.copyOf(nameLengths, documentId * 2);
+      }
+      nameLengths[documentId] = name.size();
+      documentIds.put(item.getItemId(), documentId);
+      nameTerms += name.size();
+    }
+
+    private void remove(UUID itemId) {
+      Integer documentId = documentIds.remove(itemId);
+      if (documentId == null) {
+        return;
+      }
+      nameTerms -= nameLengths[documentId];
+      nameLengths[documentId] = -1;
+      documents.set(documentId, null);
+      removed++;
+      if (removed >= MIN_REMOVED_BEFORE_COMPACT && removed >= documentIds.size()) {
+        index.compact(doc -> nameLengths[doc] >= 0);
+        removed = 0;
+      }
+    }
+
+    void removeInventory(UUID inventoryId) {
+      // Compacting only drops postings, so the document ids listed here stay valid meanwhile
+      for (int documentId : index.intersect(List.of(inventoryTerm(inventoryId)))) {
+        Document document = documents.get(documentId);
+        if (document != null) {
+          remove(document.itemId);
+        }
+      }
+    }
+
+    private int size() {
+      return documentIds.size();
+    }
+
+    private List<ItemSearchHit> search(UUID inventoryId, List<String> terms, int limit) {
+      List<String> scoped = new ArrayList<>(terms);
+      scoped.add(inventoryTerm(inventoryId));
+      int[] matches = index.intersect(scoped);
+      if (matches.length == 0) {
+        return List.of();
+      }
+      double[] idf = new double[terms.size()];
+      boolean[][] locationOnly = new boolean[terms.size()][];
+      for (int i = 0; i < idf.length; i++) {
+        int frequency = index.documentFrequency(terms.get(i));
+        idf[i] = Math.log(1 + (size() - frequency + 0.5) / (frequency + 0.5));
+        locationOnly[i] = index.contains(LOCATION_TERM_PREFIX + terms.get(i), matches);
+      }
+      double averageNameTerms = Math.max(1.0, (double) nameTerms / Math.max(1, size()));
+
+      // Scores only need the posting lists and the name lengths. The items are looked up for the
+      // best matches alone, which keeps common words cheap
+      PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+      for (int m = 0; m < matches.length; m++) {
+        int nameLength = nameLengths[matches[m]];
+        if (nameLength < 0) {
+          continue;
+        }
+        double norm = K1 * (1 - B + B * nameLength / averageNameTerms);
+        double score = 0;
+        for (int i = 0; i < idf.length; i++) {
+          double weight = locationOnly[i][m] ? LOCATION_WEIGHT : NAME_WEIGHT;
+          score += idf[i] * weight * (K1 + 1) / (1 + norm);
+        }
+        // Matches come in document order, so a tie with the worst kept match loses to it
+        if (best.size() == limit && score <= best.peek().score) {
+          continue;
+        }
+        best.add(new Match(score, matches[m]));
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+      List<Match> ranked = new ArrayList<>(best);
+      ranked.sort(WORST_FIRST.reversed());
+      List<ItemSearchHit> hits = new ArrayList<>(ranked.size());
+      for (Match match : ranked) {
+        Document document = documents.get(match.document);
+        hits.add(
+            new ItemSearchHit(document.itemId, document.itemName, document.location, match.score));
+      }
+      return hits;
+    }
+  }
+
+  /** A matching document and its score. */
+  private static final class Match {
+
+    private final double score;
+
+    private final int document;
+
+    private Match(double score, int document) {
+      this.score = score;
+      this.document = document;
+    }
+  }
+
+  /** What the index keeps of an item to rank and return it. */
+  private static final class Document {
+
+    private final UUID itemId;
+
+    private final String itemName;
+
+    private final String location;
+
+    private Document(UUID itemId, String itemName, String location) {
+      this.itemId = itemId;
+      this.itemName = itemName;
+      this.location = location;
+    }
+  }
+}
@@ -1,18 +1,29 @@
 package service.handler;
 
-import static service.util.DateTimeUtils.FORMATTER;
-
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.cache.ItemCache;
+import service.models.BatchInsertResult;
 import service.models.Item;
+import service.models.ItemPage;
+import service.util.UuidCodec;
 
 /**
  * This class handles the translation from java objects to SQL queries into the local MySQL database
@@ -23,8 +34,53 @@ import service.models.Item;
 @Repository
 public class ItemsTableSqlHelper {
 
+  /** Number of rows sent to the DB in a single JDBC batch by {@link #insertItems(List)}. */
+  public static final int INSERT_BATCH_SIZE = 1000;
+
+  private static final String INSERT_ITEM_SQL =
+      "insert into Items ("
+          + "item_id, item_name, time_of_addition, quantity, "
+          + "reserved_status, reservation_time, reservation_duration, "
+          + "location, price, next_restock, inventory_id) "
+          + "values (?,?,?,?,?,?,?,?,?,?, ?)";
+
+  /**
+   * Number of rows fetched per round trip by {@link #streamAllItems(Consumer)} on drivers other
+   * than MySQL.
+   */
+  public static final int STREAM_FETCH_SIZE = 500;
+
+  /** Maps each {@link Item} field name to the Items column that stores it. */
+  public static final Map<String, String> ITEM_FIELD_COLUMNS = createItemFieldColumns();
+
+  /**
+   * Select list read by {@link #getItemFromTable(ResultSet, UuidCodec)}. Columns are listed
+   * explicitly so the row mapper can read them by position instead of resolving each column name on
+   * every row.
+   */
+  public static final String ITEM_COLUMNS = String.join(", ", ITEM_FIELD_COLUMNS.values());
+
+  private static final int ITEM_ID_INDEX = 1;
+  private static final int ITEM_NAME_INDEX = 2;
+  private static final int TIME_OF_ADDITION_INDEX = 3;
+  private static final int QUANTITY_INDEX = 4;
+  private static final int RESERVED_STATUS_INDEX = 5;
+  private static final int RESERVATION_TIME_INDEX = 6;
+  private static final int RESERVATION_DURATION_INDEX = 7;
+  private static final int LOCATION_INDEX = 8;
+  private static final int PRICE_INDEX = 9;
+  private static final int NEXT_RESTOCK_INDEX = 10;
+  private static final int INVENTORY_ID_INDEX = 11;
+  private static final int RESERVED_QUANTITY_INDEX = 12;
+
   private JdbcTemplate jdbcTemplate;
 
+  private TransactionTemplate transactionTemplate;
+
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  private ItemCache itemCache = ItemCache.disabled();
+
   /**
    * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
    *
@@ -35,6 +91,36 @@ public class ItemsTableSqlHelper {
     this.jdbcTemplate = jdbcTemplate;
   }
 
+  /**
+   * Sets the transaction template used to group batched writes into a single transaction.
+   *
+   * @param transactionTemplate the transaction template
+   */
+  @Autowired
+  public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
+  /**
+   * Sets the cache that {@link #getItem(String)} reads through and every item write invalidates.
+   *
+   * @param itemCache the item cache
+   */
+  @Autowired
+  public void setItemCache(ItemCache itemCache) {
+    this.itemCache = itemCache;
+  }
+
   /**
    * This is a test insert class for providing an insight into what it looks like to insert items
    * into the DB.
@@ -43,16 +129,10 @@ public class ItemsTableSqlHelper {
    * @return the boolean
    */
   public boolean insertItem(Item item) {
-    String sql =
-        "insert into Items ("
-            + "item_id, item_name, time_of_addition, quantity, "
-            + "reserved_status, reservation_time, reservation_duration, "
-            + "location, price, next_restock, inventory_id) "
-            + "values (?,?,?,?,?,?,?,?,?,?, ?)";
     int rows =
         jdbcTemplate.update(
-            sql,
-            item.getItemId().toString(),
+            INSERT_ITEM_SQL,
+            uuidCodec.bind(item.getItemId()),
             item.getItemName(),
             item.getTimeOfAddition(),
             item.getQuantity(),
@@ -62,10 +142,83 @@ public class ItemsTableSqlHelper {
             item.getLocation(),
             item.getPrice(),
             item.getNextRestockDateTime(),
-            item.getInventoryId().toString());
+            uuidCodec.bind(item.getInventoryId()));
     return rows == 1;
   }
 
+  /**
+   * Inserts many items using batched statements. Items are sent in chunks of {@link
+   * #INSERT_BATCH_SIZE} rows, and each chunk is committed in its own transaction so a bad row can
+   * only roll back the chunk it belongs to. When a chunk fails, its rows are retried one at a time
+   * so that every failing row is reported back to the caller.
+   *
+   * @param items the items to store
+   * @return the number of stored rows and the position and cause of every rejected row
+   */
+  public BatchInsertResult insertItems(List<Item> items) {
+    BatchInsertResult result = new BatchInsertResult(items.size());
+    for (int start = 0; start < items.size(); start += INSERT_BATCH_SIZE) {
+      List<Item> chunk = items.subList(start, Math.min(start + INSERT_BATCH_SIZE, items.size()));
+      try {
+        transactionTemplate.execute(
+            status ->
+                jdbcTemplate.batchUpdate(
+                    INSERT_ITEM_SQL, chunk, chunk.size(), this::setInsertParameters));
+        result.addInserted(chunk.size());
+      } catch (DataAccessException e) {
+        System.out.println("Batch insert failed, retrying rows individually: " + e.getMessage());
+        insertIndividually(chunk, start, result);
+      }
+    }
+    System.out.println(result.getInserted() + " row/s inserted.");
+    return result;
+  }
+
+  private void insertIndividually(List<Item> chunk, int offset, BatchInsertResult result) {
+    for (int i = 0; i < chunk.size(); i++) {
+      try {
+        if (insertItem(chunk.get(i))) {
+          result.addInserted(1);
+        } else {
+          result.addFailure(offset + i, "Item was not inserted");
+        }
+      } catch (DataAccessException e) {
+        result.addFailure(offset + i, e.getMostSpecificCause().getMessage());
+      }
+    }
+  }
+
+  private static Map<String, String> createItemFieldColumns() {
+    Map<String, String> fieldColumns = new LinkedHashMap<>();
+    fieldColumns.put("itemId", "item_id");
+    fieldColumns.put("itemName", "item_name");
+    fieldColumns.put("timeOfAddition", "time_of_addition");
+    fieldColumns.put("quantity", "quantity");
+    fieldColumns.put("reservationStatus", "reserved_status");
+    fieldColumns.put("reservationTime", "reservation_time");
+    fieldColumns.put("reservationDurationInMillis", "reservation_duration");
+    fieldColumns.put("location", "location");
+    fieldColumns.put("price", "price");
+    fieldColumns.put("nextRestockDateTime", "next_restock");
+    fieldColumns.put("inventoryId", "inventory_id");
+    fieldColumns.put("reservedQuantity", "reserved_quantity");
+    return Collections.unmodifiableMap(fieldColumns);
+  }
+
+  private void setInsertParameters(PreparedStatement ps, Item item) throws SQLException {
+    ps.setObject(1, uuidCodec.bind(item.getItemId()));
+    ps.setString(2, item.getItemName());
+    ps.setObject(3, item.getTimeOfAddition());
+    ps.setInt(4, item.getQuantity());
+    ps.setBoolean(5, item.isReservationStatus());
+    ps.setObject(6, item.getReservationTime());
+    ps.setLong(7, item.getReservationDurationInMillis());
+    ps.setString(8, item.getLocation());
+    ps.setDouble(9, item.getPrice());
+    ps.setObject(10, item.getNextRestockDateTime());
+    ps.setObject(11, uuidCodec.bind(item.getInventoryId()));
+  }
+
   /**
    * This is a test select method for providing insight into what it looks like to read items from
    * the DB.
@@ -73,43 +226,190 @@ public class ItemsTableSqlHelper {
    * @return the all items
    */
   public List<Item> getAllItems() {
-    String sql = "select * from Items";
-    RowMapper<Item> rowMapper = (rs, rowNum) -> getItemFromTable(rs);
+    String sql = "select " + ITEM_COLUMNS + " from Items";
+    RowMapper<Item> rowMapper = (rs, rowNum) -> getItemFromTable(rs, uuidCodec);
     return jdbcTemplate.query(sql, rowMapper);
   }
 
+  /**
+   * Reads one page of items ordered by item id. Paging is keyset based: the next page starts after
+   * the last item id of the previous one, so every page is a bounded range read on the primary key
+   * no matter how deep into the table it is.
+   *
+   * @param afterItemId item id the page starts after, or null for the first page
+   * @param limit maximum number of items in the page
+   * @return the page of items and the cursor for the next page
+   */
+  public ItemPage getItemsPage(String afterItemId, int limit) {
+    RowMapper<Item> rowMapper = (rs, rowNum) -> getItemFromTable(rs, uuidCodec);
+    List<Item> items;
+    if (afterItemId == null || afterItemId.isEmpty()) {
+      items =
+          jdbcTemplate.query(
+              "select " + ITEM_COLUMNS + " from Items order by item_id limit ?", rowMapper, limit);
+    } else {
+      items =
+          jdbcTemplate.query(
+              "select " + ITEM_COLUMNS + " from Items where item_id > ? order by item_id limit ?",
+              rowMapper,
+              uuidCodec.bind(afterItemId),
+              limit);
+    }
+    String nextCursor =
+        items.size() < limit ? null : items.get(items.size() - 1).getItemId().toString();
+    return new ItemPage(items, nextCursor);
+  }
+
+  /**
+   * Streams every item to the consumer as rows arrive from the DB. The query uses a forward-only,
+   * read-only result set that streams rows, so only a bounded number of them are held in memory at
+   * a time however large the table is. On MySQL the connection cannot run other statements until
+   * the stream is finished, so the consumer must not query the DB.
+   *
+   * @param consumer receives each item in turn
+   */
+  public void streamAllItems(Consumer<Item> consumer) {
+    jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps =
+              con.prepareStatement(
+                  "select " + ITEM_COLUMNS + " from Items",
+                  ResultSet.TYPE_FORWARD_ONLY,
+                  ResultSet.CONCUR_READ_ONLY);
+          ps.setFetchSize(streamingFetchSize(con));
+          return ps;
+        },
+        (RowCallbackHandler) rs -> consumer.accept(getItemFromTable(rs, uuidCodec)));
+  }
+
+  /**
+   * MySQL buffers a whole result set unless the fetch size is {@link Integer#MIN_VALUE}, which
+   * makes it stream rows one at a time without switching every statement to server side cursors.
+   * Other drivers may reject negative fetch sizes, so they get {@link #STREAM_FETCH_SIZE} instead.
+   */
+  private static int streamingFetchSize(Connection con) throws SQLException {
+    return "MySQL".equals(con.getMetaData().getDatabaseProductName())
+        ? Integer.MIN_VALUE
+        : STREAM_FETCH_SIZE;
+  }
+
   /**
    * This is a test select method for providing insight into what it looks like to read items from
    * the DB.
    *
+   * <p>Reads go through the item cache, so repeated reads of an item do not reach the DB until it
+   * is written to or its entry expires.
+   *
    * @param itemId Unique identifier for the item you'd like to search for in the DB.
    * @return the item
    */
   public List<Item> getItem(String itemId) {
-    String sql = "select * from Items where item_id = " + "'" + itemId + "'";
-    RowMapper<Item> rowMapper = (rs, rowNum) -> getItemFromTable(rs);
-    return jdbcTemplate.query(sql, rowMapper);
+    Item item = itemCache.get(itemId, this::loadItem);
+    return item == null ? List.of() : List.of(item);
   }
 
-  private Item getItemFromTable(ResultSet rs) throws SQLException {
+  /**
+   * Reads an item straight from the DB, skipping the item cache. Holds, expiries and sweeps made by
+   * other instances only invalidate their own caches, so reads that report or explain reserved
+   * quantities use this to see every committed write.
+   *
+   * @param itemId Unique identifier for the item you'd like to search for in the DB.
+   * @return the item
+   */
+  public List<Item> getItemFromDb(String itemId) {
+    Item item = loadItem(itemId);
+    return item == null ? List.of() : List.of(item);
+  }
+
+  private Item loadItem(String itemId) {
+    String sql = "select " + ITEM_COLUMNS + " from Items where item_id = ?";
+    RowMapper<Item> rowMapper = (rs, rowNum) -> getItemFromTable(rs, uuidCodec);
+    List<Item> items = jdbcTemplate.query(sql, rowMapper, uuidCodec.bind(itemId));
+    return items.isEmpty() ? null : items.get(0);
+  }
+
+  /**
+   * Reads only the requested fields of an item. The column list is pushed into the select so the DB
+   * only reads and sends the columns the caller needs.
+   *
+   * @param itemId Unique identifier for the item you'd like to search for in the DB.
+   * @param fields names of the {@link Item} fields to read, each a key of {@link
+   *     #ITEM_FIELD_COLUMNS}
+   * @return the requested fields keyed by field name in the requested order, or null if the item
+   *     was not found
+   */
+  public Map<String, Object> getItemFields(String itemId, List<String> fields) {
+    StringJoiner columns = new StringJoiner(", ");
+    for (String field : fields) {
+      String column = ITEM_FIELD_COLUMNS.get(field);
+      if (column == null) {
+        throw new IllegalArgumentException("Unknown item field: " + field);
+      }
+      columns.add(column);
+    }
+    String sql = "select " + columns + " from Items where item_id = ?";
+    List<Map<String, Object>> results =
+        jdbcTemplate.query(
+            sql, (rs, rowNum) -> getItemFieldsFromTable(rs, fields), uuidCodec.bind(itemId));
+    return results.isEmpty() ? null : results.get(0);
+  }
+
+  private Map<String, Object> getItemFieldsFromTable(ResultSet rs, List<String> fields)
+      throws SQLException {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (String field : fields) {
+      values.put(field, getItemFieldFromTable(rs, field, ITEM_FIELD_COLUMNS.get(field)));
+    }
+    return values;
+  }
+
+  private Object getItemFieldFromTable(ResultSet rs, String field, String column)
+      throws SQLException {
+    switch (field) {
+      case "itemId":
+      case "inventoryId":
+        return uuidCodec.read(rs, column);
+      case "timeOfAddition":
+      case "reservationTime":
+      case "nextRestockDateTime":
+        return rs.getObject(column, LocalDateTime.class);
+      case "quantity":
+        return rs.getInt(column);
+      case "reservationStatus":
+        return rs.getBoolean(column);
+      case "reservationDurationInMillis":
+        return rs.getLong(column);
+      case "price":
+        return rs.getDouble(column);
+      default:
+        return rs.getString(column);
+    }
+  }
+
+  /**
+   * Maps the current row of a result set selected with {@link #ITEM_COLUMNS} to an item. Columns
+   * are read by position, and the DATETIME columns are read as {@link LocalDateTime} directly, so
+   * no column names are resolved and no date strings are parsed per row.
+   *
+   * @param rs result set positioned on a row selected with {@link #ITEM_COLUMNS}
+   * @param uuidCodec codec matching how the DB stores keys
+   * @return the item stored in the row
+   * @throws SQLException if a column cannot be read
+   */
+  public static Item getItemFromTable(ResultSet rs, UuidCodec uuidCodec) throws SQLException {
     return Item.builder()
-        .itemId(UUID.fromString(rs.getString("item_id")))
-        .inventoryId(UUID.fromString(rs.getString("inventory_id")))
-        .timeOfAddition(LocalDateTime.parse(rs.getString("time_of_addition"), FORMATTER))
-        .itemName(rs.getString("item_name"))
-        .quantity(rs.getInt("quantity"))
-        .location(rs.getString("location"))
-        .price(rs.getDouble("price"))
-        .reservationDurationInMillis(rs.getLong("reservation_duration"))
-        .reservationStatus(rs.getBoolean("reserved_status"))
-        .reservationTime(
-            (rs.getString("reservation_time") != null
-                ? LocalDateTime.parse(rs.getString("reservation_time"), FORMATTER)
-                : null))
-        .nextRestockDateTime(
-            rs.getString("next_restock") != null
-                ? LocalDateTime.parse(rs.getString("next_restock"), FORMATTER)
-                : null)
+        .itemId(uuidCodec.read(rs, ITEM_ID_INDEX))
+        .itemName(rs.getString(ITEM_NAME_INDEX))
+        .timeOfAddition(rs.getObject(TIME_OF_ADDITION_INDEX, LocalDateTime.class))
+        .quantity(rs.getInt(QUANTITY_INDEX))
+        .reservationStatus(rs.getBoolean(RESERVED_STATUS_INDEX))
+        .reservationTime(rs.getObject(RESERVATION_TIME_INDEX, LocalDateTime.class))
+        .reservationDurationInMillis(rs.getLong(RESERVATION_DURATION_INDEX))
+        .location(rs.getString(LOCATION_INDEX))
+        .price(rs.getDouble(PRICE_INDEX))
+        .nextRestockDateTime(rs.getObject(NEXT_RESTOCK_INDEX, LocalDateTime.class))
+        .inventoryId(uuidCodec.read(rs, INVENTORY_ID_INDEX))
+        .reservedQuantity(rs.getInt(RESERVED_QUANTITY_INDEX))
         .build();
   }
 
@@ -123,7 +423,8 @@ public class ItemsTableSqlHelper {
    */
   public boolean updateItemLocation(String itemId, String location) {
     String sql = "update Items set location = ? where item_id = ?";
-    int rows = jdbcTemplate.update(sql, location, itemId);
+    int rows = jdbcTemplate.update(sql, location, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -138,7 +439,8 @@ public class ItemsTableSqlHelper {
    */
   public boolean updateItemPrice(String itemId, double newPrice) {
     String sql = "update Items set price = ? where item_id = ?";
-    int rows = jdbcTemplate.update(sql, newPrice, itemId);
+    int rows = jdbcTemplate.update(sql, newPrice, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -153,7 +455,8 @@ public class ItemsTableSqlHelper {
    */
   public boolean updateItemQuantity(String itemId, int newQuantity) {
     String sql = "update Items set quantity = ? where item_id = ?";
-    int rows = jdbcTemplate.update(sql, newQuantity, itemId);
+    int rows = jdbcTemplate.update(sql, newQuantity, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
 
     System.out.println(rows + " row/s updated");
     return rows == 1;
@@ -168,7 +471,8 @@ public class ItemsTableSqlHelper {
   public boolean deleteItem(String itemId) {
     String sql = "delete from Items where item_id = ?";
 
-    int rows = jdbcTemplate.update(sql, itemId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s deleted");
 
     return rows == 1;
@@ -183,7 +487,8 @@ public class ItemsTableSqlHelper {
    */
   public boolean updateItemName(String itemId, String newItemName) {
     String sql = "update Items set item_name = ? where item_id = ?";
-    int rows = jdbcTemplate.update(sql, newItemName, itemId);
+    int rows = jdbcTemplate.update(sql, newItemName, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -197,7 +502,8 @@ public class ItemsTableSqlHelper {
    */
   public boolean updateInventoryId(String itemId, String inventoryId) {
     String sql = "update Items set inventory_id = ? where item_id = ?";
-    int rows = jdbcTemplate.update(sql, inventoryId, itemId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(inventoryId), uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -212,7 +518,8 @@ public class ItemsTableSqlHelper {
   public boolean updateItemReservation(String itemId, long reservationDurationInMillis) {
     String sql =
         "update Items set reservation_duration = ?, reserved_status = true where item_id" + " = ?";
-    int rows = jdbcTemplate.update(sql, reservationDurationInMillis, itemId);
+    int rows = jdbcTemplate.update(sql, reservationDurationInMillis, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated.");
     return rows == 1;
   }
@@ -229,7 +536,8 @@ public class ItemsTableSqlHelper {
             + "reservation_time = null, "
             + "reservation_duration = 0 "
             + "where item_id = ?";
-    int rows = jdbcTemplate.update(sql, itemId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(itemId));
+    itemCache.invalidate(itemId);
     System.out.println(rows + " row/s updated.");
     return rows == 1;
   }
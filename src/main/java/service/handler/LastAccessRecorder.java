@@ -0,0 +1,196 @@
+package service.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the last access of users without a write per request. Accesses are kept in memory, only
+ * the latest per user, and written to the Users table in batched updates every flush interval and
+ * on shutdown. An update never moves a user's last access back, so instances flushing in any order
+ * agree on the latest value.
+ *
+ * <p>At most max-pending users are held. Reaching the limit starts a flush right away on a
+ * background thread, and accesses of further users are dropped, and counted, until it frees room.
+ * Users already held keep being updated in place.
+ */
+@Component
+public class LastAccessRecorder implements SchedulingConfigurer {
+
+  private final UsersTableSqlHelper usersTableSqlHelper;
+
+  private final Duration flushInterval;
+
+  private final int batchSize;
+
+  private final int maxPending;
+
+  private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  private final ExecutorService flusher;
+
+  private final AtomicLong recorded = new AtomicLong();
+
+  private final AtomicLong written = new AtomicLong();
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Creates the recorder.
+   *
+   * @param usersTableSqlHelper the users table sql helper
+   * @param flushInterval time between flushes
+   * @param batchSize most users updated by one batch
+   * @param maxPending most users held in memory between flushes
+   */
+  @Autowired
+  public LastAccessRecorder(
+      UsersTableSqlHelper usersTableSqlHelper,
+      @Value("${service.users.last-access.flush-interval:5s}") Duration flushInterval,
+      @Value("${service.users.last-access.batch-size:1000}") int batchSize,
+      @Value("${service.users.last-access.max-pending:100000}") int maxPending) {
+    this.usersTableSqlHelper = usersTableSqlHelper;
+    this.flushInterval = flushInterval;
+    this.batchSize = batchSize;
+    this.maxPending = maxPending;
+    this.flusher =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "last-access-flusher");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    taskRegistrar.addFixedDelayTask(this::flush, flushInterval);
+  }
+
+  /**
+   * Records an access of a user. Only the latest access of a user is kept until the next flush.
+   *
+   * @param userId the user
+   * @param accessedAt the time of the access
+   */
+  public void record(String userId, LocalDateTime accessedAt) {
+    if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+      dropped.incrementAndGet();
+      requestFlush();
+      return;
+    }
+    pending.merge(userId, accessedAt, (held, latest) -> latest.isAfter(held) ? latest : held);
+    recorded.incrementAndGet();
+  }
+
+  /**
+   * Gets the access of a user recorded since the last flush.
+   *
+   * @param userId the user
+   * @return the latest access not yet written, or null if there is none
+   */
+  public LocalDateTime getPendingAccess(String userId) {
+    return pending.get(userId);
+  }
+
+  /**
+   * Writes the latest access of every user held to the DB, one batch at a time. Accesses recorded
+   * while the flush runs are written by the next one. A batch that fails is put back to be retried.
+   *
+   * @return the number of users whose last access was written
+   */
+  public int flush() {
+    flushLock.lock();
+    int flushed = 0;
+    try {
+      Map<String, LocalDateTime> batch = new LinkedHashMap<>();
+      for (String userId : pending.keySet()) {
+        LocalDateTime accessedAt = pending.remove(userId);
+        if (accessedAt != null) {
+          batch.put(userId, accessedAt);
+        }
+        if (batch.size() == batchSize) {
+          flushed += write(batch);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        flushed += write(batch);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+    if (flushed > 0) {
+      System.out.println(flushed + " user last access row/s flushed.");
+    }
+    return flushed;
+  }
+
+  /**
+   * Reports how the recorder is doing.
+   *
+   * @return the accesses recorded, the users written and the accesses dropped at the memory limit
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("pending", pending.size());
+    stats.put("maxPending", maxPending);
+    stats.put("recorded", recorded.get());
+    stats.put("written", written.get());
+    stats.put("dropped", dropped.get());
+    return stats;
+  }
+
+  /** Writes every access still held before the application stops. */
+  @PreDestroy
+  public void close() {
+    flusher.shutdownNow();
+    flush();
+  }
+
+  private void requestFlush() {
+    if (flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(
+            () -> {
+              flushRequested.set(false);
+              flush();
+            });
+      } catch (RuntimeException e) {
+        flushRequested.set(false);
+      }
+    }
+  }
+
+  private int write(Map<String, LocalDateTime> batch) {
+    try {
+      usersTableSqlHelper.updateLastAccesses(batch);
+      written.addAndGet(batch.size());
+      return batch.size();
+    } catch (RuntimeException e) {
+      System.err.println("Last access flush failed: " + e.getMessage());
+      batch.forEach(
+          (userId, accessedAt) ->
+              pending.merge(
+                  userId, accessedAt, (held, earlier) -> held.isAfter(earlier) ? held : earlier));
+      return 0;
+    }
+  }
+}
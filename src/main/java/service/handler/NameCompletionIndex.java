@@ -0,0 +1,443 @@
+package service.handler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import service.models.Completion;
+import service.models.Inventory;
+import service.models.Item;
+import service.util.CompletionRank;
+import service.util.CompletionTrie;
+import service.util.InvertedIndex;
+
+/**
+ * Type-ahead over item and inventory names. Inventories are the unit of access, so each one gets a
+ * {@link CompletionTrie} over the words of its item names, keeping the top {@value
+ * #MAX_COMPLETIONS} items of every prefix by quantity and by recency. A user's completions merge
+ * the lists of the inventories they can access with the inventory names that match, so a keystroke
+ * costs a walk of the prefix per inventory.
+ *
+ * <p>The index is built from the Inventories and Items tables once the application is ready. The
+ * endpoints keep it current as items are created, renamed, restocked and deleted, and as
+ * inventories are created, renamed and deleted. Quantities changed by holds, and writes made by
+ * other instances, show up at the next rebuild, every rebuild interval.
+ */
+@Component
+public class NameCompletionIndex implements SchedulingConfigurer {
+
+  /** Most completions returned for a query, and kept by every prefix. */
+  public static final int MAX_COMPLETIONS = 10;
+
+  private static final Comparator<Completion> BY_NAME =
+      Comparator.comparing(Completion::getName).thenComparing(Completion::getId);
+
+  /** One order per {@link CompletionRank}, in declaration order. */
+  private static final List<Comparator<? super Completion>> ORDERS =
+      List.of(
+          Comparator.comparingLong(Completion::getQuantity).reversed().thenComparing(BY_NAME),
+          Comparator.comparing(
+                  Completion::getAddedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+              .thenComparing(BY_NAME));
+
+  private final InventoryTableSqlHelper inventoryTableSqlHelper;
+
+  private final ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private final Duration rebuildInterval;
+
+  private final boolean buildOnStartup;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  /** The names completed from. Guarded by lock. */
+  private Catalog catalog = new Catalog();
+
+  /**
+   * Changes made while a rebuild reads the tables, to replay on the new catalog. Guarded by lock.
+   */
+  private List<Consumer<Catalog>> changesDuringRebuild;
+
+  private volatile boolean ready;
+
+  private final AtomicLong completions = new AtomicLong();
+
+  private final AtomicLong rebuilds = new AtomicLong();
+
+  private volatile long lastRebuildMillis;
+
+  /**
+   * Creates the index.
+   *
+   * @param inventoryTableSqlHelper the inventory table sql helper
+   * @param itemsTableSqlHelper the items table sql helper
+   * @param rebuildInterval time between rebuilds from the tables
+   * @param buildOnStartup whether to build the index once the application is ready
+   */
+  @Autowired
+  public NameCompletionIndex(
+      InventoryTableSqlHelper inventoryTableSqlHelper,
+      ItemsTableSqlHelper itemsTableSqlHelper,
+      @Value("${service.autocomplete.rebuild-interval:10m}") Duration rebuildInterval,
+      @Value("${service.autocomplete.build-on-startup:true}") boolean buildOnStartup) {
+    this.inventoryTableSqlHelper = inventoryTableSqlHelper;
+    this.itemsTableSqlHelper = itemsTableSqlHelper;
+    this.rebuildInterval = rebuildInterval;
+    this.buildOnStartup = buildOnStartup;
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    if (!rebuildInterval.isZero() && !rebuildInterval.isNegative()) {
+      taskRegistrar.addFixedDelayTask(
+          new FixedDelayTask(this::rebuild, rebuildInterval, rebuildInterval));
+    }
+  }
+
+  /** Builds the index once the application is ready. Completions are refused until it is built. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildOnStartup() {
+    if (buildOnStartup) {
+      try {
+        rebuild();
+      } catch (RuntimeException e) {
+        System.err.println("Name completion index could not be built: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Reads every inventory and item into a new catalog and swaps it in. Changes made while the
+   * tables are read are applied to the new catalog first.
+   *
+   * @return the number of items in the new catalog
+   */
+  public int rebuild() {
+    rebuildLock.lock();
+    try {
+      final long start = System.currentTimeMillis();
+      setChangesDuringRebuild(new ArrayList<>());
+      Catalog rebuilt = new Catalog();
+      try {
+        for (Inventory inventory : inventoryTableSqlHelper.getAllInventories()) {
+          rebuilt.putInventory(inventory.getInventoryId(), inventory.getInventoryName());
+        }
+        itemsTableSqlHelper.streamAllItems(rebuilt::putItem);
+      } catch (RuntimeException e) {
+        setChangesDuringRebuild(null);
+        throw e;
+      }
+      lock.writeLock().lock();
+      try {
+        changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+        changesDuringRebuild = null;
+        catalog = rebuilt;
+        ready = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      rebuilds.incrementAndGet();
+      lastRebuildMillis = System.currentTimeMillis() - start;
+      System.out.println(
+          "Name completion index built with "
+              + rebuilt.items.size()
+              + " items in "
+              + lastRebuildMillis
+              + "ms");
+      return rebuilt.items.size();
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Adds an item, or replaces it after its name or quantity changed.
+   *
+   * @param item the item as stored in the DB
+   */
+  public void putItem(Item item) {
+    apply(target -> target.putItem(item));
+  }
+
+  /**
+   * Removes a deleted item.
+   *
+   * @param itemId the item
+   */
+  public void removeItem(UUID itemId) {
+    apply(target -> target.removeItem(itemId));
+  }
+
+  /**
+   * Adds an inventory, or renames it.
+   *
+   * @param inventoryId the inventory
+   * @param inventoryName the name of the inventory
+   */
+  public void putInventory(UUID inventoryId, String inventoryName) {
+    apply(target -> target.putInventory(inventoryId, inventoryName));
+  }
+
+  /**
+   * Removes a deleted inventory together with its items.
+   *
+   * @param inventoryId the inventory
+   */
+  public void removeInventory(UUID inventoryId) {
+    apply(target -> target.removeInventory(inventoryId));
+  }
+
+  /**
+   * Tells whether the index has been built and can complete names.
+   *
+   * @return true once the first build finished
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Completes what a user typed with the names of items and inventories they can access. The last
+   * word typed is a prefix, and any words before it have to appear whole in the name.
+   *
+   * @param inventoryIds the inventories the user can access
+   * @param query what the user typed
+   * @param limit maximum number of completions, at most {@value #MAX_COMPLETIONS}
+   * @param rank the order to rank the completions in
+   * @return the best completions, best first, or null if the index has not been built yet
+   */
+  public List<Completion> complete(
+      Collection<UUID> inventoryIds, String query, int limit, CompletionRank rank) {
+    if (!ready) {
+      return null;
+    }
+    completions.incrementAndGet();
+    List<String> words = InvertedIndex.tokenize(query);
+    if (words.isEmpty()) {
+      return List.of();
+    }
+    int capped = Math.min(limit, MAX_COMPLETIONS);
+    Comparator<? super Completion> order = ORDERS.get(rank.ordinal());
+    List<Completion> candidates = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      for (UUID inventoryId : inventoryIds) {
+        Scope scope = catalog.scopes.get(inventoryId);
+        if (scope != null) {
+          scope.complete(inventoryId, words, capped, rank.ordinal(), candidates);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    candidates.sort(order);
+    return new ArrayList<>(candidates.subList(0, Math.min(capped, candidates.size())));
+  }
+
+  /**
+   * Reports the size of the index and how often it is used.
+   *
+   * @return the inventories and items indexed, and the completions and rebuilds run
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("ready", ready);
+    lock.readLock().lock();
+    try {
+      stats.put("inventories", catalog.scopes.size());
+      stats.put("items", catalog.items.size());
+    } finally {
+      lock.readLock().unlock();
+    }
+    stats.put("completions", completions.get());
+    stats.put("rebuilds", rebuilds.get());
+    stats.put("lastRebuildMillis", lastRebuildMillis);
+    return stats;
+  }
+
+  private void apply(Consumer<Catalog> change) {
+    lock.writeLock().lock();
+    try {
+      change.accept(catalog);
+      if (changesDuringRebuild != null) {
+        changesDuringRebuild.add(change);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void setChangesDuringRebuild(List<Consumer<Catalog>> changes) {
+    lock.writeLock().lock();
+    try {
+      changesDuringRebuild = changes;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private static boolean matches(String name, List<String> words) {
+    List<String> nameWords = InvertedIndex.tokenize(name);
+    if (!nameWords.containsAll(words.subList(0, words.size() - 1))) {
+      return false;
+    }
+    String prefix = words.get(words.size() - 1);
+    for (String word : nameWords) {
+      if (word.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Every inventory and item known, by id. */
+  private static final class Catalog {
+
+    private final Map<UUID, Scope> scopes = new HashMap<>();
+
+    private final Map<UUID, Completion> items = new HashMap<>();
+
+    Scope scope(UUID inventoryId) {
+      return scopes.computeIfAbsent(inventoryId, id -> new Scope());
+    }
+
+    void putInventory(UUID inventoryId, String inventoryName) {
+      scope(inventoryId).inventoryName = inventoryName;
+    }
+
+    void removeInventory(UUID inventoryId) {
+      Scope scope = scopes.remove(inventoryId);
+      if (scope != null) {
+        scope.items.keySet().forEach(items::remove);
+      }
+    }
+
+    void putItem(Item item) {
+      removeItem(item.getItemId());
+      Completion completion =
+          new Completion(
+              Completion.ITEM,
+              item.getItemId(),
+              item.getInventoryId(),
+              item.getItemName(),
+              item.getQuantity(),
+              item.getTimeOfAddition());
+      scope(item.getInventoryId()).add(completion);
+      items.put(item.getItemId(), completion);
+    }
+
+    void removeItem(UUID itemId) {
+      Completion completion = items.remove(itemId);
+      if (completion != null) {
+        Scope scope = scopes.get(completion.getInventoryId());
+        if (scope != null) {
+          scope.remove(completion);
+        }
+      }
+    }
+  }
+
+  /** One inventory: its name, the totals it is ranked by, and the trie over its item names. */
+  private static final class Scope {
+
+    private final CompletionTrie<Completion> trie = new CompletionTrie<>(MAX_COMPLETIONS, ORDERS);
+
+    private final Map<UUID, Completion> items = new HashMap<>();
+
+    /** Null until the inventory itself is read, for items indexed before their inventory. */
+    private String inventoryName;
+
+    private long units;
+
+    private LocalDateTime lastAddition;
+
+    private void add(Completion item) {
+      for (String word : InvertedIndex.tokenize(item.getName())) {
+        trie.add(word, item);
+      }
+      items.put(item.getId(), item);
+      units += item.getQuantity();
+      if (isNewer(item)) {
+        lastAddition = item.getAddedAt();
+      }
+    }
+
+    private void remove(Completion item) {
+      for (String word : InvertedIndex.tokenize(item.getName())) {
+        trie.remove(word, item);
+      }
+      items.remove(item.getId());
+      units -= item.getQuantity();
+      // Only the newest item sets the last addition, so only its removal changes it
+      if (item.getAddedAt() != null && item.getAddedAt().equals(lastAddition)) {
+        lastAddition = null;
+        for (Completion left : items.values()) {
+          if (isNewer(left)) {
+            lastAddition = left.getAddedAt();
+          }
+        }
+      }
+    }
+
+    private boolean isNewer(Completion item) {
+      return lastAddition == null
+          || item.getAddedAt() != null && item.getAddedAt().isAfter(lastAddition);
+    }
+
+    /** Adds the inventory, if its name matches, and its best matching items to the candidates. */
+    private void complete(
+        UUID inventoryId, List<String> words, int limit, int order, List<Completion> candidates) {
+      if (inventoryName != null && matches(inventoryName, words)) {
+        candidates.add(
+            new Completion(
+                Completion.INVENTORY,
+                inventoryId,
+                inventoryId,
+                inventoryName,
+                units,
+                lastAddition));
+      }
+      if (words.size() == 1) {
+        candidates.addAll(trie.complete(words.get(0), order, limit));
+        return;
+      }
+      // Items have to hold every whole word, so only the items of the rarest one can match
+      Set<Completion> fewest = null;
+      for (String word : words.subList(0, words.size() - 1)) {
+        Set<Completion> holding = trie.entries(word);
+        if (fewest == null || holding.size() < fewest.size()) {
+          fewest = holding;
+        }
+      }
+      List<Completion> matching = new ArrayList<>();
+      for (Completion item : fewest) {
+        if (matches(item.getName(), words)) {
+          matching.add(item);
+        }
+      }
+      matching.sort(ORDERS.get(order));
+      candidates.addAll(matching.subList(0, Math.min(limit, matching.size())));
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package service.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import service.models.Reservation;
+import service.util.StripedCounter;
+
+/**
+ * Places holds on flash-sale items against in-memory counters instead of the item's row. An item
+ * opts in with {@link #enable(UUID)}. Its counter is filled by taking a chunk of the item's
+ * quantity from the DB at once, and a hold then only decrements the counter and inserts its
+ * reservation row, so the item's row is locked once per chunk rather than once per hold. Every
+ * flush gives the unused part of each counter back to the item.
+ *
+ * <p>Each counter's quantity is also recorded in a lease row in Counter_Leases, which every flush
+ * renews:
+ *
+ * <ul>
+ *   <li>A chunk is taken with the same conditional update as a single hold and added to the lease
+ *       in the same transaction. A hold takes its quantity off the lease in the transaction that
+ *       inserts it, only if the lease still holds it, so an item is never oversold, across any
+ *       number of instances.
+ *   <li>A chunk is counted as reserved in the DB while it sits in a lease. If an instance stops
+ *       without giving it back, its lease lapses after lease-time-to-live and the expiry sweeper
+ *       returns the quantity to the item, so quantity is only held back until then.
+ *   <li>The in-memory counter only decides when to take another chunk. When a flush gave back the
+ *       quantity a hold had counted on, the hold is placed against the item's row instead.
+ *   <li>A hold is only rejected once this instance's counter and the item's quantity in the DB
+ *       together are short of it. Quantity sitting in another instance's lease is not seen until
+ *       that instance flushes or its lease lapses.
+ * </ul>
+ *
+ * <p>Each hold updates the lease row of its instance, so holds on one item only contend with holds
+ * placed by the same instance.
+ */
+@Component
+public class ReservationCounters implements SchedulingConfigurer {
+
+  private final ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private final int chunkSize;
+
+  private final Duration flushInterval;
+
+  private final Duration leaseTimeToLive;
+
+  private final Map<UUID, ItemCounter> counters = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the counters.
+   *
+   * @param reservationsTableSqlHelper the reservations table sql helper
+   * @param chunkSize quantity taken from an item's row each time its counter runs out
+   * @param flushInterval time between flushes of the unused quantity back to the items
+   * @param leaseTimeToLive time after the last flush when a counter's quantity is given back to its
+   *     item by the expiry sweeper, longer than the flush interval
+   * @param items IDs of the items counted from startup
+   */
+  @Autowired
+  public ReservationCounters(
+      ReservationsTableSqlHelper reservationsTableSqlHelper,
+      @Value("${service.reservations.counters.chunk-size:100}") int chunkSize,
+      @Value("${service.reservations.counters.flush-interval:10s}") Duration flushInterval,
+      @Value("${service.reservations.counters.lease-time-to-live:1m}") Duration leaseTimeToLive,
+      @Value("${service.reservations.counters.items:}") List<String> items) {
+    this.reservationsTableSqlHelper = reservationsTableSqlHelper;
+    this.chunkSize = chunkSize;
+    this.flushInterval = flushInterval;
+    this.leaseTimeToLive = leaseTimeToLive;
+    for (String itemId : items) {
+      enable(UUID.fromString(itemId.trim()));
+    }
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    taskRegistrar.addFixedDelayTask(this::flush, flushInterval);
+  }
+
+  /**
+   * Places holds on an item against a counter from now on.
+   *
+   * @param itemId the item
+   */
+  public void enable(UUID itemId) {
+    counters.computeIfAbsent(itemId, ItemCounter::new);
+  }
+
+  /**
+   * Places holds on an item against its row again, giving back whatever its counter holds.
+   *
+   * @param itemId the item
+   */
+  public void disable(UUID itemId) {
+    ItemCounter counter = counters.remove(itemId);
+    if (counter != null) {
+      counter.retire();
+    }
+  }
+
+  /**
+   * Checks whether holds on an item are placed against a counter.
+   *
+   * @param itemId the item
+   * @return true if the item is counted
+   */
+  public boolean isEnabled(UUID itemId) {
+    return counters.containsKey(itemId);
+  }
+
+  /**
+   * Gets the quantity of an item held by this instance's counter and not yet taken by a hold.
+   *
+   * @param itemId the item
+   * @return the unused quantity, 0 if the item is not counted
+   */
+  public long getAllowance(UUID itemId) {
+    ItemCounter counter = counters.get(itemId);
+    return counter == null ? 0 : counter.allowance.sum();
+  }
+
+  /**
+   * Stores a hold against its item's counter, filling the counter from the DB when it runs short.
+   *
+   * @param reservation the hold to store
+   * @return true if the hold was stored, false if the item does not have enough quantity left, null
+   *     if the item is not counted or its counter was flushed meanwhile, and the hold must be
+   *     placed against its row
+   */
+  public Boolean reserve(Reservation reservation) {
+    ItemCounter counter = counters.get(reservation.getItemId());
+    if (counter == null) {
+      return null;
+    }
+    int quantity = reservation.getQuantity();
+    if (!counter.allowance.tryTake(quantity)) {
+      Boolean taken = counter.take(quantity);
+      if (!Boolean.TRUE.equals(taken)) {
+        return taken;
+      }
+    }
+    boolean stored;
+    try {
+      stored = reservationsTableSqlHelper.insertAllocatedReservation(reservation, counter.leaseId);
+    } catch (RuntimeException e) {
+      counter.giveBack(quantity);
+      throw e;
+    }
+    // The lease no longer holds the quantity once a flush gave it back
+    return stored ? Boolean.TRUE : null;
+  }
+
+  /**
+   * Gives the unused quantity of every counter back to its item.
+   *
+   * @return the quantity given back
+   */
+  public long flush() {
+    long returned = 0;
+    for (ItemCounter counter : counters.values()) {
+      returned += counter.flush();
+    }
+    if (returned > 0) {
+      System.out.println(returned + " unused counted quantity returned to items.");
+    }
+    return returned;
+  }
+
+  /** Gives back every counter's quantity and places later holds against the items' rows. */
+  @PreDestroy
+  public void close() {
+    for (UUID itemId : List.copyOf(counters.keySet())) {
+      disable(itemId);
+    }
+  }
+
+  /**
+   * The counter of one item and its lease. Holds take from it without locking. Filling, flushing
+   * and closing it lock the counter, so quantity is never added to a counter after it was given
+   * back for good.
+   */
+  private final class ItemCounter {
+    private final UUID itemId;
+    private final String leaseId = UUID.randomUUID().toString();
+    private final StripedCounter allowance = new StripedCounter();
+    private boolean closed;
+
+    private ItemCounter(UUID itemId) {
+      this.itemId = itemId;
+    }
+
+    /**
+     * Takes a quantity once no single stripe holds enough of it, merging the stripes and taking
+     * more from the DB if needed.
+     *
+     * @return true if taken, false if the item does not have enough left, null if closed
+     */
+    private synchronized Boolean take(int quantity) {
+      if (closed) {
+        return null;
+      }
+      if (allowance.tryTake(quantity)) {
+        return true;
+      }
+      long held = allowance.drain();
+      if (held >= quantity) {
+        allowance.add(held - quantity);
+        return true;
+      }
+      int needed = quantity - (int) held;
+      int chunk = Math.max(chunkSize, needed);
+      try {
+        if (reservationsTableSqlHelper.allocateQuantity(leaseId, itemId, chunk, leaseTimeToLive)) {
+          allowance.add(chunk - needed);
+          return true;
+        }
+        // Less than a chunk left, so take only what this hold needs
+        if (chunk > needed
+            && reservationsTableSqlHelper.allocateQuantity(
+                leaseId, itemId, needed, leaseTimeToLive)) {
+          return true;
+        }
+      } catch (RuntimeException e) {
+        allowance.add(held);
+        throw e;
+      }
+      allowance.add(held);
+      return false;
+    }
+
+    /** Puts back the quantity of a hold that failed to store, which its lease still holds. */
+    synchronized void giveBack(int quantity) {
+      // Once closed, the lease was given back with the quantity in it
+      if (!closed) {
+        allowance.add(quantity);
+      }
+    }
+
+    /** Gives back the lease's quantity and renews the lease. */
+    synchronized long flush() {
+      long unused = allowance.drain();
+      try {
+        return reservationsTableSqlHelper.renewCounterLease(leaseId, itemId, leaseTimeToLive);
+      } catch (RuntimeException e) {
+        System.err.println(
+            "Failed to return counted quantity of " + itemId + ": " + e.getMessage());
+        allowance.add(unused);
+        return 0;
+      }
+    }
+
+    /** Gives back the lease's quantity and deletes the lease. */
+    synchronized void retire() {
+      closed = true;
+      allowance.drain();
+      try {
+        reservationsTableSqlHelper.closeCounterLease(leaseId, itemId);
+      } catch (RuntimeException e) {
+        // The lease lapses and the expiry sweeper gives its quantity back
+        System.err.println(
+            "Failed to return counted quantity of " + itemId + ": " + e.getMessage());
+      }
+    }
+  }
+}
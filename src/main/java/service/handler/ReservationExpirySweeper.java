@@ -0,0 +1,142 @@
+package service.handler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically deletes every reservation that has expired and returns its quantity to the item.
+ * Each tick deletes due holds in batches, one transaction per batch, and stops after a fixed number
+ * of batches so an expiry storm is spread over several ticks instead of loading the DB all at once.
+ * This also expires holds the expiry wheel does not know about, such as those made on another
+ * instance.
+ *
+ * <p>Each tick first renews this instance's expiry partition leases, and only sweeps the partitions
+ * it holds. The pending holds of a newly taken partition, including every partition on startup, are
+ * loaded into the expiry wheel. Every tick also gives the quantity of lapsed counter leases, left
+ * behind by instances that stopped without flushing their {@link ReservationCounters}, back to the
+ * items.
+ */
+@Component
+public class ReservationExpirySweeper implements SchedulingConfigurer {
+
+  private final ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private final ExpiryLeaseService expiryLeaseService;
+
+  private final ItemReservationService itemReservationService;
+
+  private final Duration interval;
+
+  private final int batchSize;
+
+  private final int maxBatches;
+
+  private final AtomicLong sweeps = new AtomicLong();
+
+  private final AtomicLong lastExpired = new AtomicLong();
+
+  private final AtomicLong totalExpired = new AtomicLong();
+
+  /**
+   * Creates the sweeper.
+   *
+   * @param reservationsTableSqlHelper the reservations table sql helper
+   * @param expiryLeaseService the service holding this instance's expiry partition leases
+   * @param itemReservationService the reservation service whose expiry wheel is loaded
+   * @param interval time between the end of one tick and the start of the next
+   * @param batchSize most holds deleted in one transaction
+   * @param maxBatches most non-empty batches deleted in one tick
+   */
+  @Autowired
+  public ReservationExpirySweeper(
+      ReservationsTableSqlHelper reservationsTableSqlHelper,
+      ExpiryLeaseService expiryLeaseService,
+      ItemReservationService itemReservationService,
+      @Value("${service.reservations.sweep.interval:5s}") Duration interval,
+      @Value("${service.reservations.sweep.batch-size:500}") int batchSize,
+      @Value("${service.reservations.sweep.max-batches:10}") int maxBatches) {
+    this.reservationsTableSqlHelper = reservationsTableSqlHelper;
+    this.expiryLeaseService = expiryLeaseService;
+    this.itemReservationService = itemReservationService;
+    this.interval = interval;
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    taskRegistrar.addFixedDelayTask(this::sweep, interval);
+  }
+
+  /**
+   * Renews this instance's leases and deletes the holds of its partitions that have expired, up to
+   * the batch limit.
+   *
+   * @return the number of holds deleted
+   */
+  public int sweep() {
+    final LocalDateTime now = LocalDateTime.now();
+    int expired = 0;
+    try {
+      itemReservationService.loadExpiryTimers(expiryLeaseService.renewLeases());
+      List<Integer> partitions = new ArrayList<>(expiryLeaseService.getOwnedPartitions());
+      // Start from a different partition each tick, so a storm does not starve the last ones
+      Collections.sort(partitions);
+      Collections.rotate(partitions, (int) sweeps.get());
+      int batches = 0;
+      for (int partition : partitions) {
+        int deleted = batchSize;
+        while (deleted == batchSize && batches < maxBatches) {
+          deleted =
+              reservationsTableSqlHelper
+                  .deleteExpiredReservations(partition, now, batchSize)
+                  .size();
+          expired += deleted;
+          // Partitions with nothing due do not use up the budget
+          if (deleted > 0) {
+            batches++;
+          }
+        }
+      }
+      int returned = reservationsTableSqlHelper.returnLapsedCounterLeases();
+      if (returned > 0) {
+        System.out.println(returned + " quantity of lapsed counter leases returned to items.");
+      }
+    } catch (RuntimeException e) {
+      System.err.println("Reservation expiry sweep failed: " + e.getMessage());
+    }
+    sweeps.incrementAndGet();
+    lastExpired.set(expired);
+    totalExpired.addAndGet(expired);
+    if (expired > 0) {
+      System.out.println(expired + " expired reservation row/s deleted.");
+    }
+    return expired;
+  }
+
+  /**
+   * Reports what the sweeper has done.
+   *
+   * @return the number of ticks run, holds expired by the last tick and holds expired in total
+   */
+  public Map<String, Object> getStats() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("sweeps", sweeps.get());
+    stats.put("lastExpired", lastExpired.get());
+    stats.put("totalExpired", totalExpired.get());
+    stats.put("batchSize", batchSize);
+    stats.put("maxBatches", maxBatches);
+    return stats;
+  }
+}
@@ -0,0 +1,200 @@
+package service.handler;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import service.exceptions.ReservationException;
+import service.models.Reservation;
+
+/**
+ * Places holds through a fixed set of single-writer partitions instead of one transaction per hold.
+ * Holds are routed to a partition by item, and each partition's thread takes every hold waiting in
+ * its mailbox, up to the group size, and stores them in one transaction that locks and updates each
+ * item once. Callers wait until their group is committed. A hot item then costs one row lock per
+ * group rather than one per hold, and holds on it never wait on each other's locks.
+ *
+ * <p>Callers never wait longer than the timeout, for room in a full mailbox and then for the
+ * commit, and are turned away once the pipeline is closed.
+ */
+@Component
+@ConditionalOnProperty(name = "service.reservations.pipeline.enabled", havingValue = "true")
+public class ReservationPipeline {
+
+  private final ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private final int maxGroupSize;
+
+  private final Duration timeout;
+
+  private volatile boolean closed;
+
+  private final List<BlockingQueue<Command>> mailboxes = new ArrayList<>();
+
+  private final List<Thread> writers = new ArrayList<>();
+
+  private final AtomicLong groupsCommitted = new AtomicLong();
+
+  private final AtomicLong holdsCommitted = new AtomicLong();
+
+  /**
+   * Creates the pipeline and starts a writer thread per partition.
+   *
+   * @param reservationsTableSqlHelper the reservations table sql helper
+   * @param partitions number of single-writer partitions
+   * @param maxGroupSize most holds stored by one transaction
+   * @param mailboxCapacity most holds waiting in one partition. Callers wait for room beyond it
+   * @param timeout longest a caller waits for room in the mailbox, and then for its commit
+   */
+  @Autowired
+  public ReservationPipeline(
+      ReservationsTableSqlHelper reservationsTableSqlHelper,
+      @Value("${service.reservations.pipeline.partitions:8}") int partitions,
+      @Value("${service.reservations.pipeline.max-group-size:100}") int maxGroupSize,
+      @Value("${service.reservations.pipeline.mailbox-capacity:10000}") int mailboxCapacity,
+      @Value("${service.reservations.pipeline.timeout:10s}") Duration timeout) {
+    this.reservationsTableSqlHelper = reservationsTableSqlHelper;
+    this.maxGroupSize = maxGroupSize;
+    this.timeout = timeout;
+    for (int partition = 0; partition < partitions; partition++) {
+      BlockingQueue<Command> mailbox = new ArrayBlockingQueue<>(mailboxCapacity);
+      Thread writer = new Thread(() -> drain(mailbox), "reservation-writer-" + partition);
+      writer.setDaemon(true);
+      writer.start();
+      mailboxes.add(mailbox);
+      writers.add(writer);
+    }
+  }
+
+  /**
+   * Stores a hold through its item's partition and waits until its group is committed.
+   *
+   * @param reservation the hold to store
+   * @return true if the hold was stored, false if the item does not exist or does not have enough
+   *     quantity left
+   * @throws ReservationException if the pipeline is closed, its mailbox stays full, or the commit
+   *     does not finish within the timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean reserve(Reservation reservation)
+      throws ReservationException, InterruptedException {
+    if (closed) {
+      throw new ReservationException("Reservations are stopping, try again");
+    }
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    Command command = new Command(reservation);
+    BlockingQueue<Command> mailbox =
+        mailboxes.get(Math.floorMod(reservation.getItemId().hashCode(), mailboxes.size()));
+    if (!mailbox.offer(command, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+      throw new ReservationException("Too many reservations waiting, try again");
+    }
+    // close() may have failed the waiting holds before this one was added. A hold still in the
+    // mailbox was never stored, and one a writer took is completed by that writer
+    if (closed && mailbox.remove(command)) {
+      throw new ReservationException("Reservations are stopping, try again");
+    }
+    try {
+      return command.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      if (mailbox.remove(command)) {
+        throw new ReservationException("Reservation was not stored in time, try again");
+      }
+      throw new ReservationException(
+          "Reservation is taking too long to store, check its status before retrying");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ReservationException) {
+        throw (ReservationException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Gets the number of transactions committed by the writers.
+   *
+   * @return the number of groups committed
+   */
+  public long getGroupsCommitted() {
+    return groupsCommitted.get();
+  }
+
+  /**
+   * Gets the number of holds the writers have processed, stored or rejected.
+   *
+   * @return the number of holds processed
+   */
+  public long getHoldsCommitted() {
+    return holdsCommitted.get();
+  }
+
+  /** Stops the writer threads. Holds still waiting are failed, and new holds are turned away. */
+  @PreDestroy
+  public void close() {
+    closed = true;
+    writers.forEach(Thread::interrupt);
+    for (BlockingQueue<Command> mailbox : mailboxes) {
+      List<Command> waiting = new ArrayList<>();
+      mailbox.drainTo(waiting);
+      for (Command command : waiting) {
+        command.result.completeExceptionally(
+            new ReservationException("Reservations are stopping, try again"));
+      }
+    }
+  }
+
+  private void drain(BlockingQueue<Command> mailbox) {
+    List<Command> group = new ArrayList<>(maxGroupSize);
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        group.add(mailbox.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      mailbox.drainTo(group, maxGroupSize - 1);
+      commit(group);
+      group.clear();
+    }
+  }
+
+  private void commit(List<Command> group) {
+    List<Reservation> reservations = new ArrayList<>(group.size());
+    for (Command command : group) {
+      reservations.add(command.reservation);
+    }
+    try {
+      boolean[] stored = reservationsTableSqlHelper.insertReservationGroup(reservations);
+      groupsCommitted.incrementAndGet();
+      holdsCommitted.addAndGet(group.size());
+      for (int i = 0; i < group.size(); i++) {
+        group.get(i).result.complete(stored[i]);
+      }
+    } catch (RuntimeException e) {
+      for (Command command : group) {
+        command.result.completeExceptionally(e);
+      }
+    }
+  }
+
+  private static final class Command {
+    private final Reservation reservation;
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+    private Command(Reservation reservation) {
+      this.reservation = reservation;
+    }
+  }
+}
@@ -0,0 +1,727 @@
+package service.handler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.cache.ItemCache;
+import service.models.Reservation;
+import service.util.UuidCodec;
+
+/**
+ * This class handles the translation from Reservation objects to SQL queries on the Reservations
+ * table. Every hold also moves its quantity between Items.quantity and Items.reserved_quantity in
+ * the same transaction, so the item's counters always match its holds.
+ */
+@Getter
+@Repository
+public class ReservationsTableSqlHelper {
+
+  /** Select list read by {@link #getReservationFromTable(ResultSet, UuidCodec)}. */
+  public static final String RESERVATION_COLUMNS =
+      "reservation_id, item_id, user_id, quantity, reserved_at, expires_at";
+
+  /**
+   * Number of expiry partitions holds are spread over. Must match the rows of the Expiry_Leases
+   * table.
+   */
+  public static final int EXPIRY_PARTITIONS = 16;
+
+  /** Attempts at a multi-hold transaction before a lost deadlock is given up on. */
+  private static final int MAX_DEADLOCK_ATTEMPTS = 3;
+
+  private static final String INSERT_SQL =
+      "insert into Reservations ("
+          + RESERVATION_COLUMNS
+          + ", expiry_partition) values (?,?,?,?,?,?,?)";
+
+  /** Takes a held quantity from its item, only if enough is left. */
+  private static final String TAKE_SQL =
+      "update Items set quantity = quantity - ?, "
+          + "reserved_quantity = reserved_quantity + ?, "
+          + "reserved_status = true "
+          + "where item_id = ? and quantity >= ?";
+
+  /** Returns a held quantity to its item. */
+  private static final String RELEASE_SQL =
+      "update Items set reserved_status = reserved_quantity > ?, "
+          + "quantity = quantity + ?, "
+          + "reserved_quantity = reserved_quantity - ? "
+          + "where item_id = ?";
+
+  private static final int RESERVATION_ID_INDEX = 1;
+  private static final int ITEM_ID_INDEX = 2;
+  private static final int USER_ID_INDEX = 3;
+  private static final int QUANTITY_INDEX = 4;
+  private static final int RESERVED_AT_INDEX = 5;
+  private static final int EXPIRES_AT_INDEX = 6;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private TransactionTemplate transactionTemplate;
+
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  private ItemCache itemCache = ItemCache.disabled();
+
+  /**
+   * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
+   *
+   * @param jdbcTemplate the jdbc template
+   */
+  @Autowired
+  public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Sets the transaction template that groups a hold with the update of its item's counters.
+   *
+   * @param transactionTemplate the transaction template
+   */
+  @Autowired
+  public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
+  /**
+   * Sets the item cache, which is invalidated whenever a hold changes an item's quantity.
+   *
+   * @param itemCache the item cache
+   */
+  @Autowired
+  public void setItemCache(ItemCache itemCache) {
+    this.itemCache = itemCache;
+  }
+
+  /**
+   * Stores a hold and takes its quantity from the item. The quantity is only taken if enough is
+   * left, so concurrent holds can never take more than the stock.
+   *
+   * @param reservation the hold to store
+   * @return true if the hold was stored, false if the item does not exist or does not have enough
+   *     quantity left
+   */
+  public boolean insertReservation(Reservation reservation) {
+    Boolean inserted =
+        transactionTemplate.execute(
+            status -> {
+              if (!takeQuantity(reservation)) {
+                return false;
+              }
+              jdbcTemplate.update(INSERT_SQL, insertArgs(reservation));
+              return true;
+            });
+    itemCache.invalidate(reservation.getItemId().toString());
+    System.out.println((Boolean.TRUE.equals(inserted) ? 1 : 0) + " reservation row/s inserted.");
+    return Boolean.TRUE.equals(inserted);
+  }
+
+  /**
+   * Stores several holds in one transaction, either all of them or none. Items are locked in item
+   * ID order whatever the order of the holds, so two carts sharing items cannot deadlock each
+   * other. A transaction that still loses a deadlock is retried a bounded number of times.
+   *
+   * @param reservations the holds to store
+   * @return the positions of the holds whose item does not exist or does not have enough quantity
+   *     left. Nothing is stored unless this is empty
+   */
+  public List<Integer> insertReservations(List<Reservation> reservations) {
+    List<Integer> lockOrder = new ArrayList<>();
+    for (int i = 0; i < reservations.size(); i++) {
+      lockOrder.add(i);
+    }
+    lockOrder.sort(Comparator.comparing(i -> reservations.get(i).getItemId()));
+    List<Object[]> insertArgs = new ArrayList<>();
+    for (Reservation reservation : reservations) {
+      insertArgs.add(insertArgs(reservation));
+    }
+    List<Integer> rejected =
+        executeWithDeadlockRetry(
+            status -> {
+              List<Integer> shortItems = new ArrayList<>();
+              // Keep going after a rejected hold, so every short item is reported at once
+              for (int index : lockOrder) {
+                if (!takeQuantity(reservations.get(index))) {
+                  shortItems.add(index);
+                }
+              }
+              if (shortItems.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, insertArgs);
+              } else {
+                status.setRollbackOnly();
+              }
+              Collections.sort(shortItems);
+              return shortItems;
+            });
+    for (Reservation reservation : reservations) {
+      itemCache.invalidate(reservation.getItemId().toString());
+    }
+    System.out.println(
+        (rejected.isEmpty() ? reservations.size() : 0) + " reservation row/s inserted.");
+    return rejected;
+  }
+
+  /**
+   * Stores as many of a group of holds as their items have quantity for, in one transaction. Each
+   * item's row is locked and read once, the holds on it are granted in order against the quantity
+   * read, and the item is updated once with their total. Holds on other items are not affected by a
+   * rejected hold.
+   *
+   * @param reservations the holds to store, in the order they should be granted
+   * @return for each hold, whether it was stored
+   */
+  public boolean[] insertReservationGroup(List<Reservation> reservations) {
+    String lockSql = "select quantity from Items where item_id = ? for update";
+    String takeTotalSql =
+        "update Items set quantity = quantity - ?, "
+            + "reserved_quantity = reserved_quantity + ?, "
+            + "reserved_status = true "
+            + "where item_id = ?";
+    // Items in key order, so groups from different partitions lock items alike
+    Map<UUID, List<Integer>> byItem = new TreeMap<>();
+    for (int i = 0; i < reservations.size(); i++) {
+      byItem.computeIfAbsent(reservations.get(i).getItemId(), k -> new ArrayList<>()).add(i);
+    }
+    boolean[] stored =
+        executeWithDeadlockRetry(
+            status -> {
+              boolean[] granted = new boolean[reservations.size()];
+              List<Object[]> insertArgs = new ArrayList<>();
+              for (Map.Entry<UUID, List<Integer>> item : byItem.entrySet()) {
+                Object itemId = uuidCodec.bind(item.getKey());
+                List<Integer> quantities =
+                    jdbcTemplate.queryForList(lockSql, Integer.class, itemId);
+                int available = quantities.isEmpty() ? 0 : quantities.get(0);
+                int taken = 0;
+                for (int index : item.getValue()) {
+                  int quantity = reservations.get(index).getQuantity();
+                  if (quantity <= available - taken) {
+                    taken += quantity;
+                    granted[index] = true;
+                    insertArgs.add(insertArgs(reservations.get(index)));
+                  }
+                }
+                if (taken > 0) {
+                  jdbcTemplate.update(takeTotalSql, taken, taken, itemId);
+                }
+              }
+              jdbcTemplate.batchUpdate(INSERT_SQL, insertArgs);
+              return granted;
+            });
+    int inserted = 0;
+    for (Map.Entry<UUID, List<Integer>> item : byItem.entrySet()) {
+      itemCache.invalidate(item.getKey().toString());
+      for (int index : item.getValue()) {
+        inserted += stored[index] ? 1 : 0;
+      }
+    }
+    System.out.println(inserted + " reservation row/s inserted.");
+    return stored;
+  }
+
+  /** Runs a transaction, running it again if it loses a deadlock, a bounded number of times. */
+  private <T> T executeWithDeadlockRetry(TransactionCallback<T> action) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(action);
+      } catch (PessimisticLockingFailureException e) {
+        if (attempt >= MAX_DEADLOCK_ATTEMPTS) {
+          throw e;
+        }
+        System.out.println("Reservation transaction lost a deadlock, retrying: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Moves a quantity of an item into an in-memory allowance, only if enough is left. The quantity
+   * is counted as reserved until holds are stored against it or it is given back, and is recorded
+   * in the allowance's lease row in the same transaction, so it is given back by {@link
+   * #returnLapsedCounterLeases} if the owner stops without doing so.
+   *
+   * @param leaseId Unique identifier for the allowance's lease.
+   * @param itemId Unique identifier for the item.
+   * @param quantity The quantity to allocate.
+   * @param leaseTimeToLive How long the lease lasts unless renewed.
+   * @return true if the quantity was allocated, false if the item does not exist or does not have
+   *     enough quantity left
+   */
+  public boolean allocateQuantity(
+      String leaseId, UUID itemId, int quantity, Duration leaseTimeToLive) {
+    Boolean allocated =
+        transactionTemplate.execute(
+            status -> {
+              if (jdbcTemplate.update(
+                      TAKE_SQL, quantity, quantity, uuidCodec.bind(itemId), quantity)
+                  == 0) {
+                return false;
+              }
+              if (jdbcTemplate.update(
+                      "update Counter_Leases set quantity = quantity + ?, "
+                          + "expires_at = timestampadd(SECOND, ?, now()) where lease_id = ?",
+                      quantity,
+                      leaseTimeToLive.toSeconds(),
+                      leaseId)
+                  == 0) {
+                jdbcTemplate.update(
+                    "insert into Counter_Leases (lease_id, item_id, quantity, expires_at) "
+                        + "values (?, ?, ?, timestampadd(SECOND, ?, now()))",
+                    leaseId,
+                    uuidCodec.bind(itemId),
+                    quantity,
+                    leaseTimeToLive.toSeconds());
+              }
+              return true;
+            });
+    itemCache.invalidate(itemId.toString());
+    return Boolean.TRUE.equals(allocated);
+  }
+
+  /**
+   * Stores a hold whose quantity was already taken from the item by {@link #allocateQuantity}, so
+   * the item's row is not touched. The quantity is taken off the allowance's lease in the same
+   * transaction.
+   *
+   * @param reservation the hold to store
+   * @param leaseId Unique identifier for the allowance's lease.
+   * @return true if the hold was stored, false if the lease no longer holds the quantity because it
+   *     was given back
+   */
+  public boolean insertAllocatedReservation(Reservation reservation, String leaseId) {
+    int quantity = reservation.getQuantity();
+    Boolean stored =
+        transactionTemplate.execute(
+            status -> {
+              if (jdbcTemplate.update(
+                      "update Counter_Leases set quantity = quantity - ? "
+                          + "where lease_id = ? and quantity >= ?",
+                      quantity,
+                      leaseId,
+                      quantity)
+                  == 0) {
+                return false;
+              }
+              jdbcTemplate.update(INSERT_SQL, insertArgs(reservation));
+              return true;
+            });
+    System.out.println((Boolean.TRUE.equals(stored) ? 1 : 0) + " reservation row/s inserted.");
+    return Boolean.TRUE.equals(stored);
+  }
+
+  /**
+   * Gives the quantity of an allowance's lease back to the item's stock and renews the lease.
+   *
+   * @param leaseId Unique identifier for the allowance's lease.
+   * @param itemId Unique identifier for the item.
+   * @param leaseTimeToLive How long the lease lasts unless renewed again.
+   * @return the quantity given back
+   */
+  public int renewCounterLease(String leaseId, UUID itemId, Duration leaseTimeToLive) {
+    return returnCounterLease(
+        leaseId,
+        itemId,
+        "update Counter_Leases set quantity = 0, expires_at = timestampadd(SECOND, ?, now()) "
+            + "where lease_id = ?",
+        leaseTimeToLive.toSeconds(),
+        leaseId);
+  }
+
+  /**
+   * Gives the quantity of an allowance's lease back to the item's stock and deletes the lease.
+   *
+   * @param leaseId Unique identifier for the allowance's lease.
+   * @param itemId Unique identifier for the item.
+   * @return the quantity given back
+   */
+  public int closeCounterLease(String leaseId, UUID itemId) {
+    return returnCounterLease(
+        leaseId, itemId, "delete from Counter_Leases where lease_id = ?", leaseId);
+  }
+
+  /**
+   * Gives the quantity of every lapsed allowance lease back to its item and deletes the leases, in
+   * one transaction. Leases lapse when their owner stopped without giving their quantity back.
+   *
+   * @return the quantity given back
+   */
+  public int returnLapsedCounterLeases() {
+    String selectSql =
+        "select lease_id, item_id, quantity from Counter_Leases "
+            + "where expires_at < now() for update skip locked";
+    Map<UUID, Integer> released =
+        transactionTemplate.execute(
+            status -> {
+              // One update per item, in key order so concurrent sweeps lock items alike
+              Map<UUID, Integer> quantities = new TreeMap<>();
+              List<Object> leaseIds = new ArrayList<>();
+              jdbcTemplate.query(
+                  selectSql,
+                  (RowCallbackHandler)
+                      rs -> {
+                        leaseIds.add(rs.getString("lease_id"));
+                        quantities.merge(
+                            uuidCodec.read(rs, "item_id"), rs.getInt("quantity"), Integer::sum);
+                      });
+              if (leaseIds.isEmpty()) {
+                return quantities;
+              }
+              jdbcTemplate.update(
+                  "delete from Counter_Leases where lease_id in ("
+                      + placeholders(leaseIds.size())
+                      + ")",
+                  leaseIds.toArray());
+              List<Object[]> releaseArgs = new ArrayList<>();
+              quantities.forEach(
+                  (itemId, quantity) ->
+                      releaseArgs.add(
+                          new Object[] {quantity, quantity, quantity, uuidCodec.bind(itemId)}));
+              jdbcTemplate.batchUpdate(RELEASE_SQL, releaseArgs);
+              return quantities;
+            });
+    int returned = 0;
+    for (Map.Entry<UUID, Integer> entry : released.entrySet()) {
+      itemCache.invalidate(entry.getKey().toString());
+      returned += entry.getValue();
+    }
+    return returned;
+  }
+
+  /** Gives the quantity of a lease back to its item, then renews or deletes the lease. */
+  private int returnCounterLease(String leaseId, UUID itemId, String finishSql, Object... args) {
+    Integer returned =
+        transactionTemplate.execute(
+            status -> {
+              List<Integer> quantities =
+                  jdbcTemplate.queryForList(
+                      "select quantity from Counter_Leases where lease_id = ? for update",
+                      Integer.class,
+                      leaseId);
+              if (quantities.isEmpty()) {
+                return 0;
+              }
+              int quantity = quantities.get(0);
+              if (quantity > 0) {
+                jdbcTemplate.update(
+                    RELEASE_SQL, quantity, quantity, quantity, uuidCodec.bind(itemId));
+              }
+              jdbcTemplate.update(finishSql, args);
+              return quantity;
+            });
+    itemCache.invalidate(itemId.toString());
+    return returned == null ? 0 : returned;
+  }
+
+  /**
+   * Gets a hold by its id.
+   *
+   * @param reservationId Unique identifier for the hold within the DB.
+   * @return the hold, or null if it does not exist
+   */
+  public Reservation getReservation(String reservationId) {
+    String sql = "select " + RESERVATION_COLUMNS + " from Reservations where reservation_id = ?";
+    List<Reservation> reservations =
+        jdbcTemplate.query(sql, getRowMapper(), uuidCodec.bind(reservationId));
+    return reservations.isEmpty() ? null : reservations.get(0);
+  }
+
+  /**
+   * Gets the holds with the given ids that are stored in the given expiry partitions, in one query.
+   *
+   * @param reservationIds Unique identifiers for the holds within the DB.
+   * @param partitions The expiry partitions.
+   * @return the holds found, in no particular order
+   */
+  public List<Reservation> getReservations(
+      Collection<String> reservationIds, Collection<Integer> partitions) {
+    if (reservationIds.isEmpty() || partitions.isEmpty()) {
+      return List.of();
+    }
+    String sql =
+        "select "
+            + RESERVATION_COLUMNS
+            + " from Reservations where reservation_id in ("
+            + placeholders(reservationIds.size())
+            + ") and expiry_partition in ("
+            + placeholders(partitions.size())
+            + ")";
+    List<Object> args = bindAll(reservationIds);
+    args.addAll(partitions);
+    return jdbcTemplate.query(sql, getRowMapper(), args.toArray());
+  }
+
+  /**
+   * Gets the holds on an item, soonest to expire first.
+   *
+   * @param itemId Unique identifier for the item within the DB.
+   * @return the holds on the item
+   */
+  public List<Reservation> getReservationsByItemId(String itemId) {
+    String sql =
+        "select "
+            + RESERVATION_COLUMNS
+            + " from Reservations where item_id = ? order by expires_at";
+    return jdbcTemplate.query(sql, getRowMapper(), uuidCodec.bind(itemId));
+  }
+
+  /**
+   * Moves the expiry of a hold, as long as it has not changed since it was read.
+   *
+   * @param reservationId Unique identifier for the hold within the DB.
+   * @param currentExpiresAt The expiry the hold was read with.
+   * @param newExpiresAt The new expiry.
+   * @return Return true or false whether the update was done.
+   */
+  public boolean updateExpiresAt(
+      String reservationId, LocalDateTime currentExpiresAt, LocalDateTime newExpiresAt) {
+    String sql =
+        "update Reservations set expires_at = ? where reservation_id = ? and expires_at = ?";
+    int rows =
+        jdbcTemplate.update(sql, newExpiresAt, uuidCodec.bind(reservationId), currentExpiresAt);
+    System.out.println(rows + " row/s updated.");
+    return rows == 1;
+  }
+
+  /**
+   * Gets the holds of the given expiry partitions that have not expired yet, with one range scan of
+   * the expiry index per partition.
+   *
+   * @param partitions The expiry partitions.
+   * @param now The current time.
+   * @return the pending holds
+   */
+  public List<Reservation> getPendingReservations(
+      Collection<Integer> partitions, LocalDateTime now) {
+    if (partitions.isEmpty()) {
+      return List.of();
+    }
+    String sql =
+        "select "
+            + RESERVATION_COLUMNS
+            + " from Reservations where expiry_partition in ("
+            + placeholders(partitions.size())
+            + ") and expires_at > ?";
+    List<Object> args = new ArrayList<>(partitions);
+    args.add(now);
+    return jdbcTemplate.query(sql, getRowMapper(), args.toArray());
+  }
+
+  /**
+   * Deletes a hold and returns its quantity to the item. Concurrent deletes of the same hold are
+   * serialized by the row lock, so the quantity is returned once.
+   *
+   * @param reservationId Unique identifier for the hold within the DB.
+   * @return the deleted hold, or null if it does not exist
+   */
+  public Reservation deleteReservation(String reservationId) {
+    String selectSql =
+        "select " + RESERVATION_COLUMNS + " from Reservations where reservation_id = ? for update";
+    Reservation deleted =
+        transactionTemplate.execute(
+            status -> {
+              List<Reservation> reservations =
+                  jdbcTemplate.query(selectSql, getRowMapper(), uuidCodec.bind(reservationId));
+              if (reservations.isEmpty()) {
+                return null;
+              }
+              Reservation reservation = reservations.get(0);
+              int quantity = reservation.getQuantity();
+              jdbcTemplate.update(
+                  "delete from Reservations where reservation_id = ?",
+                  uuidCodec.bind(reservationId));
+              jdbcTemplate.update(
+                  RELEASE_SQL,
+                  quantity,
+                  quantity,
+                  quantity,
+                  uuidCodec.bind(reservation.getItemId()));
+              return reservation;
+            });
+    if (deleted != null) {
+      itemCache.invalidate(deleted.getItemId().toString());
+    }
+    System.out.println((deleted == null ? 0 : 1) + " reservation row/s deleted.");
+    return deleted;
+  }
+
+  /**
+   * Deletes those of the given holds that have expired and are stored in the given expiry
+   * partitions, and returns their quantity to their items in one transaction. Holds extended since
+   * they were found to be due are kept, as are holds locked by a concurrent sweep or cancellation,
+   * which are skipped instead of waited on.
+   *
+   * @param reservationIds Unique identifiers for the holds within the DB.
+   * @param partitions The expiry partitions.
+   * @param now The current time.
+   * @return the deleted holds
+   */
+  public List<Reservation> deleteReservationsIfExpired(
+      Collection<String> reservationIds, Collection<Integer> partitions, LocalDateTime now) {
+    if (reservationIds.isEmpty() || partitions.isEmpty()) {
+      return List.of();
+    }
+    String selectSql =
+        "select "
+            + RESERVATION_COLUMNS
+            + " from Reservations where reservation_id in ("
+            + placeholders(reservationIds.size())
+            + ") and expiry_partition in ("
+            + placeholders(partitions.size())
+            + ") and expires_at <= ? for update skip locked";
+    List<Object> args = bindAll(reservationIds);
+    args.addAll(partitions);
+    args.add(now);
+    return deleteAndRelease(selectSql, args.toArray());
+  }
+
+  /**
+   * Deletes up to a batch of expired holds of one expiry partition and returns their quantity to
+   * their items in one transaction. The holds are found through the expiry index and locked with
+   * SKIP LOCKED, so concurrent sweeps and cancellations of the same holds never wait on each other.
+   *
+   * @param partition The expiry partition to sweep.
+   * @param now The current time.
+   * @param batchSize Most holds to delete.
+   * @return the deleted holds
+   */
+  public List<Reservation> deleteExpiredReservations(
+      int partition, LocalDateTime now, int batchSize) {
+    String selectSql =
+        "select "
+            + RESERVATION_COLUMNS
+            + " from Reservations where expiry_partition = ? and expires_at <= ? "
+            + "order by expires_at limit ? for update skip locked";
+    return deleteAndRelease(selectSql, partition, now, batchSize);
+  }
+
+  /**
+   * Locks the holds the select finds, deletes them and returns their quantity to their items in one
+   * transaction.
+   */
+  private List<Reservation> deleteAndRelease(String selectSql, Object... args) {
+    List<Reservation> deleted =
+        transactionTemplate.execute(
+            status -> {
+              List<Reservation> reservations = jdbcTemplate.query(selectSql, getRowMapper(), args);
+              if (reservations.isEmpty()) {
+                return reservations;
+              }
+              // One update per item, in key order so concurrent sweeps lock items alike
+              Map<UUID, Integer> released = new TreeMap<>();
+              List<Object> reservationIds = new ArrayList<>();
+              for (Reservation reservation : reservations) {
+                released.merge(reservation.getItemId(), reservation.getQuantity(), Integer::sum);
+                reservationIds.add(uuidCodec.bind(reservation.getReservationId()));
+              }
+              jdbcTemplate.update(
+                  "delete from Reservations where reservation_id in ("
+                      + placeholders(reservationIds.size())
+                      + ")",
+                  reservationIds.toArray());
+              List<Object[]> releaseArgs = new ArrayList<>();
+              released.forEach(
+                  (itemId, quantity) ->
+                      releaseArgs.add(
+                          new Object[] {quantity, quantity, quantity, uuidCodec.bind(itemId)}));
+              jdbcTemplate.batchUpdate(RELEASE_SQL, releaseArgs);
+              return reservations;
+            });
+    for (Reservation reservation : deleted) {
+      itemCache.invalidate(reservation.getItemId().toString());
+    }
+    return deleted;
+  }
+
+  /** Takes a hold's quantity from its item, if the item has enough left. */
+  private boolean takeQuantity(Reservation reservation) {
+    int quantity = reservation.getQuantity();
+    return jdbcTemplate.update(
+            TAKE_SQL, quantity, quantity, uuidCodec.bind(reservation.getItemId()), quantity)
+        == 1;
+  }
+
+  private Object[] insertArgs(Reservation reservation) {
+    return new Object[] {
+      uuidCodec.bind(reservation.getReservationId()),
+      uuidCodec.bind(reservation.getItemId()),
+      reservation.getUserId() == null ? null : uuidCodec.bind(reservation.getUserId()),
+      reservation.getQuantity(),
+      reservation.getReservedAt(),
+      reservation.getExpiresAt(),
+      expiryPartition(reservation.getReservationId())
+    };
+  }
+
+  private List<Object> bindAll(Collection<String> reservationIds) {
+    List<Object> args = new ArrayList<>(reservationIds.size() + EXPIRY_PARTITIONS + 1);
+    for (String reservationId : reservationIds) {
+      args.add(uuidCodec.bind(reservationId));
+    }
+    return args;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  /**
+   * Gets the expiry partition a hold belongs to.
+   *
+   * @param reservationId Unique identifier for the hold.
+   * @return the expiry partition, from 0 to {@link #EXPIRY_PARTITIONS} - 1
+   */
+  public static int expiryPartition(UUID reservationId) {
+    return Math.floorMod(reservationId.hashCode(), EXPIRY_PARTITIONS);
+  }
+
+  /**
+   * Maps the current row, selected with {@link #RESERVATION_COLUMNS}, to a hold.
+   *
+   * @param rs the result set positioned on the row
+   * @param uuidCodec the codec matching how the DB stores keys
+   * @return the hold
+   * @throws SQLException if a column cannot be read
+   */
+  public static Reservation getReservationFromTable(ResultSet rs, UuidCodec uuidCodec)
+      throws SQLException {
+    return Reservation.builder()
+        .reservationId(uuidCodec.read(rs, RESERVATION_ID_INDEX))
+        .itemId(uuidCodec.read(rs, ITEM_ID_INDEX))
+        .userId(uuidCodec.read(rs, USER_ID_INDEX))
+        .quantity(rs.getInt(QUANTITY_INDEX))
+        .reservedAt(rs.getObject(RESERVED_AT_INDEX, LocalDateTime.class))
+        .expiresAt(rs.getObject(EXPIRES_AT_INDEX, LocalDateTime.class))
+        .build();
+  }
+
+  private RowMapper<Reservation> getRowMapper() {
+    return (rs, rowNum) -> getReservationFromTable(rs, uuidCodec);
+  }
+}
@@ -5,6 +5,8 @@ import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import service.cache.UserInventoryCache;
+import service.util.UuidCodec;
 
 /**
  * This class handles the translation from java objects to SQL queries into the local MySQL database
@@ -17,15 +19,58 @@ public class UserInventoryJunctionTableHelper {
 
   @Autowired private JdbcTemplate jdbcTemplate;
 
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  private UserInventoryCache userInventoryCache = UserInventoryCache.disabled();
+
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
   /**
-   * Gets inventory ids by user id.
+   * Sets the cache the inventory ids of users are read through.
+   *
+   * @param userInventoryCache the user inventory cache
+   */
+  @Autowired
+  public void setUserInventoryCache(UserInventoryCache userInventoryCache) {
+    this.userInventoryCache = userInventoryCache;
+  }
+
+  /**
+   * Gets inventory ids by user id, through the user inventory cache.
    *
    * @param userId the user id
    * @return inventory ids by user id
    */
   public List<String> getInventoryIdsByUserId(String userId) {
-    String sql = "select * from User_Inventories where user_id = " + "'" + userId + "'";
-    return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("inventory_id"));
+    String sql = "select inventory_id from User_Inventories where user_id = ?";
+    return userInventoryCache.get(
+        userId,
+        key ->
+            jdbcTemplate.query(
+                sql, (rs, rowNum) -> uuidCodec.readText(rs, "inventory_id"), uuidCodec.bind(key)));
+  }
+
+  /**
+   * Gets the ids of a user's default inventories, the ones the delete_default_inventory trigger
+   * deletes along with the user.
+   *
+   * @param userId the user id
+   * @return the default inventory ids of the user
+   */
+  public List<String> getDefaultInventoryIdsByUserId(String userId) {
+    String sql =
+        "select inventory_id from User_Inventories where user_id = ?"
+            + " and inventory_name = concat(username, '''s Default Inventory')";
+    return jdbcTemplate.query(
+        sql, (rs, rowNum) -> uuidCodec.readText(rs, "inventory_id"), uuidCodec.bind(userId));
   }
 
   /**
@@ -35,8 +80,9 @@ public class UserInventoryJunctionTableHelper {
    * @return the user ids by inventory id
    */
   public List<String> getUserIdsByInventoryId(String inventoryId) {
-    String sql = "select * from User_Inventories where inventory_id = " + "'" + inventoryId + "'";
-    return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("user_id"));
+    String sql = "select user_id from User_Inventories where inventory_id = ?";
+    return jdbcTemplate.query(
+        sql, (rs, rowNum) -> uuidCodec.readText(rs, "user_id"), uuidCodec.bind(inventoryId));
   }
 
   /**
@@ -53,7 +99,10 @@ public class UserInventoryJunctionTableHelper {
     String sql =
         "insert into User_Inventories (user_id, username, inventory_id, inventory_name)"
             + " values (?,?,?,?)";
-    int rows = jdbcTemplate.update(sql, userId, username, inventoryId, inventoryName);
+    int rows =
+        jdbcTemplate.update(
+            sql, uuidCodec.bind(userId), username, uuidCodec.bind(inventoryId), inventoryName);
+    userInventoryCache.invalidate(userId);
     System.out.println(rows + "row/s inserted.");
     return rows == 1;
   }
@@ -67,7 +116,8 @@ public class UserInventoryJunctionTableHelper {
    */
   public boolean removeUserInventoryAccess(String userId, String inventoryId) {
     String sql = "delete from User_Inventories where user_id = ? and inventory_id = ?";
-    int rows = jdbcTemplate.update(sql, userId, inventoryId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(userId), uuidCodec.bind(inventoryId));
+    userInventoryCache.invalidate(userId);
     System.out.println(rows + "row/s deleted.");
     return rows == 1;
   }
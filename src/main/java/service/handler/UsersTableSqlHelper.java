@@ -1,17 +1,19 @@
 package service.handler;
 
-import static service.util.DateTimeUtils.FORMATTER;
-
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.TreeMap;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import service.cache.ItemCache;
 import service.models.User;
 import service.util.UserRoles;
+import service.util.UuidCodec;
 
 /**
  * This class handles the translation from java objects to SQL queries into the local MySQL database
@@ -22,8 +24,21 @@ import service.util.UserRoles;
 @Repository
 public class UsersTableSqlHelper {
 
+  /** Select list read by the row mapper, which reads the columns by position. */
+  public static final String USER_COLUMNS = "user_id, username, password, role, last_access";
+
+  private static final int USER_ID_INDEX = 1;
+  private static final int USERNAME_INDEX = 2;
+  private static final int PASSWORD_INDEX = 3;
+  private static final int ROLE_INDEX = 4;
+  private static final int LAST_ACCESS_INDEX = 5;
+
   private JdbcTemplate jdbcTemplate;
 
+  private UuidCodec uuidCodec = UuidCodec.CHAR;
+
+  private ItemCache itemCache = ItemCache.disabled();
+
   /**
    * This method allows for Spring Boot to auto-manage the beans needed to connect to the SQL DB.
    *
@@ -34,6 +49,26 @@ public class UsersTableSqlHelper {
     this.jdbcTemplate = jdbcTemplate;
   }
 
+  /**
+   * Sets the codec used to read and bind the UUID key columns.
+   *
+   * @param uuidCodec the codec matching how the DB stores keys
+   */
+  @Autowired
+  public void setUuidCodec(UuidCodec uuidCodec) {
+    this.uuidCodec = uuidCodec;
+  }
+
+  /**
+   * Sets the item cache, which user deletes invalidate.
+   *
+   * @param itemCache the item cache
+   */
+  @Autowired
+  public void setItemCache(ItemCache itemCache) {
+    this.itemCache = itemCache;
+  }
+
   /**
    * This is a test insert class for providing an insight into what it looks like to insert users
    * into the DB.
@@ -48,7 +83,7 @@ public class UsersTableSqlHelper {
     int rows =
         jdbcTemplate.update(
             sql,
-            user.getUserId().toString(),
+            uuidCodec.bind(user.getUserId()),
             user.getUsername(),
             user.getPassword(),
             user.getRole().toString(),
@@ -64,7 +99,7 @@ public class UsersTableSqlHelper {
    * @return the all users
    */
   public List<User> getAllUsers() {
-    String sql = "select * from Users";
+    String sql = "select " + USER_COLUMNS + " from Users";
     return jdbcTemplate.query(sql, getRowMapper());
   }
 
@@ -76,8 +111,8 @@ public class UsersTableSqlHelper {
    * @return the user with user id
    */
   public User getUserWithUserId(String userId) {
-    String sql = "select * from Users where user_id = " + "'" + userId + "'";
-    List<User> results = jdbcTemplate.query(sql, getRowMapper());
+    String sql = "select " + USER_COLUMNS + " from Users where user_id = ?";
+    List<User> results = jdbcTemplate.query(sql, getRowMapper(), uuidCodec.bind(userId));
     if (results.isEmpty()) {
       return null;
     } else if (results.size() > 1) {
@@ -95,8 +130,8 @@ public class UsersTableSqlHelper {
    * @return the user with username
    */
   public User getUserWithUsername(String username) {
-    String sql = "select * from Users where username = " + "'" + username + "'";
-    List<User> results = jdbcTemplate.query(sql, getRowMapper());
+    String sql = "select " + USER_COLUMNS + " from Users where username = ?";
+    List<User> results = jdbcTemplate.query(sql, getRowMapper(), username);
     if (results.isEmpty()) {
       return null;
     } else if (results.size() > 1) {
@@ -116,7 +151,7 @@ public class UsersTableSqlHelper {
    */
   public boolean updateUsername(String userId, String username) {
     String sql = "update Users set username = ? where user_id = ?";
-    int rows = jdbcTemplate.update(sql, username, userId);
+    int rows = jdbcTemplate.update(sql, username, uuidCodec.bind(userId));
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -131,7 +166,7 @@ public class UsersTableSqlHelper {
    */
   public boolean updateRole(String userId, String userRole) {
     String sql = "update Users set role = ? where user_id = ?";
-    int rows = jdbcTemplate.update(sql, userRole, userId);
+    int rows = jdbcTemplate.update(sql, userRole, uuidCodec.bind(userId));
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
@@ -146,11 +181,35 @@ public class UsersTableSqlHelper {
    */
   public boolean updateLastAccess(String userId, LocalDateTime lastAccess) {
     String sql = "update Users set last_access = ? where user_id = ?";
-    int rows = jdbcTemplate.update(sql, lastAccess, userId);
+    int rows = jdbcTemplate.update(sql, lastAccess, uuidCodec.bind(userId));
     System.out.println(rows + " row/s updated");
     return rows == 1;
   }
 
+  /**
+   * Sets the last access of many users in one batch. A user's last access is only ever moved
+   * forward, so batches written late or by several instances cannot undo a newer access.
+   *
+   * @param lastAccesses the latest access of each user, by user id
+   * @return the number of users whose last access moved forward
+   */
+  public int updateLastAccesses(Map<String, LocalDateTime> lastAccesses) {
+    String sql =
+        "update Users set last_access = ? "
+            + "where user_id = ? and (last_access is null or last_access < ?)";
+    List<Object[]> args = new ArrayList<>();
+    // Users in key order, so batches from different instances lock rows alike
+    for (Map.Entry<String, LocalDateTime> entry : new TreeMap<>(lastAccesses).entrySet()) {
+      args.add(new Object[] {entry.getValue(), uuidCodec.bind(entry.getKey()), entry.getValue()});
+    }
+    int rows = 0;
+    for (int updated : jdbcTemplate.batchUpdate(sql, args)) {
+      rows += Math.max(updated, 0);
+    }
+    System.out.println(rows + " row/s updated");
+    return rows;
+  }
+
   /**
    * This method will simply delete user from the table.
    *
@@ -159,7 +218,9 @@ public class UsersTableSqlHelper {
    */
   public boolean delete(String userId) {
     String sql = "delete from Users where user_id = ?";
-    int rows = jdbcTemplate.update(sql, userId);
+    int rows = jdbcTemplate.update(sql, uuidCodec.bind(userId));
+    // The delete_default_inventory trigger deletes the user's default inventory and its items
+    itemCache.invalidateAll();
     System.out.println(rows + " row/s deleted");
     return rows == 1;
   }
@@ -167,11 +228,11 @@ public class UsersTableSqlHelper {
   private RowMapper<User> getRowMapper() {
     return (rs, rowNum) ->
         User.builder()
-            .userId(UUID.fromString(rs.getString("user_id")))
-            .username(rs.getString("username"))
-            .password(rs.getString("password"))
-            .role(UserRoles.valueOf(rs.getString("role")))
-            .lastAccess(LocalDateTime.parse(rs.getString("last_access"), FORMATTER))
+            .userId(uuidCodec.read(rs, USER_ID_INDEX))
+            .username(rs.getString(USERNAME_INDEX))
+            .password(rs.getString(PASSWORD_INDEX))
+            .role(UserRoles.valueOf(rs.getString(ROLE_INDEX)))
+            .lastAccess(rs.getObject(LAST_ACCESS_INDEX, LocalDateTime.class))
             .build();
   }
 }
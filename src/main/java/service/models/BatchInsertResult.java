@@ -0,0 +1,62 @@
+package service.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Represents the outcome of a bulk insert, including every row that could not be stored. */
+@Getter
+public class BatchInsertResult {
+
+  private final int requested;
+
+  private int inserted;
+
+  private final List<RowFailure> failures = new ArrayList<>();
+
+  /**
+   * Creates an empty result for a bulk insert of the given size.
+   *
+   * @param requested the number of rows submitted in the bulk insert
+   */
+  public BatchInsertResult(int requested) {
+    this.requested = requested;
+  }
+
+  /**
+   * Records that a number of rows were stored successfully.
+   *
+   * @param count the number of rows stored
+   */
+  public void addInserted(int count) {
+    inserted += count;
+  }
+
+  /**
+   * Records a row that could not be stored.
+   *
+   * @param index position of the row within the submitted list
+   * @param reason description of why the row was rejected
+   */
+  public void addFailure(int index, String reason) {
+    failures.add(new RowFailure(index, reason));
+  }
+
+  /**
+   * Whether every submitted row was stored.
+   *
+   * @return true if there were no failures
+   */
+  public boolean isComplete() {
+    return failures.isEmpty() && inserted == requested;
+  }
+
+  /** A single row that was rejected during a bulk insert. */
+  @Getter
+  @AllArgsConstructor
+  public static class RowFailure {
+    private final int index;
+    private final String reason;
+  }
+}
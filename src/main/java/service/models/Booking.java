@@ -0,0 +1,23 @@
+package service.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+/** Represents one booking of an Item for a time window. Bookings of an item never overlap. */
+@Getter
+@Builder(toBuilder = true)
+public class Booking {
+
+  @NonNull private UUID bookingId;
+
+  @NonNull private UUID itemId;
+
+  private UUID userId;
+
+  @NonNull private LocalDateTime startsAt;
+
+  @NonNull private LocalDateTime endsAt;
+}
@@ -0,0 +1,56 @@
+package service.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Represents the outcome of reserving a cart. Either every item of the cart is held, or none is and
+ * every item that could not be held is listed.
+ */
+@Getter
+public class CartReservationResult {
+
+  private final int requested;
+
+  private final List<Reservation> reservations = new ArrayList<>();
+
+  private final List<BatchInsertResult.RowFailure> failures = new ArrayList<>();
+
+  /**
+   * Creates an empty result for a cart of the given size.
+   *
+   * @param requested the number of items in the cart
+   */
+  public CartReservationResult(int requested) {
+    this.requested = requested;
+  }
+
+  /**
+   * Records the holds placed for the cart, in cart order.
+   *
+   * @param placed the holds placed
+   */
+  public void addReservations(List<Reservation> placed) {
+    reservations.addAll(placed);
+  }
+
+  /**
+   * Records an item of the cart that could not be held.
+   *
+   * @param index position of the item within the cart
+   * @param reason description of why the item could not be held
+   */
+  public void addFailure(int index, String reason) {
+    failures.add(new BatchInsertResult.RowFailure(index, reason));
+  }
+
+  /**
+   * Whether every item of the cart is held.
+   *
+   * @return true if there were no failures
+   */
+  public boolean isReserved() {
+    return failures.isEmpty() && reservations.size() == requested;
+  }
+}
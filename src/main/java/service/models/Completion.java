@@ -0,0 +1,35 @@
+package service.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** An item or inventory name completing what a user typed, with the values it is ranked by. */
+@Getter
+@AllArgsConstructor
+public class Completion {
+
+  /** Type of a completion naming an item. */
+  public static final String ITEM = "item";
+
+  /** Type of a completion naming an inventory. */
+  public static final String INVENTORY = "inventory";
+
+  /** Whether the name is an item's or an inventory's. */
+  private final String type;
+
+  /** Id of the item or inventory named. */
+  private final UUID id;
+
+  /** The inventory the item belongs to, or the inventory itself. */
+  private final UUID inventoryId;
+
+  private final String name;
+
+  /** Units of the item, or of all items of the inventory. */
+  private final long quantity;
+
+  /** When the item was added, or when an item was last added to the inventory. May be null. */
+  private final LocalDateTime addedAt;
+}
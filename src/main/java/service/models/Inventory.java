@@ -2,12 +2,18 @@ package service.models;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 
-/** Represents an inventory that holds a collection of items. */
+/**
+ * Represents an inventory that holds a collection of items. Inventories read from the DB carry a
+ * loader instead of their items, so the items are only read the first time {@link #getItems()} is
+ * called.
+ */
 @Getter
 @Builder
 public class Inventory {
@@ -18,6 +24,23 @@ public class Inventory {
 
   private Map<UUID, Item> items;
 
+  /** Reads the items on first use, or null if the items are set up front. */
+  @Getter(AccessLevel.NONE)
+  private Supplier<Map<UUID, Item>> itemsLoader;
+
+  /**
+   * Returns the items of the inventory, reading them through the loader the first time.
+   *
+   * @return the items by item id, or null if the inventory has neither items nor a loader
+   */
+  public synchronized Map<UUID, Item> getItems() {
+    if (items == null && itemsLoader != null) {
+      items = itemsLoader.get();
+      itemsLoader = null;
+    }
+    return items;
+  }
+
   /**
    * Returns a string representation of the inventory.
    *
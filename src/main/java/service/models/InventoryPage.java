@@ -0,0 +1,15 @@
+package service.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** An inventory holding one page of its items, plus the cursor that fetches the next page. */
+@Getter
+@AllArgsConstructor
+public class InventoryPage {
+
+  private final Inventory inventory;
+
+  /** Item id to pass as the next page's cursor, or null when this is the last page. */
+  private final String nextCursor;
+}
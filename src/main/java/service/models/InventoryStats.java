@@ -0,0 +1,27 @@
+package service.models;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+/** Totals of the items of an inventory, as kept in the Inventory_Stats table. */
+@Getter
+@Builder
+public class InventoryStats {
+
+  @NonNull private UUID inventoryId;
+
+  /** Number of distinct items. */
+  private long itemCount;
+
+  /** Units held, both available and reserved. */
+  private long totalUnits;
+
+  /** Units held by reservations. */
+  private long reservedUnits;
+
+  /** Price of every unit held. */
+  @NonNull private BigDecimal stockValue;
+}
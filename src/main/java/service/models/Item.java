@@ -10,7 +10,7 @@ import lombok.Setter;
 /** Represents an Item in the Reservation/Management Service. */
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 public class Item {
 
   @NonNull private UUID itemId;
@@ -25,6 +25,8 @@ public class Item {
 
   private int quantity;
 
+  private int reservedQuantity;
+
   private boolean reservationStatus;
   private long reservationDurationInMillis;
   private LocalDateTime reservationTime;
@@ -44,6 +46,7 @@ public class Item {
     sb.append("Name: ").append(itemName).append("\n");
     sb.append("Location: ").append(location).append("\n");
     sb.append("Quantity: ").append(quantity).append("\n");
+    sb.append("Reserved Quantity: ").append(reservedQuantity).append("\n");
     sb.append("Price: $").append(price).append("\n");
     sb.append("Reservation Status: ")
         .append(reservationStatus ? "Reserved" : "Available")
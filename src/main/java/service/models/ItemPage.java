@@ -0,0 +1,16 @@
+package service.models;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** A page of items plus the cursor that fetches the page after it. */
+@Getter
+@AllArgsConstructor
+public class ItemPage {
+
+  private final List<Item> items;
+
+  /** Item id to pass as the next page's cursor, or null when this is the last page. */
+  private final String nextCursor;
+}
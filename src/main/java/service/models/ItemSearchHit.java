@@ -0,0 +1,20 @@
+package service.models;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** An item matching a search, with the score it was ranked by. */
+@Getter
+@AllArgsConstructor
+public class ItemSearchHit {
+
+  private final UUID itemId;
+
+  private final String itemName;
+
+  private final String location;
+
+  /** Relevance of the item to the query. Higher scores are listed first. */
+  private final double score;
+}
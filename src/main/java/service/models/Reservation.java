@@ -0,0 +1,27 @@
+package service.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+
+/** Represents one hold on a quantity of an Item until it expires. */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+public class Reservation {
+
+  @NonNull private UUID reservationId;
+
+  @NonNull private UUID itemId;
+
+  private UUID userId;
+
+  private int quantity;
+
+  @NonNull private LocalDateTime reservedAt;
+
+  @NonNull private LocalDateTime expiresAt;
+}
@@ -0,0 +1,15 @@
+package service.models;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** Represents a window of time, from its start, inclusive, to its end, exclusive. */
+@Getter
+@AllArgsConstructor
+public class TimeWindow {
+
+  private final LocalDateTime startsAt;
+
+  private final LocalDateTime endsAt;
+}
@@ -2,9 +2,11 @@ package service.models;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.UUID;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import service.util.UserRoles;
 
 /** Implementing class needed for the MyDetailsService methods. */
 public class UserPrincipal implements UserDetails {
@@ -47,6 +49,24 @@ public class UserPrincipal implements UserDetails {
     return user.getUsername();
   }
 
+  /**
+   * Grab the user id of the user object passed into the constructor.
+   *
+   * @return UUID representing the id of the user.
+   */
+  public UUID getUserId() {
+    return user.getUserId();
+  }
+
+  /**
+   * Grab the role of the user object passed into the constructor.
+   *
+   * @return UserRoles representing the role of the user.
+   */
+  public UserRoles getRole() {
+    return user.getRole();
+  }
+
   /**
    * Just return true that the user's account haven't expired.
    *
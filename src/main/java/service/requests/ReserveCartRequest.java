@@ -0,0 +1,26 @@
+package service.requests;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+
+/** Represents a cart of items to reserve together in the Reservation/Management Service. */
+@Getter
+@Builder
+@Jacksonized
+public class ReserveCartRequest {
+
+  private List<CartItem> items;
+
+  private long durationInMillis;
+
+  /** A quantity of one item in the cart. */
+  @Getter
+  @Builder
+  @Jacksonized
+  public static class CartItem {
+    private String itemId;
+    private int quantity;
+  }
+}
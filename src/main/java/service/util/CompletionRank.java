@@ -0,0 +1,9 @@
+package service.util;
+
+/** Orders name completions can be ranked in. */
+public enum CompletionRank {
+  /** Most units held first. */
+  QUANTITY,
+  /** Most recently added first. */
+  RECENCY
+}
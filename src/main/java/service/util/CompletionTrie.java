@@ -0,0 +1,230 @@
+package service.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trie from words to the entries holding them, answering top-k completions of a prefix. Every node
+ * keeps the best capacity entries of its subtree under each of the orders, so a completion walks
+ * the prefix and copies one list, however many entries share the prefix. An entry may be stored
+ * under several words and is listed once per node.
+ *
+ * <p>Adding an entry offers it to the lists along its word's path. Removing one rebuilds only the
+ * lists it was in, bottom up, from the node's own entries and the lists of its children. Not thread
+ * safe.
+ *
+ * @param <T> the type of the entries
+ */
+public class CompletionTrie<T> {
+
+  private final int capacity;
+
+  private final List<Comparator<? super T>> orders;
+
+  private final Node<T> root;
+
+  /**
+   * Creates an empty trie.
+   *
+   * @param capacity number of entries kept for each prefix and order
+   * @param orders the orders completions can be asked in, best entries first
+   */
+  public CompletionTrie(int capacity, List<Comparator<? super T>> orders) {
+    this.capacity = capacity;
+    this.orders = List.copyOf(orders);
+    this.root = new Node<>(orders.size());
+  }
+
+  /**
+   * Stores an entry under a word.
+   *
+   * @param word the word
+   * @param entry the entry
+   */
+  public void add(String word, T entry) {
+    List<Node<T>> path = new ArrayList<>(word.length() + 1);
+    Node<T> node = root;
+    path.add(node);
+    for (int i = 0; i < word.length(); i++) {
+      node = node.childOrCreate(word.charAt(i));
+      path.add(node);
+    }
+    if (node.entries == null) {
+      node.entries = new HashSet<>();
+    }
+    if (!node.entries.add(entry)) {
+      return;
+    }
+    for (Node<T> onPath : path) {
+      for (int order = 0; order < orders.size(); order++) {
+        offer(onPath.top[order], entry, orders.get(order));
+      }
+    }
+  }
+
+  /**
+   * Removes an entry stored under a word. Nodes left without entries below them are dropped.
+   *
+   * @param word the word
+   * @param entry the entry
+   */
+  public void remove(String word, T entry) {
+    List<Node<T>> path = new ArrayList<>(word.length() + 1);
+    Node<T> node = root;
+    path.add(node);
+    for (int i = 0; i < word.length() && node != null; i++) {
+      node = node.child(word.charAt(i));
+      path.add(node);
+    }
+    if (node == null || node.entries == null || !node.entries.remove(entry)) {
+      return;
+    }
+    for (int depth = path.size() - 1; depth >= 0; depth--) {
+      Node<T> onPath = path.get(depth);
+      if (depth > 0 && onPath.isEmpty()) {
+        path.get(depth - 1).removeChild(word.charAt(depth - 1));
+        continue;
+      }
+      for (int order = 0; order < orders.size(); order++) {
+        if (onPath.top[order].contains(entry)) {
+          rebuildTop(onPath, order);
+        }
+      }
+    }
+  }
+
+  /**
+   * Lists the best entries stored under words starting with a prefix.
+   *
+   * @param prefix the prefix, empty for every word
+   * @param order index of the order to rank by
+   * @param limit maximum number of entries, at most the capacity
+   * @return the best entries, best first
+   */
+  public List<T> complete(String prefix, int order, int limit) {
+    Node<T> node = find(prefix);
+    if (node == null) {
+      return List.of();
+    }
+    List<T> top = node.top[order];
+    return new ArrayList<>(top.subList(0, Math.min(limit, top.size())));
+  }
+
+  /**
+   * Gets the entries stored under exactly a word.
+   *
+   * @param word the word
+   * @return the entries, empty if there are none
+   */
+  public Set<T> entries(String word) {
+    Node<T> node = find(word);
+    return node == null || node.entries == null
+        ? Set.of()
+        : Collections.unmodifiableSet(node.entries);
+  }
+
+  private Node<T> find(String prefix) {
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.child(prefix.charAt(i));
+    }
+    return node;
+  }
+
+  private void offer(List<T> top, T entry, Comparator<? super T> order) {
+    if (top.contains(entry)) {
+      return;
+    }
+    if (top.size() == capacity && order.compare(entry, top.get(capacity - 1)) >= 0) {
+      return;
+    }
+    int at = Collections.binarySearch(top, entry, order);
+    top.add(at >= 0 ? at : -at - 1, entry);
+    if (top.size() > capacity) {
+      top.remove(capacity);
+    }
+  }
+
+  private void rebuildTop(Node<T> node, int order) {
+    List<T> top = node.top[order];
+    top.clear();
+    if (node.entries != null) {
+      for (T entry : node.entries) {
+        offer(top, entry, orders.get(order));
+      }
+    }
+    for (int i = 0; i < node.size; i++) {
+      for (T entry : node.children[i].top[order]) {
+        offer(top, entry, orders.get(order));
+      }
+    }
+  }
+
+  /** A prefix, with its children in label order and its best entries under each order. */
+  private static final class Node<T> {
+
+    private char[] labels = new char[0];
+
+    @SuppressWarnings("unchecked")
+    private Node<T>[] children = new Node[0];
+
+    private int size;
+
+    /** Entries stored under the word ending here, or null if no word ends here. */
+    private Set<T> entries;
+
+    private final List<T>[] top;
+
+    @SuppressWarnings("unchecked")
+    private Node(int orders) {
+      top = new List[orders];
+      for (int i = 0; i < orders; i++) {
+        top[i] = new ArrayList<>(1);
+      }
+    }
+
+    private Node<T> child(char label) {
+      int at = Arrays.binarySearch(labels, 0, size, label);
+      return at >= 0 ? children[at] : null;
+    }
+
+    private Node<T> childOrCreate(char label) {
+      int at = Arrays.binarySearch(labels, 0, size, label);
+      if (at >= 0) {
+        return children[at];
+      }
+      at = -at - 1;
+      if (size == labels.length) {
+        labels = Arrays.copyOf(labels, Math.max(1, size * 2));
+        children = Arrays.copyOf(children, labels.length);
+      }
+      System.arraycopy(labels, at, labels, at + 1, size - at);
+      System.arraycopy(children, at, children, at + 1, size - at);
+      Node<T> child = new Node<>(top.length);
+      labels[at] = label;
+      children[at] = child;
+      size++;
+      return child;
+    }
+
+    private void removeChild(char label) {
+      int at = Arrays.binarySearch(labels, 0, size, label);
+      if (at < 0) {
+        return;
+      }
+      System.arraycopy(labels, at + 1, labels, at, size - at - 1);
+      System.arraycopy(children, at + 1, children, at, size - at - 1);
+      size--;
+      children[size] = null;
+    }
+
+    private boolean isEmpty() {
+      return size == 0 && (entries == null || entries.isEmpty());
+    }
+  }
+}
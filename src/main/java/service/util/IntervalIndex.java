@@ -0,0 +1,119 @@
+package service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Sorted set of non-overlapping half-open intervals [start, end). Because the intervals never
+ * overlap, sorting them by start also sorts them by end, so the only interval that can overlap a
+ * window is the last one starting before the window ends. That makes an overlap check a single
+ * O(log n) lookup, with no augmented tree needed. Listing the gaps in a range costs O(log n + k)
+ * for the k intervals inside it. Not thread safe.
+ *
+ * @param <T> the type of the interval bounds
+ */
+public class IntervalIndex<T extends Comparable<? super T>> {
+
+  private final NavigableMap<T, Interval<T>> byStart = new TreeMap<>();
+
+  /**
+   * Finds an interval overlapping a window, the latest one if several do.
+   *
+   * @param start start of the window, inclusive
+   * @param end end of the window, exclusive
+   * @return an interval overlapping the window, or null if the window is free
+   */
+  public Interval<T> findOverlap(T start, T end) {
+    Map.Entry<T, Interval<T>> last = byStart.lowerEntry(end);
+    if (last == null || last.getValue().getEnd().compareTo(start) <= 0) {
+      return null;
+    }
+    return last.getValue();
+  }
+
+  /**
+   * Adds an interval unless it overlaps one already in the index.
+   *
+   * @param start start of the interval, inclusive
+   * @param end end of the interval, exclusive
+   * @param key key the interval is stored under
+   * @return true if the interval was added
+   */
+  public boolean add(T start, T end, String key) {
+    if (start.compareTo(end) >= 0 || findOverlap(start, end) != null) {
+      return false;
+    }
+    byStart.put(start, new Interval<>(start, end, key));
+    return true;
+  }
+
+  /**
+   * Removes the interval starting at the given point, if it has the given key.
+   *
+   * @param start start of the interval
+   * @param key key the interval is stored under
+   * @return true if the interval was removed
+   */
+  public boolean remove(T start, String key) {
+    Interval<T> interval = byStart.get(start);
+    if (interval == null || !interval.getKey().equals(key)) {
+      return false;
+    }
+    byStart.remove(start);
+    return true;
+  }
+
+  /**
+   * Lists the parts of a range not covered by any interval, in order.
+   *
+   * @param from start of the range, inclusive
+   * @param to end of the range, exclusive
+   * @return the free windows of the range. Their keys are null
+   */
+  public List<Interval<T>> findGaps(T from, T to) {
+    List<Interval<T>> gaps = new ArrayList<>();
+    T free = from;
+    // Start from the interval that may straddle the start of the range
+    T first = byStart.floorKey(from);
+    for (Interval<T> interval :
+        byStart.subMap(first == null ? from : first, true, to, false).values()) {
+      if (interval.getStart().compareTo(free) > 0) {
+        gaps.add(new Interval<>(free, interval.getStart(), null));
+      }
+      if (interval.getEnd().compareTo(free) > 0) {
+        free = interval.getEnd();
+      }
+    }
+    if (free.compareTo(to) < 0) {
+      gaps.add(new Interval<>(free, to, null));
+    }
+    return gaps;
+  }
+
+  /**
+   * Gets the number of intervals in the index.
+   *
+   * @return the number of intervals
+   */
+  public int size() {
+    return byStart.size();
+  }
+
+  /**
+   * One interval of the index.
+   *
+   * @param <T> the type of the interval bounds
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class Interval<T> {
+    private final T start;
+    private final T end;
+    private final String key;
+  }
+}
@@ -0,0 +1,319 @@
+package service.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+/**
+ * Inverted index from terms to the sorted ids of the documents containing them. Each posting list
+ * stores the gaps between consecutive ids as variable-length bytes, so a dense list costs about a
+ * byte per posting. Every {@value #SKIP_INTERVAL} postings the list records where the next block
+ * starts, which lets an intersection jump over whole blocks instead of decoding them.
+ *
+ * <p>Documents are added in increasing id order only, and are dropped by {@link
+ * #compact(IntPredicate)} rather than removed one by one. Not thread safe.
+ */
+public class InvertedIndex {
+
+  /** Number of postings between two skip entries of a list. */
+  static final int SKIP_INTERVAL = 16;
+
+  private final Map<String, PostingList> postings = new HashMap<>();
+
+  private int lastDoc = -1;
+
+  /**
+   * Splits text into lower case terms on every character that is not a letter or digit. Each term
+   * appears once, in the order it first occurs.
+   *
+   * @param text the text, may be null
+   * @return the distinct terms of the text
+   */
+  public static List<String> tokenize(String text) {
+    if (text == null) {
+      return List.of();
+    }
+    Set<String> terms = new LinkedHashSet<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inTerm && start < 0) {
+        start = i;
+      } else if (!inTerm && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return new ArrayList<>(terms);
+  }
+
+  /**
+   * Adds a document under each of its terms.
+   *
+   * @param doc id of the document, greater than the id of every document added before
+   * @param terms the terms of the document
+   * @throws IllegalArgumentException if the id is not greater than the last id added
+   */
+  public void add(int doc, Collection<String> terms) {
+    if (doc <= lastDoc) {
+      throw new IllegalArgumentException(
+          "Document " + doc + " must be added after document " + lastDoc);
+    }
+    lastDoc = doc;
+    for (String term : terms) {
+      postings.computeIfAbsent(term, t -> new PostingList()).append(doc);
+    }
+  }
+
+  /**
+   * Counts the documents containing a term, including documents not yet compacted away.
+   *
+   * @param term the term
+   * @return the number of documents listed under the term
+   */
+  public int documentFrequency(String term) {
+    PostingList list = postings.get(term);
+    return list == null ? 0 : list.count;
+  }
+
+  /**
+   * Finds the documents containing every one of the terms. The shortest list leads and the others
+   * skip ahead to each of its documents, so the cost follows the rarest term.
+   *
+   * @param terms the terms, at least one
+   * @return the ids of the matching documents, in increasing order
+   */
+  public int[] intersect(Collection<String> terms) {
+    List<Cursor> cursors = new ArrayList<>(terms.size());
+    for (String term : terms) {
+      PostingList list = postings.get(term);
+      if (list == null) {
+        return new int[0];
+      }
+      cursors.add(list.cursor());
+    }
+    if (cursors.isEmpty()) {
+      return new int[0];
+    }
+    cursors.sort(Comparator.comparingInt(cursor -> cursor.list.count));
+    Cursor lead = cursors.get(0);
+    int[] matches = new int[lead.list.count];
+    int found = 0;
+    int candidate = lead.next();
+    while (candidate >= 0) {
+      int next = candidate;
+      for (int i = 1; i < cursors.size() && next == candidate; i++) {
+        next = cursors.get(i).advance(candidate);
+      }
+      if (next < 0) {
+        break;
+      }
+      if (next == candidate) {
+        matches[found++] = candidate;
+        candidate = lead.next();
+      } else {
+        candidate = lead.advance(next);
+      }
+    }
+    return Arrays.copyOf(matches, found);
+  }
+
+  /**
+   * Tells, for each of a sorted set of documents, whether it is listed under a term. The list is
+   * read once, in step with the documents.
+   *
+   * @param term the term
+   * @param docs ids of the documents, in increasing order
+   * @return whether each document is listed under the term
+   */
+  public boolean[] contains(String term, int[] docs) {
+    boolean[] listed = new boolean[docs.length];
+    PostingList list = postings.get(term);
+    if (list == null) {
+      return listed;
+    }
+    Cursor cursor = list.cursor();
+    for (int i = 0; i < docs.length; i++) {
+      int doc = cursor.advance(docs[i]);
+      if (doc < 0) {
+        break;
+      }
+      listed[i] = doc == docs[i];
+    }
+    return listed;
+  }
+
+  /**
+   * Rewrites every list without the documents that are no longer kept, dropping lists left empty.
+   *
+   * @param keep tells whether a document stays in the index
+   */
+  public void compact(IntPredicate keep) {
+    Iterator<PostingList> lists = postings.values().iterator();
+    while (lists.hasNext()) {
+      PostingList list = lists.next();
+      PostingList kept = new PostingList();
+      Cursor cursor = list.cursor();
+      for (int doc = cursor.next(); doc >= 0; doc = cursor.next()) {
+        if (keep.test(doc)) {
+          kept.append(doc);
+        }
+      }
+      if (kept.count == 0) {
+        lists.remove();
+      } else {
+        list.replaceWith(kept);
+      }
+    }
+  }
+
+  /**
+   * Counts the distinct terms in the index.
+   *
+   * @return the number of terms
+   */
+  public int termCount() {
+    return postings.size();
+  }
+
+  /**
+   * Adds up the encoded size of every posting list.
+   *
+   * @return the number of bytes the postings take
+   */
+  public long postingBytes() {
+    long bytes = 0;
+    for (PostingList list : postings.values()) {
+      bytes += list.length;
+    }
+    return bytes;
+  }
+
+  /** Gap-encoded ids of the documents containing one term. */
+  private static final class PostingList {
+
+    private byte[] data = new byte[4];
+
+    private int length;
+
+    private int count;
+
+    private int last = -1;
+
+    /** Doc before the first posting of each block; the gap of that posting is relative to it. */
+    private int[] skipDocs = new int[0];
+
+    /** Offset in data of the first posting of each block. */
+    private int[] skipOffsets = new int[0];
+
+    private void append(int doc) {
+      if (count % SKIP_INTERVAL == 0) {
+        int block = count / SKIP_INTERVAL;
+        if (block == skipDocs.length) {
+          skipDocs = Arrays.copyOf(skipDocs, Math.max(1, block * 2));
+          skipOffsets = Arrays.copyOf(skipOffsets, skipDocs.length);
+        }
+        skipDocs[block] = last;
+        skipOffsets[block] = length;
+      }
+      if (data.length - length < 5) {
+        data = Arrays.copyOf(data, data.length * 2);
+      }
+      // The first gap is taken from -1 so doc 0 still encodes to a positive value
+      int gap = doc - last;
+      while ((gap & ~0x7F) != 0) {
+        data[length++] = (byte) ((gap & 0x7F) | 0x80);
+        gap >>>= 7;
+      }
+      data[length++] = (byte) gap;
+      last = doc;
+      count++;
+    }
+
+    private void replaceWith(PostingList other) {
+      data = other.data;
+      length = other.length;
+      count = other.count;
+      last = other.last;
+      skipDocs = other.skipDocs;
+      skipOffsets = other.skipOffsets;
+    }
+
+    private Cursor cursor() {
+      return new Cursor(this);
+    }
+  }
+
+  /** Reads a posting list in order, jumping over blocks when advancing far ahead. */
+  private static final class Cursor {
+
+    private final PostingList list;
+
+    private int offset;
+
+    private int read;
+
+    private int doc = -1;
+
+    private Cursor(PostingList list) {
+      this.list = list;
+    }
+
+    /** Moves to the next doc, or returns -1 once the list is exhausted. */
+    private int next() {
+      if (read == list.count) {
+        doc = -1;
+        return doc;
+      }
+      int gap = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = list.data[offset++];
+        gap |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      doc += gap;
+      read++;
+      return doc;
+    }
+
+    /** Moves to the first doc not below the target, or returns -1 if there is none. */
+    private int advance(int target) {
+      if (doc >= target) {
+        return doc;
+      }
+      // Only the blocks starting past the current position are worth jumping to. Targets are
+      // mostly close by, so gallop ahead from there before narrowing down the last stretch
+      int blocks = (list.count + SKIP_INTERVAL - 1) / SKIP_INTERVAL;
+      int low = read / SKIP_INTERVAL + 1;
+      if (low < blocks && list.skipDocs[low] < target) {
+        int step = 1;
+        while (low + step < blocks && list.skipDocs[low + step] < target) {
+          low += step;
+          step *= 2;
+        }
+        int found = Arrays.binarySearch(list.skipDocs, low, Math.min(low + step, blocks), target);
+        int block = found >= 0 ? found - 1 : -found - 2;
+        offset = list.skipOffsets[block];
+        read = block * SKIP_INTERVAL;
+        doc = list.skipDocs[block];
+      }
+      while (doc < target) {
+        if (next() < 0) {
+          return -1;
+        }
+      }
+      return doc;
+    }
+  }
+}
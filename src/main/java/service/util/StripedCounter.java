@@ -0,0 +1,102 @@
+package service.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter of units that can be taken, spread over several stripes so that threads taking
+ * units at once mostly update different cache lines. A thread takes from the stripe picked by its
+ * id and only looks at the other stripes when that one runs short. The count can never go below
+ * zero: a take either removes the whole amount from one stripe or fails.
+ *
+ * <p>Because an amount is taken from a single stripe, a take can fail while the stripes hold enough
+ * between them. Callers that need an exact answer {@link #drain()} the counter and decide on the
+ * total.
+ */
+public class StripedCounter {
+
+  /** Longs per stripe, so every stripe sits on its own 64 byte cache line. */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray cells;
+
+  private final int stripeMask;
+
+  /** Creates an empty counter with a stripe per available processor, rounded up to a power of 2. */
+  public StripedCounter() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an empty counter.
+   *
+   * @param stripes number of stripes, rounded up to a power of 2
+   */
+  public StripedCounter(int stripes) {
+    int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripeMask = size - 1;
+    this.cells = new AtomicLongArray(size * PADDING);
+  }
+
+  /**
+   * Takes units from the counter if one stripe holds enough of them.
+   *
+   * @param amount number of units to take
+   * @return true if the units were taken, false if no stripe holds enough
+   */
+  public boolean tryTake(long amount) {
+    int home = homeStripe();
+    for (int i = 0; i <= stripeMask; i++) {
+      int index = ((home + i) & stripeMask) * PADDING;
+      long current = cells.get(index);
+      while (current >= amount) {
+        if (cells.compareAndSet(index, current, current - amount)) {
+          return true;
+        }
+        current = cells.get(index);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds units to the calling thread's stripe.
+   *
+   * @param amount number of units to add
+   */
+  public void add(long amount) {
+    cells.getAndAdd(homeStripe() * PADDING, amount);
+  }
+
+  /**
+   * Takes every unit from the counter. Units added or taken concurrently are either included in the
+   * total or left in the counter, never lost.
+   *
+   * @return the number of units taken
+   */
+  public long drain() {
+    long total = 0;
+    for (int stripe = 0; stripe <= stripeMask; stripe++) {
+      total += cells.getAndSet(stripe * PADDING, 0);
+    }
+    return total;
+  }
+
+  /**
+   * Gets the number of units in the counter. Only exact when nothing is taken or added meanwhile.
+   *
+   * @return the sum of every stripe
+   */
+  public long sum() {
+    long total = 0;
+    for (int stripe = 0; stripe <= stripeMask; stripe++) {
+      total += cells.get(stripe * PADDING);
+    }
+    return total;
+  }
+
+  private int homeStripe() {
+    long id = Thread.currentThread().getId();
+    // Spread consecutive thread ids over the stripes
+    return ((int) (id ^ (id >>> 16)) * 0x9E3779B9 >>> 16) & stripeMask;
+  }
+}
@@ -0,0 +1,259 @@
+package service.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timing wheel that fires a callback for keys once their deadline has passed.
+ * Time advances in fixed ticks. Each of the {@value #LEVELS} levels has {@value #SLOTS} buckets,
+ * and each level's bucket spans all of the level below it, so deadlines up to 2^32 ticks away are
+ * held without any per-timer ordering. A timer sits in the lowest level that covers its deadline
+ * and moves down a level whenever the level below wraps around.
+ *
+ * <p>Adding, re-scheduling and cancelling a key are O(1): every key maps to one node in a doubly
+ * linked bucket. Scheduling a key that already has a timer moves that timer to its new bucket. Keys
+ * that come due are handed to the worker pool in batches, so the ticking thread never blocks on the
+ * work done for an expiry.
+ *
+ * @param <K> the type of the keys timers are registered under
+ */
+public class TimingWheel<K> implements AutoCloseable {
+
+  private static final int SLOT_BITS = 8;
+
+  private static final int SLOTS = 1 << SLOT_BITS;
+
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  private static final int LEVELS = 4;
+
+  private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+  private final long tickMillis;
+
+  private final int batchSize;
+
+  private final ExecutorService workers;
+
+  private final Consumer<List<K>> onExpired;
+
+  private final Node<K>[][] buckets;
+
+  private final Map<K, Node<K>> timers = new HashMap<>();
+
+  /** Timers whose deadline has passed, handed out on the next advance. */
+  private final Node<K> overdue = Node.sentinel();
+
+  private long currentTick;
+
+  private ScheduledExecutorService ticker;
+
+  /**
+   * Creates a stopped wheel whose clock starts at the given time.
+   *
+   * @param tickMillis length of one tick. Timers fire up to one tick late
+   * @param batchSize most keys handed to the callback at once
+   * @param workers pool that runs the callback
+   * @param onExpired called with keys whose deadline has passed
+   * @param startMillis current time in epoch milliseconds
+   */
+  @SuppressWarnings("unchecked")
+  public TimingWheel(
+      long tickMillis,
+      int batchSize,
+      ExecutorService workers,
+      Consumer<List<K>> onExpired,
+      long startMillis) {
+    this.tickMillis = tickMillis;
+    this.batchSize = batchSize;
+    this.workers = workers;
+    this.onExpired = onExpired;
+    this.currentTick = startMillis / tickMillis;
+    this.buckets = new Node[LEVELS][SLOTS];
+    for (Node<K>[] level : buckets) {
+      for (int slot = 0; slot < SLOTS; slot++) {
+        level[slot] = Node.sentinel();
+      }
+    }
+  }
+
+  /** Starts advancing the wheel with the system clock, once per tick. */
+  public synchronized void start() {
+    if (ticker == null) {
+      ticker =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "timing-wheel");
+                thread.setDaemon(true);
+                return thread;
+              });
+      ticker.scheduleAtFixedRate(
+          () -> advanceTo(System.currentTimeMillis()),
+          tickMillis,
+          tickMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Sets the deadline of a key. A key that already has a timer is moved to the new deadline rather
+   * than getting a second timer.
+   *
+   * @param key the key
+   * @param deadlineMillis deadline in epoch milliseconds
+   */
+  public synchronized void schedule(K key, long deadlineMillis) {
+    Node<K> node = timers.get(key);
+    if (node == null) {
+      node = new Node<>(key);
+      timers.put(key, node);
+    } else {
+      node.unlink();
+    }
+    // Round up, so a timer never fires before its deadline
+    node.deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+    place(node);
+  }
+
+  /**
+   * Removes the timer of a key.
+   *
+   * @param key the key
+   * @return true if the key had a timer
+   */
+  public synchronized boolean cancel(K key) {
+    Node<K> node = timers.remove(key);
+    if (node == null) {
+      return false;
+    }
+    node.unlink();
+    return true;
+  }
+
+  /**
+   * Gets the number of keys with a pending timer.
+   *
+   * @return the number of pending timers
+   */
+  public synchronized int size() {
+    return timers.size();
+  }
+
+  /**
+   * Advances the wheel up to the given time and hands every key that came due to the workers.
+   *
+   * @param nowMillis current time in epoch milliseconds
+   */
+  public void advanceTo(long nowMillis) {
+    List<K> due = collectDue(nowMillis / tickMillis);
+    for (int start = 0; start < due.size(); start += batchSize) {
+      List<K> batch = List.copyOf(due.subList(start, Math.min(start + batchSize, due.size())));
+      workers.execute(
+          () -> {
+            try {
+              onExpired.accept(batch);
+            } catch (RuntimeException e) {
+              System.err.println("Failed to handle expired timers: " + e.getMessage());
+            }
+          });
+    }
+  }
+
+  private synchronized List<K> collectDue(long nowTick) {
+    List<K> due = new ArrayList<>();
+    drain(overdue, due);
+    while (currentTick < nowTick) {
+      currentTick++;
+      cascade();
+      drain(buckets[0][(int) (currentTick & SLOT_MASK)], due);
+      // Timers cascaded onto the current tick are already due
+      drain(overdue, due);
+    }
+    return due;
+  }
+
+  private void drain(Node<K> bucket, List<K> due) {
+    for (Node<K> node = bucket.next; node != bucket; node = bucket.next) {
+      node.unlink();
+      timers.remove(node.key);
+      due.add(node.key);
+    }
+  }
+
+  /** Moves the timers of each higher level bucket that just came into range down a level. */
+  private void cascade() {
+    for (int level = 1; level < LEVELS; level++) {
+      if (((currentTick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+        return;
+      }
+      Node<K> bucket = buckets[level][(int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK)];
+      for (Node<K> node = bucket.next; node != bucket; node = bucket.next) {
+        node.unlink();
+        place(node);
+      }
+    }
+  }
+
+  private void place(Node<K> node) {
+    long delay = node.deadlineTick - currentTick;
+    if (delay <= 0) {
+      node.linkBefore(overdue);
+      return;
+    }
+    // Deadlines past the top level are parked there and re-placed when it comes around
+    long tick = currentTick + Math.min(delay, MAX_DELAY_TICKS);
+    int level = 0;
+    while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    node.linkBefore(buckets[level][(int) ((tick >> (SLOT_BITS * level)) & SLOT_MASK)]);
+  }
+
+  /** Stops the ticking thread and the workers. */
+  @Override
+  public synchronized void close() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+    workers.shutdownNow();
+  }
+
+  private static final class Node<K> {
+    private final K key;
+    private long deadlineTick;
+    private Node<K> prev;
+    private Node<K> next;
+
+    private Node(K key) {
+      this.key = key;
+    }
+
+    private static <K> Node<K> sentinel() {
+      Node<K> sentinel = new Node<>(null);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      return sentinel;
+    }
+
+    private void linkBefore(Node<K> head) {
+      prev = head.prev;
+      next = head;
+      head.prev.next = this;
+      head.prev = this;
+    }
+
+    private void unlink() {
+      prev.next = next;
+      next.prev = prev;
+      prev = null;
+      next = null;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package service.util;
+
+import java.security.SecureRandom;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Converts UUID keys between their Java form and the form they are stored in. Keys are stored
+ * either as CHAR(36) text or as BINARY(16), depending on the storage mode the database was set up
+ * with. Binary keys are read and written as raw bytes, so no UUID text is built or parsed per row.
+ */
+public final class UuidCodec {
+
+  /** Codec for keys stored as CHAR(36) text. */
+  public static final UuidCodec CHAR = new UuidCodec(false);
+
+  /** Codec for keys stored as BINARY(16) in big-endian byte order. */
+  public static final UuidCodec BINARY = new UuidCodec(true);
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private static final int UUID_LENGTH = 36;
+
+  private static final int UUID_BYTES = 16;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final boolean binary;
+
+  private UuidCodec(boolean binary) {
+    this.binary = binary;
+  }
+
+  /**
+   * Whether keys are stored as BINARY(16).
+   *
+   * @return true for binary storage, false for CHAR(36)
+   */
+  public boolean isBinary() {
+    return binary;
+  }
+
+  /**
+   * Generates a time-ordered UUID following the version 7 layout: the top 48 bits hold the current
+   * Unix time in milliseconds and the remaining 74 free bits are random. Keys generated later sort
+   * after earlier ones, so new rows are appended to the right edge of the primary key index instead
+   * of landing on random pages.
+   *
+   * @return a new version 7 UUID
+   */
+  public static UUID timeOrderedUuid() {
+    byte[] random = new byte[10];
+    RANDOM.nextBytes(random);
+    long randA = ((random[0] & 0x0FL) << 8) | (random[1] & 0xFFL);
+    long msb = (System.currentTimeMillis() << 16) | 0x7000L | randA;
+    long lsb = 0;
+    for (int i = 2; i < random.length; i++) {
+      lsb = (lsb << 8) | (random[i] & 0xFFL);
+    }
+    lsb = (lsb & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * Converts a key to the value bound to a SQL parameter.
+   *
+   * @param id the key
+   * @return the 16 key bytes in binary mode, otherwise the key text
+   */
+  public Object bind(UUID id) {
+    return binary ? toBytes(id) : id.toString();
+  }
+
+  /**
+   * Converts a key received as text to the value bound to a SQL parameter. In CHAR mode the text is
+   * bound unchanged without being parsed. In binary mode text that is not a UUID is also bound
+   * unchanged, so it matches no rows rather than failing the query.
+   *
+   * @param id the key text
+   * @return the 16 key bytes in binary mode, otherwise the key text
+   */
+  public Object bind(String id) {
+    if (!binary || id == null) {
+      return id;
+    }
+    UUID uuid = parse(id);
+    return uuid != null ? toBytes(uuid) : id;
+  }
+
+  /**
+   * Reads a key column.
+   *
+   * @param rs result set positioned on a row
+   * @param index position of the key column
+   * @return the key, or null if the column is null
+   * @throws SQLException if the column cannot be read
+   */
+  public UUID read(ResultSet rs, int index) throws SQLException {
+    if (binary) {
+      byte[] bytes = rs.getBytes(index);
+      return bytes != null ? fromBytes(bytes) : null;
+    }
+    String text = rs.getString(index);
+    return text != null ? fromText(text) : null;
+  }
+
+  /**
+   * Reads a key column.
+   *
+   * @param rs result set positioned on a row
+   * @param column name of the key column
+   * @return the key, or null if the column is null
+   * @throws SQLException if the column cannot be read
+   */
+  public UUID read(ResultSet rs, String column) throws SQLException {
+    return read(rs, rs.findColumn(column));
+  }
+
+  /**
+   * Reads a key column as UUID text.
+   *
+   * @param rs result set positioned on a row
+   * @param column name of the key column
+   * @return the key text, or null if the column is null
+   * @throws SQLException if the column cannot be read
+   */
+  public String readText(ResultSet rs, String column) throws SQLException {
+    if (!binary) {
+      return rs.getString(column);
+    }
+    byte[] bytes = rs.getBytes(column);
+    return bytes != null ? toText(bytes) : null;
+  }
+
+  /**
+   * Converts a UUID to its 16 big-endian bytes.
+   *
+   * @param uuid the UUID
+   * @return the bytes stored in a BINARY(16) column
+   */
+  public static byte[] toBytes(UUID uuid) {
+    byte[] bytes = new byte[UUID_BYTES];
+    long msb = uuid.getMostSignificantBits();
+    long lsb = uuid.getLeastSignificantBits();
+    for (int i = 7; i >= 0; i--) {
+      bytes[i] = (byte) msb;
+      bytes[i + 8] = (byte) lsb;
+      msb >>>= 8;
+      lsb >>>= 8;
+    }
+    return bytes;
+  }
+
+  /**
+   * Converts 16 big-endian bytes to a UUID.
+   *
+   * @param bytes the bytes read from a BINARY(16) column
+   * @return the UUID
+   */
+  public static UUID fromBytes(byte[] bytes) {
+    if (bytes.length != UUID_BYTES) {
+      throw new IllegalArgumentException("A UUID needs 16 bytes but got " + bytes.length);
+    }
+    long msb = 0;
+    long lsb = 0;
+    for (int i = 0; i < 8; i++) {
+      msb = (msb << 8) | (bytes[i] & 0xFFL);
+      lsb = (lsb << 8) | (bytes[i + 8] & 0xFFL);
+    }
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * Formats 16 big-endian bytes as UUID text without building an intermediate UUID.
+   *
+   * @param bytes the bytes read from a BINARY(16) column
+   * @return the UUID text in the canonical 8-4-4-4-12 form
+   */
+  public static String toText(byte[] bytes) {
+    char[] text = new char[UUID_LENGTH];
+    int pos = 0;
+    for (int i = 0; i < UUID_BYTES; i++) {
+      if (i == 4 || i == 6 || i == 8 || i == 10) {
+        text[pos++] = '-';
+      }
+      text[pos++] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+      text[pos++] = HEX_DIGITS[bytes[i] & 0x0F];
+    }
+    return new String(text);
+  }
+
+  /**
+   * Parses UUID text in the canonical 8-4-4-4-12 form read from a CHAR(36) column.
+   *
+   * @param text the UUID text
+   * @return the UUID
+   * @throws IllegalArgumentException if the text is not a UUID
+   */
+  public static UUID fromText(String text) {
+    UUID uuid = parse(text);
+    if (uuid == null) {
+      throw new IllegalArgumentException("Invalid UUID string: " + text);
+    }
+    return uuid;
+  }
+
+  /** Parses canonical UUID text, returning null instead of throwing when it is not a UUID. */
+  private static UUID parse(String text) {
+    if (text.length() != UUID_LENGTH
+        || text.charAt(8) != '-'
+        || text.charAt(13) != '-'
+        || text.charAt(18) != '-'
+        || text.charAt(23) != '-') {
+      return null;
+    }
+    long msb = 0;
+    long lsb = 0;
+    int digits = 0;
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char c = text.charAt(i);
+      if (c == '-') {
+        continue;
+      }
+      int value = Character.digit(c, 16);
+      if (value < 0) {
+        return null;
+      }
+      if (digits < 16) {
+        msb = (msb << 4) | value;
+      } else {
+        lsb = (lsb << 4) | value;
+      }
+      digits++;
+    }
+    return digits == 32 ? new UUID(msb, lsb) : null;
+  }
+}
@@ -0,0 +1,98 @@
+-- Online conversion of the UUID keys from CHAR(36) to BINARY(16), step 1 of 3.
+-- Adds a BINARY(16) shadow column next to every key column and keeps it filled for rows written
+-- while the conversion runs. The columns are added with ALGORITHM=INSTANT, so this is safe to run
+-- against the live database.
+USE reservation_management;
+
+ALTER TABLE Inventories
+    ADD COLUMN inventory_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Items
+    ADD COLUMN item_id_bin BINARY(16) NULL,
+    ADD COLUMN inventory_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Users
+    ADD COLUMN user_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE User_Inventories
+    ADD COLUMN user_id_bin BINARY(16) NULL,
+    ADD COLUMN inventory_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Inventory_Items
+    ADD COLUMN inventory_id_bin BINARY(16) NULL,
+    ADD COLUMN item_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Reservations
+    ADD COLUMN reservation_id_bin BINARY(16) NULL,
+    ADD COLUMN item_id_bin BINARY(16) NULL,
+    ADD COLUMN user_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Bookings
+    ADD COLUMN booking_id_bin BINARY(16) NULL,
+    ADD COLUMN item_id_bin BINARY(16) NULL,
+    ADD COLUMN user_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE Inventory_Stats
+    ADD COLUMN inventory_id_bin BINARY(16) NULL,
+    ALGORITHM = INSTANT;
+
+-- Keep the shadow columns in step with writes made while the backfill runs
+CREATE TRIGGER fill_inventories_uuid_bin
+    BEFORE INSERT ON Inventories
+    FOR EACH ROW
+    SET NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id);
+
+CREATE TRIGGER fill_items_uuid_bin
+    BEFORE INSERT ON Items
+    FOR EACH ROW
+    SET NEW.item_id_bin = UUID_TO_BIN(NEW.item_id),
+        NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id);
+
+-- Items can be moved to another inventory
+CREATE TRIGGER refill_items_uuid_bin
+    BEFORE UPDATE ON Items
+    FOR EACH ROW
+    SET NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id);
+
+CREATE TRIGGER fill_users_uuid_bin
+    BEFORE INSERT ON Users
+    FOR EACH ROW
+    SET NEW.user_id_bin = UUID_TO_BIN(NEW.user_id);
+
+CREATE TRIGGER fill_user_inventories_uuid_bin
+    BEFORE INSERT ON User_Inventories
+    FOR EACH ROW
+    SET NEW.user_id_bin = UUID_TO_BIN(NEW.user_id),
+        NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id);
+
+CREATE TRIGGER fill_inventory_items_uuid_bin
+    BEFORE INSERT ON Inventory_Items
+    FOR EACH ROW
+    SET NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id),
+        NEW.item_id_bin = UUID_TO_BIN(NEW.item_id);
+
+CREATE TRIGGER fill_reservations_uuid_bin
+    BEFORE INSERT ON Reservations
+    FOR EACH ROW
+    SET NEW.reservation_id_bin = UUID_TO_BIN(NEW.reservation_id),
+        NEW.item_id_bin = UUID_TO_BIN(NEW.item_id),
+        NEW.user_id_bin = UUID_TO_BIN(NEW.user_id);
+
+CREATE TRIGGER fill_bookings_uuid_bin
+    BEFORE INSERT ON Bookings
+    FOR EACH ROW
+    SET NEW.booking_id_bin = UUID_TO_BIN(NEW.booking_id),
+        NEW.item_id_bin = UUID_TO_BIN(NEW.item_id),
+        NEW.user_id_bin = UUID_TO_BIN(NEW.user_id);
+
+CREATE TRIGGER fill_inventory_stats_uuid_bin
+    BEFORE INSERT ON Inventory_Stats
+    FOR EACH ROW
+    SET NEW.inventory_id_bin = UUID_TO_BIN(NEW.inventory_id);
@@ -0,0 +1,72 @@
+-- Online conversion of the UUID keys from CHAR(36) to BINARY(16), step 2 of 3.
+-- Fills the shadow columns for rows that existed before step 1. Each table is walked in primary
+-- key order, in batches that each commit on their own, so no lock is held for long and the
+-- application keeps running. Safe to re-run if interrupted.
+USE reservation_management;
+
+DROP PROCEDURE IF EXISTS backfill_uuid_bin;
+
+CREATE PROCEDURE backfill_uuid_bin(
+    IN table_name VARCHAR(64),  -- Table to backfill
+    IN key_column VARCHAR(64),  -- Leading primary key column, used to walk the table
+    IN assignments VARCHAR(512),  -- SET clause filling the shadow columns
+    IN batch_size INT  -- Primary key values covered per batch
+)
+BEGIN
+    SET @last_id = '';
+    SET @select_batch_sql = CONCAT(
+        'SELECT MAX(', key_column, ') INTO @next_id FROM (SELECT ', key_column,
+        ' FROM ', table_name, ' WHERE ', key_column, ' > ? ORDER BY ', key_column,
+        ' LIMIT ', batch_size, ') AS batch');
+    SET @update_batch_sql = CONCAT(
+        'UPDATE ', table_name, ' SET ', assignments,
+        ' WHERE ', key_column, ' > ? AND ', key_column, ' <= ?');
+    PREPARE select_batch FROM @select_batch_sql;
+    PREPARE update_batch FROM @update_batch_sql;
+    REPEAT
+        EXECUTE select_batch USING @last_id;
+        IF @next_id IS NOT NULL THEN
+            EXECUTE update_batch USING @last_id, @next_id;
+            SET @last_id = @next_id;
+        END IF;
+    UNTIL @next_id IS NULL END REPEAT;
+    DEALLOCATE PREPARE select_batch;
+    DEALLOCATE PREPARE update_batch;
+END;
+
+CALL backfill_uuid_bin('Inventories', 'inventory_id',
+    'inventory_id_bin = UUID_TO_BIN(inventory_id)', 1000);
+CALL backfill_uuid_bin('Users', 'user_id',
+    'user_id_bin = UUID_TO_BIN(user_id)', 1000);
+CALL backfill_uuid_bin('Items', 'item_id',
+    'item_id_bin = UUID_TO_BIN(item_id), inventory_id_bin = UUID_TO_BIN(inventory_id)', 1000);
+CALL backfill_uuid_bin('User_Inventories', 'user_id',
+    'user_id_bin = UUID_TO_BIN(user_id), inventory_id_bin = UUID_TO_BIN(inventory_id)', 1000);
+CALL backfill_uuid_bin('Inventory_Items', 'inventory_id',
+    'inventory_id_bin = UUID_TO_BIN(inventory_id), item_id_bin = UUID_TO_BIN(item_id)', 1000);
+CALL backfill_uuid_bin('Reservations', 'reservation_id',
+    'reservation_id_bin = UUID_TO_BIN(reservation_id), item_id_bin = UUID_TO_BIN(item_id), '
+    'user_id_bin = UUID_TO_BIN(user_id)', 1000);
+CALL backfill_uuid_bin('Bookings', 'booking_id',
+    'booking_id_bin = UUID_TO_BIN(booking_id), item_id_bin = UUID_TO_BIN(item_id), '
+    'user_id_bin = UUID_TO_BIN(user_id)', 1000);
+CALL backfill_uuid_bin('Inventory_Stats', 'inventory_id',
+    'inventory_id_bin = UUID_TO_BIN(inventory_id)', 1000);
+
+DROP PROCEDURE backfill_uuid_bin;
+
+-- Every count must be 0 before moving on to step 3
+SELECT 'Inventories' AS table_name, COUNT(*) AS missing FROM Inventories WHERE inventory_id_bin IS NULL
+UNION ALL SELECT 'Items', COUNT(*) FROM Items WHERE item_id_bin IS NULL OR inventory_id_bin IS NULL
+UNION ALL SELECT 'Users', COUNT(*) FROM Users WHERE user_id_bin IS NULL
+UNION ALL SELECT 'User_Inventories', COUNT(*) FROM User_Inventories
+    WHERE user_id_bin IS NULL OR inventory_id_bin IS NULL
+UNION ALL SELECT 'Inventory_Items', COUNT(*) FROM Inventory_Items
+    WHERE inventory_id_bin IS NULL OR item_id_bin IS NULL
+UNION ALL SELECT 'Reservations', COUNT(*) FROM Reservations
+    WHERE reservation_id_bin IS NULL OR item_id_bin IS NULL
+        OR (user_id IS NOT NULL AND user_id_bin IS NULL)
+UNION ALL SELECT 'Bookings', COUNT(*) FROM Bookings
+    WHERE booking_id_bin IS NULL OR item_id_bin IS NULL
+        OR (user_id IS NOT NULL AND user_id_bin IS NULL)
+UNION ALL SELECT 'Inventory_Stats', COUNT(*) FROM Inventory_Stats WHERE inventory_id_bin IS NULL;
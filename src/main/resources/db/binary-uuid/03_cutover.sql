@@ -0,0 +1,164 @@
+-- Online conversion of the UUID keys from CHAR(36) to BINARY(16), step 3 of 3.
+-- Swaps the backfilled shadow columns in as the keys. This rebuilds every table, so stop the
+-- application first, then restart it with service.storage.binary-uuid=true.
+USE reservation_management;
+
+DROP TRIGGER fill_inventories_uuid_bin;
+DROP TRIGGER fill_items_uuid_bin;
+DROP TRIGGER refill_items_uuid_bin;
+DROP TRIGGER fill_users_uuid_bin;
+DROP TRIGGER fill_user_inventories_uuid_bin;
+DROP TRIGGER fill_inventory_items_uuid_bin;
+DROP TRIGGER fill_reservations_uuid_bin;
+DROP TRIGGER fill_bookings_uuid_bin;
+DROP TRIGGER fill_inventory_stats_uuid_bin;
+
+-- These triggers declare CHAR(36) keys and are recreated below
+DROP TRIGGER create_default_inventory;
+DROP TRIGGER add_new_item_to_junction_table;
+DROP TRIGGER update_inventory_items_junction_when_inventory_id_changes;
+
+-- Counter leases only outlive a stopped application when it crashed, so give their quantity back
+-- to the items and rebuild the empty table
+UPDATE Items i
+    JOIN (SELECT item_id, SUM(quantity) AS quantity FROM Counter_Leases GROUP BY item_id) l
+        ON l.item_id = i.item_id
+SET i.reserved_status = i.reserved_quantity > l.quantity,
+    i.quantity = i.quantity + l.quantity,
+    i.reserved_quantity = i.reserved_quantity - l.quantity;
+DELETE FROM Counter_Leases;
+ALTER TABLE Counter_Leases DROP FOREIGN KEY fk_counter_leases_item;
+ALTER TABLE Counter_Leases MODIFY item_id BINARY(16) NOT NULL;  -- FK to Items
+
+ALTER TABLE Reservations DROP FOREIGN KEY fk_reservations_item;
+ALTER TABLE Bookings DROP FOREIGN KEY fk_bookings_item;
+ALTER TABLE Inventory_Stats DROP FOREIGN KEY fk_inventory_stats_inventory;
+ALTER TABLE Items DROP FOREIGN KEY Items_ibfk_1;
+ALTER TABLE User_Inventories DROP FOREIGN KEY User_Inventories_ibfk_1, DROP FOREIGN KEY User_Inventories_ibfk_2;
+ALTER TABLE Inventory_Items DROP FOREIGN KEY Inventory_Items_ibfk_1, DROP FOREIGN KEY Inventory_Items_ibfk_2;
+
+ALTER TABLE Inventories DROP PRIMARY KEY, DROP COLUMN inventory_id;
+ALTER TABLE Inventories
+    CHANGE inventory_id_bin inventory_id BINARY(16) NOT NULL FIRST,  -- UUID for the inventory
+    ADD PRIMARY KEY (inventory_id);
+
+ALTER TABLE Items DROP PRIMARY KEY, DROP COLUMN item_id, DROP COLUMN inventory_id;
+ALTER TABLE Items
+    CHANGE item_id_bin item_id BINARY(16) NOT NULL FIRST,  -- Unique identifier for each item (UUID)
+    CHANGE inventory_id_bin inventory_id BINARY(16) NOT NULL AFTER next_restock,  -- Owning inventory
+    ADD PRIMARY KEY (item_id);
+
+ALTER TABLE Users DROP PRIMARY KEY, DROP COLUMN user_id;
+ALTER TABLE Users
+    CHANGE user_id_bin user_id BINARY(16) NOT NULL FIRST,  -- Unique user key (UUID)
+    ADD PRIMARY KEY (user_id);
+
+ALTER TABLE User_Inventories DROP PRIMARY KEY, DROP COLUMN user_id, DROP COLUMN inventory_id;
+ALTER TABLE User_Inventories
+    CHANGE user_id_bin user_id BINARY(16) NOT NULL FIRST,  -- FK to Users
+    CHANGE inventory_id_bin inventory_id BINARY(16) NOT NULL AFTER username,  -- FK to Inventories
+    ADD PRIMARY KEY (user_id, inventory_id);
+
+ALTER TABLE Inventory_Items DROP PRIMARY KEY, DROP COLUMN inventory_id, DROP COLUMN item_id;
+ALTER TABLE Inventory_Items
+    CHANGE inventory_id_bin inventory_id BINARY(16) NOT NULL FIRST,  -- FK to Inventory
+    CHANGE item_id_bin item_id BINARY(16) NOT NULL AFTER inventory_name,  -- FK to Item
+    ADD PRIMARY KEY (inventory_id, item_id);
+
+ALTER TABLE Reservations DROP PRIMARY KEY, DROP INDEX idx_reservations_item_expires,
+    DROP COLUMN reservation_id, DROP COLUMN item_id, DROP COLUMN user_id;
+ALTER TABLE Reservations
+    CHANGE reservation_id_bin reservation_id BINARY(16) NOT NULL FIRST,  -- UUID for the hold
+    CHANGE item_id_bin item_id BINARY(16) NOT NULL AFTER reservation_id,  -- FK to Items
+    CHANGE user_id_bin user_id BINARY(16) NULL AFTER item_id,  -- User holding the quantity
+    ADD PRIMARY KEY (reservation_id),
+    ADD INDEX idx_reservations_item_expires (item_id, expires_at);
+
+ALTER TABLE Bookings DROP PRIMARY KEY, DROP INDEX idx_bookings_item_ends,
+    DROP COLUMN booking_id, DROP COLUMN item_id, DROP COLUMN user_id;
+ALTER TABLE Bookings
+    CHANGE booking_id_bin booking_id BINARY(16) NOT NULL FIRST,  -- UUID for the booking
+    CHANGE item_id_bin item_id BINARY(16) NOT NULL AFTER booking_id,  -- FK to Items
+    CHANGE user_id_bin user_id BINARY(16) NULL AFTER item_id,  -- User the item is booked for
+    ADD PRIMARY KEY (booking_id),
+    ADD INDEX idx_bookings_item_ends (item_id, ends_at);
+
+ALTER TABLE Inventory_Stats DROP PRIMARY KEY, DROP COLUMN inventory_id;
+ALTER TABLE Inventory_Stats
+    CHANGE inventory_id_bin inventory_id BINARY(16) NOT NULL FIRST,  -- FK to Inventories
+    ADD PRIMARY KEY (inventory_id);
+
+ALTER TABLE Items
+    ADD FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE;
+ALTER TABLE Reservations
+    ADD CONSTRAINT fk_reservations_item
+        FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE;
+ALTER TABLE Bookings
+    ADD CONSTRAINT fk_bookings_item
+        FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE;
+ALTER TABLE Counter_Leases
+    ADD CONSTRAINT fk_counter_leases_item
+        FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE;
+ALTER TABLE Inventory_Stats
+    ADD CONSTRAINT fk_inventory_stats_inventory
+        FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE;
+ALTER TABLE User_Inventories
+    ADD FOREIGN KEY (user_id) REFERENCES Users(user_id) ON DELETE CASCADE,
+    ADD FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE;
+ALTER TABLE Inventory_Items
+    ADD FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE,
+    ADD FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE;
+
+-- Same triggers as schema.sql with BINARY(16) keys. Default inventories get a time-ordered key:
+-- UUID_TO_BIN with the swap flag moves the time fields of MySQL's version 1 UUID to the front.
+CREATE TRIGGER create_default_inventory
+    AFTER INSERT ON Users
+    FOR EACH ROW
+BEGIN
+    DECLARE new_inventory_id BINARY(16);
+    DECLARE new_inventory_name VARCHAR(255);
+    SET new_inventory_id = UUID_TO_BIN(UUID(), 1);
+    SET new_inventory_name = CONCAT(NEW.username, "'s Default Inventory");
+    -- Create a default inventory for the user
+    INSERT INTO Inventories (inventory_id, inventory_name)
+    VALUES (new_inventory_id, new_inventory_name);
+
+    -- Link the user to their new default inventory in User_Inventories junction table
+    INSERT INTO User_Inventories (user_id, username, inventory_id, inventory_name)
+    VALUES (NEW.user_id, NEW.username, new_inventory_id, new_inventory_name);
+END;
+
+CREATE TRIGGER add_new_item_to_junction_table
+    AFTER INSERT ON Items
+    FOR EACH ROW
+BEGIN
+    -- Link the new item to the inventory
+    INSERT INTO Inventory_Items (inventory_id, inventory_name , item_id, item_name)
+    VALUES (
+        NEW.inventory_id,
+        (SELECT inventory_name FROM Inventories WHERE inventory_id = NEW.inventory_id),
+        NEW.item_id,
+        NEW.item_name
+    );
+END;
+
+CREATE TRIGGER update_inventory_items_junction_when_inventory_id_changes
+    AFTER UPDATE ON Items
+    FOR EACH ROW
+BEGIN
+    -- Check if the inventory_id has changed
+    IF OLD.inventory_id != NEW.inventory_id THEN
+        -- Remove the old entry in Inventory_Items
+        DELETE FROM Inventory_Items
+        WHERE inventory_id = OLD.inventory_id AND item_id = OLD.item_id;
+
+        -- Add the new pair with the updated inventory_id and inventory_name
+        INSERT INTO Inventory_Items (inventory_id, inventory_name, item_id, item_name)
+        VALUES (
+                   NEW.inventory_id,
+                   (SELECT inventory_name FROM Inventories WHERE inventory_id = NEW.inventory_id),
+                   NEW.item_id,
+                   NEW.item_name
+               );
+    END IF;
+END;
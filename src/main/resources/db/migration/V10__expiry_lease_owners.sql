@@ -0,0 +1,6 @@
+-- One row per running instance, refreshed on every lease renewal. Each instance takes at most
+-- 16 / (number of rows) expiry partitions, so a newly started instance is handed its share.
+CREATE TABLE IF NOT EXISTS Expiry_Lease_Owners (
+    owner VARCHAR(64) PRIMARY KEY,  -- Instance, as in Expiry_Leases.owner
+    alive_until DATETIME NOT NULL  -- Time the instance is dropped unless it renews
+);
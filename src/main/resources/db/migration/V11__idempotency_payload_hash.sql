@@ -0,0 +1,3 @@
+-- A key reused with a different request is rejected instead of replaying another request's
+-- response. Keys claimed before this column existed have no hash and are not checked.
+ALTER TABLE Idempotency_Keys ADD COLUMN payload_hash BINARY(32) NULL;  -- SHA-256 of the request
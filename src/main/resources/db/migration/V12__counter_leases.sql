@@ -0,0 +1,14 @@
+-- One row per in-memory reservation counter, holding the quantity taken from the item and not yet
+-- used by a hold. The owner renews the lease every flush; once it lapses the expiry sweeper gives
+-- the quantity back to the item.
+CREATE TABLE IF NOT EXISTS Counter_Leases (
+    lease_id VARCHAR(64) PRIMARY KEY,  -- Random ID picked by the counter
+    item_id CHAR(36) NOT NULL,  -- FK to Items
+    quantity INT NOT NULL,  -- Quantity counted as reserved on the item and not yet held
+    expires_at DATETIME NOT NULL,  -- When the quantity is given back unless renewed
+    CONSTRAINT fk_counter_leases_item FOREIGN KEY (item_id) REFERENCES Items(item_id)
+        ON DELETE CASCADE
+);
+
+-- Finding the lapsed leases
+CREATE INDEX idx_counter_leases_expires ON Counter_Leases (expires_at);
@@ -0,0 +1,10 @@
+-- One row per background job that must only run on one instance at a time. An instance runs the
+-- job while it holds the lease, renewing it as it goes; a lease that lapsed is taken by the next
+-- instance that tries.
+CREATE TABLE IF NOT EXISTS Job_Leases (
+    job VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(64) NULL,  -- Instance holding the lease
+    lease_until DATETIME NULL  -- Time the lease lapses unless renewed
+);
+
+INSERT INTO Job_Leases (job) VALUES ('inventory-stats-reconcile');
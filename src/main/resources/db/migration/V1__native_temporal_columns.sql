@@ -0,0 +1,9 @@
+-- Converts the temporal columns of databases created before they were native DATETIME columns.
+-- Existing 'yyyy-MM-dd HH:mm:ss' strings convert in place. Running it on an up to date schema is a no-op.
+ALTER TABLE Items
+    MODIFY time_of_addition DATETIME NOT NULL,  -- Time item was added
+    MODIFY reservation_time DATETIME NULL,  -- Time when the item was reserved
+    MODIFY next_restock DATETIME NULL;  -- Next restock date and time
+
+ALTER TABLE Users
+    MODIFY last_access DATETIME NOT NULL;  -- Time of last access
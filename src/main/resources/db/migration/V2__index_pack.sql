@@ -0,0 +1,14 @@
+-- Secondary indexes for the lookups the SQL helpers and triggers run.
+-- Creating these also replaces the implicit indexes InnoDB builds for the foreign keys.
+
+-- getInventoryItems, moving items between inventories and cascading inventory deletes
+CREATE INDEX idx_items_inventory_id ON Items (inventory_id);
+
+-- getUserIdsByInventoryId and cascading inventory deletes
+CREATE INDEX idx_user_inventories_inventory_id ON User_Inventories (inventory_id);
+
+-- The delete_default_inventory trigger deletes inventories by name on every user delete
+CREATE INDEX idx_inventories_inventory_name ON Inventories (inventory_name);
+
+-- Cascading item deletes
+CREATE INDEX idx_inventory_items_item_id ON Inventory_Items (item_id);
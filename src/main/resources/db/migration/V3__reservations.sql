@@ -0,0 +1,17 @@
+-- One row per reservation hold, so an item can be held by many users at once.
+-- Items.quantity stays the quantity available to reserve. Items.reserved_quantity counts the
+-- quantity held by the rows in Reservations, and is changed in the same transaction as them.
+CREATE TABLE IF NOT EXISTS Reservations (
+    reservation_id CHAR(36) PRIMARY KEY,  -- UUID for the hold
+    item_id CHAR(36) NOT NULL,  -- FK to Items
+    user_id CHAR(36) NULL,  -- User holding the quantity. Holds outlive their user until they expire
+    quantity INT NOT NULL,  -- Quantity held
+    reserved_at DATETIME NOT NULL,  -- Time the hold was made
+    expires_at DATETIME NOT NULL,  -- Time the hold lapses and its quantity is returned
+    CONSTRAINT fk_reservations_item FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE
+);
+
+-- Holds of an item in expiry order
+CREATE INDEX idx_reservations_item_expires ON Reservations (item_id, expires_at);
+
+ALTER TABLE Items ADD COLUMN reserved_quantity INT NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- The expiry sweeper reads due holds across all items in expiry order
+CREATE INDEX idx_reservations_expires ON Reservations (expires_at);
@@ -0,0 +1,17 @@
+-- Holds are spread over 16 expiry partitions. Each partition is expired by the one instance
+-- holding its lease in Expiry_Leases. Holds that exist when this runs land in partition 0.
+ALTER TABLE Reservations ADD COLUMN expiry_partition INT NOT NULL DEFAULT 0;
+
+-- Sweeping a partition and rebuilding its timers on startup read its holds in expiry order
+CREATE INDEX idx_reservations_partition_expires ON Reservations (expiry_partition, expires_at);
+DROP INDEX idx_reservations_expires ON Reservations;
+
+-- One row per expiry partition. An instance owns a partition while lease_until is in the future
+CREATE TABLE IF NOT EXISTS Expiry_Leases (
+    partition_id INT PRIMARY KEY,
+    owner VARCHAR(64) NULL,  -- Instance holding the lease
+    lease_until DATETIME NULL  -- Time the lease lapses unless renewed
+);
+
+INSERT INTO Expiry_Leases (partition_id) VALUES
+    (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15);
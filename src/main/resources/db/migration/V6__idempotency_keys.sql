@@ -0,0 +1,11 @@
+-- Responses of writes sent with an Idempotency-Key header, so a retried request gets the stored
+-- response instead of being applied again. Rows are purged in batches once they expire.
+CREATE TABLE IF NOT EXISTS Idempotency_Keys (
+    key_hash BINARY(32) PRIMARY KEY,  -- SHA-256 of the endpoint, the user and the header value
+    status_code SMALLINT NULL,  -- NULL while the first request is still being processed
+    response_body TEXT NULL,
+    expires_at DATETIME NOT NULL
+);
+
+-- Batched purge of expired keys
+CREATE INDEX idx_idempotency_keys_expires ON Idempotency_Keys (expires_at);
@@ -0,0 +1,13 @@
+-- One row per booking of an item for a time window. Bookings of an item never overlap, so ordering
+-- them by end time also orders them by start time.
+CREATE TABLE IF NOT EXISTS Bookings (
+    booking_id CHAR(36) PRIMARY KEY,  -- UUID for the booking
+    item_id CHAR(36) NOT NULL,  -- FK to Items
+    user_id CHAR(36) NULL,  -- User the item is booked for
+    starts_at DATETIME NOT NULL,  -- Start of the window, inclusive
+    ends_at DATETIME NOT NULL,  -- End of the window, exclusive
+    CONSTRAINT fk_bookings_item FOREIGN KEY (item_id) REFERENCES Items(item_id) ON DELETE CASCADE
+);
+
+-- Finding the one booking that can overlap a window, and the bookings of an item still to come
+CREATE INDEX idx_bookings_item_ends ON Bookings (item_id, ends_at);
@@ -0,0 +1,12 @@
+-- Per-inventory totals of its items, read by the dashboard in one primary key lookup instead of a
+-- SUM over Items. The rows are kept up to date by the triggers in V9 in the same transaction as
+-- the item write, and checked against Items by the InventoryStatsReconciler.
+CREATE TABLE IF NOT EXISTS Inventory_Stats (
+    inventory_id CHAR(36) PRIMARY KEY,  -- FK to Inventories
+    item_count INT NOT NULL DEFAULT 0,  -- Number of distinct items
+    total_units BIGINT NOT NULL DEFAULT 0,  -- SUM(quantity + reserved_quantity)
+    reserved_units BIGINT NOT NULL DEFAULT 0,  -- SUM(reserved_quantity)
+    stock_value DECIMAL(20,2) NOT NULL DEFAULT 0,  -- SUM(price * (quantity + reserved_quantity))
+    CONSTRAINT fk_inventory_stats_inventory
+        FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE
+);
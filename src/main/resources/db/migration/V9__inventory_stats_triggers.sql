@@ -0,0 +1,88 @@
+-- Keep Inventory_Stats in step with every write to Items, whichever code path makes it. The
+-- triggers apply the change of the written row as a delta, so only the affected inventory's row
+-- is locked. Items deleted by an inventory delete cascade do not fire triggers, but the
+-- inventory's stats row is deleted by the same cascade.
+DELIMITER $$
+
+CREATE TRIGGER add_item_to_inventory_stats
+    AFTER INSERT ON Items
+    FOR EACH ROW
+BEGIN
+    INSERT INTO Inventory_Stats
+        (inventory_id, item_count, total_units, reserved_units, stock_value)
+    VALUES (
+        NEW.inventory_id,
+        1,
+        NEW.quantity + NEW.reserved_quantity,
+        NEW.reserved_quantity,
+        NEW.price * (NEW.quantity + NEW.reserved_quantity)
+    )
+    ON DUPLICATE KEY UPDATE
+        item_count = item_count + 1,
+        total_units = total_units + NEW.quantity + NEW.reserved_quantity,
+        reserved_units = reserved_units + NEW.reserved_quantity,
+        stock_value = stock_value + NEW.price * (NEW.quantity + NEW.reserved_quantity);
+END$$
+
+CREATE TRIGGER update_item_in_inventory_stats
+    AFTER UPDATE ON Items
+    FOR EACH ROW
+BEGIN
+    IF OLD.inventory_id != NEW.inventory_id
+        OR OLD.quantity != NEW.quantity
+        OR OLD.reserved_quantity != NEW.reserved_quantity
+        OR OLD.price != NEW.price THEN
+        -- Take the old row out of its inventory and add the new row to its inventory, which is
+        -- the same one unless the item moved
+        UPDATE Inventory_Stats SET
+            item_count = item_count - 1,
+            total_units = total_units - OLD.quantity - OLD.reserved_quantity,
+            reserved_units = reserved_units - OLD.reserved_quantity,
+            stock_value = stock_value - OLD.price * (OLD.quantity + OLD.reserved_quantity)
+        WHERE inventory_id = OLD.inventory_id;
+
+        INSERT INTO Inventory_Stats
+            (inventory_id, item_count, total_units, reserved_units, stock_value)
+        VALUES (
+            NEW.inventory_id,
+            1,
+            NEW.quantity + NEW.reserved_quantity,
+            NEW.reserved_quantity,
+            NEW.price * (NEW.quantity + NEW.reserved_quantity)
+        )
+        ON DUPLICATE KEY UPDATE
+            item_count = item_count + 1,
+            total_units = total_units + NEW.quantity + NEW.reserved_quantity,
+            reserved_units = reserved_units + NEW.reserved_quantity,
+            stock_value = stock_value + NEW.price * (NEW.quantity + NEW.reserved_quantity);
+    END IF;
+END$$
+
+CREATE TRIGGER remove_item_from_inventory_stats
+    AFTER DELETE ON Items
+    FOR EACH ROW
+BEGIN
+    UPDATE Inventory_Stats SET
+        item_count = item_count - 1,
+        total_units = total_units - OLD.quantity - OLD.reserved_quantity,
+        reserved_units = reserved_units - OLD.reserved_quantity,
+        stock_value = stock_value - OLD.price * (OLD.quantity + OLD.reserved_quantity)
+    WHERE inventory_id = OLD.inventory_id;
+END$$
+
+DELIMITER ;
+
+-- Totals of the items stored before the triggers existed
+INSERT INTO Inventory_Stats (inventory_id, item_count, total_units, reserved_units, stock_value)
+SELECT inventory_id,
+       COUNT(*),
+       SUM(quantity + reserved_quantity),
+       SUM(reserved_quantity),
+       SUM(price * (quantity + reserved_quantity))
+FROM Items
+GROUP BY inventory_id
+ON DUPLICATE KEY UPDATE
+    item_count = VALUES(item_count),
+    total_units = VALUES(total_units),
+    reserved_units = VALUES(reserved_units),
+    stock_value = VALUES(stock_value);
@@ -2,6 +2,7 @@
 DROP DATABASE IF EXISTS `reservation_management`;
 CREATE DATABASE IF NOT EXISTS `reservation_management`;
 USE `reservation_management`;
+-- Indexes and later schema changes are applied on startup from db/migration
 
 -- Create Inventory Table
 CREATE TABLE IF NOT EXISTS Inventories (
@@ -14,14 +15,14 @@ CREATE TABLE IF NOT EXISTS Items (
     -- UUID being randomly generated by the UUID() function
     item_id CHAR(36) PRIMARY KEY, -- Unique identifier for each item (UUID)
     item_name VARCHAR(255) NOT NULL,  -- Name of the item
-    time_of_addition VARCHAR(255) NOT NULL,  -- Time item was added
+    time_of_addition DATETIME NOT NULL,  -- Time item was added
     quantity INT NOT NULL,  -- Current quantity of the item
     reserved_status BOOLEAN DEFAULT FALSE,  -- Whether the item is reserved
     reservation_duration LONG NULL,  -- Duration of the reservation
-    reservation_time VARCHAR(255) NULL,  -- Time when the item was reserved
+    reservation_time DATETIME NULL,  -- Time when the item was reserved
     location VARCHAR(255) NULL,  -- Warehouse or location of the item
     price DECIMAL(10,2) NOT NULL,  -- Price of the item
-    next_restock VARCHAR(255) NULL,  -- Next restock date and time
+    next_restock DATETIME NULL,  -- Next restock date and time
     inventory_id CHAR(36) NOT NULL, -- Points to the inventory the item belongs to
     FOREIGN KEY (inventory_id) REFERENCES Inventories(inventory_id) ON DELETE CASCADE
 );
@@ -31,7 +32,7 @@ CREATE TABLE IF NOT EXISTS Users (
                                      username VARCHAR(255) NOT NULL UNIQUE,  -- Name of the user
                                      password VARCHAR(255) NOT NULL, -- Password for the user to log in with
                                      role ENUM('ADMIN', 'USER') NOT NULL DEFAULT 'USER',  -- User roles
-                                     last_access VARCHAR(255) NOT NULL  -- Time of last access
+                                     last_access DATETIME NOT NULL  -- Time of last access
 );
 
 -- Junction Table to Link Users and Inventories (Many-to-Many)
@@ -0,0 +1,149 @@
+package service.benchmark;
+
+import static service.util.DateTimeUtils.FORMATTER;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.handler.ItemsTableSqlHelper;
+import service.models.Item;
+import service.util.UuidCodec;
+
+/**
+ * Compares the old Items row mapping, which resolved columns by name and parsed VARCHAR dates with
+ * {@link service.util.DateTimeUtils#FORMATTER}, against {@link
+ * ItemsTableSqlHelper#getItemFromTable(ResultSet, UuidCodec)}, which reads DATETIME columns by
+ * position. Rows come from an in-memory result set, so only the mapping itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemMappingBenchmark {
+
+  private static final String[] COLUMNS =
+      ItemsTableSqlHelper.ITEM_FIELD_COLUMNS.values().toArray(new String[0]);
+
+  private ResultSet varcharRow;
+
+  private ResultSet datetimeRow;
+
+  /** Builds one row as the old VARCHAR schema returns it and one as the DATETIME schema does. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    LocalDateTime now = LocalDateTime.now().withNano(0);
+    String itemId = UUID.randomUUID().toString();
+    String inventoryId = UUID.randomUUID().toString();
+    varcharRow =
+        fakeRow(
+            itemId,
+            "Laptop",
+            now.format(FORMATTER),
+            50,
+            true,
+            now.format(FORMATTER),
+            60_000L,
+            "Warehouse A",
+            1200.0,
+            now.plusDays(7).format(FORMATTER),
+            inventoryId,
+            0);
+    datetimeRow =
+        fakeRow(
+            itemId,
+            "Laptop",
+            now,
+            50,
+            true,
+            now,
+            60_000L,
+            "Warehouse A",
+            1200.0,
+            now.plusDays(7),
+            inventoryId,
+            0);
+  }
+
+  /**
+   * Maps a row the way the helper did while the temporal columns were VARCHAR.
+   *
+   * @return the mapped item
+   * @throws SQLException never, the result set is in memory
+   */
+  @Benchmark
+  public Item mapByNameAndParse() throws SQLException {
+    ResultSet rs = varcharRow;
+    return Item.builder()
+        .itemId(UUID.fromString(rs.getString("item_id")))
+        .inventoryId(UUID.fromString(rs.getString("inventory_id")))
+        .timeOfAddition(LocalDateTime.parse(rs.getString("time_of_addition"), FORMATTER))
+        .itemName(rs.getString("item_name"))
+        .quantity(rs.getInt("quantity"))
+        .location(rs.getString("location"))
+        .price(rs.getDouble("price"))
+        .reservationDurationInMillis(rs.getLong("reservation_duration"))
+        .reservationStatus(rs.getBoolean("reserved_status"))
+        .reservationTime(
+            rs.getString("reservation_time") != null
+                ? LocalDateTime.parse(rs.getString("reservation_time"), FORMATTER)
+                : null)
+        .nextRestockDateTime(
+            rs.getString("next_restock") != null
+                ? LocalDateTime.parse(rs.getString("next_restock"), FORMATTER)
+                : null)
+        .build();
+  }
+
+  /**
+   * Maps a row with the current helper.
+   *
+   * @return the mapped item
+   * @throws SQLException never, the result set is in memory
+   */
+  @Benchmark
+  public Item mapByIndex() throws SQLException {
+    return ItemsTableSqlHelper.getItemFromTable(datetimeRow, UuidCodec.CHAR);
+  }
+
+  /**
+   * Creates a result set positioned on a single row. Lookups by name go through a case-insensitive
+   * label map first, as the MySQL driver's do.
+   */
+  private static ResultSet fakeRow(Object... values) {
+    Map<String, Integer> labels = new HashMap<>();
+    for (int i = 0; i < COLUMNS.length; i++) {
+      labels.put(COLUMNS[i].toLowerCase(Locale.ROOT), i);
+    }
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+              Object key = args[0];
+              int index =
+                  key instanceof String
+                      ? labels.get(((String) key).toLowerCase(Locale.ROOT))
+                      : (Integer) key - 1;
+              return values[index];
+            });
+  }
+}
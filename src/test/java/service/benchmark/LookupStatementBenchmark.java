@@ -0,0 +1,106 @@
+package service.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import service.handler.ItemsTableSqlHelper;
+
+/**
+ * Compares item lookups built by string concatenation against the bound, prepared lookup used by
+ * {@link ItemsTableSqlHelper#getItem(String)}, with and without the driver statement cache from the
+ * statement-cache profile. Both variants map rows the same way so only the statement handling
+ * differs. Reports the latency of a single lookup, with its percentiles, so the before and after of
+ * each variant can be read off directly. Needs DB_URL, DB_USERNAME and DB_PASSWORD pointing at a
+ * populated DB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LookupStatementBenchmark {
+
+  private static final int LOOKUP_IDS = 1000;
+
+  @Param({"false", "true"})
+  private boolean statementCache;
+
+  private HikariDataSource dataSource;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private List<String> itemIds;
+
+  private int next;
+
+  /** Opens a pool against the benchmark DB and loads the ids that will be looked up. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getenv("DB_URL"));
+    dataSource.setUsername(System.getenv("DB_USERNAME"));
+    dataSource.setPassword(System.getenv("DB_PASSWORD"));
+    String cache = String.valueOf(statementCache);
+    dataSource.addDataSourceProperty("useServerPrepStmts", cache);
+    dataSource.addDataSourceProperty("cachePrepStmts", cache);
+    dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+    dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+    dataSource.addDataSourceProperty("cacheServerConfiguration", cache);
+    dataSource.addDataSourceProperty("useLocalSessionState", cache);
+
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    itemIds =
+        jdbcTemplate.queryForList(
+            "select item_id from Items order by item_id limit ?", String.class, LOOKUP_IDS);
+    if (itemIds.isEmpty()) {
+      throw new IllegalStateException("The Items table needs rows to benchmark lookups");
+    }
+  }
+
+  /** Closes the pool opened for the trial. */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.close();
+  }
+
+  private String nextItemId() {
+    next = (next + 1) % itemIds.size();
+    return itemIds.get(next);
+  }
+
+  /**
+   * Looks an item up the way the helpers used to, with the id concatenated into the SQL text.
+   *
+   * @return the matching rows
+   */
+  @Benchmark
+  public List<Map<String, Object>> concatenatedLookup() {
+    return jdbcTemplate.queryForList("select * from Items where item_id = '" + nextItemId() + "'");
+  }
+
+  /**
+   * Looks an item up with the same SQL the helpers now use, binding the id to a prepared statement.
+   *
+   * @return the matching rows
+   */
+  @Benchmark
+  public List<Map<String, Object>> boundLookup() {
+    return jdbcTemplate.queryForList("select * from Items where item_id = ?", nextItemId());
+  }
+}
@@ -0,0 +1,111 @@
+package service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import service.models.Item;
+
+/** The type Item cache tests. */
+@SpringBootTest
+public class ItemCacheTests {
+
+  private final Item testItem =
+      Item.builder()
+          .itemId(UUID.randomUUID())
+          .itemName("Laptop")
+          .timeOfAddition(LocalDateTime.now())
+          .location("Warehouse")
+          .inventoryId(UUID.randomUUID())
+          .quantity(5)
+          .price(10.0)
+          .build();
+
+  /** Test read through and invalidate. */
+  @Test
+  public void testReadThroughAndInvalidate() {
+    ItemCache itemCache = new ItemCache(100, Duration.ofMinutes(5));
+    AtomicInteger loads = new AtomicInteger();
+    String itemId = testItem.getItemId().toString();
+
+    Item first =
+        itemCache.get(
+            itemId,
+            id -> {
+              loads.incrementAndGet();
+              return testItem;
+            });
+    Item second = itemCache.get(itemId, id -> testItem);
+    assertEquals(1, loads.get());
+    assertEquals("Laptop", second.getItemName());
+
+    // Callers get copies, so changing one does not change the cached item
+    assertNotSame(first, second);
+    first.setQuantity(0);
+    assertEquals(5, itemCache.get(itemId, id -> testItem).getQuantity());
+
+    itemCache.invalidate(itemId);
+    itemCache.get(
+        itemId,
+        id -> {
+          loads.incrementAndGet();
+          return testItem;
+        });
+    assertEquals(2, loads.get());
+
+    Map<String, Object> stats = itemCache.getStats();
+    assertEquals(true, stats.get("enabled"));
+    assertEquals(2L, stats.get("hitCount"));
+    assertEquals(2L, stats.get("missCount"));
+    assertEquals(1L, stats.get("size"));
+
+    itemCache.invalidateAll();
+    assertEquals(0L, itemCache.getStats().get("size"));
+  }
+
+  /** Test missing items are not cached. */
+  @Test
+  public void testMissingItemsAreNotCached() {
+    ItemCache itemCache = new ItemCache(100, Duration.ofMinutes(5));
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      assertNull(
+          itemCache.get(
+              "missing",
+              id -> {
+                loads.incrementAndGet();
+                return null;
+              }));
+    }
+    assertEquals(2, loads.get());
+  }
+
+  /** Test disabled. */
+  @Test
+  public void testDisabled() {
+    ItemCache itemCache = ItemCache.disabled();
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      assertSame(
+          testItem,
+          itemCache.get(
+              "id",
+              id -> {
+                loads.incrementAndGet();
+                return testItem;
+              }));
+    }
+    assertEquals(2, loads.get());
+    assertEquals(false, itemCache.getStats().get("enabled"));
+  }
+}
@@ -0,0 +1,82 @@
+package service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/** The type Principal cache tests. */
+@SpringBootTest
+public class PrincipalCacheTests {
+
+  private final UserPrincipal principal =
+      new UserPrincipal(
+          User.builder()
+              .userId(UUID.randomUUID())
+              .username("testUser")
+              .password("password123")
+              .role(UserRoles.USER)
+              .lastAccess(LocalDateTime.now())
+              .build());
+
+  /** Test lookups only reach the DB on a miss. */
+  @Test
+  public void testLookupsReachDbOnMiss() {
+    PrincipalCache principalCache = new PrincipalCache(100, Duration.ofMinutes(1));
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(principal, principalCache.get("testUser", username -> principal));
+    }
+    assertEquals(1L, principalCache.getStats().get("dbLookups"));
+    assertEquals(2L, principalCache.getStats().get("hitCount"));
+
+    principalCache.invalidate("testUser");
+    principalCache.get("testUser", username -> principal);
+    assertEquals(2L, principalCache.getStats().get("dbLookups"));
+
+    principalCache.invalidateUser(principal.getUserId().toString());
+    principalCache.get("testUser", username -> principal);
+    assertEquals(3L, principalCache.getStats().get("dbLookups"));
+  }
+
+  /** Test unknown usernames are not cached. */
+  @Test
+  public void testUnknownUsernamesAreNotCached() {
+    PrincipalCache principalCache = new PrincipalCache(100, Duration.ofMinutes(1));
+
+    for (int i = 0; i < 2; i++) {
+      assertThrows(
+          UsernameNotFoundException.class,
+          () ->
+              principalCache.get(
+                  "unknown",
+                  username -> {
+                    throw new UsernameNotFoundException("user not found");
+                  }));
+    }
+    assertEquals(2L, principalCache.getStats().get("dbLookups"));
+    assertEquals(0L, principalCache.getStats().get("size"));
+  }
+
+  /** Test disabled. */
+  @Test
+  public void testDisabled() {
+    PrincipalCache principalCache = PrincipalCache.disabled();
+
+    principalCache.get("testUser", username -> principal);
+    principalCache.get("testUser", username -> principal);
+    principalCache.invalidateUser(principal.getUserId().toString());
+
+    assertEquals(2L, principalCache.getStats().get("dbLookups"));
+    assertEquals(false, principalCache.getStats().get("enabled"));
+  }
+}
@@ -0,0 +1,69 @@
+package service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type User inventory cache tests. */
+@SpringBootTest
+public class UserInventoryCacheTests {
+
+  private final String userId = UUID.randomUUID().toString();
+
+  private final List<String> inventoryIds = List.of(UUID.randomUUID().toString());
+
+  /** Test lookups only reach the DB on a miss, and after the user's access changed. */
+  @Test
+  public void testLookupsReachDbOnMiss() {
+    UserInventoryCache userInventoryCache = new UserInventoryCache(100, Duration.ofMinutes(1));
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(
+          inventoryIds,
+          userInventoryCache.get(
+              userId,
+              key -> {
+                loads.incrementAndGet();
+                return new ArrayList<>(inventoryIds);
+              }));
+    }
+    assertEquals(1, loads.get());
+    assertEquals(2L, userInventoryCache.getStats().get("hitCount"));
+
+    userInventoryCache.invalidate(userId);
+    userInventoryCache.get(
+        userId,
+        key -> {
+          loads.incrementAndGet();
+          return inventoryIds;
+        });
+    assertEquals(2, loads.get());
+  }
+
+  /** Test disabled. */
+  @Test
+  public void testDisabled() {
+    UserInventoryCache userInventoryCache = UserInventoryCache.disabled();
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      userInventoryCache.get(
+          userId,
+          key -> {
+            loads.incrementAndGet();
+            return inventoryIds;
+          });
+    }
+    userInventoryCache.invalidate(userId);
+
+    assertEquals(2, loads.get());
+    assertEquals(false, userInventoryCache.getStats().get("enabled"));
+  }
+}
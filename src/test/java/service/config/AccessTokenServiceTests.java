@@ -0,0 +1,95 @@
+package service.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/** The type Access token service tests. */
+@SpringBootTest
+public class AccessTokenServiceTests {
+
+  private static final byte[] KEY =
+      "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+  private final Instant now = Instant.parse("2024-11-01T12:00:00Z");
+
+  private final UserPrincipal principal =
+      new UserPrincipal(
+          User.builder()
+              .userId(UUID.randomUUID())
+              .username("user:with:colons")
+              .password("password123")
+              .role(UserRoles.ADMIN)
+              .lastAccess(LocalDateTime.now())
+              .build());
+
+  private AccessTokenService tokenServiceAt(Instant instant) {
+    return new AccessTokenService(
+        KEY, Duration.ofMinutes(15), Clock.fixed(instant, ZoneOffset.UTC));
+  }
+
+  /** Test issued tokens verify to the same user without the password. */
+  @Test
+  public void testIssueAndVerify() {
+    String token = tokenServiceAt(now).issue(principal);
+
+    UserPrincipal verified = tokenServiceAt(now.plusSeconds(60)).verify(token);
+
+    assertEquals(principal.getUserId(), verified.getUserId());
+    assertEquals("user:with:colons", verified.getUsername());
+    assertEquals(UserRoles.ADMIN, verified.getRole());
+    assertNull(verified.getPassword());
+  }
+
+  /** Test expired, tampered, foreign and malformed tokens are rejected. */
+  @Test
+  public void testRejectsInvalidTokens() {
+    final String token = tokenServiceAt(now).issue(principal);
+
+    assertNull(tokenServiceAt(now.plus(Duration.ofMinutes(15))).verify(token));
+
+    String payload = token.substring(0, token.indexOf('.'));
+    String signature = token.substring(token.indexOf('.'));
+    String forgedPayload =
+        new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8)
+            .replace("ADMIN", "USER");
+    String forged =
+        Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(forgedPayload.getBytes(StandardCharsets.UTF_8))
+            + signature;
+    assertNull(tokenServiceAt(now).verify(forged));
+
+    AccessTokenService otherKey =
+        new AccessTokenService(
+            "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8),
+            Duration.ofMinutes(15),
+            Clock.fixed(now, ZoneOffset.UTC));
+    assertNull(otherKey.verify(token));
+
+    assertNull(tokenServiceAt(now).verify("not-a-token"));
+    assertNull(tokenServiceAt(now).verify("!!!.???"));
+  }
+
+  /** Test short keys are refused. */
+  @Test
+  public void testShortKeyRefused() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new AccessTokenService("too short", Duration.ofMinutes(15)));
+  }
+}
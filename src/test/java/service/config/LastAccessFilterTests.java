@@ -0,0 +1,70 @@
+package service.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import jakarta.servlet.FilterChain;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import service.handler.LastAccessRecorder;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/** The type Last access filter tests. */
+@SpringBootTest
+public class LastAccessFilterTests {
+
+  @Mock private LastAccessRecorder lastAccessRecorder;
+
+  @Mock private FilterChain filterChain;
+
+  @InjectMocks private LastAccessFilter lastAccessFilter;
+
+  /** Clears the authentication set by a test. */
+  @AfterEach
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  /** Test authenticated requests record an access of their user. */
+  @Test
+  public void testAuthenticatedRequest() throws Exception {
+    UUID userId = UUID.randomUUID();
+    UserPrincipal principal =
+        new UserPrincipal(
+            User.builder().userId(userId).username("user").role(UserRoles.USER).build());
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    lastAccessFilter.doFilter(request, response, filterChain);
+
+    verify(lastAccessRecorder).record(eq(userId.toString()), any());
+    verify(filterChain).doFilter(request, response);
+  }
+
+  /** Test unauthenticated requests record nothing. */
+  @Test
+  public void testUnauthenticatedRequest() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    lastAccessFilter.doFilter(request, response, filterChain);
+
+    verify(lastAccessRecorder, never()).record(any(), any());
+    verify(filterChain).doFilter(request, response);
+  }
+}
@@ -0,0 +1,146 @@
+package service.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/** The type Schema migration runner tests. */
+@SpringBootTest
+public class SchemaMigrationRunnerTests {
+
+  /** Calls made to the lock functions, in order. */
+  private static final List<String> LOCK_CALLS = new ArrayList<>();
+
+  /** What GET_LOCK returns: 1 if acquired, 0 on timeout. */
+  private static int lockResult;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private SchemaMigrationRunner runner;
+
+  /** Stands in for the MySQL lock functions, which H2 does not have, in a fresh in-memory DB. */
+  @BeforeEach
+  public void setUp() {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    String tests = SchemaMigrationRunnerTests.class.getName();
+    jdbcTemplate.execute("CREATE ALIAS GET_LOCK FOR \"" + tests + ".getLock\"");
+    jdbcTemplate.execute("CREATE ALIAS RELEASE_LOCK FOR \"" + tests + ".releaseLock\"");
+    LOCK_CALLS.clear();
+    lockResult = 1;
+    runner =
+        new SchemaMigrationRunner(
+            jdbcTemplate, "classpath:db/test-migration", Duration.ofSeconds(10));
+  }
+
+  /**
+   * Records a lock request.
+   *
+   * @param name the lock
+   * @param timeout seconds to wait for it
+   * @return 1 if the lock is acquired, 0 if it timed out
+   */
+  public static int getLock(String name, long timeout) {
+    LOCK_CALLS.add("get " + name + " " + timeout);
+    return lockResult;
+  }
+
+  /**
+   * Records a lock release.
+   *
+   * @param name the lock
+   * @return 1 as the lock is released
+   */
+  public static int releaseLock(String name) {
+    LOCK_CALLS.add("release " + name);
+    return 1;
+  }
+
+  /** Test migrate. */
+  @Test
+  public void testMigrate() throws IOException {
+    assertEquals(List.of(1, 2, 3), runner.migrate());
+    assertEquals(
+        List.of("semi;colon", "dash -- dash", "three;"),
+        jdbcTemplate.queryForList("select label from Widgets order by widget_id", String.class));
+    assertEquals(
+        List.of("create widgets", "add widget index", "drop widget index"),
+        jdbcTemplate.queryForList(
+            "select description from schema_migrations order by version", String.class));
+    assertEquals(List.of("get schema_migrations 10", "release schema_migrations"), LOCK_CALLS);
+
+    // Applied migrations are not run again
+    assertTrue(runner.migrate().isEmpty());
+    assertEquals(3, jdbcTemplate.queryForObject("select count(*) from Widgets", Integer.class));
+    assertEquals(4, LOCK_CALLS.size());
+  }
+
+  /** Test a run that cannot take the lock fails without touching the schema. */
+  @Test
+  public void testLockNotAcquired() {
+    lockResult = 0;
+    assertThrows(IllegalStateException.class, () -> runner.migrate());
+    assertEquals(List.of("get schema_migrations 10"), LOCK_CALLS);
+    assertFalse(
+        jdbcTemplate.queryForList("show tables", String.class).stream()
+            .anyMatch("SCHEMA_MIGRATIONS"::equalsIgnoreCase));
+  }
+
+  /** Test migrations that failed after changing an index are run again, skipping the index. */
+  @Test
+  public void testRetryPartlyAppliedMigrations() throws IOException {
+    runner.migrate();
+
+    // V3 failed after dropping the index
+    jdbcTemplate.update("delete from schema_migrations where version = 3");
+    assertEquals(List.of(3), runner.migrate());
+
+    // V2 failed after creating the index, before inserting its row
+    jdbcTemplate.update("delete from schema_migrations where version >= 2");
+    jdbcTemplate.update("delete from Widgets where widget_id = 3");
+    jdbcTemplate.execute("CREATE INDEX idx_widgets_label ON Widgets (label)");
+    assertEquals(List.of(2, 3), runner.migrate());
+    assertEquals(3, jdbcTemplate.queryForObject("select count(*) from Widgets", Integer.class));
+  }
+
+  /** Test split statements. */
+  @Test
+  public void testSplitStatements() {
+    String script =
+        "-- comment only\n"
+            + "CREATE TABLE A (id INT); -- trailing comment\n"
+            + "\n"
+            + "DELIMITER $$\n"
+            + "CREATE TRIGGER t AFTER INSERT ON A FOR EACH ROW\n"
+            + "BEGIN\n"
+            + "  INSERT INTO B VALUES ('x;y');\n"
+            + "END$$\n"
+            + "DELIMITER ;\n"
+            + "DROP TABLE A";
+
+    assertEquals(
+        List.of(
+            "CREATE TABLE A (id INT)",
+            "CREATE TRIGGER t AFTER INSERT ON A FOR EACH ROW\n"
+                + "BEGIN\n"
+                + "INSERT INTO B VALUES ('x;y');\n"
+                + "END",
+            "DROP TABLE A"),
+        SchemaMigrationRunner.splitStatements(script));
+  }
+}
@@ -0,0 +1,73 @@
+package service.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import jakarta.servlet.FilterChain;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/** The type Token authentication filter tests. */
+@SpringBootTest
+public class TokenAuthenticationFilterTests {
+
+  @Mock private AccessTokenService accessTokenService;
+
+  @Mock private FilterChain filterChain;
+
+  @InjectMocks private TokenAuthenticationFilter tokenAuthenticationFilter;
+
+  /** Clears the authentication set by a test. */
+  @AfterEach
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  /** Test valid bearer tokens authenticate the request. */
+  @Test
+  public void testValidToken() throws Exception {
+    UserPrincipal principal =
+        new UserPrincipal(
+            User.builder().userId(UUID.randomUUID()).username("user").role(UserRoles.USER).build());
+    when(accessTokenService.verify("valid")).thenReturn(principal);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer valid");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    tokenAuthenticationFilter.doFilter(request, response, filterChain);
+
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    assertEquals(principal, authentication.getPrincipal());
+    assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+    verify(filterChain).doFilter(request, response);
+  }
+
+  /** Test invalid tokens and basic credentials leave the request unauthenticated. */
+  @Test
+  public void testInvalidTokenOrBasicAuth() throws Exception {
+    when(accessTokenService.verify("forged")).thenReturn(null);
+    for (String header : new String[] {"Bearer forged", "Basic dXNlcjpwYXNzd29yZA=="}) {
+      MockHttpServletRequest request = new MockHttpServletRequest();
+      request.addHeader("Authorization", header);
+      MockHttpServletResponse response = new MockHttpServletResponse();
+
+      tokenAuthenticationFilter.doFilter(request, response, filterChain);
+
+      assertNull(SecurityContextHolder.getContext().getAuthentication());
+      verify(filterChain).doFilter(request, response);
+    }
+  }
+}
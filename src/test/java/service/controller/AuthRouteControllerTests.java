@@ -0,0 +1,66 @@
+package service.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import service.config.AccessTokenService;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.util.UserRoles;
+
+/** Unit tests for the AuthRouteController class. */
+@SpringBootTest
+public class AuthRouteControllerTests {
+
+  @InjectMocks private AuthRouteController authRouteController;
+
+  @Mock private AccessTokenService accessTokenService;
+
+  private final UserPrincipal principal =
+      new UserPrincipal(
+          User.builder()
+              .userId(UUID.randomUUID())
+              .username("user")
+              .password("password")
+              .role(UserRoles.USER)
+              .build());
+
+  /** Test issue token. */
+  @Test
+  public void testIssueToken() {
+    // Test success with username and password
+    when(accessTokenService.issue(principal)).thenReturn("signed-token");
+    when(accessTokenService.getTimeToLive()).thenReturn(Duration.ofMinutes(15));
+    ResponseEntity<?> response =
+        authRouteController.issueToken(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(
+        Map.of("accessToken", "signed-token", "tokenType", "Bearer", "expiresIn", 900L),
+        response.getBody());
+
+    // Test a token cannot be exchanged for a new token
+    response =
+        authRouteController.issueToken(
+            new PreAuthenticatedAuthenticationToken(principal, null, principal.getAuthorities()));
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+
+    // Test internal error
+    when(accessTokenService.issue(principal)).thenThrow(RuntimeException.class);
+    response =
+        authRouteController.issueToken(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+  }
+}
@@ -3,8 +3,10 @@ package service.controller;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -19,8 +21,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import service.handler.InventoryItemsJunctionTableHelper;
+import service.handler.InventoryStatsTableSqlHelper;
 import service.handler.InventoryTableSqlHelper;
+import service.handler.ItemSearchIndex;
+import service.handler.NameCompletionIndex;
 import service.models.Inventory;
+import service.models.InventoryPage;
+import service.models.InventoryStats;
 import service.models.Item;
 import service.requests.CreateInventoryRequest;
 
@@ -34,6 +41,12 @@ public class InventoryRouteControllerTests {
 
   @Mock private InventoryItemsJunctionTableHelper inventoryItemsJunctionTableHelper;
 
+  @Mock private InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper;
+
+  @Mock private ItemSearchIndex itemSearchIndex;
+
+  @Mock private NameCompletionIndex nameCompletionIndex;
+
   private Inventory testInventory;
   private Item testItem;
 
@@ -250,6 +263,80 @@ public class InventoryRouteControllerTests {
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, getInventoryItemsResponse.getStatusCode());
   }
 
+  /** Test reading an inventory with a page of its items. */
+  @Test
+  public void testGetInventoryDetails() {
+    String inventoryId = testInventory.getInventoryId().toString();
+    InventoryPage page = new InventoryPage(testInventory, testItem.getItemId().toString());
+
+    // Test successful get
+    when(inventoryTableSqlHelper.getInventoryPage(inventoryId, null, 1, "So", null))
+        .thenReturn(page);
+    ResponseEntity<?> response =
+        inventoryRouteController.getInventoryDetails(inventoryId, null, 1, "So", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(page, response.getBody());
+
+    // Test missing inventoryId and out of range limits
+    response = inventoryRouteController.getInventoryDetails("", null, 1, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response = inventoryRouteController.getInventoryDetails(inventoryId, null, 0, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response = inventoryRouteController.getInventoryDetails(inventoryId, null, 501, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    // Test a cursor that is not an item id
+    response =
+        inventoryRouteController.getInventoryDetails(inventoryId, "not-a-uuid", 1, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    // Test inventory that couldn't be found
+    when(inventoryTableSqlHelper.getInventoryPage(inventoryId, null, 100, null, null))
+        .thenReturn(null);
+    response = inventoryRouteController.getInventoryDetails(inventoryId, null, 100, null, null);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+    // Test Internal Error caused by thrown exception.
+    when(inventoryTableSqlHelper.getInventoryPage(inventoryId, null, 100, null, null))
+        .thenThrow(RuntimeException.class);
+    response = inventoryRouteController.getInventoryDetails(inventoryId, null, 100, null, null);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+  }
+
+  /** Test reading the totals of an inventory. */
+  @Test
+  public void testGetInventoryStats() {
+    String inventoryId = testInventory.getInventoryId().toString();
+    InventoryStats stats =
+        InventoryStats.builder()
+            .inventoryId(testInventory.getInventoryId())
+            .itemCount(1)
+            .totalUnits(3000)
+            .stockValue(new BigDecimal("52140.00"))
+            .build();
+
+    // Test successful get
+    when(inventoryStatsTableSqlHelper.getInventoryStats(inventoryId)).thenReturn(stats);
+    ResponseEntity<?> response = inventoryRouteController.getInventoryStats(inventoryId);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+
+    // Test missing inventoryId
+    response = inventoryRouteController.getInventoryStats("");
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    // Test inventory that couldn't be found
+    when(inventoryStatsTableSqlHelper.getInventoryStats(inventoryId)).thenReturn(null);
+    response = inventoryRouteController.getInventoryStats(inventoryId);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+    // Test Internal Error caused by thrown exception.
+    when(inventoryStatsTableSqlHelper.getInventoryStats(inventoryId))
+        .thenThrow(RuntimeException.class);
+    response = inventoryRouteController.getInventoryStats(inventoryId);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+  }
+
   /** Testing the update of an inventory's name. */
   @Test
   public void testUpdateInventoryName() {
@@ -315,6 +402,8 @@ public class InventoryRouteControllerTests {
     assertEquals(
         "Successfully deleted inventory with inventoryId: " + inventoryId,
         deleteInventoryResponse.getBody());
+    verify(itemSearchIndex).removeInventory(testInventory.getInventoryId());
+    verify(nameCompletionIndex).removeInventory(testInventory.getInventoryId());
 
     // Test unsuccessful deletion
     when(inventoryTableSqlHelper.delete(any())).thenReturn(false);
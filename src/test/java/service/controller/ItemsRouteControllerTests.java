@@ -6,24 +6,38 @@ import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static service.util.DateTimeUtils.FORMATTER;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import service.handler.ItemSearchIndex;
 import service.handler.ItemsTableSqlHelper;
+import service.handler.NameCompletionIndex;
+import service.models.BatchInsertResult;
 import service.models.Item;
+import service.models.ItemPage;
+import service.models.ItemSearchHit;
 import service.requests.CreateItemRequest;
 
 /** Unit tests for the ItemsRouteController class. */
@@ -34,6 +48,12 @@ public class ItemsRouteControllerTests {
 
   @Mock private ItemsTableSqlHelper itemsTableSqlHelper;
 
+  @Mock private ItemSearchIndex itemSearchIndex;
+
+  @Mock private NameCompletionIndex nameCompletionIndex;
+
+  @Spy private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
   private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 
   private Item testItem;
@@ -77,26 +97,206 @@ public class ItemsRouteControllerTests {
 
     // Test successful creation.
     when(itemsTableSqlHelper.insertItem(any())).thenReturn(true);
-    ResponseEntity<?> createItemResponse = itemsRouteController.createItem(testItemRequest);
+    ResponseEntity<?> createItemResponse = itemsRouteController.createItem(testItemRequest, null);
     assertEquals(HttpStatus.CREATED, createItemResponse.getStatusCode());
 
     // Test null passed in for createItemRequest
-    createItemResponse = itemsRouteController.createItem(null);
+    createItemResponse = itemsRouteController.createItem(null, null);
     assertEquals(HttpStatus.BAD_REQUEST, createItemResponse.getStatusCode());
     assertEquals("Empty request", createItemResponse.getBody());
 
     // Test unsuccessful creation.
     when(itemsTableSqlHelper.insertItem(any())).thenReturn(false);
-    createItemResponse = itemsRouteController.createItem(testItemRequest);
+    createItemResponse = itemsRouteController.createItem(testItemRequest, null);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, createItemResponse.getStatusCode());
     assertEquals("Failed to create item", createItemResponse.getBody());
 
     // Test Internal error caused by thrown exception.
     doThrow(new RuntimeException()).when(itemsTableSqlHelper).insertItem(any());
-    createItemResponse = itemsRouteController.createItem(testItemRequest);
+    createItemResponse = itemsRouteController.createItem(testItemRequest, null);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, createItemResponse.getStatusCode());
   }
 
+  /** Test creating many items in one request. */
+  @Test
+  public void testCreateItems() {
+    CreateItemRequest validRequest =
+        CreateItemRequest.builder()
+            .itemName(testItem.getItemName())
+            .location(testItem.getLocation())
+            .inventoryId(testItem.getInventoryId())
+            .quantity(testItem.getQuantity())
+            .price(testItem.getPrice())
+            .build();
+
+    // Test every item created.
+    BatchInsertResult allInserted = new BatchInsertResult(2);
+    allInserted.addInserted(2);
+    when(itemsTableSqlHelper.insertItems(any())).thenReturn(allInserted);
+    ResponseEntity<?> createItemsResponse =
+        itemsRouteController.createItems(List.of(validRequest, validRequest));
+    assertEquals(HttpStatus.CREATED, createItemsResponse.getStatusCode());
+    assertEquals(2, ((BatchInsertResult) createItemsResponse.getBody()).getInserted());
+
+    // Test invalid rows reported at their position in the request.
+    CreateItemRequest negativeQuantityRequest =
+        CreateItemRequest.builder()
+            .itemName(testItem.getItemName())
+            .location(testItem.getLocation())
+            .inventoryId(testItem.getInventoryId())
+            .quantity(-1)
+            .build();
+    BatchInsertResult oneInserted = new BatchInsertResult(1);
+    oneInserted.addInserted(1);
+    when(itemsTableSqlHelper.insertItems(any())).thenReturn(oneInserted);
+    createItemsResponse =
+        itemsRouteController.createItems(List.of(negativeQuantityRequest, validRequest));
+    assertEquals(HttpStatus.MULTI_STATUS, createItemsResponse.getStatusCode());
+    BatchInsertResult result = (BatchInsertResult) createItemsResponse.getBody();
+    assertEquals(1, result.getInserted());
+    assertEquals(0, result.getFailures().get(0).getIndex());
+
+    // Test rows rejected by the DB are mapped back to their position in the request.
+    BatchInsertResult dbFailure = new BatchInsertResult(1);
+    dbFailure.addFailure(0, "Duplicate entry");
+    when(itemsTableSqlHelper.insertItems(any())).thenReturn(dbFailure);
+    createItemsResponse =
+        itemsRouteController.createItems(List.of(negativeQuantityRequest, validRequest));
+    result = (BatchInsertResult) createItemsResponse.getBody();
+    assertEquals(2, result.getFailures().size());
+    assertEquals(1, result.getFailures().get(1).getIndex());
+
+    // Test empty request
+    createItemsResponse = itemsRouteController.createItems(new ArrayList<>());
+    assertEquals(HttpStatus.BAD_REQUEST, createItemsResponse.getStatusCode());
+
+    // Test Internal error caused by thrown exception.
+    doThrow(new RuntimeException()).when(itemsTableSqlHelper).insertItems(any());
+    createItemsResponse = itemsRouteController.createItems(List.of(validRequest));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, createItemsResponse.getStatusCode());
+  }
+
+  /** Test paging through items. */
+  @Test
+  public void testGetItemsPage() {
+    ItemPage page = new ItemPage(List.of(testItem), testItem.getItemId().toString());
+
+    // Test successful GET.
+    when(itemsTableSqlHelper.getItemsPage(null, 1)).thenReturn(page);
+    ResponseEntity<?> getPageResponse = itemsRouteController.getItemsPage(null, 1);
+    assertEquals(HttpStatus.OK, getPageResponse.getStatusCode());
+    assertEquals(page, getPageResponse.getBody());
+
+    // Test out of range limits.
+    assertEquals(
+        HttpStatus.BAD_REQUEST, itemsRouteController.getItemsPage(null, 0).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST, itemsRouteController.getItemsPage(null, 501).getStatusCode());
+
+    // Test Internal error caused by thrown exception.
+    doThrow(new RuntimeException()).when(itemsTableSqlHelper).getItemsPage(null, 1);
+    getPageResponse = itemsRouteController.getItemsPage(null, 1);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, getPageResponse.getStatusCode());
+  }
+
+  /** Test searching the items of an inventory. */
+  @Test
+  public void testSearchItems() {
+    String inventoryId = testItem.getInventoryId().toString();
+    List<ItemSearchHit> hits =
+        List.of(
+            new ItemSearchHit(
+                testItem.getItemId(), testItem.getItemName(), testItem.getLocation(), 1.5));
+
+    // Test successful search.
+    when(itemSearchIndex.search(testItem.getInventoryId(), "socks", 20)).thenReturn(hits);
+    ResponseEntity<?> searchResponse = itemsRouteController.searchItems(inventoryId, "socks", 20);
+    assertEquals(HttpStatus.OK, searchResponse.getStatusCode());
+    assertEquals(hits, searchResponse.getBody());
+
+    // Test bad requests.
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        itemsRouteController.searchItems(inventoryId, "socks", 0).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        itemsRouteController.searchItems(inventoryId, "socks", 501).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        itemsRouteController.searchItems(inventoryId, " ", 20).getStatusCode());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        itemsRouteController.searchItems("not-a-uuid", "socks", 20).getStatusCode());
+
+    // Test the index not being built yet.
+    when(itemSearchIndex.search(testItem.getInventoryId(), "socks", 20)).thenReturn(null);
+    assertEquals(
+        HttpStatus.SERVICE_UNAVAILABLE,
+        itemsRouteController.searchItems(inventoryId, "socks", 20).getStatusCode());
+  }
+
+  /** Test exporting items as newline delimited JSON. */
+  @Test
+  public void testExportItems() throws IOException {
+    doAnswer(
+            invocation -> {
+              Consumer<Item> consumer = invocation.getArgument(0);
+              consumer.accept(testItem);
+              consumer.accept(testItem);
+              return null;
+            })
+        .when(itemsTableSqlHelper)
+        .streamAllItems(any());
+
+    MockHttpServletResponse exportResponse = new MockHttpServletResponse();
+    itemsRouteController.exportItems(exportResponse);
+    assertEquals(HttpStatus.OK.value(), exportResponse.getStatus());
+    assertEquals(MediaType.APPLICATION_NDJSON_VALUE, exportResponse.getContentType());
+    String[] lines = exportResponse.getContentAsString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(2, lines.length);
+    assertEquals(
+        testItem.getItemName(), objectMapper.readValue(lines[1], Map.class).get("itemName"));
+  }
+
+  /** Test getting a whole item or a projection of its fields. */
+  @Test
+  public void testGetItem() {
+    List<Item> testItemList = new ArrayList<>();
+    testItemList.add(testItem);
+    String itemId = testItem.getItemId().toString();
+
+    // Test successful GET of the whole item.
+    when(itemsTableSqlHelper.getItem(itemId)).thenReturn(testItemList);
+    ResponseEntity<?> getItemResponse = itemsRouteController.getItem(itemId, null);
+    assertEquals(HttpStatus.OK, getItemResponse.getStatusCode());
+    assertEquals(testItem, getItemResponse.getBody());
+
+    // Test successful GET of a projection.
+    Map<String, Object> fields = Map.of("itemName", testItem.getItemName());
+    when(itemsTableSqlHelper.getItemFields(itemId, List.of("itemName"))).thenReturn(fields);
+    getItemResponse = itemsRouteController.getItem(itemId, List.of("itemName"));
+    assertEquals(HttpStatus.OK, getItemResponse.getStatusCode());
+    assertEquals(fields, getItemResponse.getBody());
+
+    // Test unknown field.
+    getItemResponse = itemsRouteController.getItem(itemId, List.of("password"));
+    assertEquals(HttpStatus.BAD_REQUEST, getItemResponse.getStatusCode());
+
+    // Test empty itemId.
+    getItemResponse = itemsRouteController.getItem("", null);
+    assertEquals(HttpStatus.BAD_REQUEST, getItemResponse.getStatusCode());
+
+    // Test item not found.
+    when(itemsTableSqlHelper.getItem(itemId)).thenReturn(new ArrayList<>());
+    getItemResponse = itemsRouteController.getItem(itemId, null);
+    assertEquals(HttpStatus.NOT_FOUND, getItemResponse.getStatusCode());
+
+    // Test Internal error caused by thrown exception.
+    doThrow(new RuntimeException()).when(itemsTableSqlHelper).getItem(itemId);
+    getItemResponse = itemsRouteController.getItem(itemId, null);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, getItemResponse.getStatusCode());
+  }
+
   /** Test get the next restock time for an item. */
   @Test
   public void testGetNextRestockTime() {
@@ -0,0 +1,130 @@
+package service.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import service.cache.ItemCache;
+import service.cache.PrincipalCache;
+import service.cache.UserInventoryCache;
+import service.handler.InventoryStatsReconciler;
+import service.handler.ItemSearchIndex;
+import service.handler.NameCompletionIndex;
+import service.handler.ReservationExpirySweeper;
+
+/** Unit tests for the MetricsRouteController class. */
+@SpringBootTest
+public class MetricsRouteControllerTests {
+
+  @InjectMocks private MetricsRouteController metricsRouteController;
+
+  @Mock private ItemCache itemCache;
+
+  @Mock private PrincipalCache principalCache;
+
+  @Mock private UserInventoryCache userInventoryCache;
+
+  @Mock private ReservationExpirySweeper reservationExpirySweeper;
+
+  @Mock private InventoryStatsReconciler inventoryStatsReconciler;
+
+  @Mock private ItemSearchIndex itemSearchIndex;
+
+  @Mock private NameCompletionIndex nameCompletionIndex;
+
+  /** Test get item cache metrics. */
+  @Test
+  public void testGetItemCacheMetrics() {
+    Map<String, Object> stats = Map.of("hitCount", 3L, "missCount", 1L);
+    when(itemCache.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response = metricsRouteController.getItemCacheMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get principal cache metrics. */
+  @Test
+  public void testGetPrincipalCacheMetrics() {
+    Map<String, Object> stats = Map.of("dbLookups", 2L, "hitCount", 40L);
+    when(principalCache.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getPrincipalCacheMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get user inventory cache metrics. */
+  @Test
+  public void testGetUserInventoryCacheMetrics() {
+    Map<String, Object> stats = Map.of("hitCount", 12L, "missCount", 2L);
+    when(userInventoryCache.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getUserInventoryCacheMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get reservation sweeper metrics. */
+  @Test
+  public void testGetReservationSweeperMetrics() {
+    Map<String, Object> stats = Map.of("sweeps", 5L, "lastExpired", 120L);
+    when(reservationExpirySweeper.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getReservationSweeperMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get inventory stats reconciler metrics. */
+  @Test
+  public void testGetInventoryStatsReconcilerMetrics() {
+    Map<String, Object> stats = Map.of("runs", 2L, "totalRepaired", 1L);
+    when(inventoryStatsReconciler.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getInventoryStatsReconcilerMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get item search index metrics. */
+  @Test
+  public void testGetItemSearchIndexMetrics() {
+    Map<String, Object> stats = Map.of("ready", true, "items", 12L);
+    when(itemSearchIndex.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getItemSearchIndexMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+
+  /** Test get name completion index metrics. */
+  @Test
+  public void testGetNameCompletionIndexMetrics() {
+    Map<String, Object> stats = Map.of("ready", true, "completions", 7L);
+    when(nameCompletionIndex.getStats()).thenReturn(stats);
+
+    ResponseEntity<Map<String, Object>> response =
+        metricsRouteController.getNameCompletionIndexMetrics();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(stats, response.getBody());
+  }
+}
@@ -1,9 +1,12 @@
 package service.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
@@ -20,9 +23,19 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import service.exceptions.ReservationException;
+import service.handler.BookingService;
 import service.handler.ItemReservationService;
 import service.handler.ItemsTableSqlHelper;
+import service.handler.ReservationsTableSqlHelper;
+import service.models.Booking;
+import service.models.CartReservationResult;
 import service.models.Item;
+import service.models.Reservation;
+import service.models.TimeWindow;
+import service.models.User;
+import service.models.UserPrincipal;
+import service.requests.ReserveCartRequest;
+import service.util.UserRoles;
 
 /** Unit tests for the reservation logic of the service. */
 @SpringBootTest
@@ -32,10 +45,16 @@ public class ReservationRouteControllerTest {
 
   @Mock private ItemReservationService itemReservationService;
 
+  @Mock private BookingService bookingService;
+
   @Mock private ItemsTableSqlHelper itemsTableSqlHelper;
 
+  @Mock private ReservationsTableSqlHelper reservationsTableSqlHelper;
+
   private Item testItem;
 
+  private Reservation testReservation;
+
   /** Sets . */
   @BeforeEach
   public void setup() {
@@ -47,150 +66,286 @@ public class ReservationRouteControllerTest {
             .location("Ya Motha's House")
             .inventoryId(UUID.fromString("dd18911c-a3fd-4f08-819e-a917f2baad18"))
             .quantity(3000)
+            .reservedQuantity(10)
             .price(17.38)
             .nextRestockDateTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
             .reservationStatus(true)
-            .reservationTime(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
-            .reservationDurationInMillis(1000 * 60 * 60 * 24)
+            .build();
+    testReservation =
+        Reservation.builder()
+            .reservationId(UUID.fromString("0192f5a0-7b1c-7d2e-8f3a-4b5c6d7e8f90"))
+            .itemId(testItem.getItemId())
+            .quantity(10)
+            .reservedAt(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+            .expiresAt(LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS))
             .build();
 
-    // Mock the items wrapper for the routes that need it
+    // Mock the table wrappers for the routes that need them
     when(itemReservationService.getItemsTableSqlHelper()).thenReturn(itemsTableSqlHelper);
+    when(itemReservationService.getReservationsTableSqlHelper())
+        .thenReturn(reservationsTableSqlHelper);
   }
 
   /** Testing the creating of a reservation. */
   @Test
   public void testCreateReservation() throws ReservationException {
+    final UserPrincipal principal =
+        new UserPrincipal(
+            User.builder().userId(UUID.randomUUID()).username("user").role(UserRoles.USER).build());
+    final String itemId = testItem.getItemId().toString();
 
-    // Test successful creation.
-    when(itemReservationService.reserveItem(anyString(), anyInt(), anyLong())).thenReturn(testItem);
+    // Test successful creation, held for the authenticated user
+    when(itemReservationService.reserveItem(
+            eq(itemId), eq(principal.getUserId()), anyInt(), anyLong()))
+        .thenReturn(testReservation);
     ResponseEntity<?> createReservationResponse =
-        reservationRouteController.createReservation(
-            testItem.getItemId().toString(),
-            testItem.getQuantity(),
-            testItem.getReservationDurationInMillis());
+        reservationRouteController.createReservation(itemId, 10, 60_000, principal, null);
     assertEquals(HttpStatus.OK, createReservationResponse.getStatusCode());
+    assertTrue(
+        createReservationResponse
+            .getBody()
+            .toString()
+            .contains(testReservation.getReservationId().toString()));
 
     // Test null passed into the itemId
     createReservationResponse =
-        reservationRouteController.createReservation(
-            null, testItem.getQuantity(), testItem.getReservationDurationInMillis());
+        reservationRouteController.createReservation(null, 10, 60_000, principal, null);
     assertEquals(HttpStatus.BAD_REQUEST, createReservationResponse.getStatusCode());
 
     // Test quantity passed in as 0
     createReservationResponse =
-        reservationRouteController.createReservation(
-            testItem.getItemId().toString(), 0, testItem.getReservationDurationInMillis());
+        reservationRouteController.createReservation(itemId, 0, 60_000, principal, null);
     assertEquals(HttpStatus.BAD_REQUEST, createReservationResponse.getStatusCode());
 
-    // Test quantity passed in as 0
+    // Test duration passed in as 0
+    createReservationResponse =
+        reservationRouteController.createReservation(itemId, 10, 0, principal, null);
+    assertEquals(HttpStatus.BAD_REQUEST, createReservationResponse.getStatusCode());
+
+    // Test not enough quantity left
+    when(itemReservationService.reserveItem(anyString(), any(), anyInt(), anyLong()))
+        .thenThrow(new ReservationException("Item is not available in requested quantity"));
     createReservationResponse =
-        reservationRouteController.createReservation(
-            testItem.getItemId().toString(), testItem.getQuantity(), 0);
+        reservationRouteController.createReservation(itemId, 10, 60_000, null, null);
     assertEquals(HttpStatus.BAD_REQUEST, createReservationResponse.getStatusCode());
 
     // Testing the exception thrown from the route
     doThrow(new RuntimeException())
         .when(itemReservationService)
-        .reserveItem(anyString(), anyInt(), anyLong());
+        .reserveItem(anyString(), any(), anyInt(), anyLong());
     createReservationResponse =
-        reservationRouteController.createReservation(
-            testItem.getItemId().toString(),
-            testItem.getQuantity(),
-            testItem.getReservationDurationInMillis());
+        reservationRouteController.createReservation(itemId, 10, 60_000, principal, null);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, createReservationResponse.getStatusCode());
   }
 
+  /** Testing the reserving of a cart. */
+  @Test
+  public void testReserveCart() {
+    final List<ReserveCartRequest.CartItem> cartItems =
+        List.of(
+            ReserveCartRequest.CartItem.builder()
+                .itemId(testItem.getItemId().toString())
+                .quantity(10)
+                .build());
+    final ReserveCartRequest request =
+        ReserveCartRequest.builder().items(cartItems).durationInMillis(60_000).build();
+
+    // Test every item held
+    CartReservationResult reserved = new CartReservationResult(1);
+    reserved.addReservations(List.of(testReservation));
+    when(itemReservationService.reserveCart(eq(cartItems), any(), eq(60_000L)))
+        .thenReturn(reserved);
+    ResponseEntity<?> response = reservationRouteController.reserveCart(request, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(reserved, response.getBody());
+
+    // Test an item that could not be held
+    CartReservationResult rejected = new CartReservationResult(1);
+    rejected.addFailure(0, "Item is not available in requested quantity");
+    when(itemReservationService.reserveCart(eq(cartItems), any(), eq(60_000L)))
+        .thenReturn(rejected);
+    response = reservationRouteController.reserveCart(request, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals(rejected, response.getBody());
+
+    // Test empty, oversized and zero duration carts
+    response =
+        reservationRouteController.reserveCart(
+            ReserveCartRequest.builder().items(List.of()).durationInMillis(60_000).build(), null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    List<ReserveCartRequest.CartItem> oversized = new ArrayList<>();
+    for (int i = 0; i <= ReservationRouteController.MAX_CART_ITEMS; i++) {
+      oversized.add(cartItems.get(0));
+    }
+    response =
+        reservationRouteController.reserveCart(
+            ReserveCartRequest.builder().items(oversized).durationInMillis(60_000).build(), null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response =
+        reservationRouteController.reserveCart(
+            ReserveCartRequest.builder().items(cartItems).build(), null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    // Testing the exception thrown from the route
+    when(itemReservationService.reserveCart(any(), any(), anyLong()))
+        .thenThrow(new RuntimeException());
+    response = reservationRouteController.reserveCart(request, null);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+  }
+
   /** Testing the extension of a reservation. */
   @Test
   public void testExtendReservation() throws ReservationException {
+    String reservationId = testReservation.getReservationId().toString();
 
     // Test successful extension.
-    when(itemReservationService.extendReservation(anyString(), anyLong())).thenReturn(testItem);
+    when(itemReservationService.extendReservation(anyString(), anyLong()))
+        .thenReturn(testReservation);
     ResponseEntity<?> extendReservationResponse =
-        reservationRouteController.extendReservation(
-            testItem.getItemId().toString(), testItem.getReservationDurationInMillis());
+        reservationRouteController.extendReservation(reservationId, 60_000);
     assertEquals(HttpStatus.OK, extendReservationResponse.getStatusCode());
 
-    // Test null passed into the itemId
-    extendReservationResponse =
-        reservationRouteController.extendReservation(
-            null, testItem.getReservationDurationInMillis());
+    // Test null passed into the reservationId
+    extendReservationResponse = reservationRouteController.extendReservation(null, 60_000);
     assertEquals(HttpStatus.BAD_REQUEST, extendReservationResponse.getStatusCode());
 
     // Test duration passed in as 0
-    extendReservationResponse =
-        reservationRouteController.extendReservation(testItem.getItemId().toString(), 0);
+    extendReservationResponse = reservationRouteController.extendReservation(reservationId, 0);
     assertEquals(HttpStatus.BAD_REQUEST, extendReservationResponse.getStatusCode());
 
     // Testing the exception thrown from the route
     doThrow(new RuntimeException())
         .when(itemReservationService)
         .extendReservation(anyString(), anyLong());
-    extendReservationResponse =
-        reservationRouteController.extendReservation(
-            testItem.getItemId().toString(), testItem.getReservationDurationInMillis());
+    extendReservationResponse = reservationRouteController.extendReservation(reservationId, 60_000);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, extendReservationResponse.getStatusCode());
   }
 
   /** Testing the cancellation of a reservation. */
   @Test
   public void testCancelReservation() throws ReservationException {
+    String reservationId = testReservation.getReservationId().toString();
 
     // Test successful cancel.
-    when(itemReservationService.cancelReservation(anyString(), anyInt())).thenReturn(testItem);
+    when(itemReservationService.cancelReservation(reservationId)).thenReturn(testReservation);
     ResponseEntity<?> cancelReservationResponse =
-        reservationRouteController.cancelReservation(
-            testItem.getItemId().toString(), testItem.getQuantity());
+        reservationRouteController.cancelReservation(reservationId);
     assertEquals(HttpStatus.OK, cancelReservationResponse.getStatusCode());
 
-    // Test null passed into the itemId
-    cancelReservationResponse =
-        reservationRouteController.cancelReservation(null, testItem.getQuantity());
+    // Test null passed into the reservationId
+    cancelReservationResponse = reservationRouteController.cancelReservation(null);
     assertEquals(HttpStatus.BAD_REQUEST, cancelReservationResponse.getStatusCode());
 
-    // Test duration passed in as 0
-    cancelReservationResponse =
-        reservationRouteController.extendReservation(testItem.getItemId().toString(), 0);
+    // Test reservation not found
+    when(itemReservationService.cancelReservation(reservationId))
+        .thenThrow(new ReservationException("Reservation not found: " + reservationId));
+    cancelReservationResponse = reservationRouteController.cancelReservation(reservationId);
     assertEquals(HttpStatus.BAD_REQUEST, cancelReservationResponse.getStatusCode());
 
     // Testing the exception thrown from the route
-    doThrow(new RuntimeException())
-        .when(itemReservationService)
-        .extendReservation(anyString(), anyLong());
-    cancelReservationResponse =
-        reservationRouteController.extendReservation(
-            testItem.getItemId().toString(), testItem.getReservationDurationInMillis());
+    doThrow(new RuntimeException()).when(itemReservationService).cancelReservation(anyString());
+    cancelReservationResponse = reservationRouteController.cancelReservation(reservationId);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, cancelReservationResponse.getStatusCode());
   }
 
   /** Testing getting the status of a reservation. */
   @Test
-  public void testGetReservationStatus() throws ReservationException {
+  public void testGetReservationStatus() {
 
     List<Item> items = new ArrayList<>();
     items.add(testItem);
 
-    // Test successful get.
-    when(itemsTableSqlHelper.getItem(anyString())).thenReturn(items);
+    // Test successful get, listing every hold
+    when(itemsTableSqlHelper.getItemFromDb(anyString())).thenReturn(items);
+    when(reservationsTableSqlHelper.getReservationsByItemId(anyString()))
+        .thenReturn(List.of(testReservation));
     ResponseEntity<?> getReservationStatusResponse =
         reservationRouteController.getReservationStatus(testItem.getItemId().toString());
     assertEquals(HttpStatus.OK, getReservationStatusResponse.getStatusCode());
+    assertTrue(
+        getReservationStatusResponse
+            .getBody()
+            .toString()
+            .contains("Reservation " + testReservation.getReservationId() + ": 10 units"));
 
     // Test null passed into the itemId
     getReservationStatusResponse = reservationRouteController.getReservationStatus(null);
     assertEquals(HttpStatus.BAD_REQUEST, getReservationStatusResponse.getStatusCode());
 
     // Test item not found
-    when(itemsTableSqlHelper.getItem(anyString())).thenReturn(new ArrayList<>());
+    when(itemsTableSqlHelper.getItemFromDb(anyString())).thenReturn(new ArrayList<>());
     getReservationStatusResponse =
         reservationRouteController.getReservationStatus(testItem.getItemId().toString());
     assertEquals(HttpStatus.NOT_FOUND, getReservationStatusResponse.getStatusCode());
 
     // Testing the exception thrown from the route
-    doThrow(new RuntimeException()).when(itemsTableSqlHelper).getItem(anyString());
+    doThrow(new RuntimeException()).when(itemsTableSqlHelper).getItemFromDb(anyString());
     getReservationStatusResponse =
         reservationRouteController.getReservationStatus(testItem.getItemId().toString());
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, getReservationStatusResponse.getStatusCode());
   }
+
+  /** Testing booking an item for a time window, cancelling it and listing the free windows. */
+  @Test
+  public void testBookings() throws ReservationException {
+    LocalDateTime startsAt = LocalDateTime.of(2030, 1, 1, 10, 0);
+    LocalDateTime endsAt = startsAt.plusHours(2);
+    Booking booking =
+        Booking.builder()
+            .bookingId(UUID.fromString("0192f5a0-7b1c-7d2e-8f3a-4b5c6d7e8f91"))
+            .itemId(testItem.getItemId())
+            .startsAt(startsAt)
+            .endsAt(endsAt)
+            .build();
+    final String itemId = testItem.getItemId().toString();
+
+    // Test successful booking
+    when(bookingService.bookItem(eq(itemId), any(), eq(startsAt), eq(endsAt))).thenReturn(booking);
+    ResponseEntity<String> response =
+        reservationRouteController.bookItem(
+            itemId, "2030-01-01 10:00:00", "2030-01-01 12:00:00", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertTrue(response.getBody().contains("Booking ID: " + booking.getBookingId()));
+
+    // Test badly formatted times and a missing itemId
+    response = reservationRouteController.bookItem(itemId, "tomorrow", "2030-01-01 12:00:00", null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response =
+        reservationRouteController.bookItem(
+            null, "2030-01-01 10:00:00", "2030-01-01 12:00:00", null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    // Test an overlapping window
+    when(bookingService.bookItem(eq(itemId), any(), eq(startsAt), eq(endsAt)))
+        .thenThrow(new ReservationException("Item is already booked"));
+    response =
+        reservationRouteController.bookItem(
+            itemId, "2030-01-01 10:00:00", "2030-01-01 12:00:00", null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals("Item is already booked", response.getBody());
+
+    // Test cancelling the booking, and a booking that does not exist
+    when(bookingService.cancelBooking("booking")).thenReturn(booking);
+    response = reservationRouteController.cancelBooking("booking");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    when(bookingService.cancelBooking("missing"))
+        .thenThrow(new ReservationException("Booking not found: missing"));
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        reservationRouteController.cancelBooking("missing").getStatusCode());
+
+    // Test listing the free windows
+    List<TimeWindow> freeSlots = List.of(new TimeWindow(endsAt, endsAt.plusHours(10)));
+    when(bookingService.getFreeSlots(itemId, startsAt, endsAt.plusHours(10))).thenReturn(freeSlots);
+    ResponseEntity<?> freeSlotsResponse =
+        reservationRouteController.getFreeSlots(
+            itemId, "2030-01-01 10:00:00", "2030-01-01 22:00:00");
+    assertEquals(HttpStatus.OK, freeSlotsResponse.getStatusCode());
+    assertEquals(freeSlots, freeSlotsResponse.getBody());
+    doThrow(new RuntimeException()).when(bookingService).getFreeSlots(anyString(), any(), any());
+    freeSlotsResponse =
+        reservationRouteController.getFreeSlots(
+            itemId, "2030-01-01 10:00:00", "2030-01-01 22:00:00");
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, freeSlotsResponse.getStatusCode());
+  }
 }
@@ -3,12 +3,16 @@ package service.controller;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static service.util.DateTimeUtils.FORMATTER;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,8 +21,16 @@ import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import service.cache.PrincipalCache;
+import service.handler.ItemSearchIndex;
+import service.handler.LastAccessRecorder;
+import service.handler.NameCompletionIndex;
+import service.handler.UserInventoryJunctionTableHelper;
 import service.handler.UsersTableSqlHelper;
+import service.models.Completion;
 import service.models.User;
+import service.models.UserPrincipal;
+import service.util.CompletionRank;
 import service.util.UserRoles;
 
 /** Unit tests for the UserRouteController class. */
@@ -29,6 +41,16 @@ public class UserRouteControllerTests {
 
   @Mock private UsersTableSqlHelper usersTableSqlHelper;
 
+  @Mock private PrincipalCache principalCache;
+
+  @Mock private LastAccessRecorder lastAccessRecorder;
+
+  @Mock private UserInventoryJunctionTableHelper userInventoryJunctionTableHelper;
+
+  @Mock private NameCompletionIndex nameCompletionIndex;
+
+  @Mock private ItemSearchIndex itemSearchIndex;
+
   private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 
   private User testUser;
@@ -161,6 +183,17 @@ public class UserRouteControllerTests {
     assertEquals("userId needed to get time of last access.", getLastAccessResponse.getBody());
     assertEquals(HttpStatus.BAD_REQUEST, getLastAccessResponse.getStatusCode());
 
+    // Test an access not yet written to the DB is returned
+    LocalDateTime pendingAccess = testUser.getLastAccess().plusMinutes(5);
+    when(lastAccessRecorder.getPendingAccess(userId)).thenReturn(pendingAccess);
+    getLastAccessResponse = userRouteController.getLastAccess(userId);
+    assertEquals(pendingAccess.format(FORMATTER), getLastAccessResponse.getBody());
+    // An older pending access does not hide the one in the DB
+    when(lastAccessRecorder.getPendingAccess(userId)).thenReturn(pendingAccess.minusHours(1));
+    getLastAccessResponse = userRouteController.getLastAccess(userId);
+    assertEquals(expectedLastAccess, getLastAccessResponse.getBody());
+    when(lastAccessRecorder.getPendingAccess(userId)).thenReturn(null);
+
     // Test null lastAccess
     testUser.setLastAccess(null);
     getLastAccessResponse = userRouteController.getLastAccess(userId);
@@ -320,6 +353,7 @@ public class UserRouteControllerTests {
             + newUsername,
         updateUsernameResponse.getBody());
     assertEquals(HttpStatus.OK, updateUsernameResponse.getStatusCode());
+    verify(principalCache, atLeastOnce()).invalidate(testUser.getUsername());
 
     // Test internal error
     when(usersTableSqlHelper.updateUsername(anyString(), anyString()))
@@ -400,6 +434,7 @@ public class UserRouteControllerTests {
             + UserRoles.ADMIN,
         updateRoleResponse.getBody());
     assertEquals(HttpStatus.OK, updateRoleResponse.getStatusCode());
+    verify(principalCache, atLeastOnce()).invalidate(testUser.getUsername());
 
     // Test internal error
     when(usersTableSqlHelper.updateRole(anyString(), anyString()))
@@ -414,11 +449,17 @@ public class UserRouteControllerTests {
   public void testDeleteUser() {
     String userId = testUser.getUserId().toString();
 
-    // Test success
+    // Test success, dropping the default inventory the trigger deletes from the indexes
+    UUID defaultInventoryId = UUID.randomUUID();
+    when(userInventoryJunctionTableHelper.getDefaultInventoryIdsByUserId(userId))
+        .thenReturn(List.of(defaultInventoryId.toString()));
     when(usersTableSqlHelper.delete(userId)).thenReturn(true);
     ResponseEntity<?> deleteUserResponse = userRouteController.deleteUser(userId);
     assertEquals("Successfully deleted user with userId: " + userId, deleteUserResponse.getBody());
     assertEquals(HttpStatus.OK, deleteUserResponse.getStatusCode());
+    verify(principalCache).invalidateUser(userId);
+    verify(itemSearchIndex).removeInventory(defaultInventoryId);
+    verify(nameCompletionIndex).removeInventory(defaultInventoryId);
 
     // Test invalid (null) userId
     deleteUserResponse = userRouteController.deleteUser(null);
@@ -443,4 +484,82 @@ public class UserRouteControllerTests {
     deleteUserResponse = userRouteController.deleteUser(userId);
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, deleteUserResponse.getStatusCode());
   }
+
+  /** Test autocomplete. */
+  @Test
+  public void testAutocomplete() {
+    String userId = testUser.getUserId().toString();
+    UserPrincipal principal = new UserPrincipal(testUser);
+    UUID inventoryId = UUID.randomUUID();
+    List<Completion> completions =
+        List.of(new Completion(Completion.ITEM, UUID.randomUUID(), inventoryId, "Socks", 3, now));
+    when(userInventoryJunctionTableHelper.getInventoryIdsByUserId(userId))
+        .thenReturn(List.of(inventoryId.toString()));
+    when(nameCompletionIndex.complete(List.of(inventoryId), "so", 5, CompletionRank.RECENCY))
+        .thenReturn(completions);
+
+    // Test the inventories come from the authenticated user
+    ResponseEntity<?> response =
+        userRouteController.autocomplete(null, "so", 5, "Recency", principal);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(completions, response.getBody());
+    response = userRouteController.autocomplete(userId, "so", 5, "Recency", principal);
+    assertEquals(completions, response.getBody());
+
+    // Test index not built yet
+    when(nameCompletionIndex.complete(List.of(inventoryId), "so", 5, CompletionRank.QUANTITY))
+        .thenReturn(null);
+    response = userRouteController.autocomplete("", "so", 5, "quantity", principal);
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+
+    // Test invalid parameters
+    response = userRouteController.autocomplete(userId, " ", 5, "quantity", principal);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response = userRouteController.autocomplete(userId, "so", 11, "quantity", principal);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response = userRouteController.autocomplete(userId, "so", 5, "price", principal);
+    assertEquals("rankBy must be quantity or recency.", response.getBody());
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    response = userRouteController.autocomplete(userId, "so", 5, "quantity", null);
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+
+    // Test internal server error
+    when(userInventoryJunctionTableHelper.getInventoryIdsByUserId(userId))
+        .thenThrow(new RuntimeException("Database connection error"));
+    response = userRouteController.autocomplete(userId, "so", 5, "quantity", principal);
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+  }
+
+  /** Test users cannot complete over another user's inventories, while admins can. */
+  @Test
+  public void testAutocompleteOtherUser() {
+    String otherUserId = UUID.randomUUID().toString();
+    UUID otherInventoryId = UUID.randomUUID();
+    List<Completion> completions =
+        List.of(
+            new Completion(
+                Completion.INVENTORY, otherInventoryId, otherInventoryId, "Vault", 9, now));
+    when(userInventoryJunctionTableHelper.getInventoryIdsByUserId(otherUserId))
+        .thenReturn(List.of(otherInventoryId.toString()));
+    when(nameCompletionIndex.complete(List.of(otherInventoryId), "va", 10, CompletionRank.QUANTITY))
+        .thenReturn(completions);
+
+    ResponseEntity<?> response =
+        userRouteController.autocomplete(
+            otherUserId, "va", 10, "quantity", new UserPrincipal(testUser));
+    assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    verify(userInventoryJunctionTableHelper, never()).getInventoryIdsByUserId(otherUserId);
+
+    UserPrincipal admin =
+        new UserPrincipal(
+            User.builder()
+                .username("admin")
+                .userId(UUID.randomUUID())
+                .lastAccess(now)
+                .role(UserRoles.ADMIN)
+                .build());
+    response = userRouteController.autocomplete(otherUserId, "va", 10, "quantity", admin);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(completions, response.getBody());
+  }
 }
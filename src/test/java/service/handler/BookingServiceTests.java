@@ -0,0 +1,179 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.exceptions.ReservationException;
+import service.models.Booking;
+import service.models.Item;
+import service.models.TimeWindow;
+
+/** Runs the booking service against an H2 copy of the schema. */
+@SpringBootTest
+public class BookingServiceTests {
+
+  private final String itemId = UUID.randomUUID().toString();
+
+  private final LocalDateTime day = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+
+  private ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private BookingsTableSqlHelper bookingsTableSqlHelper;
+
+  private BookingService bookingService;
+
+  /** Creates the schema in a fresh in-memory DB and adds an item. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:"
+                    + UUID.randomUUID()
+                    + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of("db/migration/V3__reservations.sql", "db/migration/V7__bookings.sql"));
+    itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.fromString(itemId))
+            .itemName("Meeting room")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(1)
+            .location("Floor 2")
+            .price(10.0)
+            .inventoryId(UUID.randomUUID())
+            .build());
+    bookingsTableSqlHelper = new BookingsTableSqlHelper();
+    bookingsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    bookingsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    bookingService = newService();
+  }
+
+  /** Test overlapping windows are rejected, and free windows follow bookings and cancellations. */
+  @Test
+  public void testBookAndListFreeSlots() throws ReservationException {
+    assertEquals(List.of("00:00-00:00"), freeSlots(bookingService));
+
+    bookingService.bookItem(itemId, null, hour(9), hour(11));
+    final Booking afternoon = bookingService.bookItem(itemId, null, hour(13), hour(15));
+    // Windows touching a booking do not overlap it
+    bookingService.bookItem(itemId, null, hour(11), hour(12));
+    ReservationException overlap =
+        assertThrows(
+            ReservationException.class,
+            () -> bookingService.bookItem(itemId, null, hour(14), hour(16)));
+    assertTrue(overlap.getMessage().contains("already booked"));
+    assertThrows(
+        ReservationException.class, () -> bookingService.bookItem(itemId, null, hour(8), hour(20)));
+
+    assertEquals(List.of("00:00-09:00", "12:00-13:00", "15:00-00:00"), freeSlots(bookingService));
+
+    bookingService.cancelBooking(afternoon.getBookingId().toString());
+    assertEquals(List.of("00:00-09:00", "12:00-00:00"), freeSlots(bookingService));
+    bookingService.bookItem(itemId, null, hour(14), hour(16));
+
+    // Another instance loads the same bookings from the DB
+    assertEquals(List.of("00:00-09:00", "12:00-14:00", "16:00-00:00"), freeSlots(newService()));
+  }
+
+  /** Test invalid windows, missing items and missing bookings are rejected. */
+  @Test
+  public void testInvalidRequests() {
+    assertThrows(
+        ReservationException.class,
+        () -> bookingService.bookItem(itemId, null, hour(11), hour(10)));
+    assertThrows(
+        ReservationException.class,
+        () ->
+            bookingService.bookItem(
+                itemId, null, LocalDateTime.now().minusHours(2), LocalDateTime.now()));
+    ReservationException missing =
+        assertThrows(
+            ReservationException.class,
+            () -> bookingService.bookItem(UUID.randomUUID().toString(), null, hour(9), hour(10)));
+    assertTrue(missing.getMessage().startsWith("Item not found"));
+    assertThrows(
+        ReservationException.class,
+        () -> bookingService.getFreeSlots("not-a-uuid", hour(0), hour(24)));
+    assertThrows(
+        ReservationException.class, () -> bookingService.getFreeSlots(itemId, hour(2), hour(1)));
+    assertThrows(
+        ReservationException.class,
+        () -> bookingService.cancelBooking(UUID.randomUUID().toString()));
+  }
+
+  /** Test only one of many overlapping bookings made at once is stored. */
+  @Test
+  public void testConcurrentOverlappingBookings() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger booked = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    for (int i = 0; i < 64; i++) {
+      final int minute = i;
+      executor.execute(
+          () -> {
+            try {
+              start.await();
+              bookingService.bookItem(
+                  itemId, null, hour(10).plusMinutes(minute), hour(12).plusMinutes(minute));
+              booked.incrementAndGet();
+            } catch (ReservationException e) {
+              rejected.incrementAndGet();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals(1, booked.get());
+    assertEquals(63, rejected.get());
+    assertEquals(1, bookingsTableSqlHelper.getBookings(UUID.fromString(itemId), hour(0)).size());
+  }
+
+  private BookingService newService() {
+    return new BookingService(
+        itemsTableSqlHelper, bookingsTableSqlHelper, 100, Duration.ofMinutes(1));
+  }
+
+  private LocalDateTime hour(int hour) {
+    return day.plusHours(hour);
+  }
+
+  /** Lists the free windows of the test day as HH:mm-HH:mm. */
+  private List<String> freeSlots(BookingService service) throws ReservationException {
+    List<String> freeSlots = new ArrayList<>();
+    for (TimeWindow window : service.getFreeSlots(itemId, hour(0), hour(24))) {
+      freeSlots.add(window.getStartsAt().toLocalTime() + "-" + window.getEndsAt().toLocalTime());
+    }
+    return freeSlots;
+  }
+}
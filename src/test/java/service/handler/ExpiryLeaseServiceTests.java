@@ -0,0 +1,84 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/** Runs the expiry lease service against an H2 copy of the schema. */
+@SpringBootTest
+public class ExpiryLeaseServiceTests {
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ExpiryLeaseService first;
+
+  private ExpiryLeaseService second;
+
+  /** Creates the schema in a fresh in-memory DB and two instances sharing it. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V10__expiry_lease_owners.sql"));
+    first = new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+    second = new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+  }
+
+  /** Test an instance that starts later is handed its share of the partitions. */
+  @Test
+  public void testLeasesAreSharedBetweenInstances() {
+    assertEquals(ReservationsTableSqlHelper.EXPIRY_PARTITIONS, first.renewLeases().size());
+
+    // Every lease is held, so the second instance waits for the first to hand back its surplus
+    assertTrue(second.renewLeases().isEmpty());
+    assertTrue(first.renewLeases().isEmpty());
+    assertEquals(8, first.getOwnedPartitions().size());
+    assertEquals(8, second.renewLeases().size());
+    Set<Integer> all = new HashSet<>(first.getOwnedPartitions());
+    all.addAll(second.getOwnedPartitions());
+    assertEquals(ReservationsTableSqlHelper.EXPIRY_PARTITIONS, all.size());
+
+    // Once the second instance stops, the first takes its partitions back
+    second.releaseLeases();
+    assertEquals(8, first.renewLeases().size());
+    assertEquals(ReservationsTableSqlHelper.EXPIRY_PARTITIONS, first.getOwnedPartitions().size());
+  }
+
+  /** Test only instances that still renew count towards the share. */
+  @Test
+  public void testStoppedInstancesAreDropped() {
+    jdbcTemplate.update(
+        "insert into Expiry_Lease_Owners (owner, alive_until) values (?, ?)",
+        "stopped",
+        LocalDateTime.now().minusMinutes(1));
+    jdbcTemplate.update(
+        "insert into Expiry_Lease_Owners (owner, alive_until) values (?, ?)",
+        "running",
+        LocalDateTime.now().plusMinutes(1));
+
+    assertEquals(8, first.renewLeases().size());
+    assertEquals(
+        2, jdbcTemplate.queryForObject("select count(*) from Expiry_Lease_Owners", Integer.class));
+  }
+}
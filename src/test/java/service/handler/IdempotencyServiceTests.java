@@ -0,0 +1,171 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/** Runs the idempotency service against an H2 copy of the schema. */
+@SpringBootTest
+public class IdempotencyServiceTests {
+
+  private static final List<Object> PAYLOAD = List.of("itemId", 1);
+
+  private final AtomicInteger processed = new AtomicInteger();
+
+  private JdbcTemplate jdbcTemplate;
+
+  private IdempotencyKeysTableSqlHelper idempotencyKeysTableSqlHelper;
+
+  private IdempotencyService idempotencyService;
+
+  /** Creates the schema in a fresh in-memory DB. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V6__idempotency_keys.sql",
+            "db/migration/V11__idempotency_payload_hash.sql"));
+    idempotencyKeysTableSqlHelper = new IdempotencyKeysTableSqlHelper();
+    idempotencyKeysTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    idempotencyService = newService();
+  }
+
+  /** Test a retried request gets the first response back without being processed again. */
+  @Test
+  public void testRetryReplaysStoredResponse() {
+    ResponseEntity<String> first =
+        idempotencyService.execute("key", "create", PAYLOAD, this::process);
+    assertEquals(HttpStatus.CREATED, first.getStatusCode());
+    assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+    ResponseEntity<String> retry =
+        idempotencyService.execute("key", "create", PAYLOAD, this::process);
+    assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+    assertEquals(first.getBody(), retry.getBody());
+    assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+    // Another instance, with nothing cached, replays the response stored in the DB
+    ResponseEntity<String> elsewhere =
+        newService().execute("key", "create", PAYLOAD, this::process);
+    assertEquals(first.getBody(), elsewhere.getBody());
+    assertEquals(1, processed.get());
+
+    // Other keys, other endpoints and requests without a key are processed
+    idempotencyService.execute("other", "create", PAYLOAD, this::process);
+    idempotencyService.execute("key", "update", PAYLOAD, this::process);
+    idempotencyService.execute(null, "create", PAYLOAD, this::process);
+    idempotencyService.execute(null, "create", PAYLOAD, this::process);
+    assertEquals(5, processed.get());
+    assertEquals(
+        HttpStatus.BAD_REQUEST,
+        idempotencyService.execute("", "create", PAYLOAD, this::process).getStatusCode());
+  }
+
+  /** Test a key reused with a different payload is rejected instead of replayed. */
+  @Test
+  public void testReusedKeyWithDifferentPayload() {
+    idempotencyService.execute("key", "create", PAYLOAD, this::process);
+    List<Object> otherPayload = List.of("itemId", 2);
+
+    ResponseEntity<String> reused =
+        idempotencyService.execute("key", "create", otherPayload, this::process);
+    assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+    assertEquals(
+        HttpStatus.UNPROCESSABLE_ENTITY,
+        newService().execute("key", "create", otherPayload, this::process).getStatusCode());
+    assertEquals(1, processed.get());
+
+    // Keys claimed before payloads were hashed replay for any payload
+    jdbcTemplate.update("update Idempotency_Keys set payload_hash = null");
+    ResponseEntity<String> legacy =
+        newService().execute("key", "create", otherPayload, this::process);
+    assertEquals(HttpStatus.CREATED, legacy.getStatusCode());
+    assertEquals("true", legacy.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    assertEquals(1, processed.get());
+  }
+
+  /** Test failed requests give up their key, and a request still in progress turns retries away. */
+  @Test
+  public void testFailuresAndRequestsInProgress() {
+    ResponseEntity<String> failed =
+        idempotencyService.execute(
+            "key",
+            "create",
+            PAYLOAD,
+            () -> new ResponseEntity<>("down", HttpStatus.INTERNAL_SERVER_ERROR));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            idempotencyService.execute(
+                "key",
+                "create",
+                PAYLOAD,
+                () -> {
+                  throw new IllegalStateException();
+                }));
+    assertEquals(
+        HttpStatus.CREATED,
+        idempotencyService.execute("key", "create", PAYLOAD, this::process).getStatusCode());
+
+    ResponseEntity<String> retry =
+        idempotencyService.execute(
+            "pending",
+            "create",
+            PAYLOAD,
+            () -> newService().execute("pending", "create", PAYLOAD, this::process));
+    assertEquals(HttpStatus.CONFLICT, retry.getStatusCode());
+    assertEquals(1, processed.get());
+  }
+
+  /** Test expired keys are purged in batches and can be used again. */
+  @Test
+  public void testPurgeExpiredKeys() {
+    for (int i = 0; i < 25; i++) {
+      idempotencyService.execute("key" + i, "create", PAYLOAD, this::process);
+    }
+    jdbcTemplate.update(
+        "update Idempotency_Keys set expires_at = ?", LocalDateTime.now().minusMinutes(1));
+
+    assertEquals(25, idempotencyService.purgeExpiredKeys());
+    assertEquals(
+        0, jdbcTemplate.queryForObject("select count(*) from Idempotency_Keys", Long.class));
+    newService().execute("key0", "create", PAYLOAD, this::process);
+    assertEquals(26, processed.get());
+  }
+
+  private IdempotencyService newService() {
+    return new IdempotencyService(
+        idempotencyKeysTableSqlHelper,
+        new ObjectMapper(),
+        100,
+        Duration.ofHours(1),
+        Duration.ofMinutes(1),
+        10);
+  }
+
+  private ResponseEntity<String> process() {
+    return new ResponseEntity<>("created " + processed.incrementAndGet(), HttpStatus.CREATED);
+  }
+}
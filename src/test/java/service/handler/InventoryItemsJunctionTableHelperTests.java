@@ -40,7 +40,8 @@ public class InventoryItemsJunctionTableHelperTests {
   @Test
   void testGetItemIdsByInventoryId() {
     // Test error during SQL Query
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenThrow(new RuntimeException());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(new RuntimeException());
     assertThrows(
         RuntimeException.class,
         () -> inventoryItemsJunctionTableHelper.getItemIdsByInventoryId(testInventoryId));
@@ -48,7 +49,7 @@ public class InventoryItemsJunctionTableHelperTests {
     // Test successful SQL Query
     ArrayList<String> testList = new ArrayList<>();
     testList.add(testItemId);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(testList);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(testList);
     assertDoesNotThrow(
         () -> inventoryItemsJunctionTableHelper.getItemIdsByInventoryId(testInventoryId));
     assertEquals(
@@ -59,7 +60,8 @@ public class InventoryItemsJunctionTableHelperTests {
   @Test
   void testGetItemNamesByInventoryId() {
     // Test error during SQL Query
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenThrow(new RuntimeException());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(new RuntimeException());
     assertThrows(
         RuntimeException.class,
         () -> inventoryItemsJunctionTableHelper.getItemNamesByInventoryId(testInventoryId));
@@ -67,7 +69,7 @@ public class InventoryItemsJunctionTableHelperTests {
     // Test successful SQL Query
     ArrayList<String> testList = new ArrayList<>();
     testList.add(testItemName);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(testList);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(testList);
     assertDoesNotThrow(
         () -> inventoryItemsJunctionTableHelper.getItemNamesByInventoryId(testInventoryId));
     assertEquals(
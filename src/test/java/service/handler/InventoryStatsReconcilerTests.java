@@ -0,0 +1,170 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.models.Inventory;
+import service.models.InventoryStats;
+import service.models.Item;
+
+/**
+ * Runs the inventory stats reconciler against an H2 copy of the schema. H2 cannot run the MySQL
+ * triggers that keep Inventory_Stats up to date, so every item write here leaves the stats drifted
+ * until the reconciler repairs them.
+ */
+@SpringBootTest
+public class InventoryStatsReconcilerTests {
+
+  private final List<String> inventoryIds = new ArrayList<>();
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper;
+
+  /** Creates the schema in a fresh in-memory DB and adds a few inventories. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V8__inventory_stats.sql",
+            "db/migration/V13__job_leases.sql"));
+    itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    inventoryStatsTableSqlHelper = new InventoryStatsTableSqlHelper();
+    inventoryStatsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    inventoryStatsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    InventoryTableSqlHelper inventoryTableSqlHelper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(inventoryTableSqlHelper, "jdbcTemplate", jdbcTemplate);
+    for (int i = 0; i < 3; i++) {
+      Inventory inventory =
+          Inventory.builder()
+              .inventoryId(UUID.randomUUID())
+              .inventoryName("Inventory " + i)
+              .build();
+      inventoryTableSqlHelper.insertInventory(inventory);
+      inventoryIds.add(inventory.getInventoryId().toString());
+    }
+  }
+
+  /** Test drifted stats are found and repaired, and matching stats are left alone. */
+  @Test
+  public void testReconcile() {
+    addItem(inventoryIds.get(0), 3, 2, 10.25);
+    addItem(inventoryIds.get(0), 1, 0, 4.50);
+    addItem(inventoryIds.get(1), 5, 0, 1.00);
+    InventoryStatsReconciler reconciler = newReconciler();
+
+    assertStats(inventoryIds.get(0), 0, 0, 0, "0.00");
+    // Inventories without items get a row of zeros, which is not drift
+    assertEquals(2, reconciler.reconcile());
+    assertStats(inventoryIds.get(0), 2, 6, 2, "55.75");
+    assertStats(inventoryIds.get(1), 1, 5, 0, "5.00");
+    assertStats(inventoryIds.get(2), 0, 0, 0, "0.00");
+    assertEquals(0, reconciler.reconcile());
+
+    // A write that skipped the triggers is repaired by the next run
+    jdbcTemplate.update(
+        "update Inventory_Stats set reserved_units = reserved_units + 1 where inventory_id = ?",
+        inventoryIds.get(1));
+    assertEquals(1, reconciler.reconcile());
+    assertStats(inventoryIds.get(1), 1, 5, 0, "5.00");
+    assertEquals(3L, reconciler.getStats().get("runs"));
+    assertEquals(3L, reconciler.getStats().get("lastChecked"));
+    assertEquals(3L, reconciler.getStats().get("totalRepaired"));
+  }
+
+  /** Test only the instance holding the lease reconciles, until it stops. */
+  @Test
+  public void testOneInstanceReconciles() {
+    addItem(inventoryIds.get(0), 3, 0, 1.00);
+    InventoryStatsReconciler first = newReconciler();
+    InventoryStatsReconciler second = newReconciler();
+
+    assertEquals(1, first.reconcile());
+    jdbcTemplate.update(
+        "update Inventory_Stats set item_count = 0 where inventory_id = ?", inventoryIds.get(0));
+    // The first instance keeps the lease between runs
+    assertEquals(0, second.reconcile());
+    assertEquals(1L, second.getStats().get("skipped"));
+    assertEquals(0L, second.getStats().get("runs"));
+
+    first.close();
+    assertEquals(1, second.reconcile());
+    assertEquals(0, first.reconcile());
+
+    // A lease that lapsed is taken over without waiting for its owner
+    jdbcTemplate.update(
+        "update Job_Leases set lease_until = ?", LocalDateTime.now().minusMinutes(1));
+    assertEquals(0, first.reconcile());
+    assertEquals(2L, first.getStats().get("runs"));
+    assertEquals(1L, first.getStats().get("skipped"));
+  }
+
+  /** Test stats of missing inventories are not found, and are not created by a reconcile. */
+  @Test
+  public void testMissingInventory() {
+    String missing = UUID.randomUUID().toString();
+
+    assertNull(inventoryStatsTableSqlHelper.getInventoryStats(missing));
+    assertFalse(inventoryStatsTableSqlHelper.reconcile(missing));
+    assertNull(inventoryStatsTableSqlHelper.getInventoryStats(missing));
+  }
+
+  private InventoryStatsReconciler newReconciler() {
+    return new InventoryStatsReconciler(
+        inventoryStatsTableSqlHelper, Duration.ofMinutes(1), 2, Duration.ofMinutes(5));
+  }
+
+  private void addItem(String inventoryId, int quantity, int reservedQuantity, double price) {
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.randomUUID())
+            .itemName("Item")
+            .location("Aisle 1")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(quantity)
+            .price(price)
+            .inventoryId(UUID.fromString(inventoryId))
+            .build());
+    jdbcTemplate.update(
+        "update Items set reserved_quantity = ? where inventory_id = ? and quantity = ?",
+        reservedQuantity,
+        inventoryId,
+        quantity);
+  }
+
+  private void assertStats(
+      String inventoryId, long itemCount, long totalUnits, long reservedUnits, String stockValue) {
+    InventoryStats stats = inventoryStatsTableSqlHelper.getInventoryStats(inventoryId);
+    assertEquals(itemCount, stats.getItemCount());
+    assertEquals(totalUnits, stats.getTotalUnits());
+    assertEquals(reservedUnits, stats.getReservedUnits());
+    assertEquals(0, new BigDecimal(stockValue).compareTo(stats.getStockValue()));
+  }
+}
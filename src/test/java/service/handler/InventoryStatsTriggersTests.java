@@ -0,0 +1,171 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.models.Inventory;
+import service.models.InventoryStats;
+import service.models.Item;
+import service.models.Reservation;
+
+/**
+ * Runs the Inventory_Stats triggers of V9 against an H2 copy of the schema, through {@link
+ * MySqlTriggerAdapter}. After every kind of item write, the stats have to match what the reconciler
+ * computes from the items.
+ */
+@SpringBootTest
+public class InventoryStatsTriggersTests {
+
+  private final List<String> inventoryIds = new ArrayList<>();
+
+  private ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper;
+
+  /** Creates the schema and triggers in a fresh in-memory DB and adds two inventories. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V8__inventory_stats.sql"));
+    MySqlTriggerAdapter.install(jdbcTemplate, "db/migration/V9__inventory_stats_triggers.sql");
+    final TransactionTemplate transactionTemplate =
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(transactionTemplate);
+    inventoryStatsTableSqlHelper = new InventoryStatsTableSqlHelper();
+    inventoryStatsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    inventoryStatsTableSqlHelper.setTransactionTemplate(transactionTemplate);
+    InventoryTableSqlHelper inventoryTableSqlHelper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(inventoryTableSqlHelper, "jdbcTemplate", jdbcTemplate);
+    for (int i = 0; i < 2; i++) {
+      Inventory inventory =
+          Inventory.builder()
+              .inventoryId(UUID.randomUUID())
+              .inventoryName("Inventory " + i)
+              .build();
+      inventoryTableSqlHelper.insertInventory(inventory);
+      inventoryIds.add(inventory.getInventoryId().toString());
+    }
+  }
+
+  /** Test inserts, updates and deletes of items keep the stats exact. */
+  @Test
+  public void testItemWrites() {
+    String first = inventoryIds.get(0);
+    Item socks = addItem(first, 3, 10.25);
+    final Item boots = addItem(first, 1, 4.50);
+    assertStats(first, 2, 4, 0, "35.25");
+
+    itemsTableSqlHelper.updateItemQuantity(socks.getItemId().toString(), 5);
+    assertStats(first, 2, 6, 0, "55.75");
+    itemsTableSqlHelper.updateItemPrice(boots.getItemId().toString(), 6.00);
+    assertStats(first, 2, 6, 0, "57.25");
+    // A write that changes none of the totals leaves them alone
+    itemsTableSqlHelper.updateItemLocation(boots.getItemId().toString(), "Aisle 2");
+    assertStats(first, 2, 6, 0, "57.25");
+
+    itemsTableSqlHelper.deleteItem(socks.getItemId().toString());
+    assertStats(first, 1, 1, 0, "6.00");
+    assertNoDrift();
+  }
+
+  /** Test an item moved to another inventory leaves the totals of one for the other. */
+  @Test
+  public void testItemMovedBetweenInventories() {
+    String first = inventoryIds.get(0);
+    String second = inventoryIds.get(1);
+    addItem(first, 2, 1.00);
+    Item moved = addItem(first, 4, 2.50);
+
+    itemsTableSqlHelper.updateInventoryId(moved.getItemId().toString(), second);
+    assertStats(first, 1, 2, 0, "2.00");
+    assertStats(second, 1, 4, 0, "10.00");
+    assertNoDrift();
+  }
+
+  /** Test holds move units to reserved and back without changing the units held. */
+  @Test
+  public void testHoldAndRelease() {
+    String first = inventoryIds.get(0);
+    Item item = addItem(first, 10, 2.00);
+    final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    Reservation hold =
+        Reservation.builder()
+            .reservationId(UUID.randomUUID())
+            .itemId(item.getItemId())
+            .quantity(3)
+            .reservedAt(now)
+            .expiresAt(now.plusMinutes(5))
+            .build();
+
+    assertTrue(reservationsTableSqlHelper.insertReservation(hold));
+    assertStats(first, 1, 10, 3, "20.00");
+    assertNoDrift();
+
+    reservationsTableSqlHelper.deleteReservation(hold.getReservationId().toString());
+    assertStats(first, 1, 10, 0, "20.00");
+    assertNoDrift();
+  }
+
+  private Item addItem(String inventoryId, int quantity, double price) {
+    Item item =
+        Item.builder()
+            .itemId(UUID.randomUUID())
+            .itemName("Item")
+            .location("Aisle 1")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(quantity)
+            .price(price)
+            .inventoryId(UUID.fromString(inventoryId))
+            .build();
+    itemsTableSqlHelper.insertItem(item);
+    return item;
+  }
+
+  /** The reconciler repairs nothing when the triggers kept every row in step with Items. */
+  private void assertNoDrift() {
+    for (String inventoryId : inventoryIds) {
+      assertFalse(inventoryStatsTableSqlHelper.reconcile(inventoryId));
+    }
+  }
+
+  private void assertStats(
+      String inventoryId, long itemCount, long totalUnits, long reservedUnits, String stockValue) {
+    InventoryStats stats = inventoryStatsTableSqlHelper.getInventoryStats(inventoryId);
+    assertEquals(itemCount, stats.getItemCount());
+    assertEquals(totalUnits, stats.getTotalUnits());
+    assertEquals(reservedUnits, stats.getReservedUnits());
+    assertEquals(0, new BigDecimal(stockValue).compareTo(stats.getStockValue()));
+  }
+}
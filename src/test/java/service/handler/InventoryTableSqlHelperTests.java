@@ -11,6 +11,9 @@ import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -21,7 +24,11 @@ import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
 import service.models.Inventory;
+import service.models.InventoryPage;
+import service.models.Item;
 
 /** Unit tests for the InventoryTableSqlHelper class. */
 @SpringBootTest
@@ -119,7 +126,7 @@ public class InventoryTableSqlHelperTests {
     inventories.add(testInventory);
 
     // Mock the jdbcTemplate to return the inventories list when the specific SQL is called
-    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class)))
+    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class), anyString()))
         .thenReturn(inventories);
 
     // Call the method and assert the result
@@ -127,14 +134,14 @@ public class InventoryTableSqlHelperTests {
     assertEquals(inventories.get(0), result, "Should return the inventory with the given ID.");
 
     // Test inventory not found
-    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class)))
+    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class), anyString()))
         .thenReturn(new ArrayList<>());
     result = inventoryTableSqlHelper.getInventoryWithInventoryId(inventoryId);
     assertNull(result, "Should return null if there's no inventory found with the given ID.");
 
     // Test exception thrown from more than one result returned by the query
     inventories.add(testInventory);
-    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class)))
+    when(jdbcTemplate.query(contains("where inventory_id"), any(RowMapper.class), anyString()))
         .thenReturn(inventories);
     assertThrows(
         IllegalStateException.class,
@@ -193,4 +200,69 @@ public class InventoryTableSqlHelperTests {
         () -> inventoryTableSqlHelper.delete(inventoryId),
         "Should propagate exceptions.");
   }
+
+  /** Tests paging the items of an inventory through the join, and loading items on first use. */
+  @Test
+  public void testInventoryPage() throws IOException {
+    JdbcTemplate h2 =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(h2, List.of("db/migration/V3__reservations.sql"));
+    InventoryTableSqlHelper helper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(helper, "jdbcTemplate", h2);
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(h2);
+    helper.insertInventory(testInventory);
+    String inventoryId = testInventory.getInventoryId().toString();
+    List<String> itemIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Item item =
+          Item.builder()
+              .itemId(UUID.randomUUID())
+              .itemName(i % 2 == 0 ? "Socks " + i : "Shoes " + i)
+              .timeOfAddition(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+              .quantity(i)
+              .location(i < 3 ? "Aisle 1" : "Aisle 2")
+              .price(10.0)
+              .inventoryId(testInventory.getInventoryId())
+              .build();
+      itemsTableSqlHelper.insertItem(item);
+      itemIds.add(item.getItemId().toString());
+    }
+    itemIds.sort(null);
+
+    // Test the items are paged in item id order until a page comes back short
+    List<String> paged = new ArrayList<>();
+    InventoryPage page = helper.getInventoryPage(inventoryId, null, 2, null, null);
+    assertEquals("Test Inventory", page.getInventory().getInventoryName());
+    while (true) {
+      page.getInventory().getItems().keySet().forEach(itemId -> paged.add(itemId.toString()));
+      if (page.getNextCursor() == null) {
+        break;
+      }
+      page = helper.getInventoryPage(inventoryId, page.getNextCursor(), 2, null, null);
+    }
+    assertEquals(itemIds, paged);
+
+    // Test the filters apply to the items, not to whether the inventory is found
+    page = helper.getInventoryPage(inventoryId, null, 10, "Socks", "Aisle 1");
+    assertEquals(2, page.getInventory().getItems().size());
+    page = helper.getInventoryPage(inventoryId, null, 10, "Socks%", null);
+    assertTrue(page.getInventory().getItems().isEmpty());
+    assertNull(page.getNextCursor());
+    assertNull(helper.getInventoryPage(UUID.randomUUID().toString(), null, 10, null, null));
+    assertNull(helper.getInventoryPage("not-a-uuid", null, 10, null, null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> helper.getInventoryPage(inventoryId, "not-a-uuid", 10, null, null));
+
+    // Test inventories read by id only read their items when asked for them
+    Inventory inventory = helper.getInventoryWithInventoryId(inventoryId);
+    itemsTableSqlHelper.deleteItem(itemIds.get(0));
+    assertEquals(4, inventory.getItems().size());
+    assertEquals(
+        itemIds.subList(1, 5), inventory.getItems().keySet().stream().map(UUID::toString).toList());
+  }
 }
@@ -0,0 +1,306 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.exceptions.ReservationException;
+import service.models.CartReservationResult;
+import service.models.Item;
+import service.models.Reservation;
+import service.requests.ReserveCartRequest;
+
+/** Runs the reservation service against an H2 copy of the schema. */
+@SpringBootTest
+public class ItemReservationServiceTests {
+
+  private static final int STOCK = 100;
+
+  private static final int RESERVERS = 1000;
+
+  private final String itemId = UUID.randomUUID().toString();
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ExpiryLeaseService expiryLeaseService;
+
+  private ItemReservationService reservationService;
+
+  /** Creates the schema in a fresh in-memory DB and adds an item with some stock. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:"
+                    + UUID.randomUUID()
+                    + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V10__expiry_lease_owners.sql"));
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.fromString(itemId))
+            .itemName("Laptop")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(STOCK)
+            .location("Warehouse")
+            .price(10.0)
+            .inventoryId(UUID.randomUUID())
+            .build());
+    ReservationsTableSqlHelper reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    expiryLeaseService = new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+    expiryLeaseService.renewLeases();
+    reservationService =
+        new ItemReservationService(
+            itemsTableSqlHelper, reservationsTableSqlHelper, expiryLeaseService);
+  }
+
+  /** Stops the expiry timers scheduled by a test. */
+  @AfterEach
+  public void tearDown() {
+    reservationService.close();
+  }
+
+  /** Test concurrent reservations never take more than the stock. */
+  @Test
+  public void testConcurrentReservationsDoNotOversell() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(64);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    for (int i = 0; i < RESERVERS; i++) {
+      executor.execute(
+          () -> {
+            try {
+              start.await();
+              reservationService.reserveItem(itemId, UUID.randomUUID(), 1, 60_000);
+              reserved.incrementAndGet();
+            } catch (ReservationException e) {
+              rejected.incrementAndGet();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(2, TimeUnit.MINUTES);
+
+    assertEquals(STOCK, reserved.get());
+    assertEquals(RESERVERS - STOCK, rejected.get());
+    assertEquals(
+        Map.of("QUANTITY", 0, "RESERVED_QUANTITY", STOCK, "HOLDS", (long) STOCK), counts());
+  }
+
+  /** Test cancelling and extending touch exactly one hold. */
+  @Test
+  public void testCancelAndExtendOneHold() throws ReservationException {
+    final Reservation first = reservationService.reserveItem(itemId, null, 5, 60_000);
+    final Reservation second = reservationService.reserveItem(itemId, null, 3, 60_000);
+    assertEquals(Map.of("QUANTITY", STOCK - 8, "RESERVED_QUANTITY", 8, "HOLDS", 2L), counts());
+    final LocalDateTime secondExpiresAt = second.getExpiresAt();
+
+    // Extending moves the existing expiry timer instead of adding one
+    Reservation extended =
+        reservationService.extendReservation(second.getReservationId().toString(), 60_000);
+    assertTrue(extended.getExpiresAt().isAfter(secondExpiresAt));
+    assertEquals(2, reservationService.getExpiryWheel().size());
+
+    String firstId = first.getReservationId().toString();
+    assertEquals(5, reservationService.cancelReservation(firstId).getQuantity());
+    assertEquals(1, reservationService.getExpiryWheel().size());
+    assertEquals(Map.of("QUANTITY", STOCK - 3, "RESERVED_QUANTITY", 3, "HOLDS", 1L), counts());
+    assertThrows(ReservationException.class, () -> reservationService.cancelReservation(firstId));
+    assertEquals(Map.of("QUANTITY", STOCK - 3, "RESERVED_QUANTITY", 3, "HOLDS", 1L), counts());
+
+    assertThrows(
+        ReservationException.class, () -> reservationService.reserveItem(itemId, null, STOCK, 1));
+    assertThrows(
+        ReservationException.class,
+        () -> reservationService.reserveItem(UUID.randomUUID().toString(), null, 1, 60_000));
+    assertThrows(
+        ReservationException.class, () -> reservationService.extendReservation(firstId, 60_000));
+  }
+
+  /** Test a hold shorter than a second still outlives the moment it was placed. */
+  @Test
+  public void testSubSecondHold() throws ReservationException {
+    LocalDateTime before = LocalDateTime.now();
+    Reservation reservation = reservationService.reserveItem(itemId, null, 1, 500);
+    assertEquals(0, reservation.getExpiresAt().getNano());
+    assertFalse(reservation.getExpiresAt().isBefore(before.plus(Duration.ofMillis(500))));
+    assertTrue(reservation.getExpiresAt().isAfter(reservation.getReservedAt()));
+    assertFalse(
+        reservation
+            .getExpiresAt()
+            .isAfter(reservation.getReservedAt().plus(Duration.ofSeconds(2))));
+
+    // Extending by less than a second still moves the expiry
+    Reservation extended =
+        reservationService.extendReservation(reservation.getReservationId().toString(), 500);
+    assertEquals(reservation.getExpiresAt().plusSeconds(1), extended.getExpiresAt());
+  }
+
+  /** Test a cart is held entirely or not at all, and concurrent carts do not deadlock. */
+  @Test
+  public void testReserveCart() throws InterruptedException {
+    final String otherItemId = UUID.randomUUID().toString();
+    reservationService
+        .getItemsTableSqlHelper()
+        .insertItem(
+            Item.builder()
+                .itemId(UUID.fromString(otherItemId))
+                .itemName("Mouse")
+                .timeOfAddition(LocalDateTime.now())
+                .quantity(STOCK)
+                .location("Warehouse")
+                .price(5.0)
+                .inventoryId(UUID.randomUUID())
+                .build());
+
+    // One short item rolls back the whole cart
+    CartReservationResult result =
+        reservationService.reserveCart(
+            List.of(cartItem(otherItemId, 1), cartItem(itemId, STOCK + 1)), null, 60_000);
+    assertFalse(result.isReserved());
+    assertEquals(1, result.getFailures().size());
+    assertEquals(1, result.getFailures().get(0).getIndex());
+    assertEquals(Map.of("QUANTITY", STOCK, "RESERVED_QUANTITY", 0, "HOLDS", 0L), counts());
+
+    // Carts listing the same items in opposite orders all go through
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    AtomicInteger reserved = new AtomicInteger();
+    for (int i = 0; i < 40; i++) {
+      List<ReserveCartRequest.CartItem> cart =
+          i % 2 == 0
+              ? List.of(cartItem(itemId, 2), cartItem(otherItemId, 1))
+              : List.of(cartItem(otherItemId, 1), cartItem(itemId, 2));
+      executor.execute(
+          () -> {
+            if (reservationService.reserveCart(cart, null, 60_000).isReserved()) {
+              reserved.incrementAndGet();
+            }
+          });
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals(40, reserved.get());
+    assertEquals(Map.of("QUANTITY", STOCK - 80, "RESERVED_QUANTITY", 80, "HOLDS", 40L), counts());
+    assertEquals(80, reservationService.getExpiryWheel().size());
+  }
+
+  /** Test the expiry workers delete expired holds and keep extended ones. */
+  @Test
+  public void testExpireReservations() throws ReservationException {
+    Reservation expired = reservationService.reserveItem(itemId, null, 4, 60_000);
+    Reservation alsoExpired = reservationService.reserveItem(itemId, null, 2, 60_000);
+    Reservation extended = reservationService.reserveItem(itemId, null, 6, 60_000);
+    for (Reservation reservation : List.of(expired, alsoExpired)) {
+      reservationService
+          .getReservationsTableSqlHelper()
+          .updateExpiresAt(
+              reservation.getReservationId().toString(),
+              reservation.getExpiresAt(),
+              reservation.getReservedAt().minusMinutes(1));
+    }
+
+    // One batch mixes expired, extended and already deleted holds
+    reservationService.expireReservations(
+        List.of(
+            expired.getReservationId().toString(),
+            alsoExpired.getReservationId().toString(),
+            extended.getReservationId().toString(),
+            UUID.randomUUID().toString()));
+
+    assertEquals(Map.of("QUANTITY", STOCK - 6, "RESERVED_QUANTITY", 6, "HOLDS", 1L), counts());
+  }
+
+  /** Test timers are rebuilt from the DB and only fire for partitions this instance leases. */
+  @Test
+  public void testExpiryTimersFollowLeases() throws ReservationException {
+    final Reservation reservation = reservationService.reserveItem(itemId, null, 4, 60_000);
+    final String reservationId = reservation.getReservationId().toString();
+    final int partition =
+        ReservationsTableSqlHelper.expiryPartition(reservation.getReservationId());
+    reservationService.close();
+
+    // A restarted instance loads the hold once it holds the lease again
+    expiryLeaseService.releaseLeases();
+    reservationService =
+        new ItemReservationService(
+            reservationService.getItemsTableSqlHelper(),
+            reservationService.getReservationsTableSqlHelper(),
+            expiryLeaseService);
+    assertEquals(0, reservationService.getExpiryWheel().size());
+    Set<Integer> acquired = expiryLeaseService.renewLeases();
+    assertEquals(ReservationsTableSqlHelper.EXPIRY_PARTITIONS, acquired.size());
+    reservationService.loadExpiryTimers(acquired);
+    assertEquals(1, reservationService.getExpiryWheel().size());
+
+    // Another instance took over the lease, so the due hold is left to it
+    jdbcTemplate.update(
+        "update Expiry_Leases set owner = ? where partition_id = ?", "other", partition);
+    expiryLeaseService.renewLeases();
+    assertFalse(expiryLeaseService.ownsPartition(partition));
+    jdbcTemplate.update(
+        "update Reservations set expires_at = ? where reservation_id = ?",
+        reservation.getReservedAt().minusMinutes(1),
+        reservationId);
+    reservationService.expireReservations(List.of(reservationId));
+    assertEquals(Map.of("QUANTITY", STOCK - 4, "RESERVED_QUANTITY", 4, "HOLDS", 1L), counts());
+
+    // Ownership follows the stored partition, like holds V5 left in partition 0
+    jdbcTemplate.update(
+        "update Reservations set expiry_partition = ? where reservation_id = ?",
+        (partition + 1) % ReservationsTableSqlHelper.EXPIRY_PARTITIONS,
+        reservationId);
+    reservationService.expireReservations(List.of(reservationId));
+    assertEquals(Map.of("QUANTITY", STOCK, "RESERVED_QUANTITY", 0, "HOLDS", 0L), counts());
+  }
+
+  private static ReserveCartRequest.CartItem cartItem(String itemId, int quantity) {
+    return ReserveCartRequest.CartItem.builder().itemId(itemId).quantity(quantity).build();
+  }
+
+  private Map<String, Object> counts() {
+    return jdbcTemplate.queryForMap(
+        "select quantity, reserved_quantity, "
+            + "(select count(*) from Reservations where item_id = ?) as holds "
+            + "from Items where item_id = ?",
+        itemId,
+        itemId);
+  }
+}
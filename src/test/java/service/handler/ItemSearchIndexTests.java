@@ -0,0 +1,155 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.models.Inventory;
+import service.models.Item;
+import service.models.ItemSearchHit;
+
+/** Runs the item search index against an H2 copy of the schema. */
+@SpringBootTest
+public class ItemSearchIndexTests {
+
+  private final UUID inventoryId = UUID.randomUUID();
+
+  private final UUID otherInventoryId = UUID.randomUUID();
+
+  private ItemsTableSqlHelper itemsTableSqlHelper;
+
+  private ItemSearchIndex itemSearchIndex;
+
+  /** Creates the schema in a fresh in-memory DB with two inventories and a few items. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(jdbcTemplate, List.of("db/migration/V3__reservations.sql"));
+    InventoryTableSqlHelper inventoryTableSqlHelper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(inventoryTableSqlHelper, "jdbcTemplate", jdbcTemplate);
+    for (UUID id : List.of(inventoryId, otherInventoryId)) {
+      inventoryTableSqlHelper.insertInventory(
+          Inventory.builder().inventoryId(id).inventoryName("Inventory " + id).build());
+    }
+    itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(item("Red Wool Socks", "Aisle 1", inventoryId));
+    itemsTableSqlHelper.insertItem(item("Socks", "Aisle 2", inventoryId));
+    itemsTableSqlHelper.insertItem(item("Blue Hat", "Socks Shelf", inventoryId));
+    itemsTableSqlHelper.insertItem(item("Red Socks", "Aisle 1", otherInventoryId));
+    itemSearchIndex = new ItemSearchIndex(itemsTableSqlHelper, Duration.ofHours(1), true);
+  }
+
+  /** Test searches are refused until the index is built from the table. */
+  @Test
+  public void testBuildFromTable() {
+    assertFalse(itemSearchIndex.isReady());
+    assertNull(itemSearchIndex.search(inventoryId, "socks", 10));
+
+    itemSearchIndex.buildOnStartup();
+    assertTrue(itemSearchIndex.isReady());
+    assertEquals(4, itemSearchIndex.getStats().get("items"));
+
+    // Items named socks rank above the item only stored on the socks shelf, shorter names first
+    assertEquals(
+        List.of("Socks", "Red Wool Socks", "Blue Hat"),
+        names(itemSearchIndex.search(inventoryId, "SOCKS", 10)));
+    assertEquals(List.of("Socks"), names(itemSearchIndex.search(inventoryId, "socks", 1)));
+    assertEquals(
+        List.of("Red Wool Socks"), names(itemSearchIndex.search(inventoryId, "red socks", 10)));
+    assertEquals(
+        List.of("Red Socks"), names(itemSearchIndex.search(otherInventoryId, "red socks", 10)));
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "red hat", 10));
+    assertEquals(List.of(), itemSearchIndex.search(UUID.randomUUID(), "socks", 10));
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "  ", 10));
+  }
+
+  /** Test created, renamed, relocated and deleted items are searchable right away. */
+  @Test
+  public void testChangesAreIndexed() {
+    itemSearchIndex.rebuild();
+    Item created = item("Green Scarf", "Aisle 3", inventoryId);
+    itemSearchIndex.index(created);
+    assertEquals(List.of("Green Scarf"), names(itemSearchIndex.search(inventoryId, "scarf", 10)));
+
+    itemSearchIndex.index(created.toBuilder().itemName("Green Gloves").build());
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "scarf", 10));
+    assertEquals(List.of("Green Gloves"), names(itemSearchIndex.search(inventoryId, "green", 10)));
+
+    itemSearchIndex.index(created.toBuilder().itemName("Green Gloves").location("Bin 9").build());
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "aisle 3", 10));
+    assertEquals(1, itemSearchIndex.search(inventoryId, "gloves bin", 10).size());
+
+    itemSearchIndex.remove(created.getItemId());
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "green", 10));
+    assertEquals(4, itemSearchIndex.getStats().get("items"));
+
+    // A rebuild only sees the table, where the created item never was
+    itemSearchIndex.index(created);
+    assertEquals(4, itemSearchIndex.rebuild());
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "scarf", 10));
+  }
+
+  /** Test the items of a deleted inventory stop matching at once. */
+  @Test
+  public void testDeletedInventoryIsRemoved() {
+    itemSearchIndex.rebuild();
+    Item created = item("Wool Socks", "Aisle 4", inventoryId);
+    itemSearchIndex.index(created);
+    itemSearchIndex.removeInventory(inventoryId);
+
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "socks", 10));
+    assertEquals(
+        List.of("Red Socks"), names(itemSearchIndex.search(otherInventoryId, "socks", 10)));
+    assertEquals(1, itemSearchIndex.getStats().get("items"));
+  }
+
+  /** Test removed items are compacted out of the posting lists once enough pile up. */
+  @Test
+  public void testRemovedItemsAreCompacted() {
+    itemSearchIndex.rebuild();
+    for (int i = 0; i < 2000; i++) {
+      Item item = item("Widget " + i, "Aisle " + i, inventoryId);
+      itemSearchIndex.index(item);
+      itemSearchIndex.remove(item.getItemId());
+    }
+    // The first 1024 removals are compacted, taking the terms only they used with them. The 16
+    // terms of the table, widget, and the numbers of the last 976 items are left
+    assertEquals(16 + 1 + 976, itemSearchIndex.getStats().get("terms"));
+    assertEquals(List.of(), itemSearchIndex.search(inventoryId, "widget", 10));
+    assertEquals(3, itemSearchIndex.search(inventoryId, "socks", 10).size());
+  }
+
+  private static Item item(String itemName, String location, UUID inventoryId) {
+    return Item.builder()
+        .itemId(UUID.randomUUID())
+        .itemName(itemName)
+        .timeOfAddition(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS))
+        .location(location)
+        .inventoryId(inventoryId)
+        .quantity(1)
+        .price(1.0)
+        .build();
+  }
+
+  private static List<String> names(List<ItemSearchHit> hits) {
+    return hits.stream().map(ItemSearchHit::getItemName).toList();
+  }
+}
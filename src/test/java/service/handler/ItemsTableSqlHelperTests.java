@@ -2,26 +2,48 @@ package service.handler;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.cache.ItemCache;
+import service.models.BatchInsertResult;
 import service.models.Item;
+import service.models.ItemPage;
 
 /** Unit tests for the ItemsTableSqlHelper class. */
 @SpringBootTest
@@ -29,6 +51,8 @@ public class ItemsTableSqlHelperTests {
 
   @Mock private JdbcTemplate jdbcTemplate;
 
+  @Mock private TransactionTemplate transactionTemplate;
+
   @InjectMocks private ItemsTableSqlHelper itemsTableSqlHelper;
 
   private Item testItem;
@@ -113,6 +137,50 @@ public class ItemsTableSqlHelperTests {
         "Insert should propagate exceptions.");
   }
 
+  /** Tests inserting many items with batched statements. */
+  @Test
+  public void testInsertItems() {
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    List<Item> items = new ArrayList<>();
+    for (int i = 0; i < ItemsTableSqlHelper.INSERT_BATCH_SIZE + 1; i++) {
+      items.add(testItem);
+    }
+
+    // Test successful insert split into two batches
+    when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any()))
+        .thenReturn(new int[][] {});
+    BatchInsertResult result = itemsTableSqlHelper.insertItems(items);
+    assertTrue(result.isComplete(), "Every row should be inserted.");
+    assertEquals(items.size(), result.getInserted());
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), anyInt(), any());
+
+    // Test a failed batch is retried row by row and the failing row is reported
+    when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any()))
+        .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+    when(jdbcTemplate.update(
+            anyString(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any(),
+            any()))
+        .thenReturn(1)
+        .thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+    result = itemsTableSqlHelper.insertItems(List.of(testItem, testItem));
+    assertFalse(result.isComplete(), "The duplicate row should be reported.");
+    assertEquals(1, result.getInserted());
+    assertEquals(1, result.getFailures().get(0).getIndex());
+    assertEquals("Duplicate entry", result.getFailures().get(0).getReason());
+  }
+
   /** Tests retrieving all items from the database. */
   @Test
   public void testGetAllItems() {
@@ -136,6 +204,64 @@ public class ItemsTableSqlHelperTests {
         "Should propagate exceptions.");
   }
 
+  /** Tests reading items one keyset page at a time. */
+  @Test
+  public void testGetItemsPage() {
+    String itemId = testItem.getItemId().toString();
+
+    // Test a full first page returns a cursor to the next page
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1)))
+        .thenReturn(List.of(testItem));
+    ItemPage page = itemsTableSqlHelper.getItemsPage(null, 1);
+    assertEquals(List.of(testItem), page.getItems());
+    assertEquals(itemId, page.getNextCursor(), "A full page should point at its last item.");
+
+    // Test the last page has no cursor
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(itemId), eq(1)))
+        .thenReturn(new ArrayList<>());
+    page = itemsTableSqlHelper.getItemsPage(itemId, 1);
+    assertTrue(page.getItems().isEmpty());
+    assertNull(page.getNextCursor(), "The last page should not have a cursor.");
+  }
+
+  /** Tests streaming every item through a row callback. */
+  @Test
+  public void testStreamAllItems() throws SQLException {
+    List<Item> streamed = new ArrayList<>();
+    itemsTableSqlHelper.streamAllItems(streamed::add);
+    ArgumentCaptor<PreparedStatementCreator> creator =
+        ArgumentCaptor.forClass(PreparedStatementCreator.class);
+    verify(jdbcTemplate).query(creator.capture(), any(RowCallbackHandler.class));
+
+    // MySQL streams rows only with the MIN_VALUE fetch size, other drivers get a bounded one
+    assertEquals(Integer.MIN_VALUE, streamingFetchSize(creator.getValue(), "MySQL"));
+    assertEquals(
+        ItemsTableSqlHelper.STREAM_FETCH_SIZE, streamingFetchSize(creator.getValue(), "H2"));
+
+    // Test exception thrown
+    doThrow(new RuntimeException())
+        .when(jdbcTemplate)
+        .query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    assertThrows(
+        RuntimeException.class,
+        () -> itemsTableSqlHelper.streamAllItems(streamed::add),
+        "Should propagate exceptions.");
+  }
+
+  private static int streamingFetchSize(PreparedStatementCreator creator, String productName)
+      throws SQLException {
+    Connection con = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    PreparedStatement ps = mock(PreparedStatement.class);
+    when(con.getMetaData()).thenReturn(metaData);
+    when(metaData.getDatabaseProductName()).thenReturn(productName);
+    when(con.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(ps);
+    creator.createPreparedStatement(con);
+    ArgumentCaptor<Integer> fetchSize = ArgumentCaptor.forClass(Integer.class);
+    verify(ps).setFetchSize(fetchSize.capture());
+    return fetchSize.getValue();
+  }
+
   /** Tests retrieving an item by its ID. */
   @Test
   public void testGetItem() {
@@ -144,26 +270,93 @@ public class ItemsTableSqlHelperTests {
     // Test successful retrieval
     List<Item> items = new ArrayList<>();
     items.add(testItem);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(items);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(items);
     assertEquals(
         items,
         itemsTableSqlHelper.getItem(itemId),
         "Should return the list of items with the given ID.");
 
     // Test item not found
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(new ArrayList<>());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(new ArrayList<>());
     assertTrue(
         itemsTableSqlHelper.getItem(itemId).isEmpty(),
         "Should return an empty list when item is not found.");
 
     // Test exception thrown
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenThrow(RuntimeException.class);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(RuntimeException.class);
     assertThrows(
         RuntimeException.class,
         () -> itemsTableSqlHelper.getItem(itemId),
         "Should propagate exceptions.");
   }
 
+  /** Tests that item lookups are served from the cache until the item is written. */
+  @Test
+  public void testGetItemCached() {
+    final String itemId = testItem.getItemId().toString();
+    itemsTableSqlHelper.setItemCache(new ItemCache(100, Duration.ofMinutes(5)));
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(List.of(testItem));
+    when(jdbcTemplate.update(anyString(), anyString(), anyString())).thenReturn(1);
+
+    assertEquals("Test Item", itemsTableSqlHelper.getItem(itemId).get(0).getItemName());
+    assertEquals("Test Item", itemsTableSqlHelper.getItem(itemId).get(0).getItemName());
+    verify(jdbcTemplate, times(1)).query(anyString(), any(RowMapper.class), anyString());
+
+    // A write drops the cached copy, so the next lookup reads the DB again
+    itemsTableSqlHelper.updateItemName(itemId, "Renamed Item");
+    itemsTableSqlHelper.getItem(itemId);
+    verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), anyString());
+  }
+
+  /** Tests reads straight from the DB skip the cache, which other instances do not invalidate. */
+  @Test
+  public void testGetItemFromDb() {
+    final String itemId = testItem.getItemId().toString();
+    itemsTableSqlHelper.setItemCache(new ItemCache(100, Duration.ofMinutes(5)));
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(List.of(testItem));
+
+    itemsTableSqlHelper.getItem(itemId);
+    assertEquals(List.of(testItem), itemsTableSqlHelper.getItemFromDb(itemId));
+    assertEquals(List.of(testItem), itemsTableSqlHelper.getItemFromDb(itemId));
+    verify(jdbcTemplate, times(3)).query(anyString(), any(RowMapper.class), anyString());
+
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(new ArrayList<>());
+    assertTrue(itemsTableSqlHelper.getItemFromDb(itemId).isEmpty());
+  }
+
+  /** Tests reading a subset of an item's fields. */
+  @Test
+  public void testGetItemFields() {
+    String itemId = testItem.getItemId().toString();
+    String sql = "select item_name, quantity from Items where item_id = ?";
+    Map<String, Object> fields = Map.of("itemName", "Test Item", "quantity", 10);
+
+    // Test only the requested columns are selected
+    when(jdbcTemplate.query(eq(sql), any(RowMapper.class), eq(itemId))).thenReturn(List.of(fields));
+    assertEquals(
+        fields,
+        itemsTableSqlHelper.getItemFields(itemId, List.of("itemName", "quantity")),
+        "Should return the requested fields.");
+
+    // Test item not found
+    when(jdbcTemplate.query(eq(sql), any(RowMapper.class), eq(itemId)))
+        .thenReturn(new ArrayList<>());
+    assertNull(
+        itemsTableSqlHelper.getItemFields(itemId, List.of("itemName", "quantity")),
+        "Should return null when item is not found.");
+
+    // Test unknown field
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> itemsTableSqlHelper.getItemFields(itemId, List.of("password")),
+        "Unknown fields should be rejected.");
+  }
+
   /** Tests updating the location of an item. */
   @Test
   public void testUpdateItemLocation() {
@@ -0,0 +1,127 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import service.models.User;
+import service.util.UserRoles;
+
+/** Runs the last access recorder against an H2 copy of the schema. */
+@SpringBootTest
+public class LastAccessRecorderTests {
+
+  private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+  private final List<String> userIds = new ArrayList<>();
+
+  private UsersTableSqlHelper usersTableSqlHelper;
+
+  /** Creates the schema in a fresh in-memory DB and adds a few users. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(jdbcTemplate, List.of());
+    usersTableSqlHelper = new UsersTableSqlHelper();
+    usersTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    for (int i = 0; i < 5; i++) {
+      User user =
+          User.builder()
+              .userId(UUID.randomUUID())
+              .username("user" + i)
+              .password("password")
+              .role(UserRoles.USER)
+              .lastAccess(start)
+              .build();
+      usersTableSqlHelper.insertUser(user);
+      userIds.add(user.getUserId().toString());
+    }
+  }
+
+  /** Test many accesses of a user are written as one update of the latest. */
+  @Test
+  public void testLatestAccessWins() {
+    LastAccessRecorder recorder = newRecorder(2, 100);
+    for (int minute = 1; minute <= 10; minute++) {
+      for (String userId : userIds) {
+        recorder.record(userId, start.plusMinutes(minute));
+      }
+    }
+    // Out of order accesses do not move the pending access back
+    recorder.record(userIds.get(0), start.plusMinutes(3));
+    assertEquals(start.plusMinutes(10), recorder.getPendingAccess(userIds.get(0)));
+    assertEquals(start, lastAccess(userIds.get(0)));
+
+    assertEquals(5, recorder.flush());
+    for (String userId : userIds) {
+      assertEquals(start.plusMinutes(10), lastAccess(userId));
+    }
+    assertNull(recorder.getPendingAccess(userIds.get(0)));
+    assertEquals(0, recorder.flush());
+    assertEquals(51L, recorder.getStats().get("recorded"));
+    assertEquals(5L, recorder.getStats().get("written"));
+  }
+
+  /** Test a flush never moves a last access back, such as one written by another instance. */
+  @Test
+  public void testFlushDoesNotMoveLastAccessBack() {
+    usersTableSqlHelper.updateLastAccess(userIds.get(0), start.plusHours(1));
+    LastAccessRecorder recorder = newRecorder(100, 100);
+    recorder.record(userIds.get(0), start.plusMinutes(1));
+    recorder.record(userIds.get(1), start.plusMinutes(1));
+
+    recorder.flush();
+
+    assertEquals(start.plusHours(1), lastAccess(userIds.get(0)));
+    assertEquals(start.plusMinutes(1), lastAccess(userIds.get(1)));
+  }
+
+  /** Test new users are dropped past the memory limit, while held users are still updated. */
+  @Test
+  public void testMaxPending() {
+    LastAccessRecorder recorder = newRecorder(100, 2);
+    recorder.record(userIds.get(0), start.plusMinutes(1));
+    recorder.record(userIds.get(1), start.plusMinutes(1));
+    recorder.record(userIds.get(1), start.plusMinutes(2));
+    recorder.record(userIds.get(2), start.plusMinutes(1));
+
+    assertEquals(start.plusMinutes(2), recorder.getPendingAccess(userIds.get(1)));
+    assertNull(recorder.getPendingAccess(userIds.get(2)));
+    assertEquals(1L, recorder.getStats().get("dropped"));
+  }
+
+  /** Test accesses still held are written when the application stops. */
+  @Test
+  public void testCloseFlushes() {
+    LastAccessRecorder recorder = newRecorder(100, 100);
+    recorder.record(userIds.get(0), start.plusMinutes(1));
+
+    recorder.close();
+
+    assertEquals(start.plusMinutes(1), lastAccess(userIds.get(0)));
+  }
+
+  private LastAccessRecorder newRecorder(int batchSize, int maxPending) {
+    return new LastAccessRecorder(
+        usersTableSqlHelper, Duration.ofMinutes(1), batchSize, maxPending);
+  }
+
+  private LocalDateTime lastAccess(String userId) {
+    return usersTableSqlHelper.getUserWithUserId(userId).getLastAccess();
+  }
+}
@@ -0,0 +1,159 @@
+package service.handler;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.h2.api.Trigger;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import service.config.SchemaMigrationRunner;
+
+/**
+ * Runs the bodies of the MySQL triggers of a migration in H2, which cannot parse them. Each trigger
+ * is created in H2 with this class as its implementation, and every firing runs the statements of
+ * the MySQL body with the NEW and OLD columns replaced by the values of the written row, on the
+ * connection of the write. Bodies may hold one level of IF ... THEN ... END IF.
+ */
+public class MySqlTriggerAdapter implements Trigger {
+
+  private static final Pattern CREATE_TRIGGER =
+      Pattern.compile(
+          "CREATE TRIGGER (\\w+)\\s+(AFTER|BEFORE) (INSERT|UPDATE|DELETE) ON (\\w+)\\s+"
+              + "FOR EACH ROW\\s+BEGIN\\s+(.*)\\s+END",
+          Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern ROW_COLUMN = Pattern.compile("\\b(NEW|OLD)\\.(\\w+)");
+
+  private static final Pattern IF_THEN =
+      Pattern.compile("IF (.*?) THEN\\s+(.*)", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+  /** MySQL trigger bodies by trigger name, in upper case like H2 reports it. */
+  private static final Map<String, String> BODIES = new ConcurrentHashMap<>();
+
+  private final Map<String, Integer> columns = new HashMap<>();
+
+  private String body;
+
+  /**
+   * Creates the triggers of a migration in H2 and runs its other statements.
+   *
+   * @param jdbcTemplate the H2 DB
+   * @param migration class path of the migration
+   * @throws IOException if the migration cannot be read
+   */
+  public static void install(JdbcTemplate jdbcTemplate, String migration) throws IOException {
+    String script = new ClassPathResource(migration).getContentAsString(StandardCharsets.UTF_8);
+    for (String statement : SchemaMigrationRunner.splitStatements(script)) {
+      Matcher trigger = CREATE_TRIGGER.matcher(statement);
+      if (!trigger.matches()) {
+        jdbcTemplate.execute(statement);
+        continue;
+      }
+      BODIES.put(trigger.group(1).toUpperCase(Locale.ROOT), trigger.group(5));
+      jdbcTemplate.execute(
+          String.format(
+              "CREATE TRIGGER %s %s %s ON %s FOR EACH ROW CALL '%s'",
+              trigger.group(1),
+              trigger.group(2),
+              trigger.group(3),
+              trigger.group(4),
+              MySqlTriggerAdapter.class.getName()));
+    }
+  }
+
+  @Override
+  public void init(
+      Connection conn,
+      String schemaName,
+      String triggerName,
+      String tableName,
+      boolean before,
+      int type)
+      throws SQLException {
+    body = BODIES.get(triggerName.toUpperCase(Locale.ROOT));
+    try (PreparedStatement statement =
+        conn.prepareStatement(
+            "select column_name, ordinal_position from information_schema.columns"
+                + " where table_schema = ? and table_name = ?")) {
+      statement.setString(1, schemaName);
+      statement.setString(2, tableName);
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          columns.put(rs.getString(1).toUpperCase(Locale.ROOT), rs.getInt(2) - 1);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+    List<String> statements = new ArrayList<>();
+    for (String statement : body.split(";")) {
+      if (!statement.isBlank()) {
+        statements.add(bindRow(statement.strip(), oldRow, newRow));
+      }
+    }
+    boolean skipping = false;
+    try (Statement statement = conn.createStatement()) {
+      for (String sql : statements) {
+        Matcher condition = IF_THEN.matcher(sql);
+        if (condition.matches()) {
+          skipping = !isTrue(statement, condition.group(1));
+          sql = condition.group(2);
+        } else if ("END IF".equalsIgnoreCase(sql)) {
+          skipping = false;
+          continue;
+        }
+        if (!skipping) {
+          statement.execute(sql);
+        }
+      }
+    }
+  }
+
+  private static boolean isTrue(Statement statement, String condition) throws SQLException {
+    try (ResultSet rs =
+        statement.executeQuery("select case when " + condition + " then 1 else 0 end")) {
+      rs.next();
+      return rs.getInt(1) == 1;
+    }
+  }
+
+  private String bindRow(String sql, Object[] oldRow, Object[] newRow) {
+    Matcher column = ROW_COLUMN.matcher(sql);
+    StringBuilder bound = new StringBuilder();
+    while (column.find()) {
+      Object[] row = "NEW".equalsIgnoreCase(column.group(1)) ? newRow : oldRow;
+      Object value = row[columns.get(column.group(2).toUpperCase(Locale.ROOT))];
+      column.appendReplacement(bound, Matcher.quoteReplacement(literal(value)));
+    }
+    column.appendTail(bound);
+    return bound.toString();
+  }
+
+  private static String literal(Object value) {
+    if (value == null) {
+      return "NULL";
+    }
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    if (value instanceof Number) {
+      return value.toString();
+    }
+    return "'" + value.toString().replace("'", "''") + "'";
+  }
+}
@@ -0,0 +1,200 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.models.Completion;
+import service.models.Inventory;
+import service.models.Item;
+import service.util.CompletionRank;
+
+/** Runs the name completion index against an H2 copy of the schema. */
+@SpringBootTest
+public class NameCompletionIndexTests {
+
+  private final UUID inventoryId = UUID.randomUUID();
+
+  private final UUID otherInventoryId = UUID.randomUUID();
+
+  private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+  private NameCompletionIndex nameCompletionIndex;
+
+  /** Creates the schema in a fresh in-memory DB with two inventories and a few items. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(jdbcTemplate, List.of("db/migration/V3__reservations.sql"));
+    InventoryTableSqlHelper inventoryTableSqlHelper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(inventoryTableSqlHelper, "jdbcTemplate", jdbcTemplate);
+    inventoryTableSqlHelper.insertInventory(
+        Inventory.builder().inventoryId(inventoryId).inventoryName("Sock Drawer").build());
+    inventoryTableSqlHelper.insertInventory(
+        Inventory.builder().inventoryId(otherInventoryId).inventoryName("Warehouse").build());
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(item("Red Socks", 5, 3, inventoryId));
+    itemsTableSqlHelper.insertItem(item("Blue Socks", 20, 2, inventoryId));
+    itemsTableSqlHelper.insertItem(item("Snow Boots", 1, 1, inventoryId));
+    itemsTableSqlHelper.insertItem(item("Wool Socks", 50, 0, otherInventoryId));
+    nameCompletionIndex =
+        new NameCompletionIndex(
+            inventoryTableSqlHelper, itemsTableSqlHelper, Duration.ofMinutes(10), true);
+  }
+
+  /** Test completions are refused until the index is built, then ranked as asked. */
+  @Test
+  public void testBuildFromTables() {
+    assertFalse(nameCompletionIndex.isReady());
+    assertNull(
+        nameCompletionIndex.complete(List.of(inventoryId), "so", 10, CompletionRank.QUANTITY));
+
+    nameCompletionIndex.buildOnStartup();
+    assertTrue(nameCompletionIndex.isReady());
+    assertEquals(4, nameCompletionIndex.getStats().get("items"));
+    assertEquals(2, nameCompletionIndex.getStats().get("inventories"));
+
+    // The inventory holds 26 units in all, so it ranks above its items by quantity
+    assertEquals(
+        List.of("Sock Drawer", "Blue Socks", "Red Socks", "Snow Boots"),
+        names(
+            nameCompletionIndex.complete(List.of(inventoryId), "S", 10, CompletionRank.QUANTITY)));
+    assertEquals(
+        List.of("Snow Boots", "Sock Drawer", "Blue Socks"),
+        names(nameCompletionIndex.complete(List.of(inventoryId), "s", 3, CompletionRank.RECENCY)));
+    assertEquals(
+        List.of("Wool Socks", "Blue Socks"),
+        names(
+            nameCompletionIndex.complete(
+                List.of(inventoryId, otherInventoryId), "socks", 2, CompletionRank.QUANTITY)));
+    assertEquals(
+        List.of("Red Socks"),
+        names(
+            nameCompletionIndex.complete(
+                List.of(inventoryId, otherInventoryId), "red so", 10, CompletionRank.QUANTITY)));
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), "re so", 10, CompletionRank.QUANTITY));
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(UUID.randomUUID()), "s", 10, CompletionRank.QUANTITY));
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), " ", 10, CompletionRank.RECENCY));
+
+    Completion drawer =
+        nameCompletionIndex
+            .complete(List.of(inventoryId), "drawer", 1, CompletionRank.QUANTITY)
+            .get(0);
+    assertEquals(Completion.INVENTORY, drawer.getType());
+    assertEquals(inventoryId, drawer.getId());
+    assertEquals(26, drawer.getQuantity());
+  }
+
+  /** Test changes to items and inventories are completed right away. */
+  @Test
+  public void testChangesAreApplied() {
+    nameCompletionIndex.rebuild();
+    Item created = item("Silk Scarf", 100, 0, inventoryId);
+    nameCompletionIndex.putItem(created);
+    // The inventory is ranked by all the units it holds, the new item's included
+    assertEquals(
+        List.of("Sock Drawer", "Silk Scarf"),
+        names(nameCompletionIndex.complete(List.of(inventoryId), "s", 2, CompletionRank.QUANTITY)));
+
+    nameCompletionIndex.putItem(created.toBuilder().itemName("Silk Gloves").quantity(2).build());
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), "scarf", 10, CompletionRank.QUANTITY));
+    assertEquals(
+        List.of("Sock Drawer", "Blue Socks", "Red Socks", "Silk Gloves"),
+        names(nameCompletionIndex.complete(List.of(inventoryId), "s", 4, CompletionRank.QUANTITY)));
+
+    nameCompletionIndex.removeItem(created.getItemId());
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), "silk", 10, CompletionRank.QUANTITY));
+
+    nameCompletionIndex.putInventory(inventoryId, "Closet");
+    assertEquals(
+        List.of("Closet"),
+        names(
+            nameCompletionIndex.complete(List.of(inventoryId), "clo", 10, CompletionRank.RECENCY)));
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), "drawer", 10, CompletionRank.RECENCY));
+
+    nameCompletionIndex.removeInventory(inventoryId);
+    assertEquals(1, nameCompletionIndex.getStats().get("items"));
+    assertEquals(
+        List.of(),
+        nameCompletionIndex.complete(List.of(inventoryId), "s", 10, CompletionRank.QUANTITY));
+
+    // A rebuild only sees the tables, where the inventory was never deleted
+    assertEquals(4, nameCompletionIndex.rebuild());
+    assertEquals(
+        List.of("Sock Drawer"),
+        names(
+            nameCompletionIndex.complete(List.of(inventoryId), "dr", 10, CompletionRank.QUANTITY)));
+  }
+
+  /** Test an inventory is ranked by its newest item left after the newest one is removed. */
+  @Test
+  public void testLastAdditionAfterRemoval() {
+    nameCompletionIndex.rebuild();
+    Item created = item("Silk Scarf", 1, 0, inventoryId);
+    nameCompletionIndex.putItem(created);
+    assertEquals(now, drawer().getAddedAt());
+
+    nameCompletionIndex.removeItem(created.getItemId());
+    assertEquals(now.minusHours(1), drawer().getAddedAt());
+
+    // Removing an older item keeps the newest one
+    nameCompletionIndex.removeItem(
+        nameCompletionIndex
+            .complete(List.of(inventoryId), "red", 1, CompletionRank.QUANTITY)
+            .get(0)
+            .getId());
+    assertEquals(now.minusHours(1), drawer().getAddedAt());
+  }
+
+  private Completion drawer() {
+    return nameCompletionIndex
+        .complete(List.of(inventoryId), "drawer", 1, CompletionRank.RECENCY)
+        .get(0);
+  }
+
+  private Item item(String itemName, int quantity, int hoursAgo, UUID inventoryId) {
+    return Item.builder()
+        .itemId(UUID.randomUUID())
+        .itemName(itemName)
+        .timeOfAddition(now.minusHours(hoursAgo))
+        .location("Aisle 1")
+        .inventoryId(inventoryId)
+        .quantity(quantity)
+        .price(1.0)
+        .build();
+  }
+
+  private static List<String> names(List<Completion> completions) {
+    return completions.stream().map(Completion::getName).toList();
+  }
+}
@@ -0,0 +1,301 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.config.SchemaMigrationRunner;
+import service.models.Booking;
+import service.models.Inventory;
+import service.models.Item;
+import service.models.Reservation;
+import service.models.User;
+import service.util.UserRoles;
+
+/**
+ * Runs the SQL helpers against an H2 copy of the schema with the later migrations applied, and
+ * fails if the plan of any lookup, update or delete they issue falls back to a full table scan.
+ */
+@SpringBootTest
+public class QueryPlanTests {
+
+  private static final List<String> MIGRATIONS =
+      List.of(
+          "db/migration/V2__index_pack.sql",
+          "db/migration/V3__reservations.sql",
+          "db/migration/V4__reservations_expiry_index.sql",
+          "db/migration/V5__expiry_partitions.sql",
+          "db/migration/V6__idempotency_keys.sql",
+          "db/migration/V7__bookings.sql",
+          "db/migration/V8__inventory_stats.sql",
+          "db/migration/V11__idempotency_payload_hash.sql",
+          "db/migration/V12__counter_leases.sql",
+          "db/migration/V13__job_leases.sql");
+
+  /**
+   * H2 names the index a table is read through in a comment, followed by the lookup condition when
+   * the index is searched. A bare name, or "tableScan" in older versions, means every row is read.
+   */
+  private static final Pattern FULL_SCAN = Pattern.compile("/\\* [\\w.]+ \\*/");
+
+  private final List<RecordedQuery> recordedQueries = new ArrayList<>();
+
+  private JdbcTemplate jdbcTemplate;
+
+  /** Creates the schema and indexes in a fresh in-memory DB. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    DataSource dataSource =
+        new SimpleDriverDataSource(
+            new org.h2.Driver(),
+            "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    jdbcTemplate = new RecordingJdbcTemplate(dataSource, recordedQueries);
+    createSchema(jdbcTemplate, MIGRATIONS);
+    recordedQueries.clear();
+  }
+
+  /**
+   * Creates the base schema and applies the given migrations.
+   *
+   * @param jdbcTemplate the jdbc template for the DB
+   * @param migrations class path locations of the migrations to apply, in order
+   */
+  static void createSchema(JdbcTemplate jdbcTemplate, List<String> migrations) throws IOException {
+    List<String> paths = new ArrayList<>();
+    paths.add("db/h2-schema.sql");
+    paths.addAll(migrations);
+    for (String path : paths) {
+      String script = new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+      for (String statement : SchemaMigrationRunner.splitStatements(script)) {
+        jdbcTemplate.execute(statement);
+      }
+    }
+  }
+
+  /** Test helper queries use indexes. */
+  @Test
+  public void testHelperQueriesUseIndexes() {
+    final String itemId = UUID.randomUUID().toString();
+    final String inventoryId = UUID.randomUUID().toString();
+    final String userId = UUID.randomUUID().toString();
+
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.fromString(itemId))
+            .itemName("Laptop")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(5)
+            .location("Warehouse")
+            .price(10.0)
+            .inventoryId(UUID.fromString(inventoryId))
+            .build());
+    itemsTableSqlHelper.getItem(itemId);
+    itemsTableSqlHelper.getItemFields(itemId, List.of("itemName", "quantity"));
+    itemsTableSqlHelper.getItemsPage(itemId, 10);
+    itemsTableSqlHelper.updateItemName(itemId, "Notebook");
+    itemsTableSqlHelper.updateItemQuantity(itemId, 4);
+    itemsTableSqlHelper.updateItemLocation(itemId, "Shelf");
+    itemsTableSqlHelper.updateItemPrice(itemId, 12.0);
+    itemsTableSqlHelper.updateInventoryId(itemId, inventoryId);
+    itemsTableSqlHelper.updateItemReservation(itemId, 1000);
+    itemsTableSqlHelper.cancelItemReservation(itemId);
+
+    ReservationsTableSqlHelper reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    final LocalDateTime now = LocalDateTime.now().withNano(0);
+    final String reservationId = UUID.randomUUID().toString();
+    reservationsTableSqlHelper.insertReservation(
+        Reservation.builder()
+            .reservationId(UUID.fromString(reservationId))
+            .itemId(UUID.fromString(itemId))
+            .quantity(1)
+            .reservedAt(now)
+            .expiresAt(now.plusMinutes(5))
+            .build());
+    reservationsTableSqlHelper.insertReservationGroup(
+        List.of(
+            Reservation.builder()
+                .reservationId(UUID.randomUUID())
+                .itemId(UUID.fromString(itemId))
+                .quantity(1)
+                .reservedAt(now)
+                .expiresAt(now.plusMinutes(5))
+                .build()));
+    final String leaseId = UUID.randomUUID().toString();
+    reservationsTableSqlHelper.allocateQuantity(
+        leaseId, UUID.fromString(itemId), 2, Duration.ofMinutes(1));
+    reservationsTableSqlHelper.insertAllocatedReservation(
+        Reservation.builder()
+            .reservationId(UUID.randomUUID())
+            .itemId(UUID.fromString(itemId))
+            .quantity(1)
+            .reservedAt(now)
+            .expiresAt(now.plusMinutes(5))
+            .build(),
+        leaseId);
+    reservationsTableSqlHelper.renewCounterLease(
+        leaseId, UUID.fromString(itemId), Duration.ofMinutes(1));
+    reservationsTableSqlHelper.closeCounterLease(leaseId, UUID.fromString(itemId));
+    reservationsTableSqlHelper.returnLapsedCounterLeases();
+    reservationsTableSqlHelper.getReservation(reservationId);
+    reservationsTableSqlHelper.getReservationsByItemId(itemId);
+    reservationsTableSqlHelper.updateExpiresAt(
+        reservationId, now.plusMinutes(5), now.plusMinutes(10));
+    reservationsTableSqlHelper.deleteReservation(reservationId);
+    reservationsTableSqlHelper.getPendingReservations(List.of(0, 1), now);
+    reservationsTableSqlHelper.deleteExpiredReservations(0, now, 100);
+
+    BookingsTableSqlHelper bookingsTableSqlHelper = new BookingsTableSqlHelper();
+    bookingsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    bookingsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    final UUID bookingId = UUID.randomUUID();
+    bookingsTableSqlHelper.insertBooking(
+        Booking.builder()
+            .bookingId(bookingId)
+            .itemId(UUID.fromString(itemId))
+            .startsAt(now.plusHours(1))
+            .endsAt(now.plusHours(2))
+            .build());
+    bookingsTableSqlHelper.findOverlap(UUID.fromString(itemId), now, now.plusHours(3));
+    bookingsTableSqlHelper.getBookings(UUID.fromString(itemId), now);
+    bookingsTableSqlHelper.deleteBooking(bookingId.toString());
+
+    itemsTableSqlHelper.deleteItem(itemId);
+
+    IdempotencyKeysTableSqlHelper idempotencyKeysTableSqlHelper =
+        new IdempotencyKeysTableSqlHelper();
+    idempotencyKeysTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    final byte[] keyHash = new byte[32];
+    idempotencyKeysTableSqlHelper.claimKey(keyHash, keyHash, now, now.plusMinutes(1));
+    idempotencyKeysTableSqlHelper.claimKey(keyHash, keyHash, now, now.plusMinutes(1));
+    idempotencyKeysTableSqlHelper.storeResponse(keyHash, 200, "OK", now.plusDays(1));
+    idempotencyKeysTableSqlHelper.getResponse(keyHash);
+    idempotencyKeysTableSqlHelper.deleteExpiredKeys(now, 100);
+    idempotencyKeysTableSqlHelper.releaseKey(keyHash);
+
+    UsersTableSqlHelper usersTableSqlHelper = new UsersTableSqlHelper();
+    usersTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    usersTableSqlHelper.insertUser(
+        User.builder()
+            .userId(UUID.fromString(userId))
+            .username("user")
+            .password("password")
+            .role(UserRoles.USER)
+            .lastAccess(LocalDateTime.now())
+            .build());
+    usersTableSqlHelper.getUserWithUserId(userId);
+    usersTableSqlHelper.getUserWithUsername("user");
+    usersTableSqlHelper.updateUsername(userId, "renamed");
+    usersTableSqlHelper.updateRole(userId, "ADMIN");
+    usersTableSqlHelper.updateLastAccess(userId, LocalDateTime.now());
+    usersTableSqlHelper.updateLastAccesses(Map.of(userId, LocalDateTime.now()));
+    usersTableSqlHelper.delete(userId);
+
+    InventoryTableSqlHelper inventoryTableSqlHelper = new InventoryTableSqlHelper();
+    ReflectionTestUtils.setField(inventoryTableSqlHelper, "jdbcTemplate", jdbcTemplate);
+    inventoryTableSqlHelper.getInventoryWithInventoryId(inventoryId);
+    inventoryTableSqlHelper.getInventoryPage(inventoryId, null, 10, "Lap", "Warehouse");
+    inventoryTableSqlHelper.getInventoryPage(inventoryId, itemId, 10, null, null);
+    inventoryTableSqlHelper.getInventoryItems(inventoryId);
+
+    inventoryTableSqlHelper.insertInventory(
+        Inventory.builder()
+            .inventoryId(UUID.fromString(inventoryId))
+            .inventoryName("Inventory")
+            .build());
+    InventoryStatsTableSqlHelper inventoryStatsTableSqlHelper = new InventoryStatsTableSqlHelper();
+    inventoryStatsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    inventoryStatsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    inventoryStatsTableSqlHelper.getInventoryStats(inventoryId);
+    inventoryStatsTableSqlHelper.getInventoryIds(inventoryId, 10);
+    inventoryStatsTableSqlHelper.reconcile(inventoryId);
+    inventoryStatsTableSqlHelper.claimReconcileLease(userId, Duration.ofMinutes(1));
+    inventoryStatsTableSqlHelper.releaseReconcileLease(userId);
+    inventoryTableSqlHelper.update(inventoryId, "Renamed Inventory");
+    inventoryTableSqlHelper.delete(inventoryId);
+
+    InventoryItemsJunctionTableHelper inventoryItemsJunctionTableHelper =
+        new InventoryItemsJunctionTableHelper();
+    ReflectionTestUtils.setField(inventoryItemsJunctionTableHelper, "jdbcTemplate", jdbcTemplate);
+    inventoryItemsJunctionTableHelper.getItemIdsByInventoryId(inventoryId);
+    inventoryItemsJunctionTableHelper.getItemNamesByInventoryId(inventoryId);
+
+    UserInventoryJunctionTableHelper userInventoryJunctionTableHelper =
+        new UserInventoryJunctionTableHelper();
+    ReflectionTestUtils.setField(userInventoryJunctionTableHelper, "jdbcTemplate", jdbcTemplate);
+    userInventoryJunctionTableHelper.getInventoryIdsByUserId(userId);
+    userInventoryJunctionTableHelper.getUserIdsByInventoryId(inventoryId);
+    userInventoryJunctionTableHelper.removeUserInventoryAccess(userId, inventoryId);
+
+    // Issued by the delete_default_inventory trigger on every user delete
+    jdbcTemplate.update(
+        "delete from Inventories where inventory_name = ?", "user's Default Inventory");
+
+    assertFalse(recordedQueries.isEmpty());
+    for (RecordedQuery query : List.copyOf(recordedQueries)) {
+      if (query.sql.startsWith("insert")) {
+        continue;
+      }
+      String plan =
+          String.join(
+              "\n", jdbcTemplate.queryForList("EXPLAIN " + query.sql, String.class, query.args));
+      assertFalse(FULL_SCAN.matcher(plan).find(), "Full table scan for " + query.sql + "\n" + plan);
+    }
+  }
+
+  private static final class RecordedQuery {
+    private final String sql;
+    private final Object[] args;
+
+    private RecordedQuery(String sql, Object[] args) {
+      this.sql = sql;
+      this.args = args;
+    }
+  }
+
+  /** Records every parameterized query and update the helpers send through it. */
+  private static final class RecordingJdbcTemplate extends JdbcTemplate {
+    private final List<RecordedQuery> recordedQueries;
+
+    private RecordingJdbcTemplate(DataSource dataSource, List<RecordedQuery> recordedQueries) {
+      super(dataSource);
+      this.recordedQueries = recordedQueries;
+    }
+
+    @Override
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+      recordedQueries.add(new RecordedQuery(sql, args));
+      return super.query(sql, rowMapper, args);
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+      recordedQueries.add(new RecordedQuery(sql, args));
+      return super.update(sql, args);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.exceptions.ReservationException;
+import service.models.Item;
+import service.models.Reservation;
+
+/** Runs counted reservations against an H2 copy of the schema. */
+@SpringBootTest
+public class ReservationCountersTests {
+
+  private static final int STOCK = 100;
+
+  private static final int CHUNK_SIZE = 10;
+
+  private static final int RESERVERS = 1000;
+
+  private final String itemId = UUID.randomUUID().toString();
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private ExpiryLeaseService expiryLeaseService;
+
+  private ReservationCounters counters;
+
+  private ItemReservationService reservationService;
+
+  /** Creates the schema in a fresh in-memory DB and adds a counted item with some stock. */
+  @BeforeEach
+  public void setUp() throws IOException, ReservationException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:"
+                    + UUID.randomUUID()
+                    + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V10__expiry_lease_owners.sql",
+            "db/migration/V12__counter_leases.sql"));
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.fromString(itemId))
+            .itemName("Laptop")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(STOCK)
+            .location("Warehouse")
+            .price(10.0)
+            .inventoryId(UUID.randomUUID())
+            .build());
+    reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    expiryLeaseService = new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+    expiryLeaseService.renewLeases();
+    counters =
+        new ReservationCounters(
+            reservationsTableSqlHelper,
+            CHUNK_SIZE,
+            Duration.ofSeconds(10),
+            Duration.ofMinutes(1),
+            List.of());
+    reservationService =
+        new ItemReservationService(
+            itemsTableSqlHelper, reservationsTableSqlHelper, expiryLeaseService);
+    reservationService.setReservationCounters(counters);
+    reservationService.setCountedReservations(itemId, true);
+  }
+
+  /** Stops the expiry timers and gives back what the counters hold. */
+  @AfterEach
+  public void tearDown() {
+    counters.close();
+    reservationService.close();
+  }
+
+  /** Test a rush of holds on a counted item takes exactly the stock. */
+  @Test
+  public void testConcurrentCountedReservationsAreExact() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(64);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    for (int i = 0; i < RESERVERS; i++) {
+      executor.execute(
+          () -> {
+            try {
+              start.await();
+              reservationService.reserveItem(itemId, UUID.randomUUID(), 1, 60_000);
+              reserved.incrementAndGet();
+            } catch (ReservationException e) {
+              rejected.incrementAndGet();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(2, TimeUnit.MINUTES);
+
+    assertEquals(STOCK, reserved.get());
+    assertEquals(RESERVERS - STOCK, rejected.get());
+    assertEquals(0, counters.getAllowance(UUID.fromString(itemId)));
+    assertEquals(0, counters.flush());
+    assertEquals(
+        Map.of("QUANTITY", 0, "RESERVED_QUANTITY", STOCK, "HOLDS", (long) STOCK), counts());
+  }
+
+  /** Test unused counted quantity goes back to the item on flush and when counting stops. */
+  @Test
+  public void testUnusedQuantityIsReturned() throws ReservationException {
+    reservationService.reserveItem(itemId, UUID.randomUUID(), 3, 60_000);
+    // A chunk was taken, and is counted as reserved until it is used or given back
+    assertEquals(CHUNK_SIZE - 3, counters.getAllowance(UUID.fromString(itemId)));
+    assertEquals(
+        Map.of("QUANTITY", STOCK - CHUNK_SIZE, "RESERVED_QUANTITY", CHUNK_SIZE, "HOLDS", 1L),
+        counts());
+
+    assertEquals(CHUNK_SIZE - 3, counters.flush());
+    assertEquals(Map.of("QUANTITY", STOCK - 3, "RESERVED_QUANTITY", 3, "HOLDS", 1L), counts());
+
+    // A hold bigger than a chunk takes what it needs at once
+    Reservation big = reservationService.reserveItem(itemId, UUID.randomUUID(), 25, 60_000);
+    assertEquals(Map.of("QUANTITY", STOCK - 28, "RESERVED_QUANTITY", 28, "HOLDS", 2L), counts());
+
+    // Cancelling a counted hold returns it to the item like any other hold
+    reservationService.cancelReservation(big.getReservationId().toString());
+    assertEquals(Map.of("QUANTITY", STOCK - 3, "RESERVED_QUANTITY", 3, "HOLDS", 1L), counts());
+
+    reservationService.reserveItem(itemId, UUID.randomUUID(), 1, 60_000);
+    reservationService.setCountedReservations(itemId, false);
+    assertFalse(counters.isEnabled(UUID.fromString(itemId)));
+    assertEquals(Map.of("QUANTITY", STOCK - 4, "RESERVED_QUANTITY", 4, "HOLDS", 2L), counts());
+  }
+
+  /**
+   * Test quantity taken by a counter that is dropped without a flush is recovered by the sweeper.
+   */
+  @Test
+  public void testDroppedCounterQuantityIsRecovered() throws ReservationException {
+    reservationService.reserveItem(itemId, UUID.randomUUID(), 3, 60_000);
+    assertEquals(
+        Map.of("QUANTITY", STOCK - CHUNK_SIZE, "RESERVED_QUANTITY", CHUNK_SIZE, "HOLDS", 1L),
+        counts());
+
+    // The instance stops without flushing or closing its counters
+    counters =
+        new ReservationCounters(
+            reservationsTableSqlHelper,
+            CHUNK_SIZE,
+            Duration.ofSeconds(10),
+            Duration.ofMinutes(1),
+            List.of());
+    reservationService.setReservationCounters(counters);
+    ReservationExpirySweeper sweeper =
+        new ReservationExpirySweeper(
+            reservationsTableSqlHelper,
+            expiryLeaseService,
+            reservationService,
+            Duration.ofSeconds(5),
+            500,
+            10);
+
+    // The lease is still live, so its quantity stays reserved
+    sweeper.sweep();
+    assertEquals(
+        Map.of("QUANTITY", STOCK - CHUNK_SIZE, "RESERVED_QUANTITY", CHUNK_SIZE, "HOLDS", 1L),
+        counts());
+
+    jdbcTemplate.update(
+        "update Counter_Leases set expires_at = ?", LocalDateTime.now().minusMinutes(1));
+    sweeper.sweep();
+    assertEquals(Map.of("QUANTITY", STOCK - 3, "RESERVED_QUANTITY", 3, "HOLDS", 1L), counts());
+    assertEquals(
+        0, jdbcTemplate.queryForObject("select count(*) from Counter_Leases", Integer.class));
+  }
+
+  /** Test the last units left in the DB can still be held when they are fewer than a chunk. */
+  @Test
+  public void testLastUnitsBelowChunkSize() throws ReservationException {
+    jdbcTemplate.update("update Items set quantity = 4 where item_id = ?", itemId);
+    reservationService.reserveItem(itemId, UUID.randomUUID(), 4, 60_000);
+    assertEquals(Map.of("QUANTITY", 0, "RESERVED_QUANTITY", 4, "HOLDS", 1L), counts());
+
+    final LocalDateTime now = LocalDateTime.now().withNano(0);
+    assertFalse(
+        counters.reserve(
+            Reservation.builder()
+                .reservationId(UUID.randomUUID())
+                .itemId(UUID.fromString(itemId))
+                .quantity(1)
+                .reservedAt(now)
+                .expiresAt(now.plusMinutes(5))
+                .build()));
+    assertNull(
+        counters.reserve(
+            Reservation.builder()
+                .reservationId(UUID.randomUUID())
+                .itemId(UUID.randomUUID())
+                .quantity(1)
+                .reservedAt(now)
+                .expiresAt(now.plusMinutes(5))
+                .build()));
+    assertTrue(counters.isEnabled(UUID.fromString(itemId)));
+  }
+
+  private Map<String, Object> counts() {
+    return jdbcTemplate.queryForMap(
+        "select quantity, reserved_quantity, "
+            + "(select count(*) from Reservations where item_id = ?) as holds "
+            + "from Items where item_id = ?",
+        itemId,
+        itemId);
+  }
+}
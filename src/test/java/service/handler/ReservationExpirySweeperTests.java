@@ -0,0 +1,170 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.models.Item;
+import service.models.Reservation;
+
+/** Runs the reservation expiry sweeper against an H2 copy of the schema. */
+@SpringBootTest
+public class ReservationExpirySweeperTests {
+
+  private static final int BATCH_SIZE = 10;
+
+  private static final int MAX_BATCHES = 3;
+
+  private final List<String> itemIds =
+      List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ReservationsTableSqlHelper reservationsTableSqlHelper;
+
+  private ExpiryLeaseService expiryLeaseService;
+
+  private ItemReservationService reservationService;
+
+  private ReservationExpirySweeper sweeper;
+
+  /** Creates the schema in a fresh in-memory DB and adds two items with some stock. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V10__expiry_lease_owners.sql"));
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    for (String itemId : itemIds) {
+      itemsTableSqlHelper.insertItem(
+          Item.builder()
+              .itemId(UUID.fromString(itemId))
+              .itemName("Laptop")
+              .timeOfAddition(LocalDateTime.now())
+              .quantity(1000)
+              .location("Warehouse")
+              .price(10.0)
+              .inventoryId(UUID.randomUUID())
+              .build());
+    }
+    reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    expiryLeaseService = new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+    reservationService =
+        new ItemReservationService(
+            itemsTableSqlHelper, reservationsTableSqlHelper, expiryLeaseService);
+    sweeper =
+        new ReservationExpirySweeper(
+            reservationsTableSqlHelper,
+            expiryLeaseService,
+            reservationService,
+            Duration.ofSeconds(1),
+            BATCH_SIZE,
+            MAX_BATCHES);
+  }
+
+  /** Stops the expiry wheel and gives up the leases. */
+  @AfterEach
+  public void tearDown() {
+    reservationService.close();
+    expiryLeaseService.releaseLeases();
+  }
+
+  /** Test a storm of expired holds is spread over several sweeps and leaves live holds alone. */
+  @Test
+  public void testSweepExpiresDueHoldsInBoundedBatches() {
+    final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    for (int i = 0; i < 150; i++) {
+      hold(itemIds.get(i % 2), now.minusMinutes(1));
+    }
+    hold(itemIds.get(0), now.plusMinutes(5));
+
+    int expired = sweeper.sweep();
+    assertTrue(expired > 0 && expired <= BATCH_SIZE * MAX_BATCHES);
+    long sweeps = 1;
+    for (int deleted = expired; deleted > 0; sweeps++) {
+      deleted = sweeper.sweep();
+      assertTrue(deleted <= BATCH_SIZE * MAX_BATCHES);
+      expired += deleted;
+    }
+    assertEquals(150, expired);
+
+    assertEquals(
+        Map.of("QUANTITY", 998, "RESERVED_QUANTITY", 2, "HOLDS", 1L), counts(itemIds.get(0)));
+    assertEquals(
+        Map.of("QUANTITY", 1000, "RESERVED_QUANTITY", 0, "HOLDS", 0L), counts(itemIds.get(1)));
+    Map<String, Object> stats = sweeper.getStats();
+    assertEquals(sweeps, stats.get("sweeps"));
+    assertEquals(0L, stats.get("lastExpired"));
+    assertEquals(150L, stats.get("totalExpired"));
+    // The first sweep took every lease and loaded the live hold into the expiry wheel
+    assertEquals(
+        ReservationsTableSqlHelper.EXPIRY_PARTITIONS,
+        expiryLeaseService.getOwnedPartitions().size());
+    assertEquals(1, reservationService.getExpiryWheel().size());
+  }
+
+  /** Test partitions leased by another instance are not swept. */
+  @Test
+  public void testSweepSkipsPartitionsLeasedElsewhere() {
+    jdbcTemplate.update(
+        "update Expiry_Leases set owner = ?, lease_until = ?",
+        "other",
+        LocalDateTime.now().plusMinutes(1));
+    hold(itemIds.get(0), LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(1));
+
+    assertEquals(0, sweeper.sweep());
+    assertTrue(expiryLeaseService.getOwnedPartitions().isEmpty());
+
+    // Once the other instance's leases lapse, this one takes over and expires the hold
+    jdbcTemplate.update(
+        "update Expiry_Leases set lease_until = ?", LocalDateTime.now().minusMinutes(1));
+    assertEquals(1, sweeper.sweep());
+  }
+
+  private void hold(String itemId, LocalDateTime expiresAt) {
+    reservationsTableSqlHelper.insertReservation(
+        Reservation.builder()
+            .reservationId(UUID.randomUUID())
+            .itemId(UUID.fromString(itemId))
+            .quantity(2)
+            .reservedAt(expiresAt.minusMinutes(10))
+            .expiresAt(expiresAt)
+            .build());
+  }
+
+  private Map<String, Object> counts(String itemId) {
+    return jdbcTemplate.queryForMap(
+        "select quantity, reserved_quantity, "
+            + "(select count(*) from Reservations where item_id = ?) as holds "
+            + "from Items where item_id = ?",
+        itemId,
+        itemId);
+  }
+}
@@ -0,0 +1,216 @@
+package service.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.exceptions.ReservationException;
+import service.models.Item;
+import service.models.Reservation;
+
+/** Runs reservations through the group commit pipeline against an H2 copy of the schema. */
+@SpringBootTest
+public class ReservationPipelineTests {
+
+  private static final int STOCK = 100;
+
+  private static final int RESERVERS = 1000;
+
+  private final String itemId = UUID.randomUUID().toString();
+
+  private JdbcTemplate jdbcTemplate;
+
+  private ReservationPipeline pipeline;
+
+  private ItemReservationService reservationService;
+
+  /** Creates the schema in a fresh in-memory DB and adds an item with some stock. */
+  @BeforeEach
+  public void setUp() throws IOException {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new SimpleDriverDataSource(
+                new org.h2.Driver(),
+                "jdbc:h2:mem:"
+                    + UUID.randomUUID()
+                    + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000"));
+    QueryPlanTests.createSchema(
+        jdbcTemplate,
+        List.of(
+            "db/migration/V3__reservations.sql",
+            "db/migration/V4__reservations_expiry_index.sql",
+            "db/migration/V5__expiry_partitions.sql",
+            "db/migration/V10__expiry_lease_owners.sql"));
+    ItemsTableSqlHelper itemsTableSqlHelper = new ItemsTableSqlHelper();
+    itemsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    itemsTableSqlHelper.insertItem(
+        Item.builder()
+            .itemId(UUID.fromString(itemId))
+            .itemName("Laptop")
+            .timeOfAddition(LocalDateTime.now())
+            .quantity(STOCK)
+            .location("Warehouse")
+            .price(10.0)
+            .inventoryId(UUID.randomUUID())
+            .build());
+    ReservationsTableSqlHelper reservationsTableSqlHelper = new ReservationsTableSqlHelper();
+    reservationsTableSqlHelper.setJdbcTemplate(jdbcTemplate);
+    reservationsTableSqlHelper.setTransactionTemplate(
+        new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    ExpiryLeaseService expiryLeaseService =
+        new ExpiryLeaseService(jdbcTemplate, Duration.ofSeconds(30));
+    pipeline =
+        new ReservationPipeline(reservationsTableSqlHelper, 4, 100, 10_000, Duration.ofSeconds(30));
+    reservationService =
+        new ItemReservationService(
+            itemsTableSqlHelper, reservationsTableSqlHelper, expiryLeaseService);
+    reservationService.setReservationPipeline(pipeline);
+  }
+
+  /** Stops the writers and the expiry timers. */
+  @AfterEach
+  public void tearDown() {
+    pipeline.close();
+    reservationService.close();
+  }
+
+  /** Test a rush on one item is stored in groups without taking more than the stock. */
+  @Test
+  public void testConcurrentReservationsAreGroupedWithoutOverselling() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(64);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger reserved = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    for (int i = 0; i < RESERVERS; i++) {
+      executor.execute(
+          () -> {
+            try {
+              start.await();
+              reservationService.reserveItem(itemId, UUID.randomUUID(), 1, 60_000);
+              reserved.incrementAndGet();
+            } catch (ReservationException e) {
+              rejected.incrementAndGet();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(2, TimeUnit.MINUTES);
+
+    assertEquals(STOCK, reserved.get());
+    assertEquals(RESERVERS - STOCK, rejected.get());
+    assertEquals(
+        Map.of("QUANTITY", 0, "RESERVED_QUANTITY", STOCK, "HOLDS", (long) STOCK),
+        jdbcTemplate.queryForMap(
+            "select quantity, reserved_quantity, "
+                + "(select count(*) from Reservations where item_id = ?) as holds "
+                + "from Items where item_id = ?",
+            itemId,
+            itemId));
+    assertEquals(RESERVERS, pipeline.getHoldsCommitted());
+    assertTrue(pipeline.getGroupsCommitted() < pipeline.getHoldsCommitted());
+  }
+
+  /** Test a hold on a missing item is rejected without failing the rest of its group. */
+  @Test
+  public void testMissingItemIsRejected() throws InterruptedException, ReservationException {
+    final LocalDateTime now = LocalDateTime.now().withNano(0);
+    assertFalse(
+        pipeline.reserve(
+            Reservation.builder()
+                .reservationId(UUID.randomUUID())
+                .itemId(UUID.randomUUID())
+                .quantity(1)
+                .reservedAt(now)
+                .expiresAt(now.plusMinutes(5))
+                .build()));
+    assertTrue(
+        pipeline.reserve(
+            Reservation.builder()
+                .reservationId(UUID.randomUUID())
+                .itemId(UUID.fromString(itemId))
+                .quantity(STOCK)
+                .reservedAt(now)
+                .expiresAt(now.plusMinutes(5))
+                .build()));
+    assertEquals(2, pipeline.getHoldsCommitted());
+  }
+
+  /** Test callers are released after the timeout while the commit hangs, and once closed. */
+  @Test
+  public void testStalledAndClosedPipelineReleasesCallers() throws Exception {
+    CountDownLatch committing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ReservationsTableSqlHelper stalled = mock(ReservationsTableSqlHelper.class);
+    when(stalled.insertReservationGroup(any()))
+        .thenAnswer(
+            invocation -> {
+              committing.countDown();
+              release.await();
+              return new boolean[] {true};
+            });
+    ReservationPipeline stalledPipeline =
+        new ReservationPipeline(stalled, 1, 1, 1, Duration.ofMillis(300));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> inFlight =
+          executor.submit(
+              () ->
+                  assertThrows(ReservationException.class, () -> stalledPipeline.reserve(hold())));
+      assertTrue(committing.await(10, TimeUnit.SECONDS));
+
+      // Still waiting in the mailbox when the timeout hits, so it is taken back out
+      ReservationException waiting =
+          assertThrows(ReservationException.class, () -> stalledPipeline.reserve(hold()));
+      assertEquals("Reservation was not stored in time, try again", waiting.getMessage());
+      inFlight.get(10, TimeUnit.SECONDS);
+
+      release.countDown();
+      stalledPipeline.close();
+      ReservationException stopped =
+          assertThrows(ReservationException.class, () -> stalledPipeline.reserve(hold()));
+      assertEquals("Reservations are stopping, try again", stopped.getMessage());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+      stalledPipeline.close();
+    }
+  }
+
+  private Reservation hold() {
+    LocalDateTime now = LocalDateTime.now().withNano(0);
+    return Reservation.builder()
+        .reservationId(UUID.randomUUID())
+        .itemId(UUID.fromString(itemId))
+        .quantity(1)
+        .reservedAt(now)
+        .expiresAt(now.plusMinutes(5))
+        .build();
+  }
+}
@@ -44,7 +44,8 @@ public class UserInventoryJunctionTableHelperTests {
   @Test
   public void testGetInventoryIdsByUserId() {
     // Test error during SQL Query
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenThrow(new RuntimeException());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(new RuntimeException());
     assertThrows(
         RuntimeException.class,
         () -> userInventoryJunctionTableHelper.getInventoryIdsByUserId(testUserId));
@@ -52,23 +53,42 @@ public class UserInventoryJunctionTableHelperTests {
     // Test successful SQL Query
     ArrayList<String> testList = new ArrayList<>();
     testList.add(testUserId);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(testList);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(testList);
     assertDoesNotThrow(() -> userInventoryJunctionTableHelper.getInventoryIdsByUserId(testUserId));
     assertEquals(testList, userInventoryJunctionTableHelper.getInventoryIdsByUserId(testUserId));
   }
 
+  /** Test get default inventory ids by user id. */
+  @Test
+  public void testGetDefaultInventoryIdsByUserId() {
+    // Test error during SQL Query
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(new RuntimeException());
+    assertThrows(
+        RuntimeException.class,
+        () -> userInventoryJunctionTableHelper.getDefaultInventoryIdsByUserId(testUserId));
+
+    // Test successful SQL Query
+    ArrayList<String> testList = new ArrayList<>();
+    testList.add(testInventoryId);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(testList);
+    assertEquals(
+        testList, userInventoryJunctionTableHelper.getDefaultInventoryIdsByUserId(testUserId));
+  }
+
   /** Test get user ids by inventory id. */
   @Test
   public void testGetUserIdsByInventoryId() {
     // Test error during SQL Query
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenThrow(new RuntimeException());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenThrow(new RuntimeException());
     assertThrows(
         RuntimeException.class, () -> userInventoryJunctionTableHelper.getUserIdsByInventoryId(""));
 
     // Test successful SQL Query
     ArrayList<String> testList = new ArrayList<>();
     testList.add(testUserId);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(testList);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(testList);
     assertDoesNotThrow(() -> userInventoryJunctionTableHelper.getUserIdsByInventoryId(testUserId));
     assertEquals(testList, userInventoryJunctionTableHelper.getUserIdsByInventoryId(testUserId));
   }
@@ -89,7 +89,8 @@ public class UsersTableSqlHelperTests {
   @Test
   public void testGetUserWithUserId() {
     // Test empty list
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(new ArrayList<>());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(new ArrayList<>());
     assertEquals(
         null,
         usersTableSqlHelper.getUserWithUserId(testUser.getUserId().toString()),
@@ -99,7 +100,7 @@ public class UsersTableSqlHelperTests {
     ArrayList<User> users = new ArrayList<>();
     users.add(testUser);
     users.add(testUser);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(users);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(users);
     assertThrows(
         IllegalStateException.class,
         () -> usersTableSqlHelper.getUserWithUserId(testUser.getUserId().toString()),
@@ -107,7 +108,7 @@ public class UsersTableSqlHelperTests {
 
     // Test successful retrieval
     users.remove(0);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(users);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(users);
     User actualUser = usersTableSqlHelper.getUserWithUserId(testUser.getUserId().toString());
     assertEquals(testUser, actualUser, "Should return the correct user.");
   }
@@ -116,7 +117,8 @@ public class UsersTableSqlHelperTests {
   @Test
   public void testGetUserWithUsername() {
     // Test empty list
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(new ArrayList<>());
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString()))
+        .thenReturn(new ArrayList<>());
     assertEquals(
         null,
         usersTableSqlHelper.getUserWithUsername(testUser.getUsername()),
@@ -126,7 +128,7 @@ public class UsersTableSqlHelperTests {
     ArrayList<User> users = new ArrayList<>();
     users.add(testUser);
     users.add(testUser);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(users);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(users);
     assertThrows(
         IllegalStateException.class,
         () -> usersTableSqlHelper.getUserWithUsername(testUser.getUsername()),
@@ -134,7 +136,7 @@ public class UsersTableSqlHelperTests {
 
     // Test successful retrieval
     users.remove(0);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenReturn(users);
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyString())).thenReturn(users);
     User actualUser = usersTableSqlHelper.getUserWithUsername(testUser.getUsername());
     assertEquals(testUser, actualUser, "Should return the correct user.");
   }
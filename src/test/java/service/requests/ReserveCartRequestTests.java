@@ -0,0 +1,31 @@
+package service.requests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Reserve cart request tests. */
+@SpringBootTest
+public class ReserveCartRequestTests {
+
+  /** Test a cart request body is read from JSON. */
+  @Test
+  public void testReadFromJson() throws JsonProcessingException {
+    String json =
+        "{\"durationInMillis\": 600000, \"items\": ["
+            + "{\"itemId\": \"505234a2-da43-416c-a579-b9235c9be738\", \"quantity\": 2},"
+            + "{\"itemId\": \"dd18911c-a3fd-4f08-819e-a917f2baad18\", \"quantity\": 1}]}";
+
+    ReserveCartRequest request = new ObjectMapper().readValue(json, ReserveCartRequest.class);
+
+    assertThat(request.getDurationInMillis()).isEqualTo(600_000);
+    assertThat(request.getItems()).hasSize(2);
+    assertThat(request.getItems().get(0).getItemId())
+        .isEqualTo("505234a2-da43-416c-a579-b9235c9be738");
+    assertThat(request.getItems().get(0).getQuantity()).isEqualTo(2);
+    assertThat(request.getItems().get(1).getQuantity()).isEqualTo(1);
+  }
+}
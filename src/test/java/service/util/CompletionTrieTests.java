@@ -0,0 +1,64 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Completion trie tests. */
+@SpringBootTest
+public class CompletionTrieTests {
+
+  private final CompletionTrie<Integer> trie =
+      new CompletionTrie<>(
+          3, List.of(Comparator.<Integer>reverseOrder(), Comparator.<Integer>naturalOrder()));
+
+  /** Test each prefix lists its best entries under both orders. */
+  @Test
+  public void testComplete() {
+    trie.add("sock", 1);
+    trie.add("socket", 5);
+    trie.add("sole", 3);
+    trie.add("hat", 9);
+    trie.add("sock", 7);
+
+    assertEquals(List.of(7, 5, 3), trie.complete("so", 0, 10));
+    assertEquals(List.of(1, 3, 5), trie.complete("so", 1, 10));
+    assertEquals(List.of(7, 5), trie.complete("sock", 0, 2));
+    assertEquals(List.of(9, 7, 5), trie.complete("", 0, 3));
+    assertEquals(List.of(), trie.complete("socks", 0, 3));
+    assertEquals(Set.of(1, 7), trie.entries("sock"));
+    assertEquals(Set.of(), trie.entries("soc"));
+
+    // Adding an entry twice under the same word keeps one copy
+    trie.add("sock", 7);
+    assertEquals(List.of(7, 5, 3), trie.complete("s", 0, 3));
+  }
+
+  /** Test removals refill the lists from the entries left and prune empty branches. */
+  @Test
+  public void testRemove() {
+    IntStream.range(0, 20).forEach(i -> trie.add("item" + i, i));
+    trie.add("other", 19);
+    assertEquals(List.of(19, 18, 17), trie.complete("item", 0, 3));
+
+    trie.remove("item19", 19);
+    trie.remove("item18", 18);
+    assertEquals(List.of(17, 16, 15), trie.complete("item", 0, 3));
+    assertEquals(List.of(19, 17, 16), trie.complete("", 0, 3));
+    assertEquals(List.of(), trie.complete("item19", 0, 3));
+
+    // Removing an entry that is not stored under the word changes nothing
+    trie.remove("item1", 17);
+    trie.remove("missing", 17);
+    assertEquals(List.of(17, 16, 15), trie.complete("item", 0, 3));
+
+    trie.remove("other", 19);
+    assertEquals(List.of(), trie.complete("o", 0, 3));
+    assertEquals(List.of(0, 1, 2), trie.complete("i", 1, 3));
+  }
+}
@@ -0,0 +1,62 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Interval index tests. */
+@SpringBootTest
+public class IntervalIndexTests {
+
+  /** Test overlapping intervals are found and rejected, and touching ones are not. */
+  @Test
+  public void testOverlaps() {
+    IntervalIndex<Integer> index = new IntervalIndex<>();
+    assertTrue(index.add(10, 20, "a"));
+    assertTrue(index.add(30, 40, "b"));
+    assertTrue(index.add(20, 30, "c"));
+    assertFalse(index.add(15, 16, "d"));
+    assertFalse(index.add(0, 100, "e"));
+    assertFalse(index.add(5, 5, "f"));
+    assertEquals(3, index.size());
+
+    assertEquals("a", index.findOverlap(19, 20).getKey());
+    assertEquals("c", index.findOverlap(19, 25).getKey());
+    assertEquals("b", index.findOverlap(39, 45).getKey());
+    assertNull(index.findOverlap(0, 10));
+    assertNull(index.findOverlap(40, 50));
+
+    assertFalse(index.remove(20, "a"));
+    assertTrue(index.remove(20, "c"));
+    assertNull(index.findOverlap(20, 30));
+  }
+
+  /** Test the gaps of a range are listed in order, clipped to the range. */
+  @Test
+  public void testFindGaps() {
+    IntervalIndex<Integer> index = new IntervalIndex<>();
+    index.add(10, 20, "a");
+    index.add(30, 40, "b");
+    index.add(40, 45, "c");
+    index.add(60, 70, "d");
+
+    assertEquals(List.of("0-10", "20-30", "45-60", "70-100"), gaps(index, 0, 100));
+    assertEquals(List.of("20-30", "45-50"), gaps(index, 15, 50));
+    assertEquals(List.of(), gaps(index, 31, 44));
+    assertEquals(List.of("0-5"), gaps(new IntervalIndex<>(), 0, 5));
+  }
+
+  private static List<String> gaps(IntervalIndex<Integer> index, int from, int to) {
+    List<String> gaps = new ArrayList<>();
+    for (IntervalIndex.Interval<Integer> gap : index.findGaps(from, to)) {
+      gaps.add(gap.getStart() + "-" + gap.getEnd());
+    }
+    return gaps;
+  }
+}
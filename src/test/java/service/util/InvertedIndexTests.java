@@ -0,0 +1,75 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Inverted index tests. */
+@SpringBootTest
+public class InvertedIndexTests {
+
+  /** Test text is split into distinct lower case words. */
+  @Test
+  public void testTokenize() {
+    assertEquals(
+        List.of("red", "socks", "2", "pack"), InvertedIndex.tokenize("Red socks (2-pack), RED"));
+    assertEquals(List.of("café", "b12"), InvertedIndex.tokenize("  Café/B12 "));
+    assertEquals(List.of(), InvertedIndex.tokenize("--"));
+    assertEquals(List.of(), InvertedIndex.tokenize(null));
+  }
+
+  /** Test intersections across lists long enough to skip whole blocks, and across big gaps. */
+  @Test
+  public void testIntersect() {
+    InvertedIndex index = new InvertedIndex();
+    for (int doc = 0; doc < 10_000; doc++) {
+      if (doc % 3 == 0) {
+        index.add(doc, List.of("all", "three"));
+      } else if (doc % 7 == 0) {
+        index.add(doc, List.of("all", "seven"));
+      } else {
+        index.add(doc, List.of("all"));
+      }
+    }
+    index.add(5_000_000, List.of("all", "three", "seven"));
+
+    assertEquals(10_001, index.documentFrequency("all"));
+    assertEquals(0, index.documentFrequency("none"));
+    int[] multiplesOfThree =
+        IntStream.concat(
+                IntStream.range(0, 10_000).filter(doc -> doc % 3 == 0), IntStream.of(5_000_000))
+            .toArray();
+    assertArrayEquals(multiplesOfThree, index.intersect(List.of("all", "three")));
+    // Multiples of 21 are only listed under three, so seven and three meet at the last doc alone
+    assertArrayEquals(new int[] {5_000_000}, index.intersect(List.of("three", "seven", "all")));
+    assertArrayEquals(new int[0], index.intersect(List.of("all", "none")));
+    assertArrayEquals(new int[0], index.intersect(List.of()));
+
+    assertThrows(IllegalArgumentException.class, () -> index.add(5_000_000, List.of("late")));
+  }
+
+  /** Test compacting drops the documents not kept, and the lists left empty. */
+  @Test
+  public void testCompact() {
+    InvertedIndex index = new InvertedIndex();
+    for (int doc = 0; doc < 1000; doc++) {
+      index.add(doc, doc < 10 ? List.of("even", "small") : List.of(doc % 2 == 0 ? "even" : "odd"));
+    }
+    final long bytes = index.postingBytes();
+
+    index.compact(doc -> doc >= 500 || doc >= 10 && doc % 2 == 1);
+    assertEquals(2, index.termCount());
+    assertEquals(250, index.documentFrequency("even"));
+    assertEquals(495, index.documentFrequency("odd"));
+    assertEquals(0, index.documentFrequency("small"));
+    assertArrayEquals(
+        IntStream.range(500, 1000).filter(doc -> doc % 2 == 0).toArray(),
+        index.intersect(List.of("even")));
+    assertEquals(bytes - 264, index.postingBytes());
+  }
+}
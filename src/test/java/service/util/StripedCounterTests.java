@@ -0,0 +1,65 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Striped counter tests. */
+@SpringBootTest
+public class StripedCounterTests {
+
+  /** Test takes never go below zero and drain empties every stripe. */
+  @Test
+  public void testTakeAddAndDrain() {
+    StripedCounter counter = new StripedCounter(4);
+    assertFalse(counter.tryTake(1));
+    counter.add(5);
+    assertTrue(counter.tryTake(3));
+    assertFalse(counter.tryTake(3));
+    assertEquals(2, counter.sum());
+    assertEquals(2, counter.drain());
+    assertEquals(0, counter.sum());
+    assertFalse(counter.tryTake(1));
+  }
+
+  /** Test threads racing to take units take exactly what was added, no more and no less. */
+  @Test
+  public void testConcurrentTakesAreExact() throws InterruptedException {
+    final StripedCounter counter = new StripedCounter(8);
+    final int threads = 32;
+    final long units = 100_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicLong taken = new AtomicLong();
+    // Units land on the adding threads' stripes, and takers must find them on other stripes
+    for (int i = 0; i < threads; i++) {
+      executor.execute(
+          () -> {
+            counter.add(units / threads);
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+            while (counter.tryTake(1)) {
+              taken.incrementAndGet();
+            }
+          });
+    }
+    start.countDown();
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    assertEquals(units, taken.get());
+    assertEquals(0, counter.drain());
+  }
+}
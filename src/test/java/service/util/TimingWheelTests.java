@@ -0,0 +1,108 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Timing wheel tests. */
+@SpringBootTest
+public class TimingWheelTests {
+
+  private static final long TICK = 10;
+
+  private static final long START = 1_000_000;
+
+  private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+  private ExecutorService workers;
+
+  private TimingWheel<String> wheel;
+
+  /** Creates a stopped wheel that is advanced by hand. */
+  @BeforeEach
+  public void setUp() {
+    workers = Executors.newSingleThreadExecutor();
+    wheel = new TimingWheel<>(TICK, 2, workers, batches::add, START);
+  }
+
+  /** Stops the wheel's workers. */
+  @AfterEach
+  public void tearDown() {
+    wheel.close();
+  }
+
+  /** Test a timer fires once its deadline has passed, and not before. */
+  @Test
+  public void testFiresAtDeadline() throws Exception {
+    wheel.schedule("a", START + 5 * TICK);
+    assertEquals(List.of(), advanceTo(START + 5 * TICK - 1));
+    assertEquals(List.of("a"), advanceTo(START + 5 * TICK));
+    assertEquals(0, wheel.size());
+    assertEquals(List.of(), advanceTo(START + 10 * TICK));
+  }
+
+  /** Test timers far enough out to sit in the higher levels fire on time. */
+  @Test
+  public void testLongDelaysCascade() throws Exception {
+    final long second = START + 300 * TICK;
+    final long third = START + 70_000 * TICK;
+    wheel.schedule("second", second);
+    wheel.schedule("third", third);
+
+    assertEquals(List.of(), advanceTo(second - TICK));
+    assertEquals(List.of("second"), advanceTo(second));
+    assertEquals(List.of(), advanceTo(third - TICK));
+    assertEquals(List.of("third"), advanceTo(third));
+  }
+
+  /** Test scheduling a key again moves its timer instead of adding another. */
+  @Test
+  public void testRescheduleMovesTimer() throws Exception {
+    wheel.schedule("a", START + 5 * TICK);
+    wheel.schedule("a", START + 500 * TICK);
+    assertEquals(1, wheel.size());
+
+    assertEquals(List.of(), advanceTo(START + 499 * TICK));
+    assertEquals(List.of("a"), advanceTo(START + 500 * TICK));
+  }
+
+  /** Test a cancelled timer does not fire. */
+  @Test
+  public void testCancel() throws Exception {
+    wheel.schedule("a", START + 5 * TICK);
+    assertTrue(wheel.cancel("a"));
+    assertFalse(wheel.cancel("a"));
+    assertEquals(List.of(), advanceTo(START + 10 * TICK));
+  }
+
+  /** Test due keys are handed out in batches, with past deadlines due on the next advance. */
+  @Test
+  public void testBatches() throws Exception {
+    for (String key : List.of("a", "b", "c", "d", "e")) {
+      wheel.schedule(key, START - TICK);
+    }
+    assertEquals(List.of("a", "b", "c", "d", "e"), advanceTo(START));
+    assertEquals(List.of(List.of("a", "b"), List.of("c", "d"), List.of("e")), batches);
+  }
+
+  private List<String> advanceTo(long nowMillis) throws ExecutionException, InterruptedException {
+    batches.clear();
+    wheel.advanceTo(nowMillis);
+    // The single worker runs batches in order, so this waits for every batch handed out
+    workers.submit(() -> {}).get();
+    List<String> fired = new ArrayList<>();
+    batches.forEach(fired::addAll);
+    return fired;
+  }
+}
@@ -0,0 +1,90 @@
+package service.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/** The type Uuid codec tests. */
+@SpringBootTest
+public class UuidCodecTests {
+
+  @Mock private ResultSet resultSet;
+
+  /** Test time ordered uuid. */
+  @Test
+  public void testTimeOrderedUuid() throws InterruptedException {
+    UUID first = UuidCodec.timeOrderedUuid();
+    assertEquals(7, first.version());
+    assertEquals(2, first.variant());
+    long nowMillis = System.currentTimeMillis();
+    long firstMillis = first.getMostSignificantBits() >>> 16;
+    assertTrue(nowMillis - firstMillis >= 0 && nowMillis - firstMillis < 1000);
+
+    Thread.sleep(2);
+    final UUID second = UuidCodec.timeOrderedUuid();
+    // Later keys must sort after earlier ones both as UUID text and as BINARY(16) bytes
+    assertTrue(first.toString().compareTo(second.toString()) < 0);
+    assertTrue(Arrays.compareUnsigned(UuidCodec.toBytes(first), UuidCodec.toBytes(second)) < 0);
+  }
+
+  /** Test bytes and text conversions. */
+  @Test
+  public void testConversions() {
+    UUID uuid = UUID.fromString("c56a4180-65aa-42ec-a945-5fd21dec0538");
+    byte[] bytes = UuidCodec.toBytes(uuid);
+
+    assertEquals(16, bytes.length);
+    assertEquals((byte) 0xc5, bytes[0]);
+    assertEquals((byte) 0x38, bytes[15]);
+    assertEquals(uuid, UuidCodec.fromBytes(bytes));
+    assertEquals(uuid.toString(), UuidCodec.toText(bytes));
+    assertEquals(uuid, UuidCodec.fromText(uuid.toString()));
+    assertEquals(uuid, UuidCodec.fromText(uuid.toString().toUpperCase()));
+
+    assertThrows(IllegalArgumentException.class, () -> UuidCodec.fromText("not-a-uuid"));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> UuidCodec.fromText("c56a4180-65aa-42ec-a945-5fd21dec053g"));
+    assertThrows(IllegalArgumentException.class, () -> UuidCodec.fromBytes(new byte[4]));
+  }
+
+  /** Test bind. */
+  @Test
+  public void testBind() {
+    UUID uuid = UUID.randomUUID();
+    String id = uuid.toString();
+
+    assertSame(id, UuidCodec.CHAR.bind(id));
+    assertEquals(id, UuidCodec.CHAR.bind(uuid));
+    assertArrayEquals(UuidCodec.toBytes(uuid), (byte[]) UuidCodec.BINARY.bind(id));
+    assertArrayEquals(UuidCodec.toBytes(uuid), (byte[]) UuidCodec.BINARY.bind(uuid));
+    // Text that is not a UUID is bound as is so it simply matches no rows
+    assertEquals("missing", UuidCodec.BINARY.bind("missing"));
+  }
+
+  /** Test read. */
+  @Test
+  public void testRead() throws SQLException {
+    UUID uuid = UUID.randomUUID();
+    when(resultSet.getString(1)).thenReturn(uuid.toString());
+    when(resultSet.getBytes(1)).thenReturn(UuidCodec.toBytes(uuid));
+    when(resultSet.getBytes("user_id")).thenReturn(UuidCodec.toBytes(uuid));
+
+    assertEquals(uuid, UuidCodec.CHAR.read(resultSet, 1));
+    assertEquals(uuid, UuidCodec.BINARY.read(resultSet, 1));
+    assertEquals(uuid.toString(), UuidCodec.BINARY.readText(resultSet, "user_id"));
+    assertNull(UuidCodec.BINARY.read(resultSet, 2));
+  }
+}
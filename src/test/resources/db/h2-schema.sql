@@ -0,0 +1,44 @@
+-- H2 (MySQL mode) copy of the tables in src/main/resources/schema.sql for query plan tests.
+-- H2 cannot run the MySQL triggers, so only the tables are created here.
+CREATE TABLE Inventories (
+    inventory_id CHAR(36) PRIMARY KEY,
+    inventory_name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE Items (
+    item_id CHAR(36) PRIMARY KEY,
+    item_name VARCHAR(255) NOT NULL,
+    time_of_addition DATETIME NOT NULL,
+    quantity INT NOT NULL,
+    reserved_status BOOLEAN DEFAULT FALSE,
+    reservation_duration BIGINT NULL,
+    reservation_time DATETIME NULL,
+    location VARCHAR(255) NULL,
+    price DECIMAL(10,2) NOT NULL,
+    next_restock DATETIME NULL,
+    inventory_id CHAR(36) NOT NULL
+);
+
+CREATE TABLE Users (
+    user_id CHAR(36) PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(16) NOT NULL DEFAULT 'USER',
+    last_access DATETIME NOT NULL
+);
+
+CREATE TABLE User_Inventories (
+    user_id CHAR(36),
+    username VARCHAR(255) NOT NULL,
+    inventory_id CHAR(36),
+    inventory_name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_id, inventory_id)
+);
+
+CREATE TABLE Inventory_Items (
+    inventory_id CHAR(36),
+    inventory_name VARCHAR(255) NOT NULL,
+    item_id CHAR(36),
+    item_name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (inventory_id, item_id)
+);
@@ -0,0 +1,7 @@
+-- Table used by the migration runner tests
+CREATE TABLE Widgets (
+    widget_id INT PRIMARY KEY,  -- Key
+    label VARCHAR(255) NOT NULL  -- Label, may contain ; and --
+);
+
+INSERT INTO Widgets (widget_id, label) VALUES (1, 'semi;colon'), (2, 'dash -- dash');
@@ -0,0 +1,4 @@
+DELIMITER $$
+CREATE INDEX idx_widgets_label ON Widgets (label)$$
+INSERT INTO Widgets (widget_id, label) VALUES (3, 'three;')$$
+DELIMITER ;
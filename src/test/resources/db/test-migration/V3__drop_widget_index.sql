@@ -0,0 +1,2 @@
+-- Drops the index again, to run an index drop that may already be done
+DROP INDEX idx_widgets_label ON Widgets;